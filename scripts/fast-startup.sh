@@ -0,0 +1,93 @@
+#!/usr/bin/env bash
+# 起動時間を短縮した配布物（mvn -Pfast-startup package / ./gradlew fastStartup）の学習と起動
+#
+#   fast-startup.sh train <ディレクトリ> [Springプロファイル]  代表的なリクエストを処理させて AppCDS のアーカイブを作成する
+#   fast-startup.sh run   <ディレクトリ> [Springプロファイル] [アプリケーションの引数...]
+#                                                             Spring AOT と AppCDS のアーカイブを使用して起動する
+#
+# ディレクトリには依存ライブラリを Class-Path に列挙した jar と lib/ を置く（ビルドで作成される）。
+# CDS のアーカイブはクラスパスと JVM のオプションが学習時と同じ場合のみ使用されるため、学習と起動は必ずこのスクリプトで行う。
+# 環境変数: JAVA（java コマンド、既定は PATH の java）、TRAINING_PORT（学習時のポート、既定は 18080）、
+#           JAVA_OPTS（追加の JVM オプション。学習時と起動時で同じにすること）
+set -euo pipefail
+
+usage() {
+    echo "使用方法: $0 <train|run> <ディレクトリ> [Springプロファイル] [引数...]" >&2
+    exit 2
+}
+
+[ $# -ge 2 ] || usage
+command=$1
+directory=$2
+profiles=${3:-default}
+shift $(( $# >= 3 ? 3 : 2 ))
+
+java=${JAVA:-java}
+jar=$(find "$directory" -maxdepth 1 -name '*.jar' | head -n 1)
+archive=$directory/calculator.jsa
+[ -n "$jar" ] || { echo "jar が見つかりません: $directory" >&2; exit 1; }
+
+# AOT で生成した Bean 定義を使用する（AOT 処理時と同じプロファイルで起動すること）
+# Vector API のモジュールは学習時と起動時で揃える（モジュールの構成が異なるとアーカイブが使用されない）
+jvm_options=(-Dspring.aot.enabled=true --add-modules jdk.incubator.vector ${JAVA_OPTS:-})
+
+# 学習用の代表的なリクエスト（画面・計算API・一括計算・ストリーミング・変数付き数式・逐次評価・アクチュエーター）
+workload() {
+    local base=$1 cookies=$2 id
+    curl -s -o /dev/null "$base/calculator"
+    curl -s -o /dev/null -b "$cookies" -c "$cookies" -d 'expression=1+2*3' "$base/calculator/calculate"
+    for expression in '2 + 3 * 4' '(1.5 + 2.25) / 3' '10 / 3' 'sqrt(2) ^ 2 + sin(1)' '1 / 0' '2 +'; do
+        curl -s -o /dev/null -H 'Content-Type: application/json' \
+            -d "{\"expression\":\"$expression\"}" "$base/calculator/api/calculate"
+    done
+    curl -s -o /dev/null -H 'Content-Type: application/json' \
+        -d '{"expression":"1 / 3 * 3","exact":true,"scale":20,"roundingMode":"HALF_EVEN"}' "$base/calculator/api/calculate"
+    curl -s -o /dev/null -H 'Content-Type: application/json' \
+        -d '[{"expression":"1 + 1"},{"expression":"2 * (3 + 4)"},{"expression":"1 / 7","precision":5}]' \
+        "$base/calculator/api/calculate/batch"
+    printf '1 + 1\n2 * 3\n{"expression":"4 / 2"}\n' | curl -s -o /dev/null -H 'Content-Type: application/x-ndjson' \
+        --data-binary @- "$base/calculator/api/calculate/stream"
+    id=$(curl -s -H 'Content-Type: application/json' -d '{"expression":"price * (1 + rate)"}' \
+        "$base/calculator/api/formulas" | sed -n 's/.*"id":"\([^"]*\)".*/\1/p')
+    if [ -n "$id" ]; then
+        curl -s -o /dev/null -H 'Content-Type: application/json' \
+            -d '[{"price":100,"rate":0.1},{"price":250,"rate":0.08}]' "$base/calculator/api/formulas/$id/evaluate"
+    fi
+    curl -s -o /dev/null -b "$cookies" -c "$cookies" -X PUT -H 'Content-Type: application/json' \
+        -d '{"expression":"12 + 34"}' "$base/calculator/api/editor"
+    curl -s -o /dev/null -b "$cookies" -c "$cookies" -H 'Content-Type: application/json' \
+        -d '[{"position":2,"deleteCount":0,"text":"5"}]' "$base/calculator/api/editor/edits"
+    curl -s -o /dev/null "$base/actuator/health"
+    curl -s -o /dev/null "$base/actuator/metrics/calculator.stage"
+}
+
+train() {
+    local port=${TRAINING_PORT:-18080} work pid
+    work=$(mktemp -d)
+    rm -f "$archive"
+    # 終了時にアーカイブを書き出す（SIGTERM による正常終了で書き出される）
+    "$java" -XX:ArchiveClassesAtExit="$archive" "${jvm_options[@]}" -jar "$jar" \
+        --spring.profiles.active="$profiles" --server.port="$port" \
+        --calculator.audit.directory="$work/audit" --logging.level.root=WARN > "$work/training.log" 2>&1 &
+    pid=$!
+    for _ in $(seq 1 600); do
+        curl -s -o /dev/null "http://localhost:$port/actuator/health" && break
+        kill -0 "$pid" 2> /dev/null || { cat "$work/training.log" >&2; exit 1; }
+        sleep 0.1
+    done
+    for _ in 1 2 3; do
+        workload "http://localhost:$port" "$work/cookies"
+    done
+    kill -TERM "$pid"
+    wait "$pid" || true
+    rm -rf "$work"
+    [ -f "$archive" ] || { echo "アーカイブを作成できませんでした: $archive" >&2; exit 1; }
+    echo "AppCDS のアーカイブを作成しました: $archive ($(du -h "$archive" | cut -f1))"
+}
+
+case $command in
+    train) train ;;
+    run) exec "$java" -XX:SharedArchiveFile="$archive" "${jvm_options[@]}" -jar "$jar" \
+        --spring.profiles.active="$profiles" "$@" ;;
+    *) usage ;;
+esac
@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+# 起動時間と最初のリクエストの応答時間を構成ごとに計測する
+# 事前に mvn -Pfast-startup package（API のみの構成は -Pfast-startup,slim）でビルドしておく
+#
+#   measure-startup.sh [回数]
+#
+# 構成:
+#   jar           通常の実行可能 jar（java -jar）
+#   aot           Spring AOT（依存ライブラリを展開した jar、CDS は JDK 既定のアーカイブのみ）
+#   aot-cds       Spring AOT + 学習させた AppCDS のアーカイブ
+#   aot-cds-lazy  上記 + Bean の遅延初期化（spring.main.lazy-initialization=true）
+# 計測値（各構成の中央値）:
+#   ready    JVM の起動から /actuator/health が応答するまで
+#   started  Spring が報告する起動時間（Started ... in X seconds）
+#   first    準備完了後の最初の計算APIのリクエストの応答時間
+#   second   2回目の計算APIのリクエストの応答時間
+# 環境変数: JAVA、PORT（既定は 18081）、PROFILES（Spring プロファイル、既定は default。ビルド時と同じにすること）、
+#           TARGET（ビルドの出力先、既定は target）
+set -euo pipefail
+
+runs=${1:-5}
+export JAVA=${JAVA:-java}
+java=$JAVA
+port=${PORT:-18081}
+profiles=${PROFILES:-default}
+target=${TARGET:-target}
+script_dir=$(cd "$(dirname "$0")" && pwd)
+fat_jar=$(find "$target" -maxdepth 1 -name 'calculator-*.jar' ! -name '*-fast-startup.jar' | head -n 1)
+directory=$target/fast-startup
+thin_jar=$(find "$directory" -maxdepth 1 -name '*.jar' | head -n 1)
+[ -n "$fat_jar" ] && [ -n "$thin_jar" ] || { echo "mvn -Pfast-startup package でビルドしてください" >&2; exit 1; }
+
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+common_args=(--server.port="$port" --spring.profiles.active="$profiles" --calculator.audit.directory="$work/audit")
+
+# 計測後に停止できるよう、バックグラウンドのサブシェルを java のプロセスに置き換える
+start() {
+    case $1 in
+        jar) exec "$java" --add-modules jdk.incubator.vector -jar "$fat_jar" "${common_args[@]}" ;;
+        aot) exec "$java" -Dspring.aot.enabled=true --add-modules jdk.incubator.vector -jar "$thin_jar" "${common_args[@]}" ;;
+        aot-cds) exec "$script_dir/fast-startup.sh" run "$directory" "$profiles" "${common_args[@]}" ;;
+        aot-cds-lazy) exec "$script_dir/fast-startup.sh" run "$directory" "$profiles" "${common_args[@]}" \
+            --spring.main.lazy-initialization=true ;;
+    esac
+}
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+request_ms() {
+    curl -s -o /dev/null -w '%{time_total}' -H 'Content-Type: application/json' \
+        -d '{"expression":"(1.5 + 2.25) * 4 / 3"}' "http://localhost:$port/calculator/api/calculate" \
+        | awk '{ printf "%d", $1 * 1000 }'
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+printf '%-14s %10s %10s %10s %10s\n' "構成" "ready(ms)" "started(ms)" "first(ms)" "second(ms)"
+for variant in jar aot aot-cds aot-cds-lazy; do
+    : > "$work/results"
+    for _ in $(seq 1 "$runs"); do
+        begin=$(now_ms)
+        start "$variant" > "$work/app.log" 2>&1 &
+        pid=$!
+        until curl -s -o /dev/null "http://localhost:$port/actuator/health"; do
+            kill -0 "$pid" 2> /dev/null || { cat "$work/app.log" >&2; exit 1; }
+            sleep 0.01
+        done
+        ready=$(( $(now_ms) - begin ))
+        first=$(request_ms)
+        second=$(request_ms)
+        started=$(sed -n 's/.*Started CalculatorApplication in \([0-9.]*\) seconds.*/\1/p' "$work/app.log" \
+            | awk '{ printf "%d", $1 * 1000 }')
+        echo "$ready ${started:-0} $first $second" >> "$work/results"
+        kill -TERM "$pid"
+        wait "$pid" || true
+    done
+    printf '%-14s %10s %10s %10s %10s\n' "$variant" \
+        "$(cut -d' ' -f1 "$work/results" | median)" "$(cut -d' ' -f2 "$work/results" | median)" \
+        "$(cut -d' ' -f3 "$work/results" | median)" "$(cut -d' ' -f4 "$work/results" | median)"
+done
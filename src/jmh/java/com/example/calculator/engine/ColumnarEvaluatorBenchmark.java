@@ -0,0 +1,112 @@
+package com.example.calculator.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1つの式を1000万行に適用する列単位の評価のベンチマーク
+ * 行ごとに命令列を double で解釈する場合と、列単位の評価（スカラー・Vector API、逐次・並列）を比較する
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ColumnarEvaluatorBenchmark {
+
+    private static final int ROWS = 10_000_000;
+
+    /** 式（ARITHMETIC: 四則演算のみ、FUNCTIONS: 関数を含む） */
+    @Param({"ARITHMETIC", "FUNCTIONS"})
+    public String expression;
+
+    private CompiledExpression compiled;
+    private double[][] columns;
+    private double[] output;
+    private ColumnarEvaluator scalar;
+    private ColumnarEvaluator vector;
+    private ColumnarEvaluator vectorParallel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compiled = ExpressionParser.parseWithVariables(expression.equals("ARITHMETIC")
+                ? "price * (1 + rate) - cost / 2 + price * rate * 0.25"
+                : "sqrt(price * price + cost * cost) + exp(rate) * ln(price + 1)");
+        Random random = new Random(42);
+        columns = new double[compiled.variables().size()][ROWS];
+        for (double[] column : columns) {
+            for (int i = 0; i < ROWS; i++) {
+                column[i] = random.nextDouble() * 100;
+            }
+        }
+        output = new double[ROWS];
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        scalar = new ColumnarEvaluator(compiled, ColumnKernels.scalar(), pool, Integer.MAX_VALUE / 2);
+        vector = new ColumnarEvaluator(compiled, ColumnKernels.preferred(), pool, Integer.MAX_VALUE / 2);
+        vectorParallel = new ColumnarEvaluator(compiled, ColumnKernels.preferred(), pool,
+                ColumnarEvaluator.DEFAULT_GRAIN);
+    }
+
+    /**
+     * 行ごとに命令列を解釈する（比較の基準）
+     */
+    @Benchmark
+    public double[] rowByRow() {
+        int[] code = compiled.code();
+        double[] constants = new double[compiled.constants().length];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = compiled.constants()[i].doubleValue();
+        }
+        double[] stack = new double[compiled.maxStackDepth()];
+        for (int row = 0; row < ROWS; row++) {
+            int size = 0;
+            for (int instruction : code) {
+                if (instruction >= 0) {
+                    stack[size++] = constants[instruction];
+                } else if (instruction <= CompiledExpression.VARIABLE_BASE) {
+                    stack[size++] = columns[CompiledExpression.VARIABLE_BASE - instruction][row];
+                } else if (CompiledExpression.isFunction(instruction)) {
+                    stack[size - 1] = ColumnKernels.apply(instruction, stack[size - 1]);
+                } else {
+                    double b = stack[--size];
+                    stack[size - 1] = ColumnKernels.apply(instruction, stack[size - 1], b);
+                }
+            }
+            output[row] = stack[0];
+        }
+        return output;
+    }
+
+    @Benchmark
+    public double[] scalar() {
+        scalar.evaluate(columns, output);
+        return output;
+    }
+
+    @Benchmark
+    public double[] vector() {
+        vector.evaluate(columns, output);
+        return output;
+    }
+
+    @Benchmark
+    public double[] vectorParallel() {
+        vectorParallel.evaluate(columns, output);
+        return output;
+    }
+}
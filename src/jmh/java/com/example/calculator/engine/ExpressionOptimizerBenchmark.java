@@ -0,0 +1,93 @@
+package com.example.calculator.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 式の最適化（定数畳み込み・共通部分式の除去）のベンチマーク
+ * 帳票ツールが生成する式を想定し、少数の括弧付きの部分式（定数のみの部分式を含む）を繰り返し組み合わせた式について、
+ * 最適化のコストと、最適化の前後の評価（BigDecimal のみ・高速評価あり）を比較する
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionOptimizerBenchmark {
+
+    private static final Precision PRECISION = Precision.ofScale(10, RoundingMode.HALF_UP);
+
+    /** 式に含まれる部分式の数 */
+    @Param({"16", "256"})
+    public int terms;
+
+    /** 異なる部分式の種類（少ないほど繰り返しが多い） */
+    @Param({"4", "64"})
+    public int distinct;
+
+    private CompiledExpression compiled;
+    private CompiledExpression optimized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(terms * 31L + distinct);
+        String[] subexpressions = new String[distinct];
+        for (int i = 0; i < distinct; i++) {
+            subexpressions[i] = "((" + (random.nextInt(90) + 10) + ".5 * 12 + 3) / " + (random.nextInt(9) + 1)
+                    + " - " + (random.nextInt(900) + 100) + " * 1.08)";
+        }
+        StringBuilder expression = new StringBuilder(subexpressions[0]);
+        for (int i = 1; i < terms; i++) {
+            expression.append(i % 3 == 0 ? " - " : " + ").append(subexpressions[random.nextInt(distinct)]);
+        }
+        compiled = ExpressionParser.parse(expression.toString());
+        optimized = ExpressionOptimizer.optimize(compiled);
+    }
+
+    @Benchmark
+    public CompiledExpression optimize() {
+        return ExpressionOptimizer.optimize(compiled);
+    }
+
+    /** キャッシュされていない式を1回だけ評価する場合（最適化のコストを含む） */
+    @Benchmark
+    public BigDecimal optimizeAndEvaluate() {
+        return ExpressionOptimizer.optimize(compiled).evaluate(PRECISION);
+    }
+
+    @Benchmark
+    public BigDecimal evaluateBigDecimal() {
+        return compiled.evaluateBigDecimal(PRECISION);
+    }
+
+    @Benchmark
+    public BigDecimal evaluateBigDecimalOptimized() {
+        return optimized.evaluateBigDecimal(PRECISION);
+    }
+
+    @Benchmark
+    public BigDecimal evaluate() {
+        return compiled.evaluate(PRECISION);
+    }
+
+    @Benchmark
+    public BigDecimal evaluateOptimized() {
+        return optimized.evaluate(PRECISION);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.calculator.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 入力中の式の逐次評価のベンチマーク
+ * 式の中央の数値を1文字書き換えるキー入力ごとに、式全体を解析・評価し直す場合と
+ * 編集だけを適用して再評価する場合（{@link IncrementalExpression}）を比較する
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncrementalExpressionBenchmark {
+
+    private static final Precision PRECISION = Precision.ofScale(10, RoundingMode.HALF_UP);
+
+    /** 式に含まれる項の数 */
+    @Param({"10", "1000", "100000"})
+    public int terms;
+
+    private ExpressionEvaluator evaluator;
+    private StringBuilder text;
+    private IncrementalExpression incremental;
+    private int position;
+    private char digit;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(terms);
+        text = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                text.append(i % 5 == 0 ? " - " : " + ");
+            }
+            text.append(random.nextInt(100_000)).append('.').append(random.nextInt(100)).append(" * ")
+                    .append(random.nextInt(1000)).append(i % 10 == 0 ? " / 7" : " * (1 + 0.08)");
+        }
+        evaluator = new ExpressionEvaluator(true, 0);
+        incremental = new IncrementalExpression(evaluator, PRECISION);
+        incremental.setText(text.toString());
+        position = text.length() / 2;
+        while (!Character.isDigit(text.charAt(position))) {
+            position++;
+        }
+        digit = text.charAt(position);
+    }
+
+    private String nextDigit() {
+        digit = digit == '9' ? '1' : (char) (digit + 1);
+        text.setCharAt(position, digit);
+        return String.valueOf(digit);
+    }
+
+    /** キー入力ごとに式全体を解析・評価する（従来の方法） */
+    @Benchmark
+    public BigDecimal full() {
+        nextDigit();
+        return evaluator.evaluate(ExpressionParser.parse(text.toString()), PRECISION);
+    }
+
+    /** 編集だけを適用して再評価する */
+    @Benchmark
+    public BigDecimal incremental() {
+        incremental.edit(position, 1, nextDigit());
+        return incremental.evaluate();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.calculator.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 桁数の大きい数値の変換と演算のベンチマーク
+ * 文字列からの変換・乗算・結果のフォーマット（末尾の0の除去と文字列化）について、
+ * JDK の実装と {@link LargeNumbers} を1000〜100万桁で比較する。
+ * フォーマットの対象は桁数の1/10の末尾の0を含む値とする（スケールを大きく指定した除算の結果に相当）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LargeNumberBenchmark {
+
+    /** オペランドの桁数 */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int digits;
+
+    private char[] text;
+    private BigDecimal a;
+    private BigDecimal b;
+    private BigDecimal withTrailingZeros;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(digits);
+        text = new char[digits + 1];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (char) ('0' + random.nextInt(10));
+        }
+        text[0] = '1';
+        text[digits - 4] = '.';
+        a = LargeNumbers.parse(text, 0, text.length);
+        b = a.negate().add(BigDecimal.ONE);
+        withTrailingZeros = a.setScale(a.scale() + digits / 10);
+    }
+
+    @Benchmark
+    public BigDecimal parseJdk() {
+        return new BigDecimal(text, 0, text.length);
+    }
+
+    @Benchmark
+    public BigDecimal parse() {
+        return LargeNumbers.parse(text, 0, text.length);
+    }
+
+    @Benchmark
+    public BigDecimal multiplyJdk() {
+        return a.multiply(b);
+    }
+
+    @Benchmark
+    public BigDecimal multiply() {
+        return LargeNumbers.multiply(a, b);
+    }
+
+    @Benchmark
+    public String formatJdk() {
+        return withTrailingZeros.stripTrailingZeros().toPlainString();
+    }
+
+    @Benchmark
+    public String format() {
+        return LargeNumbers.stripTrailingZeros(withTrailingZeros).toPlainString();
+    }
+}
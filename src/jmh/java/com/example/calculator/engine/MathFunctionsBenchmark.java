@@ -0,0 +1,93 @@
+package com.example.calculator.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 関数と累乗の評価コストのベンチマーク
+ * 各関数を小数点以下10〜1000桁で計測する。15桁以下の指定では double による計算が使われる。
+ * 整数乗は、同じ数の乗算を繰り返す式と {@code ^} を使った式を比較する
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class MathFunctionsBenchmark {
+
+    /**
+     * 関数の式
+     */
+    @State(Scope.Thread)
+    public static class Function {
+
+        /** 関数（pow は非整数乗） */
+        @Param({"sqrt", "exp", "ln", "sin", "pow"})
+        public String function;
+
+        /** 小数点以下の桁数 */
+        @Param({"10", "50", "1000"})
+        public int digits;
+
+        private CompiledExpression compiled;
+        private Precision precision;
+        private final ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 0);
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            compiled = ExpressionParser.parse(function.equals("pow") ? "1.2345 ^ 2.5" : function + "(1.2345)");
+            precision = Precision.ofScale(digits, RoundingMode.HALF_UP);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal function(Function state) {
+        return state.evaluator.evaluate(state.compiled, state.precision);
+    }
+
+    /**
+     * 整数乗の式
+     */
+    @State(Scope.Thread)
+    public static class IntegerPower {
+
+        /** 指数 */
+        @Param({"16", "256"})
+        public int exponent;
+
+        private CompiledExpression multiplication;
+        private CompiledExpression power;
+        private final Precision precision = Precision.ofScale(10, RoundingMode.HALF_UP);
+        private final ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 0);
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            multiplication = ExpressionParser.parse("1.0001" + " * 1.0001".repeat(exponent - 1));
+            power = ExpressionParser.parse("1.0001 ^ " + exponent);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal integerPowerByMultiplication(IntegerPower state) {
+        return state.evaluator.evaluate(state.multiplication, state.precision);
+    }
+
+    @Benchmark
+    public BigDecimal integerPower(IntegerPower state) {
+        return state.evaluator.evaluate(state.power, state.precision);
+    }
+}
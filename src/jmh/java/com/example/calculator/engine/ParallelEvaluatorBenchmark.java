@@ -0,0 +1,77 @@
+package com.example.calculator.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大きい数式の並列評価のベンチマーク
+ * スプレッドシートから出力される積の和（一部の項は除算を含む）を、逐次評価と ForkJoinPool による並列評価で比較する。
+ * 並列評価の効果は実行環境のコア数に依存する
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelEvaluatorBenchmark {
+
+    private static final Precision PRECISION = Precision.ofScale(10, RoundingMode.HALF_UP);
+    private static final BigDecimal[] NO_BINDINGS = new BigDecimal[0];
+
+    /** 式に含まれる項の数 */
+    @Param({"2000", "20000"})
+    public int terms;
+
+    private CompiledExpression compiled;
+    private ParallelEvaluator parallel;
+    private ExpressionEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(terms);
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                expression.append(i % 5 == 0 ? " - " : " + ");
+            }
+            expression.append(random.nextInt(100_000)).append('.').append(random.nextInt(100)).append(" * ")
+                    .append(random.nextInt(1000)).append(i % 10 == 0 ? " / 7" : " * 1.08");
+        }
+        compiled = ExpressionParser.parse(expression.toString());
+        parallel = new ParallelEvaluator(compiled, ParallelEvaluator.DEFAULT_GRAIN);
+        evaluator = new ExpressionEvaluator(true, 0, 1, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public BigDecimal sequential() {
+        return compiled.evaluateBigDecimal(PRECISION);
+    }
+
+    @Benchmark
+    public BigDecimal parallel() {
+        return parallel.evaluate(NO_BINDINGS, PRECISION, ForkJoinPool.commonPool());
+    }
+
+    /** 高速評価を試してから並列評価する（ExpressionEvaluator の経路） */
+    @Benchmark
+    public BigDecimal evaluator() {
+        return evaluator.evaluate(compiled, PRECISION);
+    }
+}
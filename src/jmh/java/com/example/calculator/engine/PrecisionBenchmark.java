@@ -0,0 +1,65 @@
+package com.example.calculator.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 除算結果の精度ごとの評価コストのベンチマーク
+ * 小数点以下の桁数（scale）と有効桁数（MathContext）のそれぞれについて、10〜10000桁で計測する。
+ * scale が18桁以下の場合は高速評価（long による除算）が使われる
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrecisionBenchmark {
+
+    private static final String EXPRESSION = "1 / 7 + 22 / 7 * 3 - 355 / 113 + 12.5 / 4";
+
+    /** 桁数 */
+    @Param({"10", "100", "1000", "10000"})
+    public int digits;
+
+    /** 精度の指定方法（SCALE: 小数点以下の桁数、MATH_CONTEXT: 有効桁数） */
+    @Param({"SCALE", "MATH_CONTEXT"})
+    public String kind;
+
+    private CompiledExpression compiled;
+    private Precision precision;
+    private ExpressionEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        compiled = ExpressionParser.parse(EXPRESSION);
+        precision = kind.equals("SCALE")
+                ? Precision.ofScale(digits, RoundingMode.HALF_UP)
+                : Precision.ofDigits(digits, RoundingMode.HALF_UP);
+        evaluator = new ExpressionEvaluator(true, 0);
+    }
+
+    @Benchmark
+    public BigDecimal evaluate() {
+        return evaluator.evaluate(compiled, precision);
+    }
+
+    @Benchmark
+    public BigDecimal evaluateBigDecimal() {
+        return compiled.evaluateBigDecimal(precision);
+    }
+}
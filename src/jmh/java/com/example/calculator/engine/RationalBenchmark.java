@@ -0,0 +1,67 @@
+package com.example.calculator.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 除算を演算ごとに丸める評価と、分数のまま評価して最後に1回だけ丸める評価のベンチマーク
+ * 除算を多く含む式（分数の和と積）を、小数点以下10〜1000桁で計測する
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RationalBenchmark {
+
+    /** 除算の数 */
+    @Param({"4", "32"})
+    public int divisions;
+
+    /** 小数点以下の桁数 */
+    @Param({"10", "100", "1000"})
+    public int digits;
+
+    private CompiledExpression compiled;
+    private Precision perOperation;
+    private Precision deferred;
+    private ExpressionEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder expression = new StringBuilder("1");
+        for (int i = 0; i < divisions; i++) {
+            // 小さい分母の分数の和と積を交互に並べる（例: 1 + 1 / 3 * 2 / 7 + ...）
+            expression.append(i % 2 == 0 ? " + " : " * ").append(i % 5 + 1).append(" / ").append(2 * i + 3);
+        }
+        compiled = ExpressionParser.parse(expression.toString());
+        perOperation = Precision.ofScale(digits, RoundingMode.HALF_UP);
+        deferred = perOperation.withDeferredRounding();
+        evaluator = new ExpressionEvaluator(true, 0);
+    }
+
+    @Benchmark
+    public BigDecimal perOperation() {
+        return evaluator.evaluate(compiled, perOperation);
+    }
+
+    @Benchmark
+    public BigDecimal deferred() {
+        return evaluator.evaluate(compiled, deferred);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.calculator.service;
+
+import com.example.calculator.engine.CompiledExpression;
+import com.example.calculator.engine.ExpressionEvaluator;
+import com.example.calculator.engine.ExpressionParser;
+import com.example.calculator.model.CalculationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CalculatorService の計算パイプラインのベンチマーク
+ * 正規化・解析・評価（高速評価/BigDecimal/バイトコード）・フォーマットの各段階と、全体の処理を計測する。
+ * 式の項数・括弧のネストの深さ・数値の桁数・小数点以下の桁数をパラメータとする。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CalculatorPipelineBenchmark {
+
+    private static final int SCALE = 10;
+    private static final char[] OPERATORS = {'+', '-', '*', '/'};
+
+    /** 項の数 */
+    @Param({"8", "256"})
+    public int terms;
+
+    /** 括弧のネストの深さ */
+    @Param({"0", "16"})
+    public int depth;
+
+    /** 数値の整数部の桁数 */
+    @Param({"2", "24"})
+    public int digits;
+
+    /** 数値の小数点以下の桁数 */
+    @Param({"0", "4"})
+    public int decimals;
+
+    private String expression;
+    private CompiledExpression compiled;
+    private BigDecimal result;
+    private CalculatorService calculatorService;
+    private ExpressionEvaluator bytecodeEvaluator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expression = generateExpression(terms, depth, digits, decimals, new Random(terms * 31L + depth));
+        compiled = ExpressionParser.parse(expression);
+        result = compiled.evaluateBigDecimal(SCALE, RoundingMode.HALF_UP);
+        calculatorService = new CalculatorService();
+        bytecodeEvaluator = new ExpressionEvaluator(true, 1);
+        bytecodeEvaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public String normalize() {
+        return ExpressionParser.normalize(expression);
+    }
+
+    @Benchmark
+    public CompiledExpression parse() {
+        return ExpressionParser.parse(expression);
+    }
+
+    @Benchmark
+    public BigDecimal evaluate() {
+        return compiled.evaluate(SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public BigDecimal evaluateBigDecimal() {
+        return compiled.evaluateBigDecimal(SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public BigDecimal evaluateBytecode() {
+        return bytecodeEvaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public String format() {
+        return CalculatorService.formatResult(result);
+    }
+
+    @Benchmark
+    public CalculationResult calculate() {
+        return calculatorService.calculate(expression);
+    }
+
+    /**
+     * ベンチマーク用の式を生成する（ゼロ除算が発生しないよう数値の先頭は1〜9とする）
+     */
+    static String generateExpression(int terms, int depth, int digits, int decimals, Random random) {
+        StringBuilder builder = new StringBuilder();
+        int opened = 0;
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                builder.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+            }
+            if (opened < depth && i < terms - 1) {
+                builder.append('(');
+                opened++;
+            }
+            appendNumber(builder, digits, decimals, random);
+            if (opened > 0 && i > 0 && random.nextInt(3) == 0) {
+                builder.append(')');
+                opened--;
+            }
+        }
+        while (opened-- > 0) {
+            builder.append(')');
+        }
+        return builder.toString();
+    }
+
+    private static void appendNumber(StringBuilder builder, int digits, int decimals, Random random) {
+        builder.append((char) ('1' + random.nextInt(9)));
+        for (int d = 1; d < digits; d++) {
+            builder.append((char) ('0' + random.nextInt(10)));
+        }
+        if (decimals > 0) {
+            builder.append('.');
+            for (int d = 0; d < decimals; d++) {
+                builder.append((char) ('0' + random.nextInt(10)));
+            }
+        }
+    }
+}
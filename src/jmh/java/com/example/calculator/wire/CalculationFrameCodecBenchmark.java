@@ -0,0 +1,98 @@
+package com.example.calculator.wire;
+
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一括計算APIのリクエストの読み込みと結果の書き出しのベンチマーク
+ * JSON（Jackson）とバイナリ形式のフレーム（{@link CalculationFrameCodec}）を、一括計算の件数ごとに比較する
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculationFrameCodecBenchmark {
+
+    /** 一括計算の件数 */
+    @Param({"1", "1000"})
+    public int count;
+
+    private ObjectReader requestReader;
+    private ObjectWriter resultWriter;
+    private byte[] jsonRequests;
+    private byte[] frameRequests;
+    private List<CalculationResult> results;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(count);
+        List<CalculationRequest> requests = new ArrayList<>(count);
+        results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CalculationRequest request = new CalculationRequest(
+                    random.nextInt(100_000) + "." + random.nextInt(100) + " * " + random.nextInt(1000) + " / 7");
+            if (i % 4 == 0) {
+                request.setScale(20);
+                request.setRoundingMode(RoundingMode.HALF_EVEN);
+            }
+            requests.add(request);
+            results.add(i % 50 == 0
+                    ? new CalculationResult(request.getExpression(), "計算エラー: ゼロ除算はできません", false)
+                    : new CalculationResult(request.getExpression(), random.nextInt(1_000_000) + ".1428571429"));
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        requestReader = objectMapper.readerFor(new TypeReference<List<CalculationRequest>>() {});
+        resultWriter = objectMapper.writerFor(new TypeReference<List<CalculationResult>>() {});
+        jsonRequests = objectMapper.writeValueAsBytes(requests);
+        ByteBuffer frame = CalculationFrameCodec.encodeBatchRequest(requests);
+        frameRequests = new byte[frame.remaining() - CalculationFrameCodec.LENGTH_SIZE];
+        frame.position(CalculationFrameCodec.LENGTH_SIZE).get(frameRequests);
+    }
+
+    @Benchmark
+    public List<CalculationRequest> jsonDecodeRequests() throws IOException {
+        return requestReader.readValue(jsonRequests);
+    }
+
+    @Benchmark
+    public List<CalculationRequest> frameDecodeRequests() throws IOException {
+        return CalculationFrameCodec.decodeRequests(ByteBuffer.wrap(frameRequests));
+    }
+
+    @Benchmark
+    public byte[] jsonEncodeResults() throws IOException {
+        return resultWriter.writeValueAsBytes(results);
+    }
+
+    @Benchmark
+    public ByteBuffer frameEncodeResults() {
+        return CalculationFrameCodec.encodeBatchResult(results);
+    }
+}
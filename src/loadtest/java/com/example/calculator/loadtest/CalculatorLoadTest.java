@@ -0,0 +1,207 @@
+package com.example.calculator.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 計算APIの負荷試験
+ * 指定した数のクライアントが応答を待ってから次のリクエストを送信する（クローズドループ）方式で
+ * /calculator/api/calculate を呼び出し、スループットと応答時間のパーセンタイルを計測する。
+ * クライアントは仮想スレッドで実行するため、同時接続数はクライアント側のスレッド数に制限されない。
+ *
+ * <pre>
+ * java CalculatorLoadTest [URL] [同時接続数] [計測秒数] [ウォームアップ秒数] [結果ファイル]
+ * </pre>
+ */
+public final class CalculatorLoadTest {
+
+    private static final String[] EXPRESSIONS = {
+        "2 + 3 * 4",
+        "(1.5 + 2.25) * (3 - 4.125) / 7",
+        "123456789 * 987654321 - 42",
+        "((((1 + 2) * 3 - 4) / 5 + 6) * 7 - 8) / 9",
+        "-12.5 * -(3 + 4) / 0.25"
+    };
+
+    private CalculatorLoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args.length > 0 ? args[0] : "http://localhost:8080/calculator/api/calculate");
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        Duration warmup = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 10);
+        Path output = args.length > 4 ? Path.of(args[4]) : null;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        System.out.printf("対象: %s / 同時接続数: %d%n", uri, concurrency);
+        run(client, uri, concurrency, warmup);
+        Result result = run(client, uri, concurrency, duration);
+
+        System.out.println(result.format());
+        if (output != null) {
+            Files.writeString(output, result.toJson(uri, concurrency), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Result run(HttpClient client, URI uri, int concurrency, Duration duration) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<Recorder>> futures = new ArrayList<>(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                int offset = i;
+                futures.add(executor.submit(() -> drive(client, uri, offset, running)));
+            }
+            Thread.sleep(duration.toMillis());
+            running.set(false);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Recorder total = new Recorder();
+        for (Future<Recorder> future : futures) {
+            total.merge(future.get());
+        }
+        return new Result(total, elapsed);
+    }
+
+    /**
+     * 1クライアント分のリクエストを送信し続ける
+     */
+    private static Recorder drive(HttpClient client, URI uri, int offset, AtomicBoolean running) {
+        Recorder recorder = new Recorder();
+        int i = offset;
+        while (running.get()) {
+            String body = "{\"expression\":\"" + EXPRESSIONS[i++ % EXPRESSIONS.length] + "\"}";
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                recorder.record(System.nanoTime() - start, response.statusCode() == 200);
+            } catch (IOException e) {
+                recorder.record(System.nanoTime() - start, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * 応答時間（ナノ秒）を記録する
+     */
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        void record(long latency, boolean success) {
+            if (!success) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        void merge(Recorder other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+    }
+
+    private static final class Result {
+
+        private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+        private final long requests;
+        private final long errors;
+        private final double seconds;
+        private final long[] sorted;
+
+        Result(Recorder recorder, long elapsedNanos) {
+            this.requests = recorder.count;
+            this.errors = recorder.errors;
+            this.seconds = elapsedNanos / 1e9;
+            this.sorted = Arrays.copyOf(recorder.latencies, recorder.count);
+            Arrays.sort(sorted);
+        }
+
+        double throughput() {
+            return requests / seconds;
+        }
+
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+
+        double maxMillis() {
+            return sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6;
+        }
+
+        String format() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.ROOT, "リクエスト数: %d (エラー: %d) / %.1f 秒%n",
+                    requests, errors, seconds));
+            builder.append(String.format(Locale.ROOT, "スループット: %.1f req/s%n", throughput()));
+            for (double percentile : PERCENTILES) {
+                builder.append(String.format(Locale.ROOT, "p%s: %.2f ms%n",
+                        formatPercentile(percentile), percentileMillis(percentile)));
+            }
+            builder.append(String.format(Locale.ROOT, "max: %.2f ms", maxMillis()));
+            return builder.toString();
+        }
+
+        String toJson(URI uri, int concurrency) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.ROOT,
+                    "{\"uri\":\"%s\",\"concurrency\":%d,\"requests\":%d,\"errors\":%d,\"seconds\":%.3f,"
+                            + "\"throughput\":%.1f",
+                    uri, concurrency, requests, errors, seconds, throughput()));
+            for (double percentile : PERCENTILES) {
+                builder.append(String.format(Locale.ROOT, ",\"p%s\":%.3f",
+                        formatPercentile(percentile), percentileMillis(percentile)));
+            }
+            builder.append(String.format(Locale.ROOT, ",\"max\":%.3f}%n", maxMillis()));
+            return builder.toString();
+        }
+
+        private static String formatPercentile(double percentile) {
+            return percentile == Math.rint(percentile)
+                    ? String.valueOf((long) percentile)
+                    : String.valueOf(percentile);
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package com.example.calculator;
 
+import com.example.calculator.bulk.BulkEvaluationTool;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
  * 電卓アプリケーションのメインクラス
+ * 最初の引数が {@code bulk} の場合はWebサーバーを起動せずに数式のファイルを一括で計算する（{@link BulkEvaluationTool}）
  */
 @SpringBootApplication
 public class CalculatorApplication {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && BulkEvaluationTool.COMMAND.equals(args[0])) {
+            BulkEvaluationTool.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SpringApplication.run(CalculatorApplication.class, args);
     }
 }
@@ -0,0 +1,303 @@
+package com.example.calculator.audit;
+
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationResult;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * 計算結果の追記専用の監査ログ
+ * 呼び出し側のスレッドは計算結果をロックフリーのキューに追加するだけで、
+ * エンコードとメモリマップドファイルへの書き込みは単一の書き込みスレッドが行う。
+ * キューが上限に達した場合は呼び出し側を待たせずにレコードを破棄し、破棄した件数を記録する。
+ * 一定サイズのセグメントファイルに書き込み、収まらなくなったら次のセグメントに切り替える。
+ *
+ * <pre>
+ * セグメント : magic(4) version(4) レコード... （長さ0のレコードで終端）
+ * レコード   : length(4) crc32c(4) timestamp(8) flags(1) digits(4) roundingMode(1)
+ *              expressionLength(4) expression textLength(4) text
+ * </pre>
+ * length と crc32c は timestamp 以降のペイロードに対する値。
+ * flags はビット0が失敗、ビット1が精度の記録の有無、ビット2が digits の種類（1: 小数点以下の桁数、0: 有効桁数）、
+ * ビット3が exact（除算を最後に1回だけ丸める）の指定を表す。
+ * roundingMode は {@link java.math.RoundingMode} の序数（精度を記録しない場合は digits とともに0）。
+ * バージョン1のセグメント（digits と roundingMode がなく、精度を記録しない）も読み込める。
+ * セグメントは書き込み開始時に全体を確保するため、未使用の領域は0で埋められている。
+ */
+public class AuditLog implements MeterBinder, Closeable {
+
+    static final int MAGIC = 0x43414C47; // "CALG"
+    static final int VERSION = 2;
+    static final int LEGACY_VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+    static final int MIN_PAYLOAD_SIZE = 8 + 1 + 4 + 1 + 4 + 4;
+    static final int LEGACY_MIN_PAYLOAD_SIZE = 8 + 1 + 4 + 4;
+    static final int FAILURE = 1;
+    static final int HAS_PRECISION = 1 << 1;
+    static final int FIXED_SCALE = 1 << 2;
+    static final int EXACT = 1 << 3;
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int MIN_SEGMENT_SIZE = 4096;
+    private static final long IDLE_PARK_NANOS = Duration.ofMillis(1).toNanos();
+    private static final AuditLog DISABLED = new AuditLog();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int queueCapacity;
+    private final ConcurrentLinkedQueue<Entry> queue;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile boolean idle;
+
+    // 書き込みスレッドのみが使用する
+    private final CRC32C crc = new CRC32C();
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    private AuditLog() {
+        this.directory = null;
+        this.segmentSize = 0;
+        this.queueCapacity = 0;
+        this.queue = null;
+        this.writer = null;
+    }
+
+    /**
+     * 監査ログを開き、書き込みスレッドを開始する
+     * 既存のセグメントには追記せず、新しい番号のセグメントから書き込む
+     * @param directory セグメントファイルを格納するディレクトリ
+     * @param segmentSize 1セグメントのバイト数
+     * @param queueCapacity 書き込み待ちのレコードの上限
+     */
+    public AuditLog(Path directory, int segmentSize, int queueCapacity) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("セグメントのサイズが小さすぎます: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ConcurrentLinkedQueue<>();
+
+        Files.createDirectories(directory);
+        this.segment = AuditLogReader.lastSegment(directory);
+        roll();
+
+        this.running = true;
+        this.writer = new Thread(this::drain, "calculator-audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 何も記録しない監査ログ
+     */
+    public static AuditLog disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * 計算結果を精度を記録せずに記録する（精度の指定が不正だった場合など）
+     * @return キューに追加した場合は true、上限に達していたため破棄した場合は false
+     */
+    public boolean record(CalculationResult result) {
+        return record(result, null);
+    }
+
+    /**
+     * 計算結果を計算に使用した精度とともに記録する（書き込みは非同期に行う）
+     * @param precision 除算結果の精度（記録しない場合は null）
+     * @return キューに追加した場合は true、上限に達していたため破棄した場合は false
+     */
+    public boolean record(CalculationResult result, Precision precision) {
+        if (writer == null) {
+            return false;
+        }
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (pending.incrementAndGet() > queueCapacity) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.offer(new Entry(System.currentTimeMillis(), result, precision));
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * 書き込み済みのレコード数
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * キューの上限や書き込みエラーにより破棄したレコード数
+     */
+    public long getDropped() {
+        return dropped.get() + errors.get();
+    }
+
+    /**
+     * キューに残っているレコードをすべて書き込んでから書き込みスレッドを停止し、ファイルを閉じる
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer == null || !running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        buffer.force();
+        channel.close();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (writer == null) {
+            return;
+        }
+        FunctionCounter.builder("calculator.audit.records", written, AtomicLong::get)
+                .description("監査ログに書き込んだレコード数")
+                .register(registry);
+        FunctionCounter.builder("calculator.audit.dropped", dropped, AtomicLong::get)
+                .description("キューの上限に達したため破棄したレコード数")
+                .register(registry);
+        FunctionCounter.builder("calculator.audit.errors", errors, AtomicLong::get)
+                .description("書き込みエラーにより破棄したレコード数")
+                .register(registry);
+        Gauge.builder("calculator.audit.queue", pending, AtomicInteger::get)
+                .description("書き込み待ちのレコード数")
+                .register(registry);
+    }
+
+    /**
+     * 書き込みスレッドの処理
+     */
+    private void drain() {
+        while (true) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                if (!running) {
+                    return;
+                }
+                idle = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            pending.decrementAndGet();
+            try {
+                write(entry);
+                written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        CalculationResult result = entry.result();
+        String text = result.isSuccess() ? result.getResult() : result.getErrorMessage();
+        byte[] expression = bytes(result.getExpression());
+        byte[] textBytes = bytes(text);
+        int payloadLength = MIN_PAYLOAD_SIZE + expression.length + textBytes.length;
+        int recordLength = RECORD_HEADER_SIZE + payloadLength;
+
+        // 終端の長さ0のレコード分を残す
+        if (recordLength + 4 > segmentSize - SEGMENT_HEADER_SIZE) {
+            throw new IOException("レコードがセグメントに収まりません: " + recordLength);
+        }
+        if (buffer.remaining() < recordLength + 4) {
+            buffer.force();
+            channel.close();
+            roll();
+        }
+
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_SIZE);
+        buffer.putLong(entry.timestamp());
+        Precision precision = entry.precision();
+        int flags = result.isSuccess() ? 0 : FAILURE;
+        if (precision == null) {
+            buffer.put((byte) flags);
+            buffer.putInt(0);
+            buffer.put((byte) 0);
+        } else {
+            flags |= HAS_PRECISION | (precision.isFixedScale() ? FIXED_SCALE : 0)
+                    | (precision.isDeferredRounding() ? EXACT : 0);
+            buffer.put((byte) flags);
+            buffer.putInt(precision.isFixedScale() ? precision.scale() : precision.mathContext().getPrecision());
+            buffer.put((byte) precision.roundingMode().ordinal());
+        }
+        buffer.putInt(expression.length);
+        buffer.put(expression);
+        buffer.putInt(textBytes.length);
+        buffer.put(textBytes);
+
+        crc.reset();
+        crc.update(buffer.slice(start + RECORD_HEADER_SIZE, payloadLength));
+        // 長さは最後に書き込み、読み込み側が書きかけのレコードを読まないようにする
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, payloadLength);
+    }
+
+    /**
+     * 次のセグメントを作成して書き込み先を切り替える
+     */
+    private void roll() throws IOException {
+        segment++;
+        Path file = directory.resolve(AuditLogReader.segmentFileName(segment));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private record Entry(long timestamp, CalculationResult result, Precision precision) {}
+}
@@ -0,0 +1,215 @@
+package com.example.calculator.audit;
+
+import com.example.calculator.engine.Precision;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link AuditLog} のセグメントを読み込む
+ * セグメントを読み取り専用でメモリにマップして先頭から順に走査し、各レコードの CRC を検証する。
+ * CRC が一致しないレコードは読み飛ばし、長さが不正な場合はそのセグメントの残りを読み飛ばす。
+ * バージョン1のセグメントのレコードは精度を記録していないものとして読み込む
+ */
+public final class AuditLogReader {
+
+    private static final RoundingMode[] ROUNDING_MODES = RoundingMode.values();
+
+    private AuditLogReader() {}
+
+    /**
+     * 走査結果の集計
+     * @param segments 読み込んだセグメント数
+     * @param records 読み込んだレコード数
+     * @param corrupted 破損していたレコード数（長さが不正なセグメントの残りは1件として数える）
+     */
+    public record Summary(long segments, long records, long corrupted) {}
+
+    /**
+     * ディレクトリ内のすべてのセグメントを番号順に走査する
+     * @param directory セグメントファイルを格納するディレクトリ
+     * @param consumer 各レコードを受け取る処理
+     * @return 走査結果の集計
+     */
+    public static Summary scan(Path directory, Consumer<AuditRecord> consumer) throws IOException {
+        long segments = 0;
+        long records = 0;
+        long corrupted = 0;
+        for (Path file : segments(directory)) {
+            Summary summary = scanSegment(file, consumer);
+            segments++;
+            records += summary.records();
+            corrupted += summary.corrupted();
+        }
+        return new Summary(segments, records, corrupted);
+    }
+
+    /**
+     * 1つのセグメントを走査する
+     */
+    public static Summary scanSegment(Path file, Consumer<AuditRecord> consumer) throws IOException {
+        long segment = segmentNumber(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < AuditLog.SEGMENT_HEADER_SIZE) {
+                return new Summary(1, 0, size > 0 ? 1 : 0);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int version = buffer.getInt(4);
+            if (buffer.getInt(0) != AuditLog.MAGIC
+                    || (version != AuditLog.VERSION && version != AuditLog.LEGACY_VERSION)) {
+                return new Summary(1, 0, 1);
+            }
+            return scan(buffer, segment, version == AuditLog.LEGACY_VERSION, consumer);
+        }
+    }
+
+    private static Summary scan(ByteBuffer buffer, long segment, boolean legacy, Consumer<AuditRecord> consumer) {
+        int minPayloadSize = legacy ? AuditLog.LEGACY_MIN_PAYLOAD_SIZE : AuditLog.MIN_PAYLOAD_SIZE;
+        CRC32C crc = new CRC32C();
+        long records = 0;
+        long corrupted = 0;
+        int position = AuditLog.SEGMENT_HEADER_SIZE;
+        int limit = buffer.limit();
+
+        while (position + AuditLog.RECORD_HEADER_SIZE <= limit) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            int payload = position + AuditLog.RECORD_HEADER_SIZE;
+            if (length < minPayloadSize || length > limit - payload) {
+                corrupted++;
+                break;
+            }
+
+            crc.reset();
+            crc.update(buffer.slice(payload, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                corrupted++;
+            } else {
+                AuditRecord record = decode(buffer, payload, length, segment, legacy);
+                if (record == null) {
+                    corrupted++;
+                } else {
+                    consumer.accept(record);
+                    records++;
+                }
+            }
+            position = payload + length;
+        }
+        return new Summary(1, records, corrupted);
+    }
+
+    private static AuditRecord decode(ByteBuffer buffer, int position, int length, long segment, boolean legacy) {
+        int end = position + length;
+        long timestamp = buffer.getLong(position);
+        int flags = buffer.get(position + 8);
+        boolean success = (flags & AuditLog.FAILURE) == 0;
+        Precision precision = null;
+        int expressionLength;
+        int expressionStart;
+        if (legacy) {
+            expressionLength = buffer.getInt(position + 9);
+            expressionStart = position + 13;
+        } else {
+            if ((flags & AuditLog.HAS_PRECISION) != 0) {
+                precision = precision(flags, buffer.getInt(position + 9), buffer.get(position + 13) & 0xFF);
+                if (precision == null) {
+                    return null;
+                }
+            }
+            expressionLength = buffer.getInt(position + 14);
+            expressionStart = position + 18;
+        }
+        if (expressionLength < 0 || expressionLength > end - expressionStart - 4) {
+            return null;
+        }
+        int textLength = buffer.getInt(expressionStart + expressionLength);
+        int textStart = expressionStart + expressionLength + 4;
+        if (textLength != end - textStart) {
+            return null;
+        }
+        return new AuditRecord(segment, timestamp, success,
+                string(buffer, expressionStart, expressionLength), string(buffer, textStart, textLength), precision);
+    }
+
+    /**
+     * 記録された精度
+     * @return 精度。桁数や丸めモードが範囲外の場合は null
+     */
+    private static Precision precision(int flags, int digits, int roundingMode) {
+        if (roundingMode >= ROUNDING_MODES.length) {
+            return null;
+        }
+        try {
+            Precision precision = (flags & AuditLog.FIXED_SCALE) != 0
+                    ? Precision.ofScale(digits, ROUNDING_MODES[roundingMode])
+                    : Precision.ofDigits(digits, ROUNDING_MODES[roundingMode]);
+            return (flags & AuditLog.EXACT) != 0 ? precision.withDeferredRounding() : precision;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String string(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * ディレクトリ内のセグメントファイル（番号順）
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files.filter(AuditLogReader::isSegment).toList());
+            segments.sort(Comparator.comparingLong(AuditLogReader::segmentNumber));
+            return segments;
+        }
+    }
+
+    /**
+     * ディレクトリ内の最大のセグメント番号（セグメントがない場合は0）
+     */
+    static long lastSegment(Path directory) throws IOException {
+        List<Path> segments = segments(directory);
+        return segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1));
+    }
+
+    static String segmentFileName(long segment) {
+        return String.format("%s%020d%s", AuditLog.SEGMENT_PREFIX, segment, AuditLog.SEGMENT_SUFFIX);
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(AuditLog.SEGMENT_PREFIX) && name.endsWith(AuditLog.SEGMENT_SUFFIX)
+                && segmentNumber(file) > 0;
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(AuditLog.SEGMENT_PREFIX.length(),
+                    name.length() - AuditLog.SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.calculator.audit;
+
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationResult;
+
+/**
+ * 監査ログの1レコード
+ * @param segment レコードを含むセグメントの番号
+ * @param timestamp 記録時刻（エポックミリ秒）
+ * @param success 計算に成功したかどうか
+ * @param expression 計算式
+ * @param text 計算結果（失敗した場合はエラーメッセージ）
+ * @param precision 計算に使用した除算結果の精度（記録されていない場合は null）
+ */
+public record AuditRecord(long segment, long timestamp, boolean success, String expression, String text,
+                          Precision precision) {
+
+    /**
+     * 計算結果に変換する
+     */
+    public CalculationResult toResult() {
+        return success
+                ? new CalculationResult(expression, text)
+                : new CalculationResult(expression, text, false);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.calculator.audit;
+
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.CalculatorService;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 監査ログの再生ツール
+ * 監査ログのセグメントを走査し、集計・再計算による検証・NDJSON形式での出力を行う。
+ *
+ * <pre>
+ * stats  &lt;ディレクトリ&gt; [オプション]  レコード数と破損数を集計する
+ * verify &lt;ディレクトリ&gt; [オプション]  各式を記録された精度で再計算し、記録された結果と一致するか検証する
+ * export &lt;ディレクトリ&gt; [オプション]  レコードをNDJSON形式で標準出力に書き出す
+ *
+ * オプション:
+ *   --from &lt;ISO-8601の時刻&gt;  この時刻以降のレコードのみ対象とする
+ *   --to &lt;ISO-8601の時刻&gt;    この時刻より前のレコードのみ対象とする
+ *   --failures              失敗したレコードのみ対象とする
+ * </pre>
+ * 精度が記録されていないレコード（バージョン1のセグメントや、精度の指定が不正だったリクエスト）は再計算できないため、
+ * 検証の対象外として件数のみを報告する。
+ * 破損したレコードや検証の不一致があった場合は終了コード1で終了する
+ */
+public final class AuditReplayTool {
+
+    private static final int MAX_REPORTED_MISMATCHES = 20;
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private long from = Long.MIN_VALUE;
+    private long to = Long.MAX_VALUE;
+    private boolean failuresOnly;
+
+    AuditReplayTool(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(new AuditReplayTool(System.out, System.err).run(args));
+    }
+
+    /**
+     * @return 終了コード
+     */
+    int run(String[] args) throws IOException {
+        if (args.length < 2) {
+            err.println("使用方法: AuditReplayTool <stats|verify|export> <ディレクトリ> "
+                    + "[--from <時刻>] [--to <時刻>] [--failures]");
+            return 2;
+        }
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--from" -> from = Instant.parse(args[++i]).toEpochMilli();
+                case "--to" -> to = Instant.parse(args[++i]).toEpochMilli();
+                case "--failures" -> failuresOnly = true;
+                default -> {
+                    err.println("不明なオプションです: " + args[i]);
+                    return 2;
+                }
+            }
+        }
+
+        Path directory = Path.of(args[1]);
+        return switch (args[0]) {
+            case "stats" -> stats(directory);
+            case "verify" -> verify(directory);
+            case "export" -> export(directory);
+            default -> {
+                err.println("不明なコマンドです: " + args[0]);
+                yield 2;
+            }
+        };
+    }
+
+    private int stats(Path directory) throws IOException {
+        long[] counts = new long[2];
+        long start = System.nanoTime();
+        AuditLogReader.Summary summary = scan(directory, record -> counts[record.success() ? 0 : 1]++);
+        report(summary, System.nanoTime() - start);
+        out.printf(Locale.ROOT, "成功: %d / 失敗: %d%n", counts[0], counts[1]);
+        return summary.corrupted() > 0 ? 1 : 0;
+    }
+
+    private int verify(Path directory) throws IOException {
+        CalculatorService calculatorService = new CalculatorService();
+        long[] mismatches = new long[1];
+        long[] skipped = new long[1];
+        long start = System.nanoTime();
+        AuditLogReader.Summary summary = scan(directory, record -> {
+            if (record.precision() == null) {
+                skipped[0]++;
+                return;
+            }
+            CalculationResult expected = calculatorService.calculate(record.expression(), record.precision());
+            String text = expected.isSuccess() ? expected.getResult() : expected.getErrorMessage();
+            if (expected.isSuccess() != record.success() || !Objects.equals(text, record.text())) {
+                if (mismatches[0]++ < MAX_REPORTED_MISMATCHES) {
+                    err.printf("不一致: セグメント %d / %s / 式: %s / 精度: %s / 記録: %s / 再計算: %s%n",
+                            record.segment(), Instant.ofEpochMilli(record.timestamp()), record.expression(),
+                            record.precision(), record.text(), text);
+                }
+            }
+        });
+        report(summary, System.nanoTime() - start);
+        out.printf(Locale.ROOT, "不一致: %d / 精度の記録なし: %d%n", mismatches[0], skipped[0]);
+        return summary.corrupted() > 0 || mismatches[0] > 0 ? 1 : 0;
+    }
+
+    private int export(Path directory) throws IOException {
+        AuditLogReader.Summary summary;
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            summary = scan(directory, record -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeStringField("timestamp", Instant.ofEpochMilli(record.timestamp()).toString());
+                    generator.writeStringField("expression", record.expression());
+                    generator.writeStringField(record.success() ? "result" : "errorMessage", record.text());
+                    generator.writeBooleanField("success", record.success());
+                    Precision precision = record.precision();
+                    if (precision != null) {
+                        if (precision.isFixedScale()) {
+                            generator.writeNumberField("scale", precision.scale());
+                        } else {
+                            generator.writeNumberField("precision", precision.mathContext().getPrecision());
+                        }
+                        generator.writeStringField("roundingMode", precision.roundingMode().name());
+                        if (precision.isDeferredRounding()) {
+                            generator.writeBooleanField("exact", true);
+                        }
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        if (summary.corrupted() > 0) {
+            err.printf("破損したレコード: %d%n", summary.corrupted());
+            return 1;
+        }
+        return 0;
+    }
+
+    private AuditLogReader.Summary scan(Path directory, Consumer<AuditRecord> consumer) throws IOException {
+        return AuditLogReader.scan(directory, record -> {
+            if (record.timestamp() >= from && record.timestamp() < to && (!failuresOnly || !record.success())) {
+                consumer.accept(record);
+            }
+        });
+    }
+
+    private void report(AuditLogReader.Summary summary, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf(Locale.ROOT, "セグメント: %d / レコード: %d / 破損: %d%n",
+                summary.segments(), summary.records(), summary.corrupted());
+        out.printf(Locale.ROOT, "処理時間: %.3f 秒 (%.0f レコード/秒)%n",
+                seconds, seconds > 0 ? summary.records() / seconds : 0);
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.calculator.bulk;
+
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.CalculatorService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 数式のファイルを一括で計算するコマンドラインツール
+ * 入力ファイル（UTF-8、1行に1つの式）をメモリマップし、行の境界で分割したチャンクを ForkJoinPool で並列に計算する。
+ * 結果はチャンクの順にバッファを介して FileChannel に書き出すため、出力の n 行目は入力の n 行目の結果になる。
+ * 同時に処理するチャンクは並列度の2倍までとし、入力ファイルの大きさによらずメモリの使用量を一定に保つ。
+ *
+ * <pre>
+ * &lt;入力ファイル&gt; &lt;出力ファイル&gt; [オプション]
+ *
+ * オプション:
+ *   --parallelism &lt;数&gt;       並列度（既定は CPU 数）
+ *   --chunk-size &lt;バイト数&gt;  チャンクの大きさの目安（既定は 4MiB、行の途中では分割しない）
+ *
+ * 出力の行:
+ *   OK&lt;タブ&gt;計算結果
+ *   ERROR&lt;タブ&gt;エラーメッセージ
+ * </pre>
+ * Webサーバーを起動せずに {@code java -jar calculator.jar bulk <入力> <出力>} で実行できる。
+ * 個々の式の失敗は出力の行に記録し、終了コードは0とする（引数の誤りは終了コード2）
+ */
+public final class BulkEvaluationTool {
+
+    /** {@link com.example.calculator.CalculatorApplication} でこのツールを実行するコマンド名 */
+    public static final String COMMAND = "bulk";
+
+    static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final CalculatorService calculatorService = new CalculatorService();
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    BulkEvaluationTool(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(new BulkEvaluationTool(System.out, System.err).run(args));
+    }
+
+    /**
+     * @return 終了コード
+     */
+    int run(String[] args) throws IOException {
+        if (args.length < 2) {
+            return usage();
+        }
+        for (int i = 2; i < args.length; i++) {
+            String option = args[i];
+            if (!option.equals("--parallelism") && !option.equals("--chunk-size")) {
+                err.println("不明なオプションです: " + option);
+                return usage();
+            }
+            if (i + 1 >= args.length) {
+                err.println("オプションの値がありません: " + option);
+                return usage();
+            }
+            int value;
+            try {
+                value = Integer.parseInt(args[++i]);
+            } catch (NumberFormatException e) {
+                err.println("オプションの値が整数ではありません: " + option + " " + args[i]);
+                return usage();
+            }
+            if (option.equals("--parallelism")) {
+                parallelism = value;
+            } else {
+                chunkSize = value;
+            }
+        }
+        if (parallelism < 1 || chunkSize < 1) {
+            err.println("並列度とチャンクの大きさは1以上を指定してください");
+            return 2;
+        }
+        Path input = Path.of(args[0]);
+        if (!Files.isRegularFile(input)) {
+            err.println("入力ファイルが見つかりません: " + input);
+            return 2;
+        }
+        // 出力ファイルは切り詰めて開くため、入力ファイルと同じ場合は開く前に拒否する
+        Path output = Path.of(args[1]);
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            err.println("出力ファイルに入力ファイルと同じファイルは指定できません: " + output);
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        Summary summary = evaluate(input, output);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.printf(Locale.ROOT, "チャンク: %d / 行: %d / 失敗: %d%n",
+                summary.chunks(), summary.lines(), summary.failures());
+        out.printf(Locale.ROOT, "処理時間: %.3f 秒 (%.0f 行/秒)%n",
+                seconds, seconds > 0 ? summary.lines() / seconds : 0);
+        return 0;
+    }
+
+    private int usage() {
+        err.println("使用方法: " + COMMAND + " <入力ファイル> <出力ファイル> "
+                + "[--parallelism <数>] [--chunk-size <バイト数>]");
+        return 2;
+    }
+
+    private Summary evaluate(Path input, Path output) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             ChannelWriter writer = new ChannelWriter(FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            long size = channel.size();
+            Deque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>();
+            Summary summary = new Summary();
+            long position = skipByteOrderMark(channel, size);
+            while (position < size) {
+                long end = nextLineStart(channel, position + chunkSize, size);
+                if (end - position > Integer.MAX_VALUE) {
+                    throw new IOException("行が長すぎます（位置 " + position + "）");
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, end - position);
+                if (pending.size() >= 2 * parallelism) {
+                    summary.add(pending.removeFirst().join(), writer);
+                }
+                pending.addLast(pool.submit(() -> evaluateChunk(buffer)));
+                position = end;
+            }
+            while (!pending.isEmpty()) {
+                summary.add(pending.removeFirst().join(), writer);
+            }
+            return summary;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * チャンクの各行を計算し、出力の行を UTF-8 で返す
+     */
+    private Chunk evaluateChunk(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        StringBuilder text = new StringBuilder(limit + 64);
+        byte[] line = new byte[256];
+        int lines = 0;
+        int failures = 0;
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int length = end - start;
+            if (length > 0 && buffer.get(end - 1) == '\r') {
+                length--;
+            }
+            if (line.length < length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            buffer.get(start, line, 0, length);
+
+            CalculationResult result = calculatorService.calculate(new String(line, 0, length, StandardCharsets.UTF_8));
+            if (result.isSuccess()) {
+                text.append("OK\t").append(result.getResult()).append('\n');
+            } else {
+                text.append("ERROR\t").append(result.getErrorMessage()).append('\n');
+                failures++;
+            }
+            lines++;
+            start = end + 1;
+        }
+        return new Chunk(text.toString().getBytes(StandardCharsets.UTF_8), lines, failures);
+    }
+
+    /**
+     * position 以降で最初の行の先頭（position - 1 以降の最初の改行の次の位置、改行がない場合はファイルの末尾）
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * 先頭の UTF-8 の BOM を読み飛ばす
+     * @return 最初の行の位置
+     */
+    private static long skipByteOrderMark(FileChannel channel, long size) throws IOException {
+        if (size < 3) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(3);
+        channel.read(buffer, 0);
+        return buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF ? 3 : 0;
+    }
+
+    /** チャンクの計算結果 */
+    private record Chunk(byte[] output, int lines, int failures) {
+    }
+
+    /** 書き出したチャンクの集計 */
+    private static final class Summary {
+        private long chunks;
+        private long lines;
+        private long failures;
+
+        void add(Chunk chunk, ChannelWriter writer) throws IOException {
+            writer.write(chunk.output());
+            chunks++;
+            lines += chunk.lines();
+            failures += chunk.failures();
+        }
+
+        long chunks() {
+            return chunks;
+        }
+
+        long lines() {
+            return lines;
+        }
+
+        long failures() {
+            return failures;
+        }
+    }
+
+    /**
+     * ダイレクトバッファにまとめて FileChannel に書き出す
+     */
+    private static final class ChannelWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.remaining()) {
+                flush();
+                if (bytes.length > buffer.capacity()) {
+                    writeFully(ByteBuffer.wrap(bytes));
+                    return;
+                }
+            }
+            buffer.put(bytes);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
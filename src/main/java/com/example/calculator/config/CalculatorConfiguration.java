@@ -0,0 +1,114 @@
+package com.example.calculator.config;
+
+import com.example.calculator.audit.AuditLog;
+import com.example.calculator.history.HistoryStore;
+import com.example.calculator.history.InMemoryHistoryStore;
+import com.example.calculator.history.MappedFileHistoryStore;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.BatchCalculatorService;
+import com.example.calculator.service.CalculatorMetrics;
+import com.example.calculator.service.CalculatorService;
+import com.example.calculator.service.ExpressionCache;
+import com.example.calculator.wire.CalculationFrameServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * 電卓アプリケーションのBean定義
+ */
+@Configuration
+@EnableConfigurationProperties(CalculatorProperties.class)
+public class CalculatorConfiguration {
+
+    /**
+     * 計算キャッシュ
+     */
+    @Bean
+    public ExpressionCache expressionCache(CalculatorProperties properties) {
+        CalculatorProperties.Cache cache = properties.getCache();
+        if (!cache.isEnabled()) {
+            return ExpressionCache.disabled();
+        }
+        return ExpressionCache.create(cache.getMaximumSize(), cache.getMaximumWeight(),
+                cache.getExpireAfterWrite(), cache.getMode());
+    }
+
+    /**
+     * 計算処理のメトリクス（無効な場合やMeterRegistryがない場合は記録しない）
+     */
+    @Bean
+    public CalculatorMetrics calculatorMetrics(CalculatorProperties properties,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (!properties.getMetrics().isEnabled() || registry == null) {
+            return CalculatorMetrics.disabled();
+        }
+        return new CalculatorMetrics(registry);
+    }
+
+    /**
+     * 計算履歴の保存先（メモリマップドファイルの場合はコンテキスト終了時に close される）
+     */
+    @Bean
+    public HistoryStore historyStore(CalculatorProperties properties) throws IOException {
+        CalculatorProperties.History history = properties.getHistory();
+        if (history.getStore() == HistoryStore.Type.MAPPED_FILE) {
+            return new MappedFileHistoryStore(history.getFile(), history.getDepth(), history.getEntrySize(),
+                    history.getMaximumUsers());
+        }
+        return new InMemoryHistoryStore(history.getDepth(), history.getMaximumUsers(),
+                history.getExpireAfterAccess());
+    }
+
+    /**
+     * 計算結果の監査ログ（コンテキスト終了時に書き込み待ちのレコードを書き出して close される）
+     */
+    @Bean
+    public AuditLog auditLog(CalculatorProperties properties) throws IOException {
+        CalculatorProperties.Audit audit = properties.getAudit();
+        if (!audit.isEnabled()) {
+            return AuditLog.disabled();
+        }
+        return new AuditLog(audit.getDirectory(), Math.toIntExact(audit.getSegmentSize().toBytes()),
+                audit.getQueueCapacity());
+    }
+
+    /**
+     * 計算リクエストの受付制御（無効な場合は何も制限しない）
+     */
+    @Bean
+    public AdmissionControl admissionControl(CalculatorProperties properties) {
+        CalculatorProperties.Admission admission = properties.getAdmission();
+        if (!admission.isEnabled()) {
+            return AdmissionControl.disabled();
+        }
+        return new AdmissionControl(admission.getRate(), admission.getBurst(), admission.getMaxConcurrent(),
+                admission.getMaxQueue(), admission.getQueueTimeout(), admission.getMaximumClients(),
+                admission.getExpireAfterAccess());
+    }
+
+    /**
+     * バイナリ形式のフレームで計算リクエストを受け付ける TCP サーバー（有効な場合のみ。コンテキスト終了時に close される）
+     * 遅延初期化（spring.main.lazy-initialization）を有効にした場合も起動時に待ち受けを開始する
+     */
+    @Bean
+    @Lazy(false)
+    @ConditionalOnProperty(prefix = "calculator.wire", name = "enabled", havingValue = "true")
+    public CalculationFrameServer calculationFrameServer(CalculatorProperties properties,
+                                                         CalculatorService calculatorService,
+                                                         BatchCalculatorService batchCalculatorService,
+                                                         AdmissionControl admissionControl) throws IOException {
+        CalculatorProperties.Wire wire = properties.getWire();
+        return new CalculationFrameServer(calculatorService, batchCalculatorService, admissionControl,
+                new InetSocketAddress(wire.getAddress(), wire.getPort()),
+                Math.toIntExact(wire.getMaxFrameLength().toBytes()));
+    }
+}
@@ -0,0 +1,540 @@
+package com.example.calculator.config;
+
+import com.example.calculator.history.HistoryStore;
+import com.example.calculator.service.ExpressionCache;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 電卓アプリケーションの設定（calculator.*）
+ */
+@ConfigurationProperties(prefix = "calculator")
+public class CalculatorProperties {
+
+    private final Cache cache = new Cache();
+    private final Batch batch = new Batch();
+    private final Stream stream = new Stream();
+    private final Engine engine = new Engine();
+    private final Metrics metrics = new Metrics();
+    private final Formula formula = new Formula();
+    private final Editor editor = new Editor();
+    private final History history = new History();
+    private final Audit audit = new Audit();
+    private final Wire wire = new Wire();
+    private final Admission admission = new Admission();
+    private final Ui ui = new Ui();
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Stream getStream() {
+        return stream;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Formula getFormula() {
+        return formula;
+    }
+
+    public Editor getEditor() {
+        return editor;
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    public Audit getAudit() {
+        return audit;
+    }
+
+    public Wire getWire() {
+        return wire;
+    }
+
+    public Admission getAdmission() {
+        return admission;
+    }
+
+    public Ui getUi() {
+        return ui;
+    }
+
+    /**
+     * 計算キャッシュの設定（calculator.cache.*）
+     */
+    public static class Cache {
+
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        private long maximumWeight = 0;
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+        private ExpressionCache.Mode mode = ExpressionCache.Mode.RESULT;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public long getMaximumWeight() {
+            return maximumWeight;
+        }
+
+        public void setMaximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        public Duration getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+
+        public void setExpireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+        }
+
+        public ExpressionCache.Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(ExpressionCache.Mode mode) {
+            this.mode = mode;
+        }
+    }
+
+    /**
+     * バッチ計算の設定（calculator.batch.*）
+     */
+    public static class Batch {
+
+        private int maxSize = 10_000;
+        private int parallelism = 0;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * ストリーミング計算の設定（calculator.stream.*）
+     */
+    public static class Stream {
+
+        private int maxLineLength = 65_536;
+
+        public int getMaxLineLength() {
+            return maxLineLength;
+        }
+
+        public void setMaxLineLength(int maxLineLength) {
+            this.maxLineLength = maxLineLength;
+        }
+    }
+
+    /**
+     * 計算エンジンの設定（calculator.engine.*）
+     */
+    public static class Engine {
+
+        private boolean fastPath = true;
+        private boolean bytecodeEnabled = true;
+        private int bytecodeThreshold = 1000;
+        private boolean optimize = true;
+        private int parallelThreshold = 10_000;
+
+        public boolean isFastPath() {
+            return fastPath;
+        }
+
+        public void setFastPath(boolean fastPath) {
+            this.fastPath = fastPath;
+        }
+
+        public boolean isBytecodeEnabled() {
+            return bytecodeEnabled;
+        }
+
+        public void setBytecodeEnabled(boolean bytecodeEnabled) {
+            this.bytecodeEnabled = bytecodeEnabled;
+        }
+
+        public int getBytecodeThreshold() {
+            return bytecodeThreshold;
+        }
+
+        public void setBytecodeThreshold(int bytecodeThreshold) {
+            this.bytecodeThreshold = bytecodeThreshold;
+        }
+
+        public boolean isOptimize() {
+            return optimize;
+        }
+
+        public void setOptimize(boolean optimize) {
+            this.optimize = optimize;
+        }
+
+        public int getParallelThreshold() {
+            return parallelThreshold;
+        }
+
+        public void setParallelThreshold(int parallelThreshold) {
+            this.parallelThreshold = parallelThreshold;
+        }
+    }
+
+    /**
+     * 計算処理のメトリクスの設定（calculator.metrics.*）
+     */
+    public static class Metrics {
+
+        private boolean enabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * 変数付き数式の登録の設定（calculator.formula.*）
+     */
+    public static class Formula {
+
+        private long maximumSize = 10_000;
+        private Duration expireAfterAccess = Duration.ofHours(1);
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+    }
+
+    /**
+     * 入力中の式の逐次評価の設定（calculator.editor.*）
+     */
+    public static class Editor {
+
+        private long maximumSize = 10_000;
+        private Duration expireAfterAccess = Duration.ofMinutes(30);
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+    }
+
+    /**
+     * 計算履歴の設定（calculator.history.*）
+     */
+    public static class History {
+
+        private HistoryStore.Type store = HistoryStore.Type.MEMORY;
+        private int depth = 100;
+        private int maximumUsers = 10_000;
+        private Duration expireAfterAccess = Duration.ofMinutes(30);
+        private Path file = Path.of("data", "calculator-history.dat");
+        private int entrySize = 256;
+
+        public HistoryStore.Type getStore() {
+            return store;
+        }
+
+        public void setStore(HistoryStore.Type store) {
+            this.store = store;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public void setDepth(int depth) {
+            this.depth = depth;
+        }
+
+        public int getMaximumUsers() {
+            return maximumUsers;
+        }
+
+        public void setMaximumUsers(int maximumUsers) {
+            this.maximumUsers = maximumUsers;
+        }
+
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public void setFile(Path file) {
+            this.file = file;
+        }
+
+        public int getEntrySize() {
+            return entrySize;
+        }
+
+        public void setEntrySize(int entrySize) {
+            this.entrySize = entrySize;
+        }
+    }
+
+    /**
+     * 監査ログの設定（calculator.audit.*）
+     */
+    public static class Audit {
+
+        private boolean enabled = false;
+        private Path directory = Path.of("data", "audit");
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private int queueCapacity = 65_536;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    /**
+     * バイナリ形式のフレームで計算リクエストを受け付ける TCP サーバーの設定（calculator.wire.*）
+     */
+    public static class Wire {
+
+        private boolean enabled = false;
+        private String address = "0.0.0.0";
+        private int port = 9090;
+        private DataSize maxFrameLength = DataSize.ofMegabytes(16);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public void setAddress(String address) {
+            this.address = address;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public DataSize getMaxFrameLength() {
+            return maxFrameLength;
+        }
+
+        public void setMaxFrameLength(DataSize maxFrameLength) {
+            this.maxFrameLength = maxFrameLength;
+        }
+    }
+
+    /**
+     * 計算リクエストの受付制御の設定（calculator.admission.*）
+     */
+    public static class Admission {
+
+        private boolean enabled = false;
+        private long rate = 1000;
+        private long burst = 2000;
+        private int maxConcurrent = 64;
+        private int maxQueue = 256;
+        private Duration queueTimeout = Duration.ofSeconds(1);
+        private String clientHeader = "";
+        private long maximumClients = 100_000;
+        private Duration expireAfterAccess = Duration.ofMinutes(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getRate() {
+            return rate;
+        }
+
+        public void setRate(long rate) {
+            this.rate = rate;
+        }
+
+        public long getBurst() {
+            return burst;
+        }
+
+        public void setBurst(long burst) {
+            this.burst = burst;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public void setMaxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+
+        public Duration getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+
+        public String getClientHeader() {
+            return clientHeader;
+        }
+
+        public void setClientHeader(String clientHeader) {
+            this.clientHeader = clientHeader;
+        }
+
+        public long getMaximumClients() {
+            return maximumClients;
+        }
+
+        public void setMaximumClients(long maximumClients) {
+            this.maximumClients = maximumClients;
+        }
+
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+    }
+
+    /**
+     * 画面（Thymeleaf のテンプレート）の設定（calculator.ui.*）
+     * 無効にした場合は API のみを提供し、画面の URL は 404 を返す
+     */
+    public static class Ui {
+
+        private boolean enabled = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+}
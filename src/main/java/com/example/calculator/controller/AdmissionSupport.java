@@ -0,0 +1,42 @@
+package com.example.calculator.controller;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.service.AdmissionRejectedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+
+/**
+ * 計算を行うコントローラーに共通の受付制御の処理
+ */
+final class AdmissionSupport {
+
+    private AdmissionSupport() {
+    }
+
+    /**
+     * 受付制御のクライアント（calculator.admission.client-header のヘッダー、なければ接続元のアドレス）
+     */
+    static String clientOf(HttpServletRequest request, CalculatorProperties properties) {
+        String clientHeader = properties.getAdmission().getClientHeader();
+        if (clientHeader != null && !clientHeader.isEmpty()) {
+            String client = request.getHeader(clientHeader);
+            if (client != null && !client.isBlank()) {
+                return client;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * 受付制御で拒否された場合は 429 と再試行までの秒数（Retry-After）を返す
+     */
+    static void reject(AdmissionRejectedException e, HttpServletResponse response) throws IOException {
+        long seconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage());
+    }
+}
@@ -1,16 +1,33 @@
 package com.example.calculator.controller;
 
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.history.HistoryStore;
 import com.example.calculator.model.CalculationRequest;
 import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.AdmissionRejectedException;
+import com.example.calculator.service.BatchCalculatorService;
 import com.example.calculator.service.CalculatorService;
+import com.example.calculator.wire.CalculationFrameCodec;
+import com.example.calculator.wire.MalformedFrameException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -23,14 +40,30 @@ public class CalculatorController {
     @Autowired
     private CalculatorService calculatorService;
     
+    @Autowired
+    private BatchCalculatorService batchCalculatorService;
+    
+    @Autowired
+    private HistoryStore historyStore;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private AdmissionControl admissionControl;
+    
+    @Autowired
+    private CalculatorProperties properties;
+    
     /**
      * 電卓ページを表示
      */
     @GetMapping
-    public String calculator(Model model) {
+    public String calculator(Model model, HttpSession session) {
+        requireUi();
         model.addAttribute("calculationRequest", new CalculationRequest());
         model.addAttribute("calculationResult", null);
-        model.addAttribute("history", new ArrayList<CalculationResult>());
+        model.addAttribute("history", historyStore.recent(session.getId()));
         return "calculator";
     }
     
@@ -41,29 +74,30 @@ public class CalculatorController {
     public String calculate(@Valid @ModelAttribute CalculationRequest calculationRequest,
                            BindingResult bindingResult,
                            Model model,
-                           @SessionAttribute(value = "history", required = false) List<CalculationResult> history) {
-        
-        if (history == null) {
-            history = new ArrayList<>();
-        }
+                           HttpSession session,
+                           HttpServletRequest request) {
+        requireUi();
         
         if (bindingResult.hasErrors()) {
             model.addAttribute("calculationResult", null);
-            model.addAttribute("history", history);
+            model.addAttribute("history", historyStore.recent(session.getId()));
             return "calculator";
         }
         
-        CalculationResult result = calculatorService.calculate(calculationRequest.getExpression());
-        
-        // 履歴に追加（最大10件まで）
-        history.add(0, result);
-        if (history.size() > 10) {
-            history = history.subList(0, 10);
+        CalculationResult result;
+        try (AdmissionControl.Permit permit = admit(request, List.of(calculationRequest))) {
+            result = calculatorService.calculate(calculationRequest.getExpression());
+            
+            // 履歴に追加（セッションごとに最大 calculator.history.depth 件まで、古いものから上書き）
+            historyStore.append(session.getId(), result);
+        } catch (AdmissionRejectedException e) {
+            // 画面から計算した場合はエラーページではなく計算結果のエラーとして表示する（履歴には追加しない）
+            result = new CalculationResult(calculationRequest.getExpression(), e.getMessage(), false);
         }
         
         model.addAttribute("calculationRequest", calculationRequest);
         model.addAttribute("calculationResult", result);
-        model.addAttribute("history", history);
+        model.addAttribute("history", historyStore.recent(session.getId()));
         
         return "calculator";
     }
@@ -72,10 +106,12 @@ public class CalculatorController {
      * 履歴をクリア
      */
     @PostMapping("/clear-history")
-    public String clearHistory(Model model) {
+    public String clearHistory(Model model, HttpSession session) {
+        requireUi();
+        historyStore.clear(session.getId());
         model.addAttribute("calculationRequest", new CalculationRequest());
         model.addAttribute("calculationResult", null);
-        model.addAttribute("history", new ArrayList<CalculationResult>());
+        model.addAttribute("history", List.of());
         return "calculator";
     }
     
@@ -84,7 +120,128 @@ public class CalculatorController {
      */
     @PostMapping("/api/calculate")
     @ResponseBody
-    public CalculationResult calculateApi(@Valid @RequestBody CalculationRequest calculationRequest) {
-        return calculatorService.calculate(calculationRequest.getExpression());
+    public CalculationResult calculateApi(@Valid @RequestBody CalculationRequest calculationRequest,
+                                          HttpServletRequest request) {
+        try (AdmissionControl.Permit permit = admit(request, List.of(calculationRequest))) {
+            return calculatorService.calculate(calculationRequest);
+        }
+    }
+    
+    /**
+     * 一括計算API（JSON形式）
+     * 結果はリクエストと同じ順序で返し、個々の式のエラーは各結果に含める
+     */
+    @PostMapping("/api/calculate/batch")
+    @ResponseBody
+    public List<CalculationResult> calculateBatchApi(@RequestBody List<CalculationRequest> calculationRequests,
+                                                     HttpServletRequest request) {
+        if (calculationRequests.size() > batchCalculatorService.getMaxSize()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "一度に計算できる式は" + batchCalculatorService.getMaxSize() + "件までです");
+        }
+        
+        try (AdmissionControl.Permit permit = admit(request, calculationRequests)) {
+            return batchCalculatorService.calculateRequests(calculationRequests);
+        }
+    }
+    
+    /**
+     * ストリーミング計算API（NDJSON形式）
+     * 改行区切りの式またはNDJSON形式の計算リクエストを読み込み、計算結果を1行ずつ返す
+     * 同時計算数の枠はストリーム全体で1つ使用し、各行の計算はクライアントの予算が補充されるまで待ってから行う
+     */
+    @PostMapping(value = "/api/calculate/stream",
+                 consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE},
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void calculateStreamApi(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        
+        String client = clientOf(request);
+        try (AdmissionControl.Permit permit = admissionControl.admit(client, 1)) {
+            NdjsonCalculationStream stream = new NdjsonCalculationStream(
+                    new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8),
+                    objectMapper, properties.getStream().getMaxLineLength());
+            stream.process(response.getOutputStream(), calculationRequest -> {
+                if (admissionControl.isEnabled()) {
+                    admissionControl.pace(client, AdmissionControl.estimate(calculationRequest));
+                }
+                return calculatorService.calculate(calculationRequest);
+            });
+        }
+    }
+    
+    /**
+     * 計算API・一括計算API（バイナリ形式）
+     * Content-Type が application/x-calculator-frame の場合に JSON の代わりに使用する。
+     * 計算リクエストのフレームには計算結果、一括計算リクエストのフレームには一括計算結果のフレームを返す
+     */
+    @PostMapping(value = {"/api/calculate", "/api/calculate/batch"},
+                 consumes = CalculationFrameCodec.MEDIA_TYPE_VALUE,
+                 produces = CalculationFrameCodec.MEDIA_TYPE_VALUE)
+    public void calculateFrameApi(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ByteBuffer frame;
+        List<CalculationRequest> requests;
+        try {
+            frame = CalculationFrameCodec.readFrame(request.getInputStream(),
+                    Math.toIntExact(properties.getWire().getMaxFrameLength().toBytes()));
+            if (frame == null) {
+                throw new MalformedFrameException("フレームがありません");
+            }
+            requests = CalculationFrameCodec.decodeRequests(frame.duplicate());
+        } catch (MalformedFrameException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        
+        boolean single = CalculationFrameCodec.type(frame) == CalculationFrameCodec.Type.CALCULATE;
+        if (!single && requests.size() > batchCalculatorService.getMaxSize()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "一度に計算できる式は" + batchCalculatorService.getMaxSize() + "件までです");
+        }
+        
+        ByteBuffer body;
+        try (AdmissionControl.Permit permit = admit(request, requests)) {
+            body = single
+                    ? CalculationFrameCodec.encodeResult(calculatorService.calculate(requests.get(0)))
+                    : CalculationFrameCodec.encodeBatchResult(batchCalculatorService.calculateRequests(requests));
+        }
+        
+        response.setContentType(CalculationFrameCodec.MEDIA_TYPE_VALUE);
+        response.setContentLength(body.remaining());
+        response.getOutputStream().write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+    }
+    
+    /**
+     * 受付制御で拒否された場合は 429 と再試行までの秒数（Retry-After）を返す
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public void handleAdmissionRejected(AdmissionRejectedException e, HttpServletResponse response) throws IOException {
+        AdmissionSupport.reject(e, response);
+    }
+    
+    /**
+     * 画面を無効にした構成（calculator.ui.enabled=false）では画面の URL を 404 にする
+     */
+    private void requireUi() {
+        if (!properties.getUi().isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
+    
+    /**
+     * 計算リクエストを受付制御に通す
+     * @return 計算の枠（計算が終わったら close する）
+     * @throws AdmissionRejectedException 受け付けられない場合
+     */
+    private AdmissionControl.Permit admit(HttpServletRequest request, List<CalculationRequest> calculationRequests) {
+        long cost = admissionControl.isEnabled() ? AdmissionControl.estimate(calculationRequests) : 0;
+        return admissionControl.admit(clientOf(request), cost);
+    }
+    
+    /**
+     * 受付制御のクライアント（{@link AdmissionSupport#clientOf}）
+     */
+    private String clientOf(HttpServletRequest request) {
+        return AdmissionSupport.clientOf(request, properties);
     }
 }
@@ -0,0 +1,127 @@
+package com.example.calculator.controller;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.model.ExpressionEdit;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.AdmissionRejectedException;
+import com.example.calculator.service.ExpressionEditorService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 入力中の式の逐次評価コントローラー
+ * 式をセッションごとに保持し、キー入力ごとの挿入・削除だけを送って再評価する
+ */
+@Controller
+@RequestMapping("/calculator/api/editor")
+public class ExpressionEditorController {
+    
+    @Autowired
+    private ExpressionEditorService editorService;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private AdmissionControl admissionControl;
+    
+    @Autowired
+    private CalculatorProperties properties;
+    
+    /**
+     * 編集する式を設定（入力前の空の式も受け付けるため、式以外の項目だけを検証する）
+     * 設定した式全体の評価のコストで受付制御に通す
+     */
+    @PutMapping
+    @ResponseBody
+    public CalculationResult open(@RequestBody CalculationRequest calculationRequest, HttpSession session,
+                                  HttpServletRequest request) {
+        for (ConstraintViolation<CalculationRequest> violation : validator.validate(calculationRequest)) {
+            if (!"expression".equals(violation.getPropertyPath().toString())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, violation.getMessage());
+            }
+        }
+        long cost = admissionControl.isEnabled() ? AdmissionControl.estimate(calculationRequest) : 0;
+        try (AdmissionControl.Permit permit = admissionControl.admit(clientOf(request), cost)) {
+            return editorService.open(session.getId(), calculationRequest);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    
+    /**
+     * 編集中の式と計算結果を取得
+     */
+    @GetMapping
+    @ResponseBody
+    public CalculationResult get(HttpSession session) {
+        CalculationResult result = editorService.get(session.getId());
+        if (result == null) {
+            throw notFound();
+        }
+        return result;
+    }
+    
+    /**
+     * 編集を適用して再評価
+     * 編集を適用した後の式の評価のコストで受付制御に通す（拒否した場合は編集を適用しない）
+     */
+    @PostMapping("/edits")
+    @ResponseBody
+    public CalculationResult edit(@RequestBody List<ExpressionEdit> edits, HttpSession session,
+                                  HttpServletRequest request) {
+        if (edits.size() > editorService.getMaxEdits()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "一度に適用できる編集は" + editorService.getMaxEdits() + "件までです");
+        }
+        CalculationResult result;
+        long cost = admissionControl.isEnabled() ? editorService.estimate(session.getId(), edits) : 0;
+        try (AdmissionControl.Permit permit = admissionControl.admit(clientOf(request), cost)) {
+            result = editorService.edit(session.getId(), edits);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (result == null) {
+            throw notFound();
+        }
+        return result;
+    }
+    
+    /**
+     * 編集中の式を破棄
+     */
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void close(HttpSession session) {
+        editorService.close(session.getId());
+    }
+    
+    /**
+     * 受付制御で拒否された場合は 429 と再試行までの秒数（Retry-After）を返す
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public void handleAdmissionRejected(AdmissionRejectedException e, HttpServletResponse response) throws IOException {
+        AdmissionSupport.reject(e, response);
+    }
+    
+    private String clientOf(HttpServletRequest request) {
+        return AdmissionSupport.clientOf(request, properties);
+    }
+    
+    private static ResponseStatusException notFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "編集中の式がありません");
+    }
+}
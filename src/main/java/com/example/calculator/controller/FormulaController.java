@@ -0,0 +1,104 @@
+package com.example.calculator.controller;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.engine.InvalidExpressionException;
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.model.FormulaInfo;
+import com.example.calculator.model.FormulaRequest;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.AdmissionRejectedException;
+import com.example.calculator.service.Formula;
+import com.example.calculator.service.FormulaRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 変数付き数式コントローラー
+ * 式を一度だけ登録し、変数の値だけを送って繰り返し評価する
+ */
+@Controller
+@RequestMapping("/calculator/api/formulas")
+public class FormulaController {
+    
+    @Autowired
+    private FormulaRegistry formulaRegistry;
+    
+    @Autowired
+    private AdmissionControl admissionControl;
+    
+    @Autowired
+    private CalculatorProperties properties;
+    
+    /**
+     * 数式を登録
+     */
+    @PostMapping
+    @ResponseBody
+    @ResponseStatus(HttpStatus.CREATED)
+    public FormulaInfo register(@Valid @RequestBody FormulaRequest formulaRequest) {
+        try {
+            return formulaRegistry.register(formulaRequest.getExpression());
+        } catch (InvalidExpressionException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    
+    /**
+     * 登録済みの数式の情報を取得
+     */
+    @GetMapping("/{id}")
+    @ResponseBody
+    public FormulaInfo get(@PathVariable String id) {
+        Formula formula = find(id);
+        return new FormulaInfo(id, formula.getExpression(), formula.getVariables());
+    }
+    
+    /**
+     * 登録済みの数式を変数の値の組ごとに評価
+     * 式の評価のコストに値の組の数を掛けたコストで受付制御に通す
+     */
+    @PostMapping("/{id}/evaluate")
+    @ResponseBody
+    public List<CalculationResult> evaluate(@PathVariable String id,
+                                            @RequestBody List<Map<String, BigDecimal>> bindings,
+                                            HttpServletRequest request) {
+        Formula formula = find(id);
+        if (bindings.size() > formulaRegistry.getMaxBindings()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "一度に評価できる値の組は" + formulaRegistry.getMaxBindings() + "件までです");
+        }
+        long cost = admissionControl.isEnabled()
+                ? AdmissionControl.estimate(formula.getExpression(), formula.getPrecision()) * bindings.size() : 0;
+        String client = AdmissionSupport.clientOf(request, properties);
+        try (AdmissionControl.Permit permit = admissionControl.admit(client, cost)) {
+            return formulaRegistry.evaluate(formula, bindings);
+        }
+    }
+    
+    /**
+     * 受付制御で拒否された場合は 429 と再試行までの秒数（Retry-After）を返す
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public void handleAdmissionRejected(AdmissionRejectedException e, HttpServletResponse response) throws IOException {
+        AdmissionSupport.reject(e, response);
+    }
+    
+    private Formula find(String id) {
+        Formula formula = formulaRegistry.get(id);
+        if (formula == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "数式が登録されていません: " + id);
+        }
+        return formula;
+    }
+}
@@ -1,12 +1,14 @@
 package com.example.calculator.controller;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 
 /**
- * ホームコントローラー
+ * ホームコントローラー（画面を無効にした構成では登録しない）
  */
 @Controller
+@ConditionalOnProperty(prefix = "calculator.ui", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class HomeController {
     
     /**
@@ -0,0 +1,142 @@
+package com.example.calculator.controller;
+
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.function.Function;
+
+/**
+ * 改行区切りの式（またはNDJSON形式の計算リクエスト）を読み込み、
+ * 計算結果を1行ずつNDJSONとして書き出すストリーム処理
+ * 入力は固定サイズのバッファで1行ずつ処理するため、メモリ使用量は入力サイズに依存しない。
+ * 読み込み・書き込みはブロッキングで行うため、クライアントの送受信速度に応じて処理が調整される。
+ */
+class NdjsonCalculationStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final ObjectReader requestReader;
+    private final ObjectWriter resultWriter;
+    private final int maxLineLength;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean lineTooLong;
+
+    NdjsonCalculationStream(Reader reader, ObjectMapper objectMapper, int maxLineLength) {
+        this.reader = reader;
+        this.requestReader = objectMapper.readerFor(CalculationRequest.class);
+        this.resultWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * 入力をすべて処理する
+     * @param output 出力先
+     * @param calculator 計算リクエストを計算する関数（式のみの行は精度の指定がないリクエストとして渡す）
+     * @return 処理した行数
+     */
+    long process(OutputStream output, Function<CalculationRequest, CalculationResult> calculator) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = resultWriter.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            String line;
+            while ((line = readLine()) != null) {
+                if (line.isBlank() && !lineTooLong) {
+                    continue;
+                }
+                resultWriter.writeValue(generator, calculate(line, calculator));
+                generator.writeRaw('\n');
+                count++;
+                // 次の行の読み込みでブロックする前に、書き込み済みの結果を送信する
+                if (position == limit) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+        return count;
+    }
+
+    private CalculationResult calculate(String line, Function<CalculationRequest, CalculationResult> calculator) {
+        if (lineTooLong) {
+            return new CalculationResult(null, "式が長すぎます", false);
+        }
+
+        CalculationRequest request;
+        if (line.stripLeading().startsWith("{")) {
+            try {
+                request = requestReader.readValue(line);
+            } catch (IOException e) {
+                return new CalculationResult(line, "無効なリクエストです", false);
+            }
+        } else {
+            request = new CalculationRequest(line);
+        }
+        return calculator.apply(request);
+    }
+
+    /**
+     * 1行を読み込む（行末の \r\n または \n は含まない）
+     * 上限を超える行は読み飛ばし、lineTooLong を設定して空文字列を返す
+     * @return 行の内容。入力の終端に達した場合は null
+     */
+    private String readLine() throws IOException {
+        StringBuilder line = null;
+        lineTooLong = false;
+        int length = 0;
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, BUFFER_SIZE);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return line != null || length > 0 || lineTooLong ? finish(line) : null;
+                }
+            }
+
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            int chunk = position - start;
+            length += chunk;
+            if (length > maxLineLength) {
+                lineTooLong = true;
+                line = null;
+            } else if (chunk > 0) {
+                if (line == null) {
+                    line = new StringBuilder(Math.min(maxLineLength, Math.max(16, chunk)));
+                }
+                line.append(buffer, start, chunk);
+            }
+
+            if (position < limit) {
+                position++; // '\n' を読み飛ばす
+                return finish(line);
+            }
+        }
+    }
+
+    private String finish(StringBuilder line) {
+        if (line == null) {
+            return "";
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.calculator.engine;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+
+/**
+ * 後置記法のプログラムを JVM のクラスにコンパイルする
+ * 命令列をそのまま JVM のオペランドスタック上の BigDecimal 演算に変換し、
+ * 隠しクラス（{@link MethodHandles.Lookup#defineHiddenClass}）として定義する。
+ * 分岐やスタック配列を含まない直線的なコードになるため、JIT による最適化が効きやすい。
+ * 隠しクラスは参照がなくなればアンロードされる
+ */
+final class BytecodeCompiler {
+
+    /**
+     * コンパイル対象とする命令数の上限
+     * HotSpot は 8000 バイトを超えるメソッドを JIT コンパイルしないため、それを超えない範囲とする
+     */
+    static final int MAX_INSTRUCTIONS = 1000;
+
+    private static final String CLASS_NAME =
+            Type.getInternalName(GeneratedExpression.class) + "Impl";
+    private static final String BIG_DECIMAL = Type.getInternalName(BigDecimal.class);
+    private static final String BINARY_DESCRIPTOR =
+            Type.getMethodDescriptor(Type.getType(BigDecimal.class), Type.getType(BigDecimal.class));
+    private static final String MULTIPLY_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(BigDecimal.class),
+            Type.getType(BigDecimal.class), Type.getType(BigDecimal.class));
+    private static final String DIVIDE_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(BigDecimal.class),
+            Type.getType(BigDecimal.class), Type.getType(BigDecimal.class), Type.getType(Precision.class));
+    private static final String FUNCTION_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(BigDecimal.class),
+            Type.getType(BigDecimal.class), Type.getType(Precision.class));
+
+    // evaluate メソッドの引数のローカル変数番号
+    private static final int CONSTANTS = 1;
+    private static final int BINDINGS = 2;
+    private static final int PRECISION = 3;
+    // 一時変数はローカル変数として保持する
+    private static final int TEMPORARIES = 4;
+
+    private BytecodeCompiler() {}
+
+    /**
+     * 数式をコンパイルする
+     * @param expression 命令列が整合している（評価時にスタックの不足や余りが生じない）数式
+     * @return 生成したクラスのインスタンス
+     * @throws ReflectiveOperationException クラスの定義やインスタンス化に失敗した場合
+     */
+    static GeneratedExpression compile(CompiledExpression expression) throws ReflectiveOperationException {
+        byte[] bytes = generate(expression.code(), expression.variables().size(), expression.largeOperands());
+        MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+        MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class));
+        try {
+            return (GeneratedExpression) constructor.invoke();
+        } catch (ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] generate(int[] code, int variableCount, boolean largeOperands) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, CLASS_NAME, null,
+                Type.getInternalName(Object.class), new String[] {Type.getInternalName(GeneratedExpression.class)});
+
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(Object.class), "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "evaluate",
+                Type.getMethodDescriptor(Type.getType(BigDecimal.class), Type.getType(BigDecimal[].class),
+                        Type.getType(BigDecimal[].class), Type.getType(Precision.class)),
+                null, null);
+        method.visitCode();
+        int stored = 0;
+        for (int instruction : code) {
+            if (instruction >= 0) {
+                loadElement(method, CONSTANTS, instruction);
+            } else if (instruction <= CompiledExpression.VARIABLE_BASE) {
+                int slot = CompiledExpression.VARIABLE_BASE - instruction;
+                if (slot < variableCount) {
+                    loadElement(method, BINDINGS, slot);
+                } else {
+                    method.visitVarInsn(Opcodes.ALOAD, TEMPORARIES + slot - variableCount);
+                }
+            } else if (instruction == CompiledExpression.OP_STORE) {
+                method.visitInsn(Opcodes.DUP);
+                method.visitVarInsn(Opcodes.ASTORE, TEMPORARIES + stored++);
+            } else if (instruction == CompiledExpression.OP_DIVIDE) {
+                method.visitVarInsn(Opcodes.ALOAD, PRECISION);
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(CompiledExpression.class),
+                        "divide", DIVIDE_DESCRIPTOR, false);
+            } else if (instruction == CompiledExpression.OP_POWER) {
+                method.visitVarInsn(Opcodes.ALOAD, PRECISION);
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(MathFunctions.class),
+                        "power", DIVIDE_DESCRIPTOR, false);
+            } else if (CompiledExpression.isFunction(instruction)) {
+                method.visitVarInsn(Opcodes.ALOAD, PRECISION);
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(MathFunctions.class),
+                        CompiledExpression.FUNCTIONS[CompiledExpression.OP_SQRT - instruction], FUNCTION_DESCRIPTOR,
+                        false);
+            } else if (instruction == CompiledExpression.OP_MULTIPLY && largeOperands) {
+                method.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(LargeNumbers.class),
+                        "multiply", MULTIPLY_DESCRIPTOR, false);
+            } else {
+                String name = switch (instruction) {
+                    case CompiledExpression.OP_ADD -> "add";
+                    case CompiledExpression.OP_SUBTRACT -> "subtract";
+                    default -> "multiply";
+                };
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, BIG_DECIMAL, name, BINARY_DESCRIPTOR, false);
+            }
+        }
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void loadElement(MethodVisitor method, int array, int index) {
+        method.visitVarInsn(Opcodes.ALOAD, array);
+        if (index <= 5) {
+            method.visitInsn(Opcodes.ICONST_0 + index);
+        } else if (index <= Byte.MAX_VALUE) {
+            method.visitIntInsn(Opcodes.BIPUSH, index);
+        } else if (index <= Short.MAX_VALUE) {
+            method.visitIntInsn(Opcodes.SIPUSH, index);
+        } else {
+            method.visitLdcInsn(index);
+        }
+        method.visitInsn(Opcodes.AALOAD);
+    }
+}
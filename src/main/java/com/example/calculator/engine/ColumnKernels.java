@@ -0,0 +1,184 @@
+package com.example.calculator.engine;
+
+/**
+ * 列（double 配列の範囲）単位の演算
+ * このクラスはスカラーのループで計算する。{@code jdk.incubator.vector} モジュールが利用できる場合は
+ * {@link VectorColumnKernels} が Vector API で同じ演算を行う。
+ * 演算子・関数の番号は {@link CompiledExpression} の命令と同じ
+ */
+class ColumnKernels {
+
+    private static final ColumnKernels SCALAR = new ColumnKernels();
+    private static final ColumnKernels PREFERRED = loadPreferred();
+
+    /**
+     * スカラーのループで計算する実装
+     */
+    static ColumnKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * 利用できる最速の実装（Vector API を利用できない場合はスカラー）
+     */
+    static ColumnKernels preferred() {
+        return PREFERRED;
+    }
+
+    private static ColumnKernels loadPreferred() {
+        // 起動時に --add-modules jdk.incubator.vector が指定されていない場合はモジュールが読み込まれない
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            return new VectorColumnKernels();
+        } catch (LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    /**
+     * 実装の名前（メトリクスやベンチマークの表示用）
+     */
+    String name() {
+        return "scalar";
+    }
+
+    /**
+     * out[i] = a[aOffset + i] (operator) b[bOffset + i]
+     */
+    void binary(int operator, double[] a, int aOffset, double[] b, int bOffset, double[] out, int length) {
+        // 演算子ごとにループを分け、ループ内で分岐しないようにする
+        switch (operator) {
+            case CompiledExpression.OP_ADD -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a[aOffset + i] + b[bOffset + i];
+                }
+            }
+            case CompiledExpression.OP_SUBTRACT -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a[aOffset + i] - b[bOffset + i];
+                }
+            }
+            case CompiledExpression.OP_MULTIPLY -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a[aOffset + i] * b[bOffset + i];
+                }
+            }
+            case CompiledExpression.OP_DIVIDE -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a[aOffset + i] / b[bOffset + i];
+                }
+            }
+            default -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = apply(operator, a[aOffset + i], b[bOffset + i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * out[i] = a[aOffset + i] (operator) b
+     */
+    void binary(int operator, double[] a, int aOffset, double b, double[] out, int length) {
+        switch (operator) {
+            case CompiledExpression.OP_ADD -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a[aOffset + i] + b;
+                }
+            }
+            case CompiledExpression.OP_SUBTRACT -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a[aOffset + i] - b;
+                }
+            }
+            case CompiledExpression.OP_MULTIPLY -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a[aOffset + i] * b;
+                }
+            }
+            case CompiledExpression.OP_DIVIDE -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a[aOffset + i] / b;
+                }
+            }
+            default -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = apply(operator, a[aOffset + i], b);
+                }
+            }
+        }
+    }
+
+    /**
+     * out[i] = a (operator) b[bOffset + i]
+     */
+    void binary(int operator, double a, double[] b, int bOffset, double[] out, int length) {
+        switch (operator) {
+            case CompiledExpression.OP_ADD -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a + b[bOffset + i];
+                }
+            }
+            case CompiledExpression.OP_SUBTRACT -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a - b[bOffset + i];
+                }
+            }
+            case CompiledExpression.OP_MULTIPLY -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a * b[bOffset + i];
+                }
+            }
+            case CompiledExpression.OP_DIVIDE -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = a / b[bOffset + i];
+                }
+            }
+            default -> {
+                for (int i = 0; i < length; i++) {
+                    out[i] = apply(operator, a, b[bOffset + i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * out[i] = function(a[aOffset + i])
+     */
+    void unary(int function, double[] a, int aOffset, double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = apply(function, a[aOffset + i]);
+        }
+    }
+
+    /**
+     * 二項演算（IEEE 754 に従い、ゼロ除算は無限大または NaN になる）
+     */
+    static double apply(int operator, double a, double b) {
+        return switch (operator) {
+            case CompiledExpression.OP_ADD -> a + b;
+            case CompiledExpression.OP_SUBTRACT -> a - b;
+            case CompiledExpression.OP_MULTIPLY -> a * b;
+            case CompiledExpression.OP_DIVIDE -> a / b;
+            case CompiledExpression.OP_POWER -> Math.pow(a, b);
+            default -> throw new IllegalArgumentException("未対応の演算子: " + operator);
+        };
+    }
+
+    /**
+     * 関数（定義域外の引数は NaN になる）
+     */
+    static double apply(int function, double x) {
+        return switch (function) {
+            case CompiledExpression.OP_SQRT -> Math.sqrt(x);
+            case CompiledExpression.OP_EXP -> Math.exp(x);
+            case CompiledExpression.OP_LN -> Math.log(x);
+            case CompiledExpression.OP_SIN -> Math.sin(x);
+            case CompiledExpression.OP_COS -> Math.cos(x);
+            case CompiledExpression.OP_TAN -> Math.tan(x);
+            default -> throw new IllegalArgumentException("未対応の関数: " + function);
+        };
+    }
+}
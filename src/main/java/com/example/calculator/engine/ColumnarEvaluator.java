@@ -0,0 +1,342 @@
+package com.example.calculator.engine;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 1つの数式を多数の行に適用する列単位の評価
+ * 変数ごとの列（double 配列またはダイレクトバッファなどの {@link DoubleBuffer}）を入力とし、
+ * 行を {@link #CHUNK_ROWS} 行ずつのチャンクに分けて、チャンクごとに命令列を1回だけ解釈する。
+ * 各命令はチャンク全体に対する列の演算（{@link ColumnKernels}）として実行するため、
+ * 行ごとの命令の分岐が不要になり、Vector API を利用できる場合は SIMD 命令で計算する。
+ * 行数が {@link #DEFAULT_GRAIN} の2倍以上の場合は行の範囲を分割して ForkJoinPool で並列に評価する。
+ * 計算は double（IEEE 754）で行うため、結果は BigDecimal による評価と一致しない場合があり、
+ * ゼロ除算は無限大、定義域外の関数の引数は NaN になる（例外は発生しない）。
+ * 不変オブジェクトのため、複数スレッドから同時に評価できる
+ */
+public final class ColumnarEvaluator {
+
+    /** チャンクの行数（作業用の列がL1・L2キャッシュに収まる大きさ） */
+    static final int CHUNK_ROWS = 1024;
+
+    /** 1タスクで逐次評価する最小の行数 */
+    static final int DEFAULT_GRAIN = 1 << 16;
+
+    private final int[] code;
+    private final double[] constants;
+    private final int variables;
+    private final int slots;
+    private final int maxStackDepth;
+    private final List<String> variableNames;
+    private final ColumnKernels kernels;
+    private final ForkJoinPool pool;
+    private final int grain;
+
+    /**
+     * Vector API を利用できる場合は利用し、共通プールで並列に評価する
+     * @throws InvalidExpressionException 命令列が整合しない式の場合
+     */
+    public ColumnarEvaluator(CompiledExpression expression) {
+        this(expression, ColumnKernels.preferred(), ForkJoinPool.commonPool(), DEFAULT_GRAIN);
+    }
+
+    /**
+     * @param vectorized Vector API を利用するかどうか（false の場合、または利用できない場合はスカラーで計算する）
+     * @param pool 並列評価に使用するプール
+     * @throws InvalidExpressionException 命令列が整合しない式の場合
+     */
+    public ColumnarEvaluator(CompiledExpression expression, boolean vectorized, ForkJoinPool pool) {
+        this(expression, vectorized ? ColumnKernels.preferred() : ColumnKernels.scalar(), pool, DEFAULT_GRAIN);
+    }
+
+    ColumnarEvaluator(CompiledExpression expression, ColumnKernels kernels, ForkJoinPool pool, int grain) {
+        if (!CompiledExpression.isWellFormed(expression.code())) {
+            throw new InvalidExpressionException("無効な式です");
+        }
+        this.code = expression.code();
+        this.constants = new double[expression.constants().length];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = expression.constants()[i].doubleValue();
+        }
+        this.variableNames = expression.variables();
+        this.variables = variableNames.size();
+        this.slots = variables + expression.temporaries();
+        this.maxStackDepth = expression.maxStackDepth();
+        this.kernels = kernels;
+        this.pool = pool;
+        this.grain = Math.max(CHUNK_ROWS, grain);
+    }
+
+    /**
+     * 式に含まれる変数名（列の順序）
+     */
+    public List<String> variables() {
+        return variableNames;
+    }
+
+    /**
+     * Vector API で計算するかどうか
+     */
+    public boolean isVectorized() {
+        return kernels != ColumnKernels.scalar();
+    }
+
+    /**
+     * 列を評価する
+     * @param columns {@link #variables()} と同じ順序の変数の列（長さは output と同じであること）
+     * @param output 結果を書き込む配列（行数）
+     * @throws IllegalArgumentException 列の数または長さが一致しない場合
+     */
+    public void evaluate(double[][] columns, double[] output) {
+        checkColumns(columns.length, output.length);
+        for (double[] column : columns) {
+            if (column.length != output.length) {
+                throw new IllegalArgumentException("列の長さが一致しません: " + column.length + " != " + output.length);
+            }
+        }
+        run(new Columns(columns, output), output.length);
+    }
+
+    /**
+     * 列を評価し、結果の配列を返す（行数は最初の列の長さ。変数を含まない式では空の配列を返す）
+     */
+    public double[] evaluate(double[]... columns) {
+        double[] output = new double[columns.length > 0 ? columns[0].length : 0];
+        evaluate(columns, output);
+        return output;
+    }
+
+    /**
+     * ヒープ外のメモリなどのバッファの列を評価する
+     * 各バッファの位置から上限までを列とし、位置は変更しない（チャンクごとにヒープの作業用の配列に読み込む）
+     * @param columns {@link #variables()} と同じ順序の変数の列（残りの要素数は output と同じであること）
+     * @param output 結果を書き込むバッファ（位置から上限までの要素数が行数）
+     * @throws IllegalArgumentException 列の数または長さが一致しない場合
+     */
+    public void evaluate(DoubleBuffer[] columns, DoubleBuffer output) {
+        int rows = output.remaining();
+        checkColumns(columns.length, rows);
+        for (DoubleBuffer column : columns) {
+            if (column.remaining() != rows) {
+                throw new IllegalArgumentException("列の長さが一致しません: " + column.remaining() + " != " + rows);
+            }
+        }
+        run(new Buffers(columns, output), rows);
+    }
+
+    private void checkColumns(int count, int rows) {
+        if (count != variables) {
+            throw new IllegalArgumentException("列の数が変数の数と一致しません: " + count + " != " + variables);
+        }
+    }
+
+    private void run(Source source, int rows) {
+        if (rows < 2 * grain) {
+            new Chunks(source).evaluate(0, rows);
+            return;
+        }
+        Task task = new Task(source, 0, rows);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /** 入力と出力の列 */
+    private interface Source {
+        /**
+         * 変数の列の [from, from + length) を参照できる配列を返す
+         * @param scratch 必要な場合に読み込む作業用の配列
+         * @return 配列（先頭の位置は {@link #offset(int)}）
+         */
+        double[] column(int variable, int from, int length, double[] scratch);
+
+        /**
+         * {@link #column} で返した配列での from の位置
+         */
+        int offset(int from);
+
+        void write(int from, double[] values, int length);
+    }
+
+    private record Columns(double[][] columns, double[] output) implements Source {
+        @Override
+        public double[] column(int variable, int from, int length, double[] scratch) {
+            return columns[variable];
+        }
+
+        @Override
+        public int offset(int from) {
+            return from;
+        }
+
+        @Override
+        public void write(int from, double[] values, int length) {
+            System.arraycopy(values, 0, output, from, length);
+        }
+    }
+
+    private record Buffers(DoubleBuffer[] columns, DoubleBuffer output) implements Source {
+        @Override
+        public double[] column(int variable, int from, int length, double[] scratch) {
+            DoubleBuffer column = columns[variable];
+            column.get(column.position() + from, scratch, 0, length);
+            return scratch;
+        }
+
+        @Override
+        public int offset(int from) {
+            return 0;
+        }
+
+        @Override
+        public void write(int from, double[] values, int length) {
+            output.put(output.position() + from, values, 0, length);
+        }
+    }
+
+    /** 行の範囲を二分して並列に評価するタスク */
+    private final class Task extends RecursiveAction {
+        private final Source source;
+        private final int from;
+        private final int to;
+
+        Task(Source source, int from, int to) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2 * grain) {
+                new Chunks(source).evaluate(from, to);
+                return;
+            }
+            // チャンクの境界で分割する
+            int middle = from + (to - from) / 2 / CHUNK_ROWS * CHUNK_ROWS;
+            invokeAll(new Task(source, from, middle), new Task(source, middle, to));
+        }
+    }
+
+    /**
+     * 1スレッドでチャンクを順に評価する（作業用の列を保持する）
+     * スタックの要素は、作業用の列・入力の列の範囲・定数のいずれかを参照する
+     */
+    private final class Chunks {
+        private final Source source;
+
+        // スタックの要素ごとの作業用の列
+        private final double[][] buffers = new double[maxStackDepth][CHUNK_ROWS];
+        // スタックの要素が参照する配列と位置（定数の場合は array が null）
+        private final double[][] arrays = new double[maxStackDepth][];
+        private final int[] offsets = new int[maxStackDepth];
+        private final double[] values = new double[maxStackDepth];
+
+        // 変数・一時変数の列（チャンクごとに読み込む）
+        private final double[][] slotArrays = new double[slots][];
+        private final int[] slotOffsets = new int[slots];
+        private final double[] slotValues = new double[slots];
+        private final double[][] slotBuffers = new double[slots][];
+
+        Chunks(Source source) {
+            this.source = source;
+        }
+
+        void evaluate(int from, int to) {
+            for (int start = from; start < to; start += CHUNK_ROWS) {
+                int length = Math.min(CHUNK_ROWS, to - start);
+                evaluateChunk(start, length);
+            }
+        }
+
+        private void evaluateChunk(int from, int length) {
+            for (int i = 0; i < variables; i++) {
+                slotArrays[i] = null;
+            }
+            int size = 0;
+            int stored = variables;
+            for (int instruction : code) {
+                if (instruction >= 0) {
+                    arrays[size] = null;
+                    values[size++] = constants[instruction];
+                } else if (instruction <= CompiledExpression.VARIABLE_BASE) {
+                    int slot = CompiledExpression.VARIABLE_BASE - instruction;
+                    if (slot < variables && slotArrays[slot] == null) {
+                        slotArrays[slot] = source.column(slot, from, length, slotBuffer(slot));
+                        slotOffsets[slot] = source.offset(from);
+                    }
+                    arrays[size] = slotArrays[slot];
+                    offsets[size] = slotOffsets[slot];
+                    values[size++] = slotValues[slot];
+                } else if (instruction == CompiledExpression.OP_STORE) {
+                    store(stored++, size - 1, length);
+                } else if (CompiledExpression.isFunction(instruction)) {
+                    int top = size - 1;
+                    if (arrays[top] == null) {
+                        values[top] = ColumnKernels.apply(instruction, values[top]);
+                    } else {
+                        kernels.unary(instruction, arrays[top], offsets[top], buffers[top], length);
+                        result(top);
+                    }
+                } else {
+                    int right = --size;
+                    int left = size - 1;
+                    double[] a = arrays[left];
+                    double[] b = arrays[right];
+                    if (a == null && b == null) {
+                        values[left] = ColumnKernels.apply(instruction, values[left], values[right]);
+                        continue;
+                    }
+                    if (a == null) {
+                        kernels.binary(instruction, values[left], b, offsets[right], buffers[left], length);
+                    } else if (b == null) {
+                        kernels.binary(instruction, a, offsets[left], values[right], buffers[left], length);
+                    } else {
+                        kernels.binary(instruction, a, offsets[left], b, offsets[right], buffers[left], length);
+                    }
+                    result(left);
+                }
+            }
+
+            if (arrays[0] == null) {
+                Arrays.fill(buffers[0], 0, length, values[0]);
+            } else if (arrays[0] != buffers[0]) {
+                // 変数をそのまま返す式
+                System.arraycopy(arrays[0], offsets[0], buffers[0], 0, length);
+            }
+            source.write(from, buffers[0], length);
+        }
+
+        /** スタックの要素 index の結果を作業用の列に書き込んだ */
+        private void result(int index) {
+            arrays[index] = buffers[index];
+            offsets[index] = 0;
+        }
+
+        /** スタックの要素を一時変数に保存する（作業用の列は後で上書きされるため複製する） */
+        private void store(int slot, int index, int length) {
+            if (arrays[index] == null) {
+                slotArrays[slot] = null;
+                slotValues[slot] = values[index];
+                return;
+            }
+            double[] copy = slotBuffer(slot);
+            System.arraycopy(arrays[index], offsets[index], copy, 0, length);
+            slotArrays[slot] = copy;
+            slotOffsets[slot] = 0;
+        }
+
+        private double[] slotBuffer(int slot) {
+            if (slotBuffers[slot] == null) {
+                slotBuffers[slot] = new double[CHUNK_ROWS];
+            }
+            return slotBuffers[slot];
+        }
+    }
+}
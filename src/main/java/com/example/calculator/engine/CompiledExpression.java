@@ -0,0 +1,497 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 構文解析済みの数式（後置記法のプログラム）
+ * 命令列は int 配列で表現し、0以上の値は定数プールのインデックス、
+ * -1〜-4 と -6 は二項演算子（-6 は累乗）、-7〜-12 は単項の関数（{@link #FUNCTIONS}）、
+ * {@link #VARIABLE_BASE} 以下の値は変数の読み込みを表す。
+ * {@link ExpressionOptimizer} で最適化した式では、-5 はスタックの先頭の値を一時変数に保存する命令を表し、
+ * 一時変数は変数の後ろに続く番号で読み込む。
+ * 不変オブジェクトのため、複数スレッドから同時に評価できる
+ */
+public final class CompiledExpression {
+
+    static final int OP_ADD = -1;
+    static final int OP_SUBTRACT = -2;
+    static final int OP_MULTIPLY = -3;
+    static final int OP_DIVIDE = -4;
+
+    /** スタックの先頭の値を取り出さずに次の一時変数に保存する（n 番目の保存命令が一時変数 n に書き込む） */
+    static final int OP_STORE = -5;
+
+    static final int OP_POWER = -6;
+
+    /** 関数 i（{@link #FUNCTIONS} の i 番目）の呼び出しは OP_SQRT - i で表す */
+    static final int OP_SQRT = -7;
+    static final int OP_EXP = -8;
+    static final int OP_LN = -9;
+    static final int OP_SIN = -10;
+    static final int OP_COS = -11;
+    static final int OP_TAN = -12;
+
+    /** 関数名（{@link MathFunctions} のメソッド名と同じ） */
+    static final String[] FUNCTIONS = {"sqrt", "exp", "ln", "sin", "cos", "tan"};
+
+    /** 変数 i の読み込みは VARIABLE_BASE - i で表す */
+    static final int VARIABLE_BASE = -16;
+
+    private static final BigDecimal[] NO_BINDINGS = new BigDecimal[0];
+
+    private final int[] code;
+    private final BigDecimal[] constants;
+    private final List<String> variables;
+    private final int maxStackDepth;
+    private final int temporaries;
+    private final int eliminatedNodes;
+    private final int maxOperandDigits;
+    private final boolean largeOperands;
+
+    // 高速評価用の定数（すべての定数が long の仮数で表せない場合は null）
+    private final long[] fastConstantValues;
+    private final int[] fastConstantScales;
+
+    // バイトコードへのコンパイルの状態（ExpressionEvaluator が使用する）
+    private final boolean compilable;
+    private int invocations; // 厳密な回数は不要なため同期しない
+    private volatile GeneratedExpression generated;
+    private volatile boolean compilationFailed;
+
+    // 並列評価の構造（ExpressionEvaluator が大きい式を評価する時点で作成する）
+    private volatile ParallelEvaluator parallel;
+
+    CompiledExpression(int[] code, BigDecimal[] constants, List<String> variables, int maxStackDepth) {
+        this(code, constants, variables, maxStackDepth, 0, 0);
+    }
+
+    CompiledExpression(int[] code, BigDecimal[] constants, List<String> variables, int maxStackDepth,
+                       int temporaries, int eliminatedNodes) {
+        this.code = code;
+        this.constants = constants;
+        this.variables = List.copyOf(variables);
+        this.maxStackDepth = maxStackDepth;
+        this.temporaries = temporaries;
+        this.eliminatedNodes = eliminatedNodes;
+
+        int digits = 0;
+        for (BigDecimal constant : constants) {
+            digits = Math.max(digits, constant.precision());
+        }
+        this.maxOperandDigits = digits;
+        this.largeOperands = digits >= LargeNumbers.PARSE_THRESHOLD;
+
+        long[] values = new long[constants.length];
+        int[] scales = new int[constants.length];
+        for (int i = 0; i < constants.length && values != null; i++) {
+            if (FastPathEvaluator.fits(constants[i])) {
+                values[i] = constants[i].unscaledValue().longValueExact();
+                scales[i] = constants[i].scale();
+            } else {
+                values = null;
+                scales = null;
+            }
+        }
+        this.fastConstantValues = values;
+        this.fastConstantScales = scales;
+        this.compilable = code.length <= BytecodeCompiler.MAX_INSTRUCTIONS && isWellFormed(code);
+    }
+
+    /**
+     * 評価時にスタックの不足や余りが生じないかどうか
+     * 数値として解釈できないトークンを含む式などはエラーの発生位置を保つため、コンパイルの対象外とする
+     */
+    static boolean isWellFormed(int[] code) {
+        int size = 0;
+        for (int instruction : code) {
+            if (instruction >= 0 || instruction <= VARIABLE_BASE) {
+                size++;
+            } else if (instruction == OP_STORE || isFunction(instruction)) {
+                if (size < 1) {
+                    return false;
+                }
+            } else if (size < 2) {
+                return false;
+            } else {
+                size--;
+            }
+        }
+        return size == 1;
+    }
+
+    /**
+     * 関数の呼び出し命令かどうか
+     */
+    static boolean isFunction(int instruction) {
+        return instruction <= OP_SQRT && instruction > OP_SQRT - FUNCTIONS.length;
+    }
+
+    /**
+     * 数式を評価する
+     * 正確に計算できる範囲では long による高速評価を行い、
+     * それ以外の場合は BigDecimal による評価にフォールバックする
+     * @param scale 除算結果の小数点以下の桁数
+     * @param roundingMode 除算時の丸めモード
+     * @return 計算結果
+     */
+    public BigDecimal evaluate(int scale, RoundingMode roundingMode) {
+        return evaluate(NO_BINDINGS, Precision.ofScale(scale, roundingMode));
+    }
+
+    /**
+     * 除算結果の精度を指定して数式を評価する
+     */
+    public BigDecimal evaluate(Precision precision) {
+        return evaluate(NO_BINDINGS, precision);
+    }
+
+    /**
+     * 変数の値を指定して数式を評価する
+     * @param bindings {@link #variables()} と同じ順序の変数の値
+     * @param scale 除算結果の小数点以下の桁数
+     * @param roundingMode 除算時の丸めモード
+     * @return 計算結果
+     */
+    public BigDecimal evaluate(BigDecimal[] bindings, int scale, RoundingMode roundingMode) {
+        return evaluate(bindings, Precision.ofScale(scale, roundingMode));
+    }
+
+    /**
+     * 変数の値と除算結果の精度を指定して数式を評価する
+     * 除算の丸めを最後にまとめる精度の場合は {@link #evaluateRational} で評価する
+     * @param bindings {@link #variables()} と同じ順序の変数の値
+     * @param precision 除算結果の精度
+     * @return 計算結果
+     */
+    public BigDecimal evaluate(BigDecimal[] bindings, Precision precision) {
+        if (precision.isDeferredRounding()) {
+            return evaluateRational(bindings, precision);
+        }
+        checkBindings(bindings);
+        BigDecimal result = FastPathEvaluator.evaluate(this, bindings, precision);
+        return result != null ? result : evaluateBigDecimal(bindings, precision);
+    }
+
+    /**
+     * 変数名と値の対応を指定して数式を評価する
+     * @throws IllegalArgumentException 値が指定されていない変数がある場合
+     */
+    public BigDecimal evaluate(Map<String, BigDecimal> bindings, int scale, RoundingMode roundingMode) {
+        return evaluate(toArray(bindings), scale, roundingMode);
+    }
+
+    /**
+     * BigDecimal のみを使用して数式を評価する
+     * @param scale 除算結果の小数点以下の桁数
+     * @param roundingMode 除算時の丸めモード
+     * @return 計算結果
+     */
+    public BigDecimal evaluateBigDecimal(int scale, RoundingMode roundingMode) {
+        return evaluateBigDecimal(NO_BINDINGS, Precision.ofScale(scale, roundingMode));
+    }
+
+    /**
+     * 除算結果の精度を指定して、BigDecimal のみを使用して数式を評価する
+     */
+    public BigDecimal evaluateBigDecimal(Precision precision) {
+        return evaluateBigDecimal(NO_BINDINGS, precision);
+    }
+
+    /**
+     * 変数の値を指定して、BigDecimal のみを使用して数式を評価する
+     */
+    public BigDecimal evaluateBigDecimal(BigDecimal[] bindings, int scale, RoundingMode roundingMode) {
+        return evaluateBigDecimal(bindings, Precision.ofScale(scale, roundingMode));
+    }
+
+    /**
+     * 変数の値と除算結果の精度を指定して、BigDecimal のみを使用して数式を評価する
+     */
+    public BigDecimal evaluateBigDecimal(BigDecimal[] bindings, Precision precision) {
+        checkBindings(bindings);
+        ScratchStacks stacks = ScratchStacks.acquire();
+        try {
+            // 一時変数は変数の後ろに保存する
+            BigDecimal[] slots = temporaries == 0 ? bindings : stacks.slots(bindings, temporaries);
+            return interpret(0, code.length, slots, precision, stacks);
+        } finally {
+            stacks.release();
+        }
+    }
+
+    /**
+     * 命令列の範囲 [from, to) を BigDecimal で評価する（並列評価では部分木ごとに呼び出す）
+     * @param slots 変数の値（一時変数を使う場合は、その領域を後ろに確保した配列）
+     */
+    BigDecimal interpret(int from, int to, BigDecimal[] slots, Precision precision) {
+        ScratchStacks stacks = ScratchStacks.acquire();
+        try {
+            return interpret(from, to, slots, precision, stacks);
+        } finally {
+            stacks.release();
+        }
+    }
+
+    private BigDecimal interpret(int from, int to, BigDecimal[] slots, Precision precision, ScratchStacks stacks) {
+        BigDecimal[] stack = stacks.operands(maxStackDepth);
+        int size = 0;
+        int stored = variables.size();
+
+        for (int i = from; i < to; i++) {
+            int instruction = code[i];
+            if (instruction >= 0) {
+                stack[size++] = constants[instruction];
+            } else if (instruction <= VARIABLE_BASE) {
+                stack[size++] = slots[VARIABLE_BASE - instruction];
+            } else if (instruction == OP_STORE) {
+                slots[stored++] = stack[size - 1];
+            } else if (isFunction(instruction)) {
+                if (size < 1) {
+                    throw new ArithmeticException("演算子に対して十分な数値がありません");
+                }
+                stack[size - 1] = performFunction(stack[size - 1], instruction, precision);
+            } else {
+                if (size < 2) {
+                    throw new ArithmeticException("演算子に対して十分な数値がありません");
+                }
+                BigDecimal b = stack[--size];
+                BigDecimal a = stack[size - 1];
+                stack[size - 1] = instruction == OP_MULTIPLY && largeOperands
+                        ? LargeNumbers.multiply(a, b)
+                        : performOperation(a, b, instruction, precision);
+            }
+        }
+
+        if (size != 1) {
+            throw new ArithmeticException("計算結果が不正です");
+        }
+
+        return stack[0];
+    }
+
+    /**
+     * 除算を丸めずに分数（{@link Rational}）のまま評価し、結果を1回だけ丸める
+     * 除算・負の整数乗・関数・非整数乗を含まない場合は丸めずに正確な値を返す。
+     * 関数と非整数乗は引数を指定の精度に丸めて計算し、その結果を正確な値として以降の計算に使う
+     * @param bindings {@link #variables()} と同じ順序の変数の値
+     * @param precision 結果の精度
+     * @return 計算結果
+     */
+    public BigDecimal evaluateRational(BigDecimal[] bindings, Precision precision) {
+        checkBindings(bindings);
+        Rational[] stack = new Rational[maxStackDepth];
+        Rational[] slots = new Rational[variables.size() + temporaries];
+        int size = 0;
+        int stored = variables.size();
+        boolean rounded = false;
+
+        for (int instruction : code) {
+            if (instruction >= 0) {
+                stack[size++] = Rational.of(constants[instruction]);
+            } else if (instruction <= VARIABLE_BASE) {
+                int slot = VARIABLE_BASE - instruction;
+                if (slots[slot] == null) {
+                    slots[slot] = Rational.of(bindings[slot]);
+                }
+                stack[size++] = slots[slot];
+            } else if (instruction == OP_STORE) {
+                slots[stored++] = stack[size - 1];
+            } else if (isFunction(instruction)) {
+                if (size < 1) {
+                    throw new ArithmeticException("演算子に対して十分な数値がありません");
+                }
+                stack[size - 1] = Rational.of(performFunction(stack[size - 1].toBigDecimal(precision), instruction,
+                        precision));
+                rounded = true;
+            } else {
+                if (size < 2) {
+                    throw new ArithmeticException("演算子に対して十分な数値がありません");
+                }
+                Rational b = stack[--size];
+                Rational a = stack[size - 1];
+                stack[size - 1] = switch (instruction) {
+                    case OP_ADD -> a.add(b);
+                    case OP_SUBTRACT -> a.subtract(b);
+                    case OP_MULTIPLY -> a.multiply(b);
+                    case OP_DIVIDE -> {
+                        rounded = true;
+                        yield a.divide(b);
+                    }
+                    case OP_POWER -> {
+                        Integer n = b.intValue();
+                        if (n == null) {
+                            // 非整数乗と int の範囲外の整数乗（エラーの判定を含む）は従来どおり計算する
+                            rounded = true;
+                            yield Rational.of(MathFunctions.power(a.toBigDecimal(precision),
+                                    b.toBigDecimal(precision), precision));
+                        }
+                        rounded |= n < 0;
+                        yield a.pow(n);
+                    }
+                    default -> throw new ArithmeticException("未対応の演算子: " + instruction);
+                };
+            }
+        }
+
+        if (size != 1) {
+            throw new ArithmeticException("計算結果が不正です");
+        }
+
+        BigDecimal exact = rounded ? null : stack[0].toBigDecimalExact();
+        return exact != null ? exact : stack[0].toBigDecimal(precision);
+    }
+
+    /**
+     * 演算を実行
+     */
+    static BigDecimal performOperation(BigDecimal a, BigDecimal b, int operator, Precision precision) {
+        return switch (operator) {
+            case OP_ADD -> a.add(b);
+            case OP_SUBTRACT -> a.subtract(b);
+            case OP_MULTIPLY -> a.multiply(b);
+            case OP_DIVIDE -> precision.divide(a, b);
+            case OP_POWER -> MathFunctions.power(a, b, precision);
+            default -> throw new ArithmeticException("未対応の演算子: " + operator);
+        };
+    }
+
+    /**
+     * 関数を実行
+     */
+    static BigDecimal performFunction(BigDecimal x, int function, Precision precision) {
+        return switch (function) {
+            case OP_SQRT -> MathFunctions.sqrt(x, precision);
+            case OP_EXP -> MathFunctions.exp(x, precision);
+            case OP_LN -> MathFunctions.ln(x, precision);
+            case OP_SIN -> MathFunctions.sin(x, precision);
+            case OP_COS -> MathFunctions.cos(x, precision);
+            case OP_TAN -> MathFunctions.tan(x, precision);
+            default -> throw new ArithmeticException("未対応の関数: " + function);
+        };
+    }
+
+    /**
+     * 除算を実行（生成したクラスから呼び出される）
+     */
+    static BigDecimal divide(BigDecimal a, BigDecimal b, Precision precision) {
+        return precision.divide(a, b);
+    }
+
+    /**
+     * 式に含まれる変数名（出現順）
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /**
+     * 最適化で評価を省略したノード（命令）の数（最適化していない場合は0）
+     */
+    public int eliminatedNodes() {
+        return eliminatedNodes;
+    }
+
+    /**
+     * 式に含まれる数値の最大桁数
+     */
+    public int maxOperandDigits() {
+        return maxOperandDigits;
+    }
+
+    /**
+     * 変数名と値の対応を {@link #variables()} と同じ順序の配列に変換する
+     * @throws IllegalArgumentException 値が指定されていない変数がある場合
+     */
+    public BigDecimal[] toArray(Map<String, BigDecimal> bindings) {
+        BigDecimal[] values = new BigDecimal[variables.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = bindings.get(variables.get(i));
+            if (values[i] == null) {
+                throw new IllegalArgumentException("変数の値が指定されていません: " + variables.get(i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 評価回数を数え、しきい値に達した場合はバイトコードにコンパイルする
+     * @param threshold コンパイルするまでの評価回数
+     * @return 生成したクラスのインスタンス。未コンパイルまたはコンパイルできない場合は null
+     */
+    GeneratedExpression generated(int threshold) {
+        GeneratedExpression current = generated;
+        if (current != null || !compilable || compilationFailed || ++invocations < threshold) {
+            return current;
+        }
+        synchronized (this) {
+            if (generated == null && !compilationFailed) {
+                try {
+                    generated = BytecodeCompiler.compile(this);
+                } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                    // コンパイルできない場合はインタープリタでの評価を続ける
+                    compilationFailed = true;
+                }
+            }
+            return generated;
+        }
+    }
+
+    /**
+     * 並列評価のための部分木の構造（初回の呼び出し時に作成する）
+     */
+    ParallelEvaluator parallel() {
+        ParallelEvaluator current = parallel;
+        if (current == null) {
+            // 複数のスレッドが同時に作成しても結果は同じため同期しない
+            current = new ParallelEvaluator(this, ParallelEvaluator.DEFAULT_GRAIN);
+            parallel = current;
+        }
+        return current;
+    }
+
+    void checkBindings(BigDecimal[] bindings) {
+        if (bindings.length != variables.size()) {
+            throw new IllegalArgumentException(
+                    "変数の数が一致しません: " + variables.size() + "個必要ですが" + bindings.length + "個指定されました");
+        }
+        for (int i = 0; i < bindings.length; i++) {
+            if (bindings[i] == null) {
+                throw new IllegalArgumentException("変数の値が指定されていません: " + variables.get(i));
+            }
+        }
+    }
+
+    int[] code() {
+        return code;
+    }
+
+    /**
+     * 大きい数値を含むかどうか（乗算に {@link LargeNumbers#multiply} を使用する）
+     */
+    public boolean largeOperands() {
+        return largeOperands;
+    }
+
+    BigDecimal[] constants() {
+        return constants;
+    }
+
+    int maxStackDepth() {
+        return maxStackDepth;
+    }
+
+    int temporaries() {
+        return temporaries;
+    }
+
+    long[] fastConstantValues() {
+        return fastConstantValues;
+    }
+
+    int[] fastConstantScales() {
+        return fastConstantScales;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 解析済みの数式の評価方法を選択する
+ * 高速評価の有無と、繰り返し評価される数式をバイトコードにコンパイルするまでの評価回数を保持する。
+ * コンパイルは同じ {@link CompiledExpression} のインスタンスが再利用される場合
+ * （解析済みの式のキャッシュや登録した変数付きの式）にのみ効果がある。
+ * コンパイルできない場合は従来どおりインタープリタで評価する。
+ * 命令数が並列評価のしきい値以上の式は、高速評価できない場合に {@link ParallelEvaluator} で並列に評価する。
+ * 除算の丸めを最後にまとめる精度（{@link Precision#withDeferredRounding()}）の場合は常に分数で評価する
+ */
+public final class ExpressionEvaluator {
+
+    private static final BigDecimal[] NO_BINDINGS = new BigDecimal[0];
+
+    private final boolean fastPath;
+    private final int compileThreshold;
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param fastPath long による高速評価を行うかどうか
+     * @param compileThreshold バイトコードにコンパイルするまでの評価回数（0以下の場合はコンパイルしない）
+     */
+    public ExpressionEvaluator(boolean fastPath, int compileThreshold) {
+        this(fastPath, compileThreshold, 0, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param fastPath long による高速評価を行うかどうか
+     * @param compileThreshold バイトコードにコンパイルするまでの評価回数（0以下の場合はコンパイルしない）
+     * @param parallelThreshold 並列に評価する最小の命令数（0以下の場合は並列に評価しない）
+     * @param pool 並列評価に使用するプール
+     */
+    public ExpressionEvaluator(boolean fastPath, int compileThreshold, int parallelThreshold, ForkJoinPool pool) {
+        this.fastPath = fastPath;
+        this.compileThreshold = compileThreshold;
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    /**
+     * 変数を含まない数式を評価する
+     */
+    public BigDecimal evaluate(CompiledExpression expression, int scale, RoundingMode roundingMode) {
+        return evaluate(expression, NO_BINDINGS, Precision.ofScale(scale, roundingMode));
+    }
+
+    /**
+     * 除算結果の精度を指定して、変数を含まない数式を評価する
+     */
+    public BigDecimal evaluate(CompiledExpression expression, Precision precision) {
+        return evaluate(expression, NO_BINDINGS, precision);
+    }
+
+    /**
+     * 変数の値を指定して数式を評価する
+     * @param bindings {@link CompiledExpression#variables()} と同じ順序の変数の値
+     * @param precision 除算結果の精度
+     * @throws IllegalArgumentException 変数の値が不足している場合
+     * @throws ArithmeticException ゼロ除算などの計算エラーの場合
+     */
+    public BigDecimal evaluate(CompiledExpression expression, BigDecimal[] bindings, Precision precision) {
+        if (precision.isDeferredRounding()) {
+            return expression.evaluateRational(bindings, precision);
+        }
+        if (compileThreshold > 0) {
+            GeneratedExpression generated = expression.generated(compileThreshold);
+            if (generated != null) {
+                expression.checkBindings(bindings);
+                return generated.evaluate(expression.constants(), bindings, precision);
+            }
+        }
+        if (parallelThreshold > 0 && expression.code().length >= parallelThreshold) {
+            expression.checkBindings(bindings);
+            BigDecimal result = fastPath ? FastPathEvaluator.evaluate(expression, bindings, precision) : null;
+            return result != null ? result : expression.parallel().evaluate(bindings, precision, pool);
+        }
+        return fastPath
+                ? expression.evaluate(bindings, precision)
+                : expression.evaluateBigDecimal(bindings, precision);
+    }
+}
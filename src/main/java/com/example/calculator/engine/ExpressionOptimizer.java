@@ -0,0 +1,310 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * 解析済みの数式の最適化
+ * 後置記法の命令列を構文木に戻し、次の2つを行ってから命令列を再生成する。
+ * <ul>
+ *   <li>定数のみからなる加算・減算・乗算・0以上の整数乗の部分木をあらかじめ計算する（定数畳み込み）</li>
+ *   <li>構造が同じ部分式を1つのノードにまとめ、最初に評価した値を一時変数に保存して再利用する（共通部分式の除去）</li>
+ * </ul>
+ * 除算・関数・それ以外の累乗の結果は評価時に指定する精度に依存するため、畳み込みの対象外とする（共通部分式としては再利用する）。
+ * 各部分式は元の式と同じ順序で最初に評価されるため、計算結果とエラー（最初に発生するエラー）は最適化前と同一になる。
+ * 命令列が整合しない式（数値として解釈できないトークンを含む式など）は最適化しない
+ */
+public final class ExpressionOptimizer {
+
+    /** 最適化の対象とする最小の命令数（これより短い式は最適化のコストが評価のコストを上回る） */
+    static final int MIN_INSTRUCTIONS = 8;
+
+    /** 定数のハッシュ表の初期容量（異なる定数の数は命令数よりかなり少ないことが多いため、小さく始めて拡張する） */
+    private static final int INITIAL_CONSTANT_CAPACITY = 64;
+
+    private final CompiledExpression source;
+
+    // 構文木のノード（子ノードは常に親ノードより小さい番号を持つ）
+    // 葉は instruction に元の命令（定数の場合は value に値）、内部ノードは演算子と子ノードを持つ（関数の右の子は -1）
+    private int[] instructions = new int[16];
+    private int[] lefts = new int[16];
+    private int[] rights = new int[16];
+    private BigDecimal[] values = new BigDecimal[16];
+    private int nodeCount;
+
+    // 変数の番号から葉のノードへの対応（未登録は -1）
+    private final int[] variableNodes;
+
+    // 値から定数のノード、(演算子, 左の子, 右の子) から結果のノード（畳み込んだ場合は定数のノード）への
+    // オープンアドレス法のハッシュ表（命令ごとに検索するため、ボクシングを伴う HashMap は使わない）
+    private BigDecimal[] constantKeys;
+    private int[] constantNodes;
+    private int distinctConstants;
+    private final int[] operationKeys;
+    private final int[] operationNodes;
+
+    private ExpressionOptimizer(CompiledExpression source) {
+        this.source = source;
+        this.variableNodes = new int[source.variables().size()];
+        Arrays.fill(variableNodes, -1);
+        this.constantKeys = new BigDecimal[INITIAL_CONSTANT_CAPACITY];
+        this.constantNodes = new int[INITIAL_CONSTANT_CAPACITY];
+        // 演算（関数を含む）の数は命令数未満のため、命令数の2倍以上の容量にすれば使用率は常に0.5未満になり拡張は不要
+        int capacity = Integer.highestOneBit(source.code().length) * 4;
+        this.operationKeys = new int[capacity * 3];
+        this.operationNodes = new int[capacity];
+        Arrays.fill(operationNodes, -1);
+    }
+
+    /**
+     * 数式を最適化する
+     * @param expression 解析済みの数式
+     * @return 最適化した数式。省略できるノードがない場合や最適化の対象外の場合は引数をそのまま返す
+     */
+    public static CompiledExpression optimize(CompiledExpression expression) {
+        int[] code = expression.code();
+        if (code.length < MIN_INSTRUCTIONS || expression.temporaries() > 0
+                || !CompiledExpression.isWellFormed(code)) {
+            return expression;
+        }
+        return new ExpressionOptimizer(expression).optimize();
+    }
+
+    private CompiledExpression optimize() {
+        int root = buildTree();
+        int[] uses = countUses(root);
+        return emit(root, uses);
+    }
+
+    /**
+     * 命令列から構文木を組み立てる（同じ構造の部分木は同じノードになる）
+     */
+    private int buildTree() {
+        BigDecimal[] constants = source.constants();
+        int[] stack = new int[source.maxStackDepth()];
+        int size = 0;
+        for (int instruction : source.code()) {
+            if (instruction >= 0) {
+                stack[size++] = constantNode(constants[instruction]);
+            } else if (instruction <= CompiledExpression.VARIABLE_BASE) {
+                stack[size++] = variableNode(instruction);
+            } else if (CompiledExpression.isFunction(instruction)) {
+                stack[size - 1] = operationNode(instruction, stack[size - 1], -1);
+            } else {
+                int right = stack[--size];
+                stack[size - 1] = operationNode(instruction, stack[size - 1], right);
+            }
+        }
+        return stack[0];
+    }
+
+    private int constantNode(BigDecimal value) {
+        int mask = constantKeys.length - 1;
+        int slot = constantSlot(value, mask);
+        while (constantKeys[slot] != null) {
+            if (constantKeys[slot].equals(value)) {
+                return constantNodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        int node = addNode(0, -1, -1, value);
+        constantKeys[slot] = value;
+        constantNodes[slot] = node;
+        if (++distinctConstants * 2 > constantKeys.length) {
+            BigDecimal[] keys = constantKeys;
+            int[] nodes = constantNodes;
+            constantKeys = new BigDecimal[keys.length * 2];
+            constantNodes = new int[nodes.length * 2];
+            mask = constantKeys.length - 1;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    int to = constantSlot(keys[i], mask);
+                    while (constantKeys[to] != null) {
+                        to = (to + 1) & mask;
+                    }
+                    constantKeys[to] = keys[i];
+                    constantNodes[to] = nodes[i];
+                }
+            }
+        }
+        return node;
+    }
+
+    private static int constantSlot(BigDecimal value, int mask) {
+        return spread(value.hashCode()) & mask;
+    }
+
+    private int variableNode(int instruction) {
+        int index = CompiledExpression.VARIABLE_BASE - instruction;
+        if (variableNodes[index] < 0) {
+            variableNodes[index] = addNode(instruction, -1, -1, null);
+        }
+        return variableNodes[index];
+    }
+
+    private int operationNode(int operator, int left, int right) {
+        int mask = operationNodes.length - 1;
+        int slot = operationSlot(operator, left, right, mask);
+        while (operationNodes[slot] >= 0) {
+            if (operationKeys[slot * 3] == operator && operationKeys[slot * 3 + 1] == left
+                    && operationKeys[slot * 3 + 2] == right) {
+                return operationNodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int node = -1;
+        BigDecimal a = values[left];
+        BigDecimal b = right >= 0 ? values[right] : null;
+        if (a != null && b != null && operator != CompiledExpression.OP_DIVIDE
+                && (operator != CompiledExpression.OP_POWER || (b.signum() >= 0 && MathFunctions.isInteger(b)))) {
+            try {
+                node = constantNode(fold(a, b, operator));
+            } catch (ArithmeticException e) {
+                // スケールの範囲外など、評価時に発生するエラーは評価時に報告する
+            }
+        }
+        if (node < 0) {
+            node = addNode(operator, left, right, null);
+        }
+        operationKeys[slot * 3] = operator;
+        operationKeys[slot * 3 + 1] = left;
+        operationKeys[slot * 3 + 2] = right;
+        operationNodes[slot] = node;
+        return node;
+    }
+
+    private static int operationSlot(int operator, int left, int right, int mask) {
+        return spread((operator * 31 + left) * 31 + right) & mask;
+    }
+
+    /**
+     * ハッシュ値の上位ビットを下位ビットに混ぜる（線形探索で連続した値が固まらないようにする）
+     */
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static BigDecimal fold(BigDecimal a, BigDecimal b, int operator) {
+        return switch (operator) {
+            case CompiledExpression.OP_ADD -> a.add(b);
+            case CompiledExpression.OP_SUBTRACT -> a.subtract(b);
+            case CompiledExpression.OP_POWER -> MathFunctions.pow(a, b.intValueExact());
+            default -> LargeNumbers.multiply(a, b);
+        };
+    }
+
+    private int addNode(int instruction, int left, int right, BigDecimal value) {
+        if (nodeCount == instructions.length) {
+            int capacity = nodeCount * 2;
+            instructions = Arrays.copyOf(instructions, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        instructions[nodeCount] = instruction;
+        lefts[nodeCount] = left;
+        rights[nodeCount] = right;
+        values[nodeCount] = value;
+        return nodeCount++;
+    }
+
+    /**
+     * 根から到達できる各ノードを参照する親の数を数える（畳み込みで不要になったノードは0）
+     * 子ノードは親ノードより小さい番号を持つため、番号の降順に処理すれば再帰は不要
+     */
+    private int[] countUses(int root) {
+        int[] uses = new int[nodeCount];
+        uses[root] = 1;
+        for (int node = root; node >= 0; node--) {
+            if (uses[node] > 0 && lefts[node] >= 0) {
+                uses[lefts[node]]++;
+                if (rights[node] >= 0) {
+                    uses[rights[node]]++;
+                }
+            }
+        }
+        return uses;
+    }
+
+    /**
+     * 構文木から命令列を再生成する
+     * 元の式と同じ順序（左の部分木、右の部分木、演算子）で出力し、
+     * 複数回参照される内部ノードは最初の評価後に一時変数に保存して、2回目以降は一時変数から読み込む
+     */
+    private CompiledExpression emit(int root, int[] uses) {
+        int variableCount = source.variables().size();
+        int[] temporarySlots = new int[nodeCount];
+        Arrays.fill(temporarySlots, -1);
+        int[] constantIndexes = new int[nodeCount];
+        Arrays.fill(constantIndexes, -1);
+
+        int[] code = new int[source.code().length];
+        int length = 0;
+        BigDecimal[] constants = new BigDecimal[distinctConstants];
+        int constantCount = 0;
+        int temporaries = 0;
+        int stores = 0;
+
+        // 処理待ちのノード（~node は子ノードの出力後に演算子を出力することを表す）
+        int[] work = new int[16];
+        int pending = 0;
+        work[pending++] = root;
+        while (pending > 0) {
+            int item = work[--pending];
+            int node = item < 0 ? ~item : item;
+            if (length + 2 > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            if (item < 0) {
+                code[length++] = instructions[node];
+                if (uses[node] > 1) {
+                    code[length++] = CompiledExpression.OP_STORE;
+                    temporarySlots[node] = temporaries++;
+                    stores++;
+                }
+            } else if (temporarySlots[node] >= 0) {
+                code[length++] = CompiledExpression.VARIABLE_BASE - (variableCount + temporarySlots[node]);
+            } else if (values[node] != null) {
+                if (constantIndexes[node] < 0) {
+                    constants[constantCount] = values[node];
+                    constantIndexes[node] = constantCount++;
+                }
+                code[length++] = constantIndexes[node];
+            } else if (lefts[node] < 0) {
+                code[length++] = instructions[node];
+            } else {
+                if (pending + 3 > work.length) {
+                    work = Arrays.copyOf(work, work.length * 2);
+                }
+                work[pending++] = ~node;
+                if (rights[node] >= 0) {
+                    work[pending++] = rights[node];
+                }
+                work[pending++] = lefts[node];
+            }
+        }
+
+        int eliminated = source.code().length - (length - stores);
+        if (eliminated <= 0) {
+            return source;
+        }
+        code = Arrays.copyOf(code, length);
+        return new CompiledExpression(code, Arrays.copyOf(constants, constantCount), source.variables(),
+                maxStackDepth(code), temporaries, eliminated);
+    }
+
+    private static int maxStackDepth(int[] code) {
+        int size = 0;
+        int max = 0;
+        for (int instruction : code) {
+            if (instruction >= 0 || instruction <= CompiledExpression.VARIABLE_BASE) {
+                max = Math.max(max, ++size);
+            } else if (instruction != CompiledExpression.OP_STORE && !CompiledExpression.isFunction(instruction)) {
+                size--;
+            }
+        }
+        return max;
+    }
+}
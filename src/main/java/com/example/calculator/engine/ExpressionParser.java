@@ -0,0 +1,591 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 数式パーサー
+ * 入力の char[] を一度だけ走査し、正規化（空白除去・連続する符号の畳み込み）、
+ * 妥当性チェック、負の数の前処理、後置記法への変換を同じパスで行う。
+ * 中間文字列は生成せず、結果は {@link CompiledExpression} の命令列として出力する。
+ * 累乗 "^" は乗除算と単項のマイナスより優先し、右結合とする（"-2^2" は -4、"2^3^2" は 2^9）。
+ * 英字で始まる名前の後ろに "(" が続き、名前が {@link CompiledExpression#FUNCTIONS} のいずれかの場合は関数の呼び出しとする。
+ * {@link #parseWithVariables(String)} では、それ以外の英字で始まる名前を変数として扱う。
+ */
+public final class ExpressionParser {
+
+    private static final String INVALID_MESSAGE = "無効な式です";
+
+    /** 4回の2文字→1文字置換で1文字に畳み込める符号列の最大長 */
+    static final int MAX_SIGN_RUN = 16;
+
+    private final char[] input;
+    private final boolean allowVariables;
+    private final List<String> variables = new ArrayList<>();
+
+    // 出力（後置記法の命令列と定数プール。作業用の配列に組み立てて最後にコピーする）
+    private int[] code;
+    private int codeLength;
+    private BigDecimal[] constants;
+    private int constantCount;
+    private int stackDepth;
+    private int maxStackDepth;
+
+    // 演算子スタック
+    private char[] operators;
+    private int operatorCount;
+
+    // 直前が変数であることを表す previous の値
+    private static final char VARIABLE = '$';
+
+    // 負の数の前処理で演算子スタックに積む開き括弧（累乗が続く場合は累乗の後で閉じる）
+    private static final char NEGATIVE = '~';
+
+    // 関数 i の呼び出しは、演算子スタックの関数の括弧の下に FUNCTION_BASE + i を積んで表す
+    private static final char FUNCTION_BASE = '\uE000';
+
+    // 正規化後の文字列に対する状態
+    private char previous;
+    private int parenthesesCount;
+    private int negativesOpen;
+
+    // 空白を含む数値や符号列を組み立てるための作業領域
+    private char[] scratch;
+
+    private ExpressionParser(char[] input, boolean allowVariables) {
+        this.input = input;
+        this.allowVariables = allowVariables;
+    }
+
+    /**
+     * 数式を解析する
+     * @param expression 計算式（空白のみでないこと）
+     * @return 解析済みの数式
+     * @throws InvalidExpressionException 式が無効な場合
+     */
+    public static CompiledExpression parse(String expression) {
+        return new ExpressionParser(expression.toCharArray(), false).parse();
+    }
+
+    /**
+     * 変数を含む数式を解析する
+     * 変数名は英字またはアンダースコアで始まり、英数字とアンダースコアが続く
+     * @param expression 計算式（空白のみでないこと）
+     * @return 解析済みの数式（変数は {@link CompiledExpression#variables()} に出現順に格納される）
+     * @throws InvalidExpressionException 式が無効な場合
+     */
+    public static CompiledExpression parseWithVariables(String expression) {
+        return new ExpressionParser(expression.toCharArray(), true).parse();
+    }
+
+    /**
+     * {@link String#trim()} と同じ基準で空白のみの文字列かどうかを判定する
+     */
+    public static boolean isBlank(String expression) {
+        for (int i = 0; i < expression.length(); i++) {
+            if (expression.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 式を正規化した文字列を返す（キャッシュのキーなどに使用する）
+     * 前後の空白と途中の空白を除去し、1文字に畳み込める符号列を畳み込む。
+     * ただし、名前の前後の空白（"sq rt" や "x1 2" など）は除去すると別の名前になるため、1文字の空白として残す。
+     * 正規化後の文字列を解析した結果は、元の式を解析した結果と同じになる。
+     * @param expression 計算式
+     * @return 正規化された式（変更がない場合は引数そのもの）
+     */
+    public static String normalize(String expression) {
+        int start = 0;
+        int end = expression.length();
+        while (start < end && expression.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && expression.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        char[] buffer = new char[end - start];
+        int length = 0;
+        int runStart = -1;
+        boolean whitespace = false;
+        boolean inIdentifier = false;
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? expression.charAt(i) : 0;
+            if (i < end && isWhitespace(c)) {
+                whitespace = true;
+                continue;
+            }
+            if (whitespace && length > 0 && isIdentifierPart(c)
+                    && (inIdentifier || (isIdentifierStart(c) && isNumberChar(buffer[length - 1])))) {
+                buffer[length++] = ' ';
+            }
+            whitespace = false;
+            inIdentifier = isIdentifierStart(c) || (inIdentifier && isIdentifierPart(c));
+            boolean sign = c == '+' || c == '-';
+            if (sign && runStart < 0) {
+                runStart = length;
+            } else if (!sign && runStart >= 0) {
+                int runLength = length - runStart;
+                if (runLength > 1 && runLength <= MAX_SIGN_RUN) {
+                    char[] run = Arrays.copyOfRange(buffer, runStart, length);
+                    if (foldSigns(run, runLength) == 1) {
+                        buffer[runStart] = run[0];
+                        length = runStart + 1;
+                    }
+                }
+                runStart = -1;
+            }
+            if (i < end) {
+                buffer[length++] = c;
+            }
+        }
+
+        return length == expression.length() ? expression : new String(buffer, 0, length);
+    }
+
+    /**
+     * 作業用の配列（演算子スタック・命令列・定数プール）はスレッドごとに再利用する
+     */
+    private CompiledExpression parse() {
+        ScratchStacks stacks = ScratchStacks.acquire();
+        code = stacks.code;
+        constants = stacks.constants;
+        operators = stacks.operators;
+        try {
+            return translate();
+        } finally {
+            stacks.keepParserBuffers(operators, code, constants, constantCount);
+            stacks.release();
+        }
+    }
+
+    private CompiledExpression translate() {
+        int start = 0;
+        int end = input.length;
+        while (start < end && input[start] <= ' ') {
+            start++;
+        }
+        while (end > start && input[end - 1] <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            throw invalid();
+        }
+
+        int i = start;
+        while (i < end) {
+            char c = input[i];
+            if (isWhitespace(c)) {
+                i++;
+            } else if (c == '+' || c == '-') {
+                i = signRun(i, end);
+            } else if (isNumberChar(c)) {
+                i = number(i, end);
+            } else if (isIdentifierStart(c)) {
+                i = identifier(i, end);
+            } else if (c == '*' || c == '/' || c == '^') {
+                operator(c);
+                i++;
+            } else if (c == '(') {
+                // 累乗の指数の括弧は、底の負の数を閉じずに開く
+                if (previous != '^') {
+                    closeNegative();
+                }
+                parenthesesCount++;
+                pushOperator('(');
+                previous = c;
+                i++;
+            } else if (c == ')') {
+                closeNegative();
+                if (--parenthesesCount < 0) {
+                    throw invalid();
+                }
+                closeParenthesis();
+                previous = c;
+                i++;
+                if (!followedByPower(i, end)) {
+                    closeNegative();
+                }
+            } else {
+                throw invalid();
+            }
+        }
+
+        closeNegative();
+        if (isOperator(previous) || parenthesesCount != 0) {
+            throw invalid();
+        }
+        while (operatorCount > 0) {
+            emitOperator(operators[--operatorCount]);
+        }
+
+        return new CompiledExpression(Arrays.copyOf(code, codeLength),
+                Arrays.copyOf(constants, constantCount), variables, maxStackDepth);
+    }
+
+    /**
+     * 連続する符号（+/-）を正規化して1つの演算子として処理する
+     * 途中の空白は無視し、"++"→"+"、"--"→"+"、"+-"→"-"、"-+"→"-" の順に置換した結果と同じになる
+     */
+    private int signRun(int i, int end) {
+        int last = i;
+        int length = 0;
+        for (int j = i; j < end; j++) {
+            char c = input[j];
+            if (c == '+' || c == '-') {
+                length++;
+                last = j;
+            } else if (!isWhitespace(c)) {
+                break;
+            }
+        }
+
+        if (length == 1) {
+            operator(input[i]);
+            return last + 1;
+        }
+        if (length > MAX_SIGN_RUN) {
+            throw invalid();
+        }
+
+        char[] run = scratch();
+        int runLength = 0;
+        for (int j = i; j <= last; j++) {
+            if (input[j] == '+' || input[j] == '-') {
+                run[runLength++] = input[j];
+            }
+        }
+        if (foldSigns(run, runLength) != 1) {
+            throw invalid();
+        }
+
+        operator(run[0]);
+        return last + 1;
+    }
+
+    /**
+     * 符号列を "++"→"+"、"--"→"+"、"+-"→"-"、"-+"→"-" の順に置換して畳み込む
+     * @return 畳み込み後の長さ（1の場合のみ有効な演算子）
+     */
+    static int foldSigns(char[] run, int length) {
+        length = replacePairs(run, length, '+', '+', '+');
+        length = replacePairs(run, length, '-', '-', '+');
+        length = replacePairs(run, length, '+', '-', '-');
+        return replacePairs(run, length, '-', '+', '-');
+    }
+
+    /**
+     * 左から順に重ならない2文字の組を1文字に置換する
+     */
+    private static int replacePairs(char[] buffer, int length, char first, char second, char replacement) {
+        int write = 0;
+        int read = 0;
+        while (read < length) {
+            if (read + 1 < length && buffer[read] == first && buffer[read + 1] == second) {
+                buffer[write++] = replacement;
+                read += 2;
+            } else {
+                buffer[write++] = buffer[read++];
+            }
+        }
+        return write;
+    }
+
+    /**
+     * 正規化済みの演算子を処理する
+     */
+    private void operator(char c) {
+        if (c != '-' && (previous == 0 || previous == '+' || previous == '*' || previous == '/' || previous == '^')) {
+            throw invalid();
+        }
+        if ((c == '+' || c == '-') && (previous == '+' || previous == '-')) {
+            throw invalid();
+        }
+        if (c == '^' && (previous == '-' || previous == '(')) {
+            throw invalid();
+        }
+        // 累乗の底と指数の負の数は、累乗の後で閉じる
+        if (c != '^' && previous != '^') {
+            closeNegative();
+        }
+
+        if (c == '-' && (previous == 0 || previous == '(' || isOperator(previous))) {
+            // 負の数を "(0-数値)" として扱う
+            pushOperator(NEGATIVE);
+            emitConstant(BigDecimal.ZERO);
+            pushOperator('-');
+            negativesOpen++;
+        } else {
+            // 累乗は右結合のため、同じ優先順位の演算子を取り出さない
+            while (operatorCount > 0 && operators[operatorCount - 1] != '(' && operators[operatorCount - 1] != NEGATIVE
+                    && (precedence(operators[operatorCount - 1]) > precedence(c)
+                            || (precedence(operators[operatorCount - 1]) == precedence(c) && c != '^'))) {
+                emitOperator(operators[--operatorCount]);
+            }
+            pushOperator(c);
+        }
+        previous = c;
+    }
+
+    /**
+     * 数値を処理する（途中の空白は無視する）
+     */
+    private int number(int i, int end) {
+        if (previous == VARIABLE) {
+            throw invalid();
+        }
+        int last = i;
+        int digits = 0;
+        int dots = 0;
+        boolean hasWhitespace = false;
+        for (int j = i; j < end; j++) {
+            char c = input[j];
+            if (isNumberChar(c)) {
+                if (c == '.') {
+                    dots++;
+                } else {
+                    digits++;
+                }
+                if (j > last + 1) {
+                    hasWhitespace = true;
+                }
+                last = j;
+            } else if (!isWhitespace(c)) {
+                break;
+            }
+        }
+
+        // 数値として解釈できないトークン（"."や"1.2.3"など）は無視する
+        if (digits > 0 && dots <= 1) {
+            BigDecimal value;
+            if (hasWhitespace) {
+                char[] buffer = new char[digits + dots];
+                int length = 0;
+                for (int j = i; j <= last; j++) {
+                    if (isNumberChar(input[j])) {
+                        buffer[length++] = input[j];
+                    }
+                }
+                value = LargeNumbers.parse(buffer, 0, length);
+            } else {
+                value = LargeNumbers.parse(input, i, last - i + 1);
+            }
+            emitConstant(value);
+        }
+
+        previous = input[last];
+        if (!followedByPower(last + 1, end)) {
+            closeNegative();
+        }
+        return last + 1;
+    }
+
+    /**
+     * 英字で始まる名前を処理する（後ろに "(" が続く関数名は関数の呼び出し、それ以外は変数とする）
+     */
+    private int identifier(int i, int end) {
+        // 暗黙の乗算（"2x"や"x y"、"2sqrt(4)"）は無効
+        if (previous == VARIABLE || previous == ')' || isNumberChar(previous)) {
+            throw invalid();
+        }
+        int j = i + 1;
+        while (j < end && isIdentifierPart(input[j])) {
+            j++;
+        }
+        int k = j;
+        while (k < end && isWhitespace(input[k])) {
+            k++;
+        }
+        if (k < end && input[k] == '(') {
+            int function = functionIndex(i, j);
+            if (function >= 0) {
+                // 関数の括弧は通常の括弧と同様に閉じ、閉じた時点で関数を出力する（"-sqrt(4)" の負の数は閉じずに残す）
+                pushOperator((char) (FUNCTION_BASE + function));
+                pushOperator('(');
+                parenthesesCount++;
+                previous = '(';
+                return k + 1;
+            }
+        }
+        if (!allowVariables) {
+            throw invalid();
+        }
+        return variable(i, j, end);
+    }
+
+    /**
+     * 関数名の番号（関数名でない場合は -1）
+     */
+    private int functionIndex(int start, int end) {
+        String[] functions = CompiledExpression.FUNCTIONS;
+        for (int f = 0; f < functions.length; f++) {
+            if (functions[f].length() == end - start) {
+                int k = 0;
+                while (k < end - start && functions[f].charAt(k) == input[start + k]) {
+                    k++;
+                }
+                if (k == end - start) {
+                    return f;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 変数を処理する（数値と同様に1つのオペランドとして扱う）
+     */
+    private int variable(int i, int j, int end) {
+        String name = new String(input, i, j - i);
+        int index = variables.indexOf(name);
+        if (index < 0) {
+            index = variables.size();
+            variables.add(name);
+        }
+        emit(CompiledExpression.VARIABLE_BASE - index);
+        pushOperand();
+
+        previous = VARIABLE;
+        if (!followedByPower(j, end)) {
+            closeNegative();
+        }
+        return j;
+    }
+
+    /**
+     * 次の空白以外の文字が "^" かどうか（累乗の底の負の数は累乗の後で閉じる）
+     */
+    private boolean followedByPower(int i, int end) {
+        while (i < end && isWhitespace(input[i])) {
+            i++;
+        }
+        return i < end && input[i] == '^';
+    }
+
+    /**
+     * 負の数の前処理で開いた括弧を、最も内側の開いている括弧まで閉じる
+     * 累乗の底と指数の負の数（"-2^-2"）は、閉じていない負の数が重なる場合がある
+     */
+    private void closeNegative() {
+        while (negativesOpen > 0) {
+            int open = operatorCount - 1;
+            while (operators[open] != '(' && operators[open] != NEGATIVE) {
+                open--;
+            }
+            if (operators[open] == '(') {
+                return;
+            }
+            while (operatorCount - 1 > open) {
+                emitOperator(operators[--operatorCount]);
+            }
+            operatorCount--;
+            negativesOpen--;
+        }
+    }
+
+    /**
+     * 括弧を閉じる（関数の括弧の場合は関数を出力する）
+     */
+    private void closeParenthesis() {
+        while (operators[operatorCount - 1] != '(') {
+            emitOperator(operators[--operatorCount]);
+        }
+        operatorCount--;
+        if (operatorCount > 0 && operators[operatorCount - 1] >= FUNCTION_BASE) {
+            emitOperator(operators[--operatorCount]);
+        }
+    }
+
+    private void pushOperator(char c) {
+        if (operatorCount == operators.length) {
+            operators = Arrays.copyOf(operators, operatorCount * 2);
+        }
+        operators[operatorCount++] = c;
+    }
+
+    private void emitConstant(BigDecimal value) {
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        emit(constantCount++);
+        pushOperand();
+    }
+
+    private void pushOperand() {
+        stackDepth++;
+        maxStackDepth = Math.max(maxStackDepth, stackDepth);
+    }
+
+    private void emitOperator(char c) {
+        if (c >= FUNCTION_BASE) {
+            // 関数はスタックの先頭の値を置き換える
+            emit(CompiledExpression.OP_SQRT - (c - FUNCTION_BASE));
+            return;
+        }
+        emit(switch (c) {
+            case '+' -> CompiledExpression.OP_ADD;
+            case '-' -> CompiledExpression.OP_SUBTRACT;
+            case '*' -> CompiledExpression.OP_MULTIPLY;
+            case '/' -> CompiledExpression.OP_DIVIDE;
+            default -> CompiledExpression.OP_POWER;
+        });
+        if (stackDepth >= 2) {
+            stackDepth--;
+        }
+    }
+
+    private void emit(int instruction) {
+        if (codeLength == code.length) {
+            code = Arrays.copyOf(code, codeLength * 2);
+        }
+        code[codeLength++] = instruction;
+    }
+
+    private char[] scratch() {
+        if (scratch == null) {
+            scratch = new char[MAX_SIGN_RUN];
+        }
+        return scratch;
+    }
+
+    private static int precedence(char operator) {
+        if (operator == '^') {
+            return 3;
+        }
+        return operator == '*' || operator == '/' ? 2 : 1;
+    }
+
+    private static boolean isOperator(char c) {
+        return c == '+' || c == '-' || c == '*' || c == '/' || c == '^';
+    }
+
+    static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '.';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * 正規表現の \s と同じ空白文字かどうか
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static InvalidExpressionException invalid() {
+        return new InvalidExpressionException(INVALID_MESSAGE);
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * long による固定小数点の高速評価
+ * 各値を「long の仮数 × 10^-スケール」で表し、BigDecimal を生成せずに評価する。
+ * オーバーフローやスケールの上限超過など、正確に計算できない場合は null を返し、
+ * 呼び出し側は BigDecimal による評価にフォールバックする。
+ * 除算は BigDecimal#divide(BigDecimal, int, RoundingMode) と同じ値に丸めるため、
+ * 評価結果の値は BigDecimal による評価と常に一致する。
+ * 0以上の整数乗は long で計算し、関数とそれ以外の累乗は {@link MathFunctions} で計算した結果が収まる場合にのみ続ける。
+ * 精度が有効桁数で指定された場合と、丸めモードが UNNECESSARY の場合は対象外とする。
+ */
+final class FastPathEvaluator {
+
+    /** 仮数に許容する最大スケール */
+    static final int MAX_SCALE = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FastPathEvaluator() {}
+
+    /**
+     * 数式を評価する
+     * @param bindings 変数の値
+     * @param precision 除算結果の精度
+     * @return 計算結果。高速評価で正確に計算できない場合は null
+     * @throws ArithmeticException ゼロ除算など、BigDecimal による評価でも発生するエラーの場合
+     */
+    static BigDecimal evaluate(CompiledExpression expression, BigDecimal[] bindings, Precision precision) {
+        long[] constantValues = expression.fastConstantValues();
+        int[] constantScales = expression.fastConstantScales();
+        int divisionScale = precision.scale();
+        RoundingMode roundingMode = precision.roundingMode();
+        if (constantValues == null || !precision.isFixedScale() || roundingMode == RoundingMode.UNNECESSARY
+                || divisionScale > MAX_SCALE) {
+            return null;
+        }
+
+        // スタックはスレッドごとに再利用する（評価ごとに確保しない）
+        ScratchStacks stacks = ScratchStacks.acquire();
+        try {
+            // 一時変数は変数の後ろに保存する
+            long[] variableValues = null;
+            int[] variableScales = null;
+            int stored = bindings.length;
+            if (bindings.length + expression.temporaries() > 0) {
+                variableValues = stacks.slotValues(bindings.length + expression.temporaries());
+                variableScales = stacks.slotScales(bindings.length + expression.temporaries());
+                for (int i = 0; i < bindings.length; i++) {
+                    if (!fits(bindings[i])) {
+                        return null;
+                    }
+                    variableValues[i] = bindings[i].unscaledValue().longValueExact();
+                    variableScales[i] = bindings[i].scale();
+                }
+            }
+
+            int depth = expression.maxStackDepth();
+            long[] values = stacks.values(depth);
+            int[] scales = stacks.scales(depth);
+            int size = 0;
+
+            for (int instruction : expression.code()) {
+                if (instruction >= 0) {
+                    values[size] = constantValues[instruction];
+                    scales[size++] = constantScales[instruction];
+                    continue;
+                }
+                if (instruction <= CompiledExpression.VARIABLE_BASE) {
+                    values[size] = variableValues[CompiledExpression.VARIABLE_BASE - instruction];
+                    scales[size++] = variableScales[CompiledExpression.VARIABLE_BASE - instruction];
+                    continue;
+                }
+                if (instruction == CompiledExpression.OP_STORE) {
+                    variableValues[stored] = values[size - 1];
+                    variableScales[stored++] = scales[size - 1];
+                    continue;
+                }
+                if (CompiledExpression.isFunction(instruction)) {
+                    if (size < 1) {
+                        throw new ArithmeticException("演算子に対して十分な数値がありません");
+                    }
+                    BigDecimal value = CompiledExpression.performFunction(
+                            BigDecimal.valueOf(values[size - 1], scales[size - 1]), instruction, precision);
+                    if (!fits(value)) {
+                        return null;
+                    }
+                    values[size - 1] = value.unscaledValue().longValueExact();
+                    scales[size - 1] = value.scale();
+                    continue;
+                }
+                if (size < 2) {
+                    throw new ArithmeticException("演算子に対して十分な数値がありません");
+                }
+
+                long b = values[--size];
+                int bScale = scales[size];
+                long a = values[size - 1];
+                int aScale = scales[size - 1];
+                long result;
+                int resultScale;
+
+                switch (instruction) {
+                    case CompiledExpression.OP_ADD, CompiledExpression.OP_SUBTRACT -> {
+                        resultScale = Math.max(aScale, bScale);
+                        if (aScale < bScale) {
+                            long aligned = a * POWERS_OF_TEN[bScale - aScale];
+                            if (multiplyOverflows(a, POWERS_OF_TEN[bScale - aScale], aligned)) {
+                                return null;
+                            }
+                            a = aligned;
+                        } else if (bScale < aScale) {
+                            long aligned = b * POWERS_OF_TEN[aScale - bScale];
+                            if (multiplyOverflows(b, POWERS_OF_TEN[aScale - bScale], aligned)) {
+                                return null;
+                            }
+                            b = aligned;
+                        }
+                        if (instruction == CompiledExpression.OP_ADD) {
+                            result = a + b;
+                            if (((a ^ result) & (b ^ result)) < 0) {
+                                return null;
+                            }
+                        } else {
+                            result = a - b;
+                            if (((a ^ b) & (a ^ result)) < 0) {
+                                return null;
+                            }
+                        }
+                    }
+                    case CompiledExpression.OP_MULTIPLY -> {
+                        result = a * b;
+                        if (multiplyOverflows(a, b, result)) {
+                            return null;
+                        }
+                        resultScale = aScale + bScale;
+                        while (resultScale > MAX_SCALE && result % 10 == 0) {
+                            result /= 10;
+                            resultScale--;
+                        }
+                        if (resultScale > MAX_SCALE) {
+                            return null;
+                        }
+                    }
+                    case CompiledExpression.OP_DIVIDE -> {
+                        if (b == 0) {
+                            throw new ArithmeticException("ゼロ除算はできません");
+                        }
+                        // a / b * 10^divisionScale = a * 10^exponent / b
+                        int exponent = divisionScale + bScale - aScale;
+                        long numerator = a;
+                        long denominator = b;
+                        if (exponent > MAX_SCALE || exponent < -MAX_SCALE) {
+                            return null;
+                        } else if (exponent >= 0) {
+                            numerator = a * POWERS_OF_TEN[exponent];
+                            if (multiplyOverflows(a, POWERS_OF_TEN[exponent], numerator)) {
+                                return null;
+                            }
+                        } else {
+                            denominator = b * POWERS_OF_TEN[-exponent];
+                            if (multiplyOverflows(b, POWERS_OF_TEN[-exponent], denominator)) {
+                                return null;
+                            }
+                        }
+                        if (numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE) {
+                            return null;
+                        }
+                        result = numerator / denominator;
+                        long remainder = numerator % denominator;
+                        if (remainder != 0) {
+                            int sign = (numerator < 0) == (denominator < 0) ? 1 : -1;
+                            if (roundsAwayFromZero(roundingMode, sign, result,
+                                    Math.abs(remainder), Math.abs(denominator))) {
+                                result += sign;
+                            }
+                        }
+                        resultScale = divisionScale;
+                    }
+                    case CompiledExpression.OP_POWER -> {
+                        if (b >= 0 && b % POWERS_OF_TEN[bScale] == 0
+                                && b / POWERS_OF_TEN[bScale] <= (aScale == 0 ? Integer.MAX_VALUE : MAX_SCALE)) {
+                            // 0以上の整数乗は二乗の繰り返しで計算する（スケールは BigDecimal#pow と同じく底のスケールの n 倍）
+                            // int の範囲外の指数は MathFunctions#power と同じエラーにするため、下の分岐で計算する
+                            long n = b / POWERS_OF_TEN[bScale];
+                            resultScale = (int) (aScale * n);
+                            if (resultScale > MAX_SCALE) {
+                                return null;
+                            }
+                            result = 1;
+                            long square = a;
+                            while (true) {
+                                if ((n & 1) != 0) {
+                                    long product = result * square;
+                                    if (multiplyOverflows(result, square, product)) {
+                                        return null;
+                                    }
+                                    result = product;
+                                }
+                                n >>>= 1;
+                                if (n == 0) {
+                                    break;
+                                }
+                                long squared = square * square;
+                                if (multiplyOverflows(square, square, squared)) {
+                                    return null;
+                                }
+                                square = squared;
+                            }
+                        } else {
+                            BigDecimal value = MathFunctions.power(
+                                    BigDecimal.valueOf(a, aScale), BigDecimal.valueOf(b, bScale), precision);
+                            if (!fits(value)) {
+                                return null;
+                            }
+                            result = value.unscaledValue().longValueExact();
+                            resultScale = value.scale();
+                        }
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+
+                values[size - 1] = result;
+                scales[size - 1] = resultScale;
+            }
+
+            if (size != 1) {
+                throw new ArithmeticException("計算結果が不正です");
+            }
+
+            return BigDecimal.valueOf(values[0], scales[0]);
+        } finally {
+            stacks.release();
+        }
+    }
+
+    /**
+     * 定数を高速評価用の仮数とスケールに変換できるかどうか
+     */
+    static boolean fits(BigDecimal value) {
+        return value.scale() >= 0 && value.scale() <= MAX_SCALE && value.precision() <= MAX_SCALE;
+    }
+
+    /**
+     * 切り捨てた商の絶対値を1増やすかどうか（BigDecimal の丸めと同じ規則）
+     * @param sign 商の符号
+     * @param quotient 0方向に切り捨てた商
+     * @param remainder 余りの絶対値（0以外）
+     * @param divisor 除数の絶対値
+     */
+    private static boolean roundsAwayFromZero(RoundingMode roundingMode, int sign, long quotient,
+                                              long remainder, long divisor) {
+        // remainder と divisor - remainder の比較で、余りと除数の半分を比較する
+        long rest = divisor - remainder;
+        return switch (roundingMode) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> sign > 0;
+            case FLOOR -> sign < 0;
+            case HALF_UP -> remainder >= rest;
+            case HALF_DOWN -> remainder > rest;
+            case HALF_EVEN -> remainder > rest || (remainder == rest && (quotient & 1) != 0);
+            case UNNECESSARY -> throw new IllegalStateException();
+        };
+    }
+
+    private static boolean multiplyOverflows(long x, long y, long product) {
+        return Math.multiplyHigh(x, y) != (product >> 63);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+
+/**
+ * {@link BytecodeCompiler} が生成するクラスが実装するインターフェース
+ */
+interface GeneratedExpression {
+
+    /**
+     * 数式を評価する
+     * @param constants 定数プール
+     * @param bindings 変数の値
+     * @param precision 除算結果の精度
+     * @return 計算結果
+     */
+    BigDecimal evaluate(BigDecimal[] constants, BigDecimal[] bindings, Precision precision);
+}
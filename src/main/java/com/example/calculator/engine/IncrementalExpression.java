@@ -0,0 +1,434 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 編集に応じて再評価する数式（入力中の式のプレビュー用）
+ * 式を括弧の外側にある二項の加減算で項に分割し、項ごとに解析・評価した結果を保持する。
+ * 編集時は編集位置を含む項と前後の項だけを分割し直して再評価し、式全体の値は項の値を
+ * 平衡木（treap）で集計して求めるため、局所的な編集のコストは式全体の長さにほぼ依存しない。
+ * BigDecimal の加減算は丸めを伴わないため、結果は式全体を解析・評価した場合と同一になり
+ * （高速評価では、項と式全体のどちらを高速評価できるかによって末尾の0の桁数が異なる場合がある）、
+ * 計算エラーは最も左の項のエラー（式全体を評価した場合に最初に発生するエラー）を報告する。
+ * 単独で解析できない項や命令列が整合しない項がある場合（入力途中の式や無効な式）は、
+ * 分割した結果が式全体の解析と一致することを保証できないため式全体を解析・評価する。
+ * スレッドセーフではない（呼び出し側で同期すること）
+ */
+public final class IncrementalExpression {
+
+    private final ExpressionEvaluator evaluator;
+    private final Precision precision;
+
+    private Term root;
+    private int seed = 0x2545F491;
+    private int lastReparsedLength;
+
+    /**
+     * @param evaluator 項の評価に使用する評価方法
+     * @param precision 除算結果の精度
+     */
+    public IncrementalExpression(ExpressionEvaluator evaluator, Precision precision) {
+        this.evaluator = evaluator;
+        this.precision = precision;
+    }
+
+    public Precision precision() {
+        return precision;
+    }
+
+    /**
+     * 式全体を置き換える
+     */
+    public void setText(String text) {
+        root = build(split(text, true).terms());
+        lastReparsedLength = text.length();
+    }
+
+    /**
+     * 式を編集する（position から deleteCount 文字を削除して text を挿入する）
+     * @throws IllegalArgumentException 編集位置が式の範囲外の場合
+     */
+    public void edit(int position, int deleteCount, String text) {
+        int length = length();
+        if (position < 0 || deleteCount < 0 || position > length || deleteCount > length - position) {
+            throw new IllegalArgumentException("編集位置が式の範囲外です");
+        }
+        if (root == null) {
+            setText(text);
+            return;
+        }
+
+        // 編集位置を含む項と前後の項を分割し直す。境界の項の区切りが変わる場合
+        // （区切りの符号を書き換えた、括弧を開いたなど）は範囲を倍々に広げてやり直す
+        int count = root.size;
+        int from = Math.max(0, indexAt(position) - 1);
+        int to = Math.min(count - 1, indexAt(position + deleteCount) + 1);
+        while (true) {
+            int start = offsetOf(from);
+            StringBuilder region = new StringBuilder();
+            append(root, from, to + 1, region);
+            region.replace(position - start, position - start + deleteCount, text);
+
+            if (from > 0 && (region.isEmpty() || !isSign(region.charAt(0)))) {
+                from = Math.max(0, from - (to - from + 1));
+                continue;
+            }
+            Split split = split(region, from == 0);
+            if (to < count - 1 && !split.closed()) {
+                to = Math.min(count - 1, to + (to - from + 1));
+                continue;
+            }
+
+            Term[] head = splitAt(root, from);
+            Term[] tail = splitAt(head[1], to - from + 1);
+            root = merge(head[0], merge(build(split.terms()), tail[1]));
+            lastReparsedLength = region.length();
+            return;
+        }
+    }
+
+    /**
+     * 式全体の文字列
+     */
+    public String text() {
+        StringBuilder text = new StringBuilder(length());
+        if (root != null) {
+            append(root, 0, root.size, text);
+        }
+        return text.toString();
+    }
+
+    public int length() {
+        return root != null ? root.length : 0;
+    }
+
+    /**
+     * 空白のみの式かどうか
+     */
+    public boolean isBlank() {
+        return root == null || (!root.subtreeClean && ExpressionParser.isBlank(text()));
+    }
+
+    /**
+     * 式を評価する
+     * @return 式全体を解析・評価した場合と同じ値
+     * @throws InvalidExpressionException 式が空または無効な場合
+     * @throws ArithmeticException ゼロ除算などの計算エラーの場合
+     */
+    public BigDecimal evaluate() {
+        if (root != null && root.subtreeClean) {
+            if (root.firstError != null) {
+                throw new ArithmeticException(root.firstError);
+            }
+            return root.sum;
+        }
+        return evaluator.evaluate(ExpressionParser.parse(text()), precision);
+    }
+
+    /**
+     * 項の数
+     */
+    int termCount() {
+        return root != null ? root.size : 0;
+    }
+
+    /**
+     * 直前の編集で分割し直した文字数
+     */
+    int lastReparsedLength() {
+        return lastReparsedLength;
+    }
+
+    /**
+     * 項（直前の区切りの符号列と本体）
+     * 平衡木のノードを兼ね、部分木の文字数・項の数・値の合計を保持する
+     */
+    private static final class Term {
+        final String separator;
+        final String body;
+        final int priority;
+
+        boolean clean; // 式全体の解析と同じ結果になることを確認できた項
+        BigDecimal value; // 符号を含む値（エラーの場合は null）
+        String error; // 計算エラーのメッセージ
+
+        Term left;
+        Term right;
+        int size;
+        int length;
+        boolean subtreeClean;
+        BigDecimal sum; // 部分木の値の合計（エラーまたは確認できない項を含む場合は null）
+        String firstError; // 部分木の最も左の計算エラー
+
+        Term(String separator, String body, int priority) {
+            this.separator = separator;
+            this.body = body;
+            this.priority = priority;
+        }
+    }
+
+    private record Split(List<Term> terms, boolean closed) {}
+
+    /**
+     * 文字列を項に分割する
+     * 括弧の外側で、オペランド（数値・変数・閉じ括弧）の直後に現れる符号列を区切りとする。
+     * 区切りの符号列は式全体の解析でも1つの二項演算子として処理されるため、
+     * 各項の本体を単独で解析した命令列を区切りの演算子で左から順に結合したものは式全体の命令列と一致する
+     * @param leading 式の先頭から始まる場合は true（それ以外は区切りの符号列で始まること）
+     * @return 項の列と、末尾が括弧の外側のオペランドで終わっているかどうか（後続の項の区切りが変わらないかどうか）
+     */
+    private Split split(CharSequence text, boolean leading) {
+        List<Term> terms = new ArrayList<>();
+        int length = text.length();
+        int depth = 0;
+        boolean operandEnd = !leading;
+        int termStart = 0;
+        int bodyStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isSign(c)) {
+                if (depth == 0 && operandEnd) {
+                    int last = i;
+                    for (int j = i + 1; j < length; j++) {
+                        char d = text.charAt(j);
+                        if (isSign(d)) {
+                            last = j;
+                        } else if (!ExpressionParser.isWhitespace(d)) {
+                            break;
+                        }
+                    }
+                    if (i > 0) {
+                        terms.add(term(text, termStart, bodyStart, i));
+                    }
+                    termStart = i;
+                    bodyStart = last + 1;
+                    i = last;
+                }
+                operandEnd = false;
+            } else if (c == '(') {
+                depth++;
+                operandEnd = false;
+            } else if (c == ')') {
+                // 対応しない閉じ括弧を含む項は単独で解析できないため、括弧の外側として分割を続ける
+                depth = Math.max(0, depth - 1);
+                operandEnd = true;
+            } else if (!ExpressionParser.isWhitespace(c)) {
+                operandEnd = ExpressionParser.isNumberChar(c) || ExpressionParser.isIdentifierPart(c);
+            }
+        }
+        if (length > 0) {
+            terms.add(term(text, termStart, bodyStart, length));
+        }
+        return new Split(terms, depth == 0 && operandEnd);
+    }
+
+    /**
+     * 項を作成して評価する
+     */
+    private Term term(CharSequence text, int start, int bodyStart, int end) {
+        Term term = new Term(text.subSequence(start, bodyStart).toString(),
+                text.subSequence(bodyStart, end).toString(), nextPriority());
+        int sign = sign(term.separator);
+        if (sign == 0 || hasControlCharacter(term.body)) {
+            return update(term);
+        }
+        try {
+            CompiledExpression compiled = ExpressionParser.parse(term.body);
+            if (CompiledExpression.isWellFormed(compiled.code())) {
+                try {
+                    BigDecimal value = evaluator.evaluate(compiled, precision);
+                    term.value = sign < 0 ? value.negate() : value;
+                } catch (ArithmeticException e) {
+                    term.error = e.getMessage();
+                }
+                term.clean = true;
+            }
+        } catch (RuntimeException e) {
+            // 単独で解析できない項（入力途中の式など）は式全体を解析する
+        }
+        return update(term);
+    }
+
+    /**
+     * 区切りの符号列を畳み込んだ符号（先頭の項は1、畳み込めない場合は0）
+     */
+    private static int sign(String separator) {
+        char[] run = new char[ExpressionParser.MAX_SIGN_RUN];
+        int length = 0;
+        for (int i = 0; i < separator.length(); i++) {
+            char c = separator.charAt(i);
+            if (isSign(c)) {
+                if (length == run.length) {
+                    return 0;
+                }
+                run[length++] = c;
+            }
+        }
+        if (length == 0) {
+            return 1;
+        }
+        if (length > 1 && ExpressionParser.foldSigns(run, length) != 1) {
+            return 0;
+        }
+        return run[0] == '-' ? -1 : 1;
+    }
+
+    /**
+     * 空白以外の制御文字を含むかどうか（式の途中では無効だが、単独で解析すると前後の空白として除去されるため）
+     */
+    private static boolean hasControlCharacter(String body) {
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c <= ' ' && !ExpressionParser.isWhitespace(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSign(char c) {
+        return c == '+' || c == '-';
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    // 以下は項の位置をキーとする treap の操作（木の高さは項の数の対数程度）
+
+    /**
+     * position 文字目を含む項の位置（末尾の場合は最後の項）
+     */
+    private int indexAt(int position) {
+        Term node = root;
+        int index = 0;
+        while (true) {
+            int leftLength = node.left != null ? node.left.length : 0;
+            int leftSize = node.left != null ? node.left.size : 0;
+            int ownLength = node.separator.length() + node.body.length();
+            if (position < leftLength) {
+                node = node.left;
+            } else if (position < leftLength + ownLength || node.right == null) {
+                return index + leftSize;
+            } else {
+                position -= leftLength + ownLength;
+                index += leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * index 番目の項の開始位置
+     */
+    private int offsetOf(int index) {
+        Term node = root;
+        int offset = 0;
+        while (node != null) {
+            int leftSize = node.left != null ? node.left.size : 0;
+            if (index <= leftSize) {
+                node = node.left;
+            } else {
+                offset += (node.left != null ? node.left.length : 0)
+                        + node.separator.length() + node.body.length();
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * 部分木の項 [from, to) の文字列を追加する
+     */
+    private static void append(Term node, int from, int to, StringBuilder out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = node.left != null ? node.left.size : 0;
+        if (from < leftSize) {
+            append(node.left, from, Math.min(to, leftSize), out);
+        }
+        if (from <= leftSize && leftSize < to) {
+            out.append(node.separator).append(node.body);
+        }
+        if (to > leftSize + 1) {
+            append(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, out);
+        }
+    }
+
+    private Term build(List<Term> terms) {
+        Term tree = null;
+        for (Term term : terms) {
+            tree = merge(tree, term);
+        }
+        return tree;
+    }
+
+    /**
+     * 先頭の count 個の項とそれ以外に分割する
+     */
+    private static Term[] splitAt(Term node, int count) {
+        if (node == null) {
+            return new Term[2];
+        }
+        int leftSize = node.left != null ? node.left.size : 0;
+        if (count <= leftSize) {
+            Term[] parts = splitAt(node.left, count);
+            node.left = parts[1];
+            parts[1] = update(node);
+            return parts;
+        }
+        Term[] parts = splitAt(node.right, count - leftSize - 1);
+        node.right = parts[0];
+        parts[0] = update(node);
+        return parts;
+    }
+
+    private static Term merge(Term left, Term right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    /**
+     * 部分木の集計値を更新する
+     */
+    private static Term update(Term node) {
+        Term left = node.left;
+        Term right = node.right;
+        node.size = 1 + (left != null ? left.size : 0) + (right != null ? right.size : 0);
+        node.length = node.separator.length() + node.body.length()
+                + (left != null ? left.length : 0) + (right != null ? right.length : 0);
+        node.subtreeClean = node.clean && (left == null || left.subtreeClean) && (right == null || right.subtreeClean);
+        node.firstError = left != null && left.firstError != null ? left.firstError
+                : node.error != null ? node.error
+                : right != null ? right.firstError : null;
+        BigDecimal sum = null;
+        if (node.subtreeClean && node.firstError == null) {
+            sum = node.value;
+            if (left != null) {
+                sum = left.sum.add(sum);
+            }
+            if (right != null) {
+                sum = sum.add(right.sum);
+            }
+        }
+        node.sum = sum;
+        return node;
+    }
+}
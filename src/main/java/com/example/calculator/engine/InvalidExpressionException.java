@@ -0,0 +1,12 @@
+package com.example.calculator.engine;
+
+/**
+ * 数式が構文的に無効な場合にスローされる例外
+ * 構文エラーは頻繁に発生し得るため、スタックトレースは取得しない
+ */
+public class InvalidExpressionException extends RuntimeException {
+
+    public InvalidExpressionException(String message) {
+        super(message, null, false, false);
+    }
+}
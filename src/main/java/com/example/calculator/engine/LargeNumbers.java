@@ -0,0 +1,144 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 桁数の大きい数値の変換と演算
+ * JDK の BigDecimal は文字列からの変換と末尾の0の除去が桁数の2乗に比例するため、
+ * しきい値を超える桁数では分割統治による変換を行う。
+ * 乗算は JDK の Karatsuba 法・Toom-Cook 法をそのまま使い、非常に大きい場合のみ並列に計算する。
+ * しきい値未満では JDK の実装をそのまま使うため、結果は常に JDK の実装と一致する
+ */
+public final class LargeNumbers {
+
+    /** 分割統治で文字列から変換する最小の桁数 */
+    static final int PARSE_THRESHOLD = 1_000;
+
+    /** 分割統治での変換で、これ以下の桁数は BigInteger のコンストラクタで変換する */
+    private static final int PARSE_BASE_DIGITS = 256;
+
+    /** 両方のオペランドの仮数がこのビット数（約10万桁）以上の乗算は並列に計算する */
+    static final int PARALLEL_MULTIPLY_THRESHOLD_BITS = 332_200;
+
+    /** 末尾の0を分割統治で除去する最小の0の数（の上限の見積もり） */
+    static final int STRIP_THRESHOLD = 64;
+
+    /** PARSE_BASE_DIGITS * 2^i 桁の10の累乗（必要になった時点で計算する） */
+    private static final BigInteger[] PARSE_POWERS = new BigInteger[32];
+
+    /** 10^(2^i)（必要になった時点で計算する） */
+    private static final BigInteger[] STRIP_POWERS = new BigInteger[32];
+
+    private LargeNumbers() {}
+
+    /**
+     * 数値の文字列を BigDecimal に変換する
+     * @param chars 数字と高々1つの小数点からなる文字列（符号・指数は含まない）
+     * @return {@code new BigDecimal(chars, offset, length)} と同じ値・スケールの BigDecimal
+     */
+    public static BigDecimal parse(char[] chars, int offset, int length) {
+        if (length < PARSE_THRESHOLD) {
+            return new BigDecimal(chars, offset, length);
+        }
+        char[] digits = new char[length];
+        int count = 0;
+        int scale = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c == '.') {
+                scale = offset + length - i - 1;
+            } else if (c >= '0' && c <= '9') {
+                digits[count++] = c;
+            } else {
+                throw new NumberFormatException("数値として解釈できない文字が含まれています: " + c);
+            }
+        }
+        if (count == 0 || count < length - 1) {
+            throw new NumberFormatException("数値の形式が不正です");
+        }
+        return new BigDecimal(parseDigits(digits, 0, count), scale);
+    }
+
+    /**
+     * 数字の列を上位と下位に分けて変換し、上位 × 10^下位の桁数 + 下位 で結合する
+     * 下位の桁数を PARSE_BASE_DIGITS の2の累乗倍に揃え、10の累乗を再利用する
+     */
+    private static BigInteger parseDigits(char[] digits, int from, int to) {
+        int length = to - from;
+        if (length <= PARSE_BASE_DIGITS) {
+            return new BigInteger(new String(digits, from, length));
+        }
+        int level = 0;
+        while ((long) PARSE_BASE_DIGITS << (level + 1) < length) {
+            level++;
+        }
+        int split = to - (PARSE_BASE_DIGITS << level);
+        BigInteger high = parseDigits(digits, from, split);
+        BigInteger low = parseDigits(digits, split, to);
+        return high.multiply(power(PARSE_POWERS, level, PARSE_BASE_DIGITS << level)).add(low);
+    }
+
+    /**
+     * 乗算を行う
+     * 桁数の判定に仮数の BigInteger を使用するため、大きい数値を含む式に限って使用する
+     * （{@link BigDecimal#precision()} は大きい数値では10の累乗の計算が必要になり、乗算と同程度のコストがかかる）
+     * @return {@code a.multiply(b)} と同じ値・スケールの BigDecimal
+     */
+    public static BigDecimal multiply(BigDecimal a, BigDecimal b) {
+        BigInteger x = a.unscaledValue();
+        BigInteger y = b.unscaledValue();
+        if (x.bitLength() < PARALLEL_MULTIPLY_THRESHOLD_BITS || y.bitLength() < PARALLEL_MULTIPLY_THRESHOLD_BITS) {
+            return a.multiply(b);
+        }
+        long scale = (long) a.scale() + b.scale();
+        if (scale != (int) scale) {
+            // スケールの範囲外は BigDecimal と同じ例外にする
+            return a.multiply(b);
+        }
+        return new BigDecimal(x.parallelMultiply(y), (int) scale);
+    }
+
+    /**
+     * 末尾の0を取り除く
+     * @return {@code value.stripTrailingZeros()} と同じ値・スケールの BigDecimal
+     */
+    public static BigDecimal stripTrailingZeros(BigDecimal value) {
+        if (value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        // 末尾の0の数は2で割り切れる回数を超えない
+        BigInteger unscaled = value.unscaledValue();
+        int maxZeros = unscaled.getLowestSetBit();
+        if (maxZeros < STRIP_THRESHOLD) {
+            return value.stripTrailingZeros();
+        }
+        // 10^(2^i) で大きい方から割り切れるかを試し、取り除いた0の数を2進数で求める
+        long removed = 0;
+        for (int level = 31 - Integer.numberOfLeadingZeros(maxZeros); level >= 0; level--) {
+            if (removed + (1L << level) > maxZeros) {
+                continue;
+            }
+            BigInteger[] quotientAndRemainder = unscaled.divideAndRemainder(power(STRIP_POWERS, level, 1 << level));
+            if (quotientAndRemainder[1].signum() == 0) {
+                unscaled = quotientAndRemainder[0];
+                removed += 1L << level;
+            }
+        }
+        long scale = value.scale() - removed;
+        if (scale != (int) scale) {
+            return value.stripTrailingZeros();
+        }
+        return new BigDecimal(unscaled, (int) scale);
+    }
+
+    private static BigInteger power(BigInteger[] cache, int level, int exponent) {
+        BigInteger power = cache[level];
+        if (power == null) {
+            // 複数のスレッドが同時に計算しても結果は同じため同期しない
+            power = BigInteger.TEN.pow(exponent);
+            cache[level] = power;
+        }
+        return power;
+    }
+}
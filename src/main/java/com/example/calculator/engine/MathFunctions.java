@@ -0,0 +1,662 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * 累乗と関数（平方根・指数関数・自然対数・三角関数）の計算
+ * <ul>
+ *   <li>0以上の整数乗は二乗の繰り返し（exponentiation by squaring）で正確に計算し、負の整数乗はその逆数を除算と同じ精度で求める</li>
+ *   <li>平方根はニュートン法、exp は引数を 2^n で割ってテイラー級数で計算した値を n 回2乗し、ln は10の累乗と平方根で
+ *       引数を1に近づけて atanh の級数で、三角関数は π/2 を法として引数を縮小してテイラー級数で計算する</li>
+ *   <li>非整数乗は exp(指数 × ln(底)) として計算する</li>
+ * </ul>
+ * 結果が無理数になり得る計算は、保護桁を加えた作業精度で近似値を求め、誤差の範囲全体が同じ値に丸められることを
+ * 確認してから {@link Precision} に丸める（確認できない場合は作業精度を倍にして計算し直す）。
+ * 要求された桁数が double の精度に収まる場合は先に {@link Math} の関数で計算し、入力の変換誤差を含む誤差の範囲全体が
+ * 同じ値に丸められる場合にのみその結果を使うため、結果は BigDecimal で計算した場合と同じになる
+ */
+final class MathFunctions {
+
+    /** double による計算を試みる最大の桁数（小数点以下の桁数または有効桁数） */
+    static final int DOUBLE_DIGITS = 15;
+
+    /** 整数乗の結果として許容する最大の桁数 */
+    static final long MAX_POWER_DIGITS = 100_000;
+
+    /** exp・非整数乗の結果として許容する10の指数の下限の絶対値（これより小さい結果は範囲外として扱う） */
+    static final int MAX_EXP_EXPONENT = 100_000;
+
+    /** 三角関数の引数の10の指数の上限（π/2 による縮小には、引数の整数部の桁数だけ多くの π の桁が必要になる） */
+    static final int MAX_TRIGONOMETRIC_EXPONENT = 100;
+
+    /** 要求された桁数に加える保護桁の数 */
+    private static final int GUARD_DIGITS = 10;
+
+    /** 近似値の相対誤差の上限を 10^-(作業精度 - ERROR_DIGITS) とする */
+    private static final int ERROR_DIGITS = 3;
+
+    /** キャッシュする定数（π・ln(10)）に加える桁数 */
+    private static final int CONSTANT_GUARD_DIGITS = 5;
+
+    /** BigDecimal から double への変換の相対誤差の上限（余裕を持たせて 2^-52 とする） */
+    private static final double DOUBLE_ERROR = 0x1p-52;
+
+    private static final double LOG10_E = 0.4342944819032518;
+    private static final double LOG10_2 = 0.30102999566398120;
+
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal SQRT_TEN = new BigDecimal("3.1622776601683793");
+    private static final BigInteger FIVE = BigInteger.valueOf(5);
+
+    // 定数の計算結果（より多くの桁が必要になった時点で計算し直す。複数のスレッドが同時に計算しても結果は同じため同期しない）
+    private static volatile BigDecimal pi;
+    private static volatile BigDecimal ln10;
+
+    private MathFunctions() {}
+
+    /**
+     * 近似値を計算する処理
+     */
+    @FunctionalInterface
+    private interface Kernel {
+        /**
+         * @param mc 作業精度
+         * @return 相対誤差が 10^-(作業精度 - ERROR_DIGITS) 以下の近似値
+         */
+        BigDecimal apply(MathContext mc);
+    }
+
+    /**
+     * 累乗（base ^ exponent）
+     * @throws ArithmeticException 0の負数乗、負の数の非整数乗、結果が大きすぎる場合など
+     */
+    static BigDecimal power(BigDecimal base, BigDecimal exponent, Precision precision) {
+        if (isInteger(exponent)) {
+            if (exponent.abs().compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0) {
+                throw new ArithmeticException("指数が大きすぎます");
+            }
+            int n = exponent.intValue();
+            if (n >= 0) {
+                return pow(base, n);
+            }
+            if (base.signum() == 0) {
+                throw new ArithmeticException("ゼロ除算はできません");
+            }
+            return precision.divide(BigDecimal.ONE, pow(base, -n));
+        }
+        if (base.signum() < 0) {
+            throw new ArithmeticException("負の数の非整数乗は計算できません");
+        }
+        if (base.signum() == 0) {
+            if (exponent.signum() < 0) {
+                throw new ArithmeticException("ゼロ除算はできません");
+            }
+            return precision.round(BigDecimal.ZERO);
+        }
+        if (base.compareTo(BigDecimal.ONE) == 0) {
+            return precision.round(BigDecimal.ONE);
+        }
+
+        // 結果の10の指数の見積もり
+        double log10 = exponent.doubleValue() * log10(base);
+        if (!Double.isFinite(log10) || log10 > Precision.MAX_RESULT_EXPONENT || log10 < -MAX_EXP_EXPONENT) {
+            return outOfRange(!(log10 < 0), precision);
+        }
+        if (fitsDouble(precision)) {
+            double a = toDouble(base);
+            double b = toDouble(exponent);
+            if (!Double.isNaN(a) && !Double.isNaN(b)) {
+                // 底の変換誤差は |b| 倍、指数の変換誤差は |b × ln(a)| 倍の相対誤差になる
+                double y = Math.pow(a, b);
+                double error = y * DOUBLE_ERROR * (Math.abs(b) + Math.abs(b * Math.log(a))) + 2 * Math.ulp(y);
+                BigDecimal result = roundDouble(y, error, precision);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        // ln(底) の相対誤差は exponent × ln(底) の絶対誤差（結果の相対誤差）になるため、その整数部の桁数を加える
+        int extra = digits((long) Math.ceil(Math.abs(log10) / LOG10_E));
+        return approximate(mc -> {
+            MathContext work = new MathContext(mc.getPrecision() + extra + 2, RoundingMode.HALF_EVEN);
+            return exp(exponent.multiply(ln(base, work), work), mc);
+        }, precision, (int) Math.floor(log10));
+    }
+
+    /**
+     * 0以上の整数乗を二乗の繰り返しで正確に計算する
+     * 大きい数値どうしの乗算には {@link LargeNumbers#multiply} を使用する
+     * @return {@code base.pow(n)} と同じ値・スケールの BigDecimal
+     * @throws ArithmeticException 結果の桁数が {@link #MAX_POWER_DIGITS} を超える場合
+     */
+    static BigDecimal pow(BigDecimal base, int n) {
+        if (n == 0) {
+            return BigDecimal.ONE;
+        }
+        // 仮数のビット数から結果の桁数の下限を見積もる
+        double digits = (base.unscaledValue().bitLength() - 1) * (double) n * LOG10_2;
+        long scale = (long) base.scale() * n;
+        if (digits > MAX_POWER_DIGITS || scale != (int) scale) {
+            throw new ArithmeticException("計算結果の桁数が大きすぎます");
+        }
+        BigDecimal result = null;
+        BigDecimal square = base;
+        while (true) {
+            if ((n & 1) != 0) {
+                result = result == null ? square : LargeNumbers.multiply(result, square);
+            }
+            n >>>= 1;
+            if (n == 0) {
+                return result;
+            }
+            square = LargeNumbers.multiply(square, square);
+        }
+    }
+
+    /**
+     * 指数が整数かどうか
+     */
+    static boolean isInteger(BigDecimal value) {
+        return value.scale() <= 0 || value.signum() == 0 || LargeNumbers.stripTrailingZeros(value).scale() <= 0;
+    }
+
+    /**
+     * 平方根
+     * @throws ArithmeticException 負の数の場合
+     */
+    static BigDecimal sqrt(BigDecimal x, Precision precision) {
+        if (x.signum() < 0) {
+            throw new ArithmeticException("負の数の平方根は計算できません");
+        }
+        BigDecimal exact = exactSqrt(x);
+        if (exact != null) {
+            return precision.round(exact);
+        }
+        if (fitsDouble(precision)) {
+            double d = toDouble(x);
+            if (!Double.isNaN(d)) {
+                double y = Math.sqrt(d);
+                BigDecimal result = roundDouble(y, y * DOUBLE_ERROR + Math.ulp(y), precision);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return approximate(mc -> sqrt(x, mc), precision, Math.floorDiv(exponentOf(x), 2));
+    }
+
+    /**
+     * 平方根が有限小数になる（スケールを偶数にした仮数が平方数の）場合はその値を返す
+     * @return 正確な平方根。有限小数にならない場合は null
+     */
+    private static BigDecimal exactSqrt(BigDecimal x) {
+        BigInteger unscaled = x.unscaledValue();
+        long scale = x.scale();
+        if ((scale & 1) != 0) {
+            unscaled = unscaled.multiply(BigInteger.TEN);
+            scale++;
+        }
+        BigInteger root = unscaled.sqrt();
+        return root.multiply(root).equals(unscaled) ? new BigDecimal(root, (int) (scale / 2)) : null;
+    }
+
+    /**
+     * ニュートン法 y ← (y + m / y) / 2 で平方根を求める
+     * x = m × 10^(2k)（1 ≤ m < 100）に正規化して double の平方根を初期値とし、
+     * 正しい桁数が反復ごとに倍になるのに合わせて計算の精度も倍にしていく
+     */
+    private static BigDecimal sqrt(BigDecimal x, MathContext mc) {
+        int k = Math.floorDiv(exponentOf(x), 2);
+        BigDecimal m = x.scaleByPowerOfTen(-2 * k);
+        BigDecimal y = new BigDecimal(Math.sqrt(m.doubleValue()));
+        int target = mc.getPrecision() + 2;
+        int digits = DOUBLE_DIGITS;
+        boolean last = false;
+        while (true) {
+            digits = Math.min(digits * 2, target);
+            MathContext step = new MathContext(digits, RoundingMode.HALF_EVEN);
+            y = y.add(m.divide(y, step)).multiply(HALF).round(step);
+            if (digits == target) {
+                // 最後の精度でもう一度反復して、前の精度の丸め誤差を取り除く
+                if (last) {
+                    break;
+                }
+                last = true;
+            }
+        }
+        return y.scaleByPowerOfTen(k).round(mc);
+    }
+
+    /**
+     * 指数関数 e^x
+     * @throws ArithmeticException 結果が 10^{@link Precision#MAX_RESULT_EXPONENT} を超える場合（有効桁数の指定では小さすぎる場合も）
+     */
+    static BigDecimal exp(BigDecimal x, Precision precision) {
+        if (x.signum() == 0) {
+            return precision.round(BigDecimal.ONE);
+        }
+        double log10 = x.doubleValue() * LOG10_E;
+        if (log10 > Precision.MAX_RESULT_EXPONENT || log10 < -MAX_EXP_EXPONENT) {
+            return outOfRange(log10 > 0, precision);
+        }
+        if (fitsDouble(precision)) {
+            double d = toDouble(x);
+            if (!Double.isNaN(d)) {
+                // 引数の変換誤差 |x| × 2^-53 は結果の相対誤差になる
+                double y = Math.exp(d);
+                BigDecimal result = roundDouble(y, y * Math.abs(d) * DOUBLE_ERROR + 2 * Math.ulp(y), precision);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return approximate(mc -> exp(x, mc), precision, (int) Math.floor(log10));
+    }
+
+    /**
+     * x / 2^n をテイラー級数で計算し、n 回2乗する
+     * |x / 2^n| が 2^-√作業精度 程度になるように n を選ぶ。2乗するたびに相対誤差が倍になるため、n ビット分の桁を作業精度に加える
+     */
+    private static BigDecimal exp(BigDecimal x, MathContext mc) {
+        int n = Math.max(0, Math.getExponent(x.doubleValue()) + 1) + (int) Math.sqrt(mc.getPrecision());
+        MathContext work = new MathContext(mc.getPrecision() + (int) (n * LOG10_2) + 2, RoundingMode.HALF_EVEN);
+        // x / 2^n = x × 5^n / 10^n
+        BigDecimal r = x.round(work).multiply(new BigDecimal(FIVE.pow(n))).scaleByPowerOfTen(-n).round(work);
+
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal term = BigDecimal.ONE;
+        for (int i = 1; ; i++) {
+            term = term.multiply(r, work).divide(BigDecimal.valueOf(i), work);
+            if (term.signum() == 0 || exponentOf(term) < -work.getPrecision() - 1) {
+                break;
+            }
+            sum = sum.add(term, work);
+        }
+        for (int i = 0; i < n; i++) {
+            sum = sum.multiply(sum, work);
+        }
+        return sum.round(mc);
+    }
+
+    /**
+     * 自然対数 ln(x)
+     * @throws ArithmeticException 0以下の数の場合
+     */
+    static BigDecimal ln(BigDecimal x, Precision precision) {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("0以下の数の対数は計算できません");
+        }
+        if (x.compareTo(BigDecimal.ONE) == 0) {
+            return precision.round(BigDecimal.ZERO);
+        }
+        if (fitsDouble(precision)) {
+            double d = toDouble(x);
+            if (!Double.isNaN(d)) {
+                // 引数の相対誤差は結果の絶対誤差になる
+                double y = Math.log(d);
+                BigDecimal result = roundDouble(y, DOUBLE_ERROR + 2 * Math.ulp(y), precision);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return approximate(mc -> ln(x, mc), precision, 0);
+    }
+
+    /**
+     * x = m × 10^e（1/√10 ≤ m < √10）に分解して ln(x) = ln(m) + e × ln(10) とする
+     * |ln(m)| は ln(10)/2 以下のため、e が0でない場合も加算で桁落ちしない
+     */
+    private static BigDecimal ln(BigDecimal x, MathContext mc) {
+        int e = exponentOf(x);
+        BigDecimal m = x.scaleByPowerOfTen(-e);
+        if (m.compareTo(SQRT_TEN) >= 0) {
+            e++;
+            m = m.scaleByPowerOfTen(-1);
+        }
+        if (e == 0) {
+            return logarithm(m, mc);
+        }
+        MathContext work = new MathContext(mc.getPrecision() + digits(Math.abs((long) e)) + 2, RoundingMode.HALF_EVEN);
+        return logarithm(m, work).add(ln10(work).multiply(BigDecimal.valueOf(e)), work).round(mc);
+    }
+
+    /**
+     * 平方根を k 回取って m を1に近づけ、ln(m) = 2^(k+1) × atanh(z)（z = (m' - 1) / (m' + 1)）を級数で計算する
+     * 平方根の丸め誤差は m' - 1 の相対誤差として現れるため、縮小の目標（|m' - 1| ≤ 2^-bits）の桁数を作業精度に加える。
+     * 1に近い m は平方根を取らずに m - 1 を正確に計算する（桁落ちしない）
+     */
+    private static BigDecimal logarithm(BigDecimal m, MathContext mc) {
+        int bits = (int) Math.sqrt(mc.getPrecision()) + 1;
+        BigDecimal threshold = new BigDecimal(FIVE.pow(bits), bits);
+        MathContext work = new MathContext(mc.getPrecision() + (int) (bits * LOG10_2) + 2, RoundingMode.HALF_EVEN);
+        int k = 0;
+        while (m.subtract(BigDecimal.ONE).abs().compareTo(threshold) > 0) {
+            m = sqrt(m, work);
+            k++;
+        }
+
+        BigDecimal z = m.subtract(BigDecimal.ONE).divide(m.add(BigDecimal.ONE), work);
+        if (z.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal z2 = z.multiply(z, work);
+        BigDecimal power = z;
+        BigDecimal sum = z;
+        for (int i = 3; ; i += 2) {
+            power = power.multiply(z2, work);
+            BigDecimal term = power.divide(BigDecimal.valueOf(i), work);
+            if (term.signum() == 0 || exponentOf(term) < exponentOf(sum) - work.getPrecision()) {
+                break;
+            }
+            sum = sum.add(term, work);
+        }
+        return sum.multiply(TWO.pow(k + 1)).round(mc);
+    }
+
+    static BigDecimal sin(BigDecimal x, Precision precision) {
+        return trigonometric(CompiledExpression.OP_SIN, x, precision);
+    }
+
+    static BigDecimal cos(BigDecimal x, Precision precision) {
+        return trigonometric(CompiledExpression.OP_COS, x, precision);
+    }
+
+    static BigDecimal tan(BigDecimal x, Precision precision) {
+        return trigonometric(CompiledExpression.OP_TAN, x, precision);
+    }
+
+    /**
+     * 三角関数（引数はラジアン）
+     * @throws ArithmeticException 引数の絶対値が 10^{@link #MAX_TRIGONOMETRIC_EXPONENT} 以上の場合
+     */
+    private static BigDecimal trigonometric(int function, BigDecimal x, Precision precision) {
+        if (x.signum() == 0) {
+            return precision.round(function == CompiledExpression.OP_COS ? BigDecimal.ONE : BigDecimal.ZERO);
+        }
+        if (exponentOf(x) >= MAX_TRIGONOMETRIC_EXPONENT) {
+            throw new ArithmeticException("三角関数の引数が大きすぎます");
+        }
+        if (fitsDouble(precision)) {
+            double d = toDouble(x);
+            if (!Double.isNaN(d)) {
+                // 引数の変換誤差 |x| × 2^-53 に導関数の絶対値（tan は 1 + tan^2）を掛けた値が結果の絶対誤差になる
+                double y;
+                double slope = 1;
+                if (function == CompiledExpression.OP_SIN) {
+                    y = Math.sin(d);
+                } else if (function == CompiledExpression.OP_COS) {
+                    y = Math.cos(d);
+                } else {
+                    y = Math.tan(d);
+                    slope += y * y;
+                }
+                BigDecimal result = roundDouble(y, Math.abs(d) * DOUBLE_ERROR * slope + 2 * Math.ulp(y), precision);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return approximate(mc -> trigonometric(function, x, mc), precision, 0);
+    }
+
+    /**
+     * x = k × π/2 + r（|r| ≲ π/4）に縮小し、k を4で割った余りに応じて sin(r) と cos(r) から計算する。
+     * r は x の整数部の桁数だけ多くの π の桁を使って計算し、r が小さい（x が π/2 の倍数に近い）場合は
+     * 桁落ちした桁数だけさらに増やして計算し直す
+     */
+    private static BigDecimal trigonometric(int function, BigDecimal x, MathContext mc) {
+        MathContext work = new MathContext(mc.getPrecision() + 3, RoundingMode.HALF_EVEN);
+        int extra = Math.max(0, exponentOf(x) + 1);
+        BigDecimal r;
+        int quadrant;
+        while (true) {
+            BigDecimal halfPi = pi(new MathContext(work.getPrecision() + extra, RoundingMode.HALF_EVEN)).multiply(HALF);
+            BigDecimal k = x.divide(halfPi, 0, RoundingMode.HALF_EVEN);
+            r = x.subtract(halfPi.multiply(k));
+            if (r.signum() == 0) {
+                extra += work.getPrecision();
+                continue;
+            }
+            int lost = -exponentOf(r) - 1;
+            if (lost <= 0) {
+                quadrant = k.toBigInteger().intValue() & 3;
+                r = r.round(work);
+                break;
+            }
+            extra += lost;
+            // 桁を増やして計算し直した r は同じ桁数だけ桁落ちするため、次の計算で終わる
+            if (extra > work.getPrecision() + MAX_TRIGONOMETRIC_EXPONENT + lost) {
+                quadrant = k.toBigInteger().intValue() & 3;
+                r = r.round(work);
+                break;
+            }
+        }
+
+        BigDecimal[] sineAndCosine = sineAndCosine(r, work);
+        BigDecimal sine = sineAndCosine[0];
+        BigDecimal cosine = sineAndCosine[1];
+        boolean even = (quadrant & 1) == 0;
+        return switch (function) {
+            case CompiledExpression.OP_SIN -> {
+                BigDecimal value = even ? sine : cosine;
+                yield (quadrant >= 2 ? value.negate() : value).round(mc);
+            }
+            case CompiledExpression.OP_COS -> {
+                BigDecimal value = even ? cosine : sine;
+                yield (quadrant == 1 || quadrant == 2 ? value.negate() : value).round(mc);
+            }
+            default -> even ? sine.divide(cosine, mc) : cosine.divide(sine, mc).negate();
+        };
+    }
+
+    /**
+     * sin(r) と cos(r)（|r| ≲ π/4）
+     * r / 2^k をテイラー級数で計算し、倍角の公式 sin(2x) = 2 sin(x) cos(x)、cos(2x) = 1 - 2 sin(x)^2 を k 回適用する。
+     * 倍角の公式を適用するたびに相対誤差が最大で倍になるため、k ビット分の桁を作業精度に加える
+     */
+    private static BigDecimal[] sineAndCosine(BigDecimal r, MathContext mc) {
+        int k = (int) Math.sqrt(mc.getPrecision()) / 2;
+        MathContext work = new MathContext(mc.getPrecision() + (int) (k * LOG10_2) + 2, RoundingMode.HALF_EVEN);
+        // r / 2^k = r × 5^k / 10^k
+        BigDecimal h = r.multiply(new BigDecimal(FIVE.pow(k))).scaleByPowerOfTen(-k).round(work);
+        BigDecimal sine = sine(h, work);
+        BigDecimal cosine = cosine(h, work);
+        for (int i = 0; i < k; i++) {
+            BigDecimal doubled = sine.multiply(cosine, work).multiply(TWO);
+            cosine = BigDecimal.ONE.subtract(sine.multiply(sine, work).multiply(TWO), work);
+            sine = doubled;
+        }
+        return new BigDecimal[] {sine.round(mc), cosine.round(mc)};
+    }
+
+    /**
+     * sin(r) = r - r^3/3! + r^5/5! - ...
+     */
+    private static BigDecimal sine(BigDecimal r, MathContext mc) {
+        BigDecimal r2 = r.multiply(r, mc);
+        BigDecimal term = r;
+        BigDecimal sum = r;
+        for (long i = 2; ; i += 2) {
+            term = term.multiply(r2, mc).divide(BigDecimal.valueOf(i * (i + 1)), mc).negate();
+            if (term.signum() == 0 || exponentOf(term) < exponentOf(sum) - mc.getPrecision()) {
+                return sum;
+            }
+            sum = sum.add(term, mc);
+        }
+    }
+
+    /**
+     * cos(r) = 1 - r^2/2! + r^4/4! - ...
+     */
+    private static BigDecimal cosine(BigDecimal r, MathContext mc) {
+        BigDecimal r2 = r.multiply(r, mc);
+        BigDecimal term = BigDecimal.ONE;
+        BigDecimal sum = BigDecimal.ONE;
+        for (long i = 1; ; i += 2) {
+            term = term.multiply(r2, mc).divide(BigDecimal.valueOf(i * (i + 1)), mc).negate();
+            if (term.signum() == 0 || exponentOf(term) < exponentOf(sum) - mc.getPrecision()) {
+                return sum;
+            }
+            sum = sum.add(term, mc);
+        }
+    }
+
+    /**
+     * マチンの公式 π = 16 atan(1/5) - 4 atan(1/239)
+     */
+    private static BigDecimal pi(MathContext mc) {
+        BigDecimal cached = pi;
+        if (cached == null || cached.precision() < mc.getPrecision() + CONSTANT_GUARD_DIGITS) {
+            int digits = mc.getPrecision() + CONSTANT_GUARD_DIGITS;
+            // 級数の項の数（桁数程度）だけ最後の桁に誤差が生じるため、その桁数を加えて計算する
+            int scale = digits + digits(digits) + 1;
+            BigInteger value = arctanInverse(5, scale).shiftLeft(4).subtract(arctanInverse(239, scale).shiftLeft(2));
+            cached = new BigDecimal(value, scale).round(new MathContext(digits, RoundingMode.HALF_EVEN));
+            pi = cached;
+        }
+        return cached.round(mc);
+    }
+
+    /**
+     * atan(1/n) × 10^scale の整数部の近似値（atan(1/n) = 1/n - 1/(3n^3) + 1/(5n^5) - ...）
+     * 各項を整数の除算（除数が小さいため桁数に比例する時間で済む）で切り捨てて計算する
+     */
+    private static BigInteger arctanInverse(int n, int scale) {
+        BigInteger square = BigInteger.valueOf((long) n * n);
+        BigInteger power = BigInteger.TEN.pow(scale).divide(BigInteger.valueOf(n));
+        BigInteger sum = power;
+        for (int i = 3; power.signum() != 0; i += 2) {
+            power = power.divide(square);
+            BigInteger term = power.divide(BigInteger.valueOf(i));
+            sum = (i & 2) != 0 ? sum.subtract(term) : sum.add(term);
+        }
+        return sum;
+    }
+
+    private static BigDecimal ln10(MathContext mc) {
+        BigDecimal cached = ln10;
+        if (cached == null || cached.precision() < mc.getPrecision() + CONSTANT_GUARD_DIGITS) {
+            cached = logarithm(BigDecimal.TEN,
+                    new MathContext(mc.getPrecision() + CONSTANT_GUARD_DIGITS, RoundingMode.HALF_EVEN));
+            ln10 = cached;
+        }
+        return cached.round(mc);
+    }
+
+    /**
+     * 誤差の範囲全体が同じ値に丸められるまで作業精度を上げて近似値を計算し、指定の精度に丸める
+     * @param exponent 結果の10の指数の見積もり（小数点以下の桁数で指定された場合の初期の作業精度に使う）
+     */
+    private static BigDecimal approximate(Kernel kernel, Precision precision, int exponent) {
+        if (precision.roundingMode() == RoundingMode.UNNECESSARY) {
+            // 正確な値になる場合は呼び出し側で処理しているため、丸めが必要になる
+            throw new ArithmeticException("Rounding necessary");
+        }
+        int required = requiredDigits(precision, exponent);
+        int workingDigits = required + GUARD_DIGITS;
+        while (true) {
+            BigDecimal value = kernel.apply(new MathContext(workingDigits, RoundingMode.HALF_EVEN));
+            required = requiredDigits(precision, exponentOf(value));
+            if (workingDigits >= required + GUARD_DIGITS) {
+                BigDecimal error = BigDecimal.ONE.scaleByPowerOfTen(exponentOf(value) + 1 - workingDigits + ERROR_DIGITS);
+                if (precision.round(value.subtract(error)).compareTo(precision.round(value.add(error))) == 0) {
+                    return fill(precision.round(value), precision);
+                }
+                if (workingDigits >= 4 * (required + GUARD_DIGITS)) {
+                    // 正確な値が丸めの境界上にある場合（4^0.5 など）は作業精度を上げても決まらないため、誤差の桁を除いて丸める
+                    MathContext exact = new MathContext(workingDigits - ERROR_DIGITS - 1, RoundingMode.HALF_EVEN);
+                    return fill(precision.round(value.round(exact)), precision);
+                }
+            }
+            workingDigits = Math.max(workingDigits * 2, required + GUARD_DIGITS);
+        }
+    }
+
+    /**
+     * 丸めに必要な有効桁数
+     */
+    private static int requiredDigits(Precision precision, int exponent) {
+        return precision.isFixedScale()
+                ? (int) Math.max(1, Math.min(Precision.MAX_DIGITS * 2L, (long) precision.scale() + exponent + 1))
+                : precision.mathContext().getPrecision();
+    }
+
+    /**
+     * double で計算した近似値を、誤差の範囲全体が同じ値に丸められる場合に限って丸める
+     * @param error 誤差の上限（絶対値）
+     * @return 丸めた値。double の精度では決まらない場合は null
+     */
+    private static BigDecimal roundDouble(double value, double error, Precision precision) {
+        if (!Double.isFinite(value) || !Double.isFinite(error)) {
+            return null;
+        }
+        BigDecimal low = precision.round(new BigDecimal(Math.nextDown(value - error)));
+        BigDecimal high = precision.round(new BigDecimal(Math.nextUp(value + error)));
+        return low.compareTo(high) == 0 ? fill(high, precision) : null;
+    }
+
+    /**
+     * 有効桁数で指定された場合は、末尾の0を補って有効桁数に揃える（近似値の表現によらず同じ結果にする）
+     */
+    private static BigDecimal fill(BigDecimal value, Precision precision) {
+        if (!precision.isFixedScale() && value.signum() != 0) {
+            int missing = precision.mathContext().getPrecision() - value.precision();
+            if (missing > 0) {
+                return value.setScale(value.scale() + missing);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 範囲外の exp・累乗の結果
+     * 小数点以下の桁数で指定された場合、10^-(桁数 + 2) 未満の正の数はすべて 10^-(桁数 + 2) と同じ値に丸められる
+     */
+    private static BigDecimal outOfRange(boolean large, Precision precision) {
+        if (large) {
+            throw new ArithmeticException("計算結果が大きすぎます");
+        }
+        if (!precision.isFixedScale()) {
+            throw new ArithmeticException("計算結果が小さすぎます");
+        }
+        return precision.round(BigDecimal.ONE.scaleByPowerOfTen(-(precision.scale() + 2)));
+    }
+
+    private static boolean fitsDouble(Precision precision) {
+        return precision.roundingMode() != RoundingMode.UNNECESSARY
+                && (precision.isFixedScale() ? precision.scale() : precision.mathContext().getPrecision())
+                        <= DOUBLE_DIGITS;
+    }
+
+    /**
+     * double に変換する（double の正規化数で表せない場合は NaN）
+     */
+    private static double toDouble(BigDecimal value) {
+        double d = value.doubleValue();
+        return Double.isFinite(d) && (Math.abs(d) >= Double.MIN_NORMAL || value.signum() == 0) ? d : Double.NaN;
+    }
+
+    /**
+     * 正の数の常用対数の近似値（double の範囲外の数も扱う）
+     */
+    private static double log10(BigDecimal value) {
+        int exponent = exponentOf(value);
+        return exponent + Math.log10(value.scaleByPowerOfTen(-exponent).doubleValue());
+    }
+
+    /**
+     * 10の指数（1 ≤ |value| / 10^exponent < 10）
+     */
+    private static int exponentOf(BigDecimal value) {
+        return value.precision() - value.scale() - 1;
+    }
+
+    private static int digits(long value) {
+        return value == 0 ? 1 : (int) Math.log10(value) + 1;
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 大きい数式の並列評価
+ * 加減算と乗算の連鎖（例: 積の和）をそれぞれ1つの項の列に平坦化し、命令数がほぼ等しくなるように
+ * 項の列を二分して ForkJoinPool で並列に評価する（平衡木として評価する）。
+ * BigDecimal の加減算・乗算は丸めを伴わないため結合則が成り立ち、結果は値・スケールとも逐次評価と同一になる。
+ * 除算と累乗は丸めを伴うため連鎖に含めず、両辺をそれぞれ並列に評価してから逐次評価と同じ方法で演算する。
+ * 関数は引数の部分木を分解して評価してから適用する。
+ * 計算エラーが発生した場合は、逐次評価と同じエラー（最初に発生するエラー）を報告するため逐次評価でやり直す。
+ * 命令列が整合しない式と一時変数を使う式（最適化した式）は逐次評価する
+ */
+final class ParallelEvaluator {
+
+    /** 1タスクで逐次評価する最小の命令数 */
+    static final int DEFAULT_GRAIN = 1024;
+
+    /** 構造を分解する部分木の最大の深さ（これより深い部分木は逐次評価する） */
+    private static final int MAX_DEPTH = 256;
+
+    private final CompiledExpression expression;
+    private final int grain;
+    private final Node root; // 並列評価できない式の場合は null
+
+    ParallelEvaluator(CompiledExpression expression, int grain) {
+        this.expression = expression;
+        this.grain = Math.max(1, grain);
+        int[] code = expression.code();
+        this.root = expression.temporaries() == 0 && CompiledExpression.isWellFormed(code)
+                ? new Builder(code).node(code.length - 1, 0)
+                : null;
+    }
+
+    /**
+     * 数式を評価する
+     * ForkJoinPool のワーカースレッドから呼び出された場合（バッチ計算など）はそのプールで、
+     * それ以外の場合は指定したプールで並列に評価する
+     * @param bindings {@link CompiledExpression#variables()} と同じ順序の変数の値（検証済みであること）
+     * @param precision 除算結果の精度
+     * @param pool 並列評価に使用するプール
+     */
+    BigDecimal evaluate(BigDecimal[] bindings, Precision precision, ForkJoinPool pool) {
+        if (!parallelizable()) {
+            return expression.evaluateBigDecimal(bindings, precision);
+        }
+        Task task = new Task(root, 0, 0, bindings, precision);
+        try {
+            return ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task);
+        } catch (ArithmeticException e) {
+            return expression.evaluateBigDecimal(bindings, precision);
+        }
+    }
+
+    /**
+     * 部分木に分割して評価できるかどうか（false の場合は逐次評価する）
+     */
+    boolean parallelizable() {
+        return root != null && !(root instanceof Range);
+    }
+
+    /** 並列に評価する単位（構造を分解した部分木） */
+    private abstract static class Node {
+        final int weight; // 命令数
+
+        Node(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /** 命令列の範囲 [from, to) の部分木（逐次評価する） */
+    private static final class Range extends Node {
+        final int from;
+        final int to;
+
+        Range(int from, int to) {
+            super(to - from);
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /** 加減算または乗算の連鎖（項を左から順に演算する） */
+    private static final class Chain extends Node {
+        final int operator; // OP_ADD または OP_MULTIPLY
+        final Node[] operands;
+        final boolean[] negated; // 減算する項（加減算の場合のみ）
+        final int[] offsets; // 各項の前までの命令数の累計（分割位置の決定に使う）
+
+        Chain(int operator, Node[] operands, boolean[] negated, int[] offsets, int weight) {
+            super(weight);
+            this.operator = operator;
+            this.operands = operands;
+            this.negated = negated;
+            this.offsets = offsets;
+        }
+    }
+
+    /** 除算または累乗（両辺を並列に評価する） */
+    private static final class Operation extends Node {
+        final int operator; // OP_DIVIDE または OP_POWER
+        final Node left;
+        final Node right;
+
+        Operation(int operator, Node left, Node right, int weight) {
+            super(weight);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /** 関数（引数の部分木を評価してから適用する） */
+    private static final class Function extends Node {
+        final int function;
+        final Node argument;
+
+        Function(int function, Node argument, int weight) {
+            super(weight);
+            this.function = function;
+            this.argument = argument;
+        }
+    }
+
+    /**
+     * 後置記法の命令列から部分木の構造を組み立てる
+     * 部分木は命令列の連続した範囲になるため、各命令を末尾とする部分木の開始位置を1パスで求めておく
+     */
+    private final class Builder {
+        private final int[] code;
+        private final int[] starts;
+
+        Builder(int[] code) {
+            this.code = code;
+            this.starts = new int[code.length];
+            int[] stack = new int[expression.maxStackDepth()];
+            int size = 0;
+            for (int i = 0; i < code.length; i++) {
+                if (code[i] >= 0 || code[i] <= CompiledExpression.VARIABLE_BASE) {
+                    starts[i] = i;
+                    stack[size++] = i;
+                } else if (CompiledExpression.isFunction(code[i])) {
+                    starts[i] = stack[size - 1];
+                } else {
+                    size--;
+                    starts[i] = stack[size - 1];
+                }
+            }
+        }
+
+        private int weight(int end) {
+            return end - starts[end] + 1;
+        }
+
+        private static int chainOperator(int instruction) {
+            return switch (instruction) {
+                case CompiledExpression.OP_ADD, CompiledExpression.OP_SUBTRACT -> CompiledExpression.OP_ADD;
+                case CompiledExpression.OP_MULTIPLY -> CompiledExpression.OP_MULTIPLY;
+                default -> 0;
+            };
+        }
+
+        /**
+         * end を末尾とする部分木の構造
+         */
+        Node node(int end, int depth) {
+            int instruction = code[end];
+            if (weight(end) <= grain || depth >= MAX_DEPTH
+                    || instruction >= 0 || instruction <= CompiledExpression.VARIABLE_BASE) {
+                return new Range(starts[end], end + 1);
+            }
+            if (CompiledExpression.isFunction(instruction)) {
+                return new Function(instruction, node(end - 1, depth + 1), weight(end));
+            }
+            int rightEnd = end - 1;
+            int leftEnd = starts[rightEnd] - 1;
+            if (instruction == CompiledExpression.OP_DIVIDE || instruction == CompiledExpression.OP_POWER) {
+                return new Operation(instruction, node(leftEnd, depth + 1), node(rightEnd, depth + 1), weight(end));
+            }
+            return chain(end, chainOperator(instruction), depth);
+        }
+
+        /**
+         * 同じ種類の演算子の連鎖を項の列に平坦化する（再帰せずに左から順に項を取り出す）
+         * 減算の右辺の連鎖は符号を反転して展開する（a - (b + c) = a - b - c）
+         */
+        private Chain chain(int end, int operator, int depth) {
+            List<Node> operands = new ArrayList<>();
+            List<Boolean> negated = new ArrayList<>();
+            int[] pending = new int[16];
+            int count = 0;
+            pending[count++] = end << 1;
+            while (count > 0) {
+                int item = pending[--count];
+                int position = item >> 1;
+                boolean negative = (item & 1) != 0;
+                int instruction = code[position];
+                if (weight(position) > grain && chainOperator(instruction) == operator) {
+                    if (count + 2 > pending.length) {
+                        pending = Arrays.copyOf(pending, pending.length * 2);
+                    }
+                    int rightEnd = position - 1;
+                    boolean flip = instruction == CompiledExpression.OP_SUBTRACT;
+                    // 右辺を先に積み、左辺から取り出す
+                    pending[count++] = rightEnd << 1 | (negative ^ flip ? 1 : 0);
+                    pending[count++] = (starts[rightEnd] - 1) << 1 | (negative ? 1 : 0);
+                } else {
+                    operands.add(node(position, depth + 1));
+                    negated.add(negative);
+                }
+            }
+
+            Node[] nodes = operands.toArray(new Node[0]);
+            boolean[] signs = new boolean[nodes.length];
+            int[] offsets = new int[nodes.length + 1];
+            for (int i = 0; i < nodes.length; i++) {
+                signs[i] = negated.get(i);
+                offsets[i + 1] = offsets[i] + nodes[i].weight;
+            }
+            return new Chain(operator, nodes, signs, offsets, weight(end));
+        }
+    }
+
+    /**
+     * 部分木を評価するタスク（from < to の場合は連鎖の項の範囲 [from, to) を評価する）
+     */
+    private final class Task extends RecursiveTask<BigDecimal> {
+        private final Node node;
+        private final int from;
+        private final int to;
+        private final BigDecimal[] bindings;
+        private final Precision precision;
+
+        Task(Node node, int from, int to, BigDecimal[] bindings, Precision precision) {
+            this.node = node;
+            this.from = from;
+            this.to = to;
+            this.bindings = bindings;
+            this.precision = precision;
+        }
+
+        @Override
+        protected BigDecimal compute() {
+            return from < to ? evaluate((Chain) node, from, to) : evaluate(node);
+        }
+
+        private BigDecimal evaluate(Node target) {
+            if (target instanceof Range range) {
+                return expression.interpret(range.from, range.to, bindings, precision);
+            }
+            if (target instanceof Chain chain) {
+                return evaluate(chain, 0, chain.operands.length);
+            }
+            if (target instanceof Function function) {
+                return CompiledExpression.performFunction(evaluate(function.argument), function.function, precision);
+            }
+            Operation operation = (Operation) target;
+            Task left = new Task(operation.left, 0, 0, bindings, precision);
+            left.fork();
+            BigDecimal right = evaluate(operation.right);
+            return CompiledExpression.performOperation(left.join(), right, operation.operator, precision);
+        }
+
+        /**
+         * 連鎖の項 [from, to) を演算した値（加減算の場合は先頭の項の符号を含む）
+         */
+        private BigDecimal evaluate(Chain chain, int from, int to) {
+            int[] offsets = chain.offsets;
+            if (to - from > 1 && offsets[to] - offsets[from] > grain) {
+                // 命令数がほぼ半分になる位置で分割する
+                int half = offsets[from] + (offsets[to] - offsets[from]) / 2;
+                int middle = from + 1;
+                while (middle < to - 1 && offsets[middle + 1] <= half) {
+                    middle++;
+                }
+                Task left = new Task(chain, from, middle, bindings, precision);
+                left.fork();
+                BigDecimal right = evaluate(chain, middle, to);
+                return combine(chain.operator, left.join(), right);
+            }
+
+            BigDecimal result = signed(chain, from);
+            for (int i = from + 1; i < to; i++) {
+                BigDecimal operand = evaluate(chain.operands[i]);
+                if (chain.operator == CompiledExpression.OP_MULTIPLY) {
+                    result = multiply(result, operand);
+                } else {
+                    result = chain.negated[i] ? result.subtract(operand) : result.add(operand);
+                }
+            }
+            return result;
+        }
+
+        private BigDecimal signed(Chain chain, int index) {
+            BigDecimal value = evaluate(chain.operands[index]);
+            return chain.operator == CompiledExpression.OP_ADD && chain.negated[index] ? value.negate() : value;
+        }
+
+        private BigDecimal combine(int operator, BigDecimal a, BigDecimal b) {
+            return operator == CompiledExpression.OP_MULTIPLY ? multiply(a, b) : a.add(b);
+        }
+
+        private BigDecimal multiply(BigDecimal a, BigDecimal b) {
+            return expression.largeOperands() ? LargeNumbers.multiply(a, b) : a.multiply(b);
+        }
+    }
+}
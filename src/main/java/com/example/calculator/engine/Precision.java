@@ -0,0 +1,193 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * 除算結果の精度
+ * 小数点以下の桁数（スケール）または有効桁数（{@link MathContext}）のいずれかと、丸めモードを保持する。
+ * 加算・減算・乗算と0以上の整数乗は常に正確に計算するため、精度は除算と、
+ * 結果が無理数になり得る関数・累乗（{@link MathFunctions}）にのみ適用する。
+ * {@link #withDeferredRounding()} を指定した場合は、除算を丸めずに分数のまま計算し、最後に1回だけ丸める
+ */
+public final class Precision {
+
+    /** 指定できる桁数の上限 */
+    public static final int MAX_DIGITS = 10_000;
+
+    /**
+     * exp・非整数乗の結果として許容する10の指数の上限
+     * 小数点以下の桁数で指定された場合は結果の整数部の桁数も含めて近似値を計算するため、
+     * 計算時間が整数乗と同程度に収まるように、指定された桁数に加わる桁数を制限する
+     */
+    public static final int MAX_RESULT_EXPONENT = 2_000;
+
+    /** 商が有限小数になるかどうかを先に調べる桁数の下限（これより少ない桁数では通常の除算の方が速い） */
+    static final int EXACT_QUOTIENT_MIN_DIGITS = 32;
+
+    private static final BigInteger FIVE = BigInteger.valueOf(5);
+
+    private final int scale;
+    private final RoundingMode roundingMode;
+    private final MathContext mathContext;
+    private final boolean deferredRounding;
+
+    private Precision(int scale, RoundingMode roundingMode, MathContext mathContext, boolean deferredRounding) {
+        this.scale = scale;
+        this.roundingMode = roundingMode;
+        this.mathContext = mathContext;
+        this.deferredRounding = deferredRounding;
+    }
+
+    /**
+     * 小数点以下の桁数で指定する
+     * @throws IllegalArgumentException 桁数が0〜{@link #MAX_DIGITS}の範囲外の場合
+     */
+    public static Precision ofScale(int scale, RoundingMode roundingMode) {
+        if (scale < 0 || scale > MAX_DIGITS) {
+            throw new IllegalArgumentException("小数点以下の桁数は0〜" + MAX_DIGITS + "の範囲で指定してください: " + scale);
+        }
+        return new Precision(scale, Objects.requireNonNull(roundingMode), null, false);
+    }
+
+    /**
+     * 有効桁数で指定する
+     * @throws IllegalArgumentException 桁数が1〜{@link #MAX_DIGITS}の範囲外の場合
+     */
+    public static Precision ofDigits(int digits, RoundingMode roundingMode) {
+        if (digits < 1 || digits > MAX_DIGITS) {
+            throw new IllegalArgumentException("有効桁数は1〜" + MAX_DIGITS + "の範囲で指定してください: " + digits);
+        }
+        return new Precision(-1, roundingMode, new MathContext(digits, Objects.requireNonNull(roundingMode)), false);
+    }
+
+    /**
+     * 同じ桁数・丸めモードで、除算の丸めを式全体の評価の最後にまとめる精度
+     * 式は分数のまま正確に評価し（{@link CompiledExpression#evaluateRational}）、結果を1回だけこの精度に丸める。
+     * 関数と非整数乗は引数をこの精度に丸めて計算する。
+     * {@link IncrementalExpression} では加減算で分割した項ごとに丸める
+     */
+    public Precision withDeferredRounding() {
+        return deferredRounding ? this : new Precision(scale, roundingMode, mathContext, true);
+    }
+
+    /**
+     * 除算の丸めを式全体の評価の最後にまとめるかどうか
+     */
+    public boolean isDeferredRounding() {
+        return deferredRounding;
+    }
+
+    /**
+     * 小数点以下の桁数で指定されているかどうか
+     */
+    public boolean isFixedScale() {
+        return mathContext == null;
+    }
+
+    /**
+     * 小数点以下の桁数（有効桁数で指定されている場合は -1）
+     */
+    public int scale() {
+        return scale;
+    }
+
+    public RoundingMode roundingMode() {
+        return roundingMode;
+    }
+
+    /**
+     * 有効桁数（小数点以下の桁数で指定されている場合は null）
+     */
+    public MathContext mathContext() {
+        return mathContext;
+    }
+
+    /**
+     * この精度で除算を実行する
+     * @throws ArithmeticException 除数が0の場合、または丸めが必要なのに UNNECESSARY が指定された場合
+     */
+    public BigDecimal divide(BigDecimal a, BigDecimal b) {
+        if (b.signum() == 0) {
+            throw new ArithmeticException("ゼロ除算はできません");
+        }
+        if ((mathContext == null ? scale : mathContext.getPrecision()) >= EXACT_QUOTIENT_MIN_DIGITS) {
+            // 商が有限小数の場合は、指定桁数までの長除算（と有効桁数指定での末尾の0の除去）を行わずに丸める
+            BigDecimal exact = exactQuotient(a, b);
+            if (exact != null) {
+                return mathContext == null
+                        ? exact.setScale(scale, roundingMode)
+                        : round(exact, a.scale() - (long) b.scale());
+            }
+        }
+        return mathContext == null ? a.divide(b, scale, roundingMode) : a.divide(b, mathContext);
+    }
+
+    /**
+     * 値をこの精度に丸める
+     * @throws ArithmeticException 丸めが必要なのに UNNECESSARY が指定された場合
+     */
+    public BigDecimal round(BigDecimal value) {
+        return mathContext == null ? value.setScale(scale, roundingMode) : value.round(mathContext);
+    }
+
+    /**
+     * 商が有限小数になる場合は正確な商を返す
+     * 約分した除数の素因数が2と5だけの場合に限り、商は有限小数になる
+     * @return 正確な商。有限小数にならない場合は null
+     */
+    static BigDecimal exactQuotient(BigDecimal a, BigDecimal b) {
+        BigInteger divisor = b.unscaledValue().abs();
+        divisor = divisor.divide(a.unscaledValue().gcd(divisor));
+        divisor = divisor.shiftRight(divisor.getLowestSetBit());
+        while (!divisor.equals(BigInteger.ONE)) {
+            BigInteger[] quotientAndRemainder = divisor.divideAndRemainder(FIVE);
+            if (quotientAndRemainder[1].signum() != 0) {
+                return null;
+            }
+            divisor = quotientAndRemainder[0];
+        }
+        return a.divide(b);
+    }
+
+    /**
+     * 正確な商を有効桁数に丸める
+     * {@link BigDecimal#divide(BigDecimal, MathContext)} と同様に、末尾の0を優先スケールまで取り除く
+     */
+    private BigDecimal round(BigDecimal exact, long preferredScale) {
+        BigDecimal rounded = exact.round(mathContext);
+        if (rounded.scale() <= preferredScale) {
+            return rounded;
+        }
+        BigDecimal stripped = rounded.stripTrailingZeros();
+        return stripped.scale() < preferredScale ? rounded.setScale((int) preferredScale) : stripped;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Precision other)) {
+            return false;
+        }
+        return scale == other.scale && roundingMode == other.roundingMode
+                && Objects.equals(mathContext, other.mathContext) && deferredRounding == other.deferredRounding;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(scale, roundingMode, mathContext, deferredRounding);
+    }
+
+    @Override
+    public String toString() {
+        String text = mathContext == null
+                ? "scale=" + scale + "," + roundingMode
+                : "precision=" + mathContext.getPrecision() + "," + roundingMode;
+        return deferredRounding ? text + ",deferred" : text;
+    }
+}
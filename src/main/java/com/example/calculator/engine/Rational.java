@@ -0,0 +1,325 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 除算を丸めずに評価するための分数（不変オブジェクト）
+ * 分子・分母が long に収まる間は long で計算し、あふれる場合に BigInteger に切り替える。
+ * 約分（最大公約数の計算）は毎回行わず、long の演算があふれる場合と、
+ * BigInteger の分母のビット数が前回約分した時点の2倍を超えた場合にのみ行う。
+ * 分母は常に正で、符号は分子が持つ
+ */
+final class Rational {
+
+    static final Rational ZERO = new Rational(0, 1);
+    static final Rational ONE = new Rational(1, 1);
+
+    /** long で表せる10の累乗（LONG_POWERS_OF_TEN[i] = 10^i） */
+    private static final long[] LONG_POWERS_OF_TEN = new long[19];
+
+    /** 約分を省略する分母のビット数の余裕 */
+    private static final int REDUCE_MARGIN_BITS = 64;
+
+    static {
+        LONG_POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < LONG_POWERS_OF_TEN.length; i++) {
+            LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // long で表す場合の分子・分母（BigInteger で表す場合は使用しない）
+    private final long numerator;
+    private final long denominator;
+
+    // BigInteger で表す場合の分子・分母（long で表す場合は null）
+    private final BigInteger bigNumerator;
+    private final BigInteger bigDenominator;
+
+    /** 前回約分した時点（または作成時点）の分母のビット数 */
+    private final int reducedBits;
+
+    private Rational(long numerator, long denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        this.bigNumerator = null;
+        this.bigDenominator = null;
+        this.reducedBits = 0;
+    }
+
+    private Rational(BigInteger numerator, BigInteger denominator, int reducedBits) {
+        this.numerator = 0;
+        this.denominator = 0;
+        this.bigNumerator = numerator;
+        this.bigDenominator = denominator;
+        this.reducedBits = reducedBits;
+    }
+
+    /**
+     * 10進数の値を分数にする（分母は10の累乗）
+     */
+    static Rational of(BigDecimal value) {
+        int scale = value.scale();
+        if (scale >= 0 && scale < LONG_POWERS_OF_TEN.length && value.unscaledValue().bitLength() < Long.SIZE) {
+            return new Rational(value.unscaledValue().longValue(), LONG_POWERS_OF_TEN[scale]);
+        }
+        if (scale <= 0) {
+            return of(value.setScale(0).unscaledValue(), BigInteger.ONE);
+        }
+        return of(value.unscaledValue(), BigInteger.TEN.pow(scale));
+    }
+
+    /**
+     * BigInteger の分子・分母から作成する（分母は正であること）
+     */
+    private static Rational of(BigInteger numerator, BigInteger denominator) {
+        if (numerator.bitLength() < Long.SIZE && denominator.bitLength() < Long.SIZE) {
+            return new Rational(numerator.longValue(), denominator.longValue());
+        }
+        return new Rational(numerator, denominator, denominator.bitLength());
+    }
+
+    /**
+     * 演算結果を作成する（分母のビット数が前回約分した時点の2倍を超えた場合は約分する）
+     */
+    private static Rational result(BigInteger numerator, BigInteger denominator, int reducedBits) {
+        if (denominator.bitLength() > 2 * reducedBits + REDUCE_MARGIN_BITS) {
+            BigInteger gcd = numerator.gcd(denominator);
+            if (!gcd.equals(BigInteger.ONE)) {
+                numerator = numerator.divide(gcd);
+                denominator = denominator.divide(gcd);
+            }
+            return of(numerator, denominator);
+        }
+        if (numerator.bitLength() < Long.SIZE && denominator.bitLength() < Long.SIZE) {
+            return new Rational(numerator.longValue(), denominator.longValue());
+        }
+        return new Rational(numerator, denominator, reducedBits);
+    }
+
+    private boolean isLong() {
+        return bigDenominator == null;
+    }
+
+    private BigInteger bigNumerator() {
+        return isLong() ? BigInteger.valueOf(numerator) : bigNumerator;
+    }
+
+    private BigInteger bigDenominator() {
+        return isLong() ? BigInteger.valueOf(denominator) : bigDenominator;
+    }
+
+    private int reducedBits(Rational other) {
+        return Math.max(isLong() ? Long.SIZE : reducedBits, other.isLong() ? Long.SIZE : other.reducedBits);
+    }
+
+    int signum() {
+        return isLong() ? Long.signum(numerator) : bigNumerator.signum();
+    }
+
+    /**
+     * 約分した値（long で表す場合のみ約分する）
+     */
+    private Rational reduced() {
+        if (!isLong() || numerator == Long.MIN_VALUE) {
+            return this;
+        }
+        long gcd = gcd(Math.abs(numerator), denominator);
+        return gcd <= 1 ? this : new Rational(numerator / gcd, denominator / gcd);
+    }
+
+    Rational add(Rational other) {
+        return add(other, false);
+    }
+
+    Rational subtract(Rational other) {
+        return add(other, true);
+    }
+
+    private Rational add(Rational other, boolean subtract) {
+        if (isLong() && other.isLong()) {
+            Rational result = addLong(other, subtract);
+            if (result == null) {
+                result = reduced().addLong(other.reduced(), subtract);
+            }
+            if (result != null) {
+                return result;
+            }
+        }
+        BigInteger a = bigNumerator();
+        BigInteger b = bigDenominator();
+        BigInteger c = other.bigNumerator();
+        BigInteger d = other.bigDenominator();
+        if (subtract) {
+            c = c.negate();
+        }
+        if (b.equals(d)) {
+            return result(a.add(c), b, reducedBits(other));
+        }
+        return result(a.multiply(d).add(c.multiply(b)), b.multiply(d), reducedBits(other));
+    }
+
+    /**
+     * long の範囲で加算・減算する
+     * 一方の分母が他方の分母で割り切れる場合（10進数の値どうしなど）は大きい方の分母に揃える。
+     * あふれは例外ではなく上位ビットで判定する（例外の生成は演算そのものより遅いため）
+     * @return あふれる場合は null
+     */
+    private Rational addLong(Rational other, boolean subtract) {
+        long a = numerator;
+        long b = denominator;
+        long c = other.numerator;
+        long d = other.denominator;
+        if (subtract) {
+            if (c == Long.MIN_VALUE) {
+                return null;
+            }
+            c = -c;
+        }
+        if (b != d) {
+            if (d % b == 0) {
+                long factor = d / b;
+                if (multiplyOverflows(a, factor)) {
+                    return null;
+                }
+                a *= factor;
+                b = d;
+            } else if (b % d == 0) {
+                long factor = b / d;
+                if (multiplyOverflows(c, factor)) {
+                    return null;
+                }
+                c *= factor;
+            } else {
+                if (multiplyOverflows(a, d) || multiplyOverflows(c, b) || multiplyOverflows(b, d)) {
+                    return null;
+                }
+                a *= d;
+                c *= b;
+                b *= d;
+            }
+        }
+        long sum = a + c;
+        return ((a ^ sum) & (c ^ sum)) < 0 ? null : new Rational(sum, b);
+    }
+
+    Rational multiply(Rational other) {
+        if (isLong() && other.isLong()) {
+            Rational result = multiplyLong(other);
+            if (result == null) {
+                result = reduced().multiplyLong(other.reduced());
+            }
+            if (result != null) {
+                return result;
+            }
+        }
+        return result(bigNumerator().multiply(other.bigNumerator()), bigDenominator().multiply(other.bigDenominator()),
+                reducedBits(other));
+    }
+
+    /**
+     * @throws ArithmeticException 除数が0の場合
+     */
+    Rational divide(Rational other) {
+        return multiply(other.reciprocal());
+    }
+
+    private Rational multiplyLong(Rational other) {
+        if (multiplyOverflows(numerator, other.numerator) || multiplyOverflows(denominator, other.denominator)) {
+            return null;
+        }
+        return new Rational(numerator * other.numerator, denominator * other.denominator);
+    }
+
+    /**
+     * 逆数
+     * @throws ArithmeticException 0の場合
+     */
+    Rational reciprocal() {
+        int signum = signum();
+        if (signum == 0) {
+            throw new ArithmeticException("ゼロ除算はできません");
+        }
+        if (isLong() && numerator != Long.MIN_VALUE) {
+            return signum > 0 ? new Rational(denominator, numerator) : new Rational(-denominator, -numerator);
+        }
+        BigInteger n = bigNumerator();
+        BigInteger d = bigDenominator();
+        return signum > 0 ? of(d, n) : of(d.negate(), n.negate());
+    }
+
+    /**
+     * 整数乗（負の指数は逆数の累乗）
+     * @throws ArithmeticException 0の負数乗、または結果の桁数が {@link MathFunctions#MAX_POWER_DIGITS} を超える場合
+     */
+    Rational pow(int n) {
+        Rational base = n < 0 ? reciprocal() : this;
+        int exponent = Math.abs(n);
+        if (exponent == 0) {
+            return ONE;
+        }
+        Rational reduced = base.isLong() ? base.reduced() : base;
+        BigInteger numerator = MathFunctions.pow(new BigDecimal(reduced.bigNumerator()), exponent).unscaledValue();
+        BigInteger denominator = MathFunctions.pow(new BigDecimal(reduced.bigDenominator()), exponent).unscaledValue();
+        return of(numerator, denominator);
+    }
+
+    /**
+     * int の範囲の整数の場合はその値
+     * @return 整数でない場合、または int の範囲外の場合は null
+     */
+    Integer intValue() {
+        if (isLong()) {
+            if (numerator % denominator != 0) {
+                return null;
+            }
+            long value = numerator / denominator;
+            return value == (int) value ? (int) value : null;
+        }
+        BigInteger[] quotientAndRemainder = bigNumerator.divideAndRemainder(bigDenominator);
+        if (quotientAndRemainder[1].signum() != 0 || quotientAndRemainder[0].bitLength() >= Integer.SIZE) {
+            return null;
+        }
+        return quotientAndRemainder[0].intValue();
+    }
+
+    /**
+     * 正確な10進数の値
+     * @return 有限小数にならない場合は null
+     */
+    BigDecimal toBigDecimalExact() {
+        if (isLong() && denominator == 1) {
+            return BigDecimal.valueOf(numerator);
+        }
+        return Precision.exactQuotient(new BigDecimal(bigNumerator()), new BigDecimal(bigDenominator()));
+    }
+
+    /**
+     * 指定の精度に丸めた10進数の値
+     * @throws ArithmeticException 丸めが必要なのに UNNECESSARY が指定された場合
+     */
+    BigDecimal toBigDecimal(Precision precision) {
+        if (isLong()) {
+            return precision.divide(BigDecimal.valueOf(numerator), BigDecimal.valueOf(denominator));
+        }
+        return precision.divide(new BigDecimal(bigNumerator), new BigDecimal(bigDenominator));
+    }
+
+    private static boolean multiplyOverflows(long a, long b) {
+        return Math.multiplyHigh(a, b) != (a * b) >> 63;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        return bigNumerator() + "/" + bigDenominator();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.calculator.engine;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * 解析・評価の作業用スタック（スレッドごとに再利用する）
+ * 解析や評価のたびに演算子・オペランドのスタックを確保しないよう、プラットフォームスレッドごとに1組を保持して使い回す。
+ * 同じスレッドで使用中に別の解析・評価が始まる場合（ForkJoinPool の join 中に他のタスクを実行する場合など）と、
+ * 生成・破棄を繰り返す仮想スレッドでは、その都度新しいスタックを確保する。
+ * 大きい数値への参照を保持し続けないよう、解放時に使用した範囲を消去する
+ */
+final class ScratchStacks {
+
+    /** スレッドに保持する配列の最大長（これより深い式では一時的に確保し、保持しない） */
+    static final int MAX_RETAINED_LENGTH = 4096;
+
+    private static final int INITIAL_LENGTH = 16;
+
+    private static final ThreadLocal<ScratchStacks> CURRENT = ThreadLocal.withInitial(ScratchStacks::new);
+
+    private boolean inUse;
+
+    // 高速評価（仮数とスケール）
+    private long[] values = new long[INITIAL_LENGTH];
+    private int[] scales = new int[INITIAL_LENGTH];
+    private long[] slotValues = new long[INITIAL_LENGTH];
+    private int[] slotScales = new int[INITIAL_LENGTH];
+
+    // BigDecimal による評価（解放時に消去する範囲を記録する）
+    private BigDecimal[] operands = new BigDecimal[INITIAL_LENGTH];
+    private BigDecimal[] slots = new BigDecimal[INITIAL_LENGTH];
+    private int operandsUsed;
+    private int slotsUsed;
+
+    // 解析（演算子スタックと、出力を組み立てる命令列・定数プール）
+    char[] operators = new char[INITIAL_LENGTH];
+    int[] code = new int[INITIAL_LENGTH];
+    BigDecimal[] constants = new BigDecimal[INITIAL_LENGTH];
+
+    private ScratchStacks() {}
+
+    /**
+     * 現在のスレッドの作業用スタックを取得する（使用後は {@link #release()} を呼び出すこと）
+     */
+    static ScratchStacks acquire() {
+        if (Thread.currentThread().isVirtual()) {
+            return new ScratchStacks();
+        }
+        ScratchStacks stacks = CURRENT.get();
+        if (stacks.inUse) {
+            return new ScratchStacks();
+        }
+        stacks.inUse = true;
+        return stacks;
+    }
+
+    /**
+     * 作業用スタックを返却する
+     */
+    void release() {
+        Arrays.fill(operands, 0, operandsUsed, null);
+        Arrays.fill(slots, 0, slotsUsed, null);
+        operandsUsed = 0;
+        slotsUsed = 0;
+        inUse = false;
+    }
+
+    long[] values(int length) {
+        if (length <= values.length) {
+            return values;
+        }
+        long[] array = new long[length];
+        if (length <= MAX_RETAINED_LENGTH) {
+            values = array;
+        }
+        return array;
+    }
+
+    int[] scales(int length) {
+        if (length <= scales.length) {
+            return scales;
+        }
+        int[] array = new int[length];
+        if (length <= MAX_RETAINED_LENGTH) {
+            scales = array;
+        }
+        return array;
+    }
+
+    long[] slotValues(int length) {
+        if (length <= slotValues.length) {
+            return slotValues;
+        }
+        long[] array = new long[length];
+        if (length <= MAX_RETAINED_LENGTH) {
+            slotValues = array;
+        }
+        return array;
+    }
+
+    int[] slotScales(int length) {
+        if (length <= slotScales.length) {
+            return slotScales;
+        }
+        int[] array = new int[length];
+        if (length <= MAX_RETAINED_LENGTH) {
+            slotScales = array;
+        }
+        return array;
+    }
+
+    BigDecimal[] operands(int length) {
+        if (length > operands.length) {
+            if (length > MAX_RETAINED_LENGTH) {
+                return new BigDecimal[length];
+            }
+            operands = new BigDecimal[length];
+        }
+        operandsUsed = Math.max(operandsUsed, length);
+        return operands;
+    }
+
+    /**
+     * 変数の値をコピーし、後ろに一時変数の領域を確保した配列
+     */
+    BigDecimal[] slots(BigDecimal[] bindings, int temporaries) {
+        int length = bindings.length + temporaries;
+        BigDecimal[] array = slots;
+        if (length > slots.length) {
+            array = new BigDecimal[length];
+            if (length <= MAX_RETAINED_LENGTH) {
+                slots = array;
+            }
+        }
+        System.arraycopy(bindings, 0, array, 0, bindings.length);
+        if (array == slots) {
+            slotsUsed = Math.max(slotsUsed, length);
+        }
+        return array;
+    }
+
+    /**
+     * 解析で拡張した配列を次回のために保持する（最大長を超える場合は保持しない）
+     * 定数プールを拡張した場合は、拡張前の配列にも拡張するまでの定数が残っているため、置き換えるか保持し続けるかに
+     * よらず消去する
+     * @param constantCount 消去する定数プールの範囲
+     */
+    void keepParserBuffers(char[] operators, int[] code, BigDecimal[] constants, int constantCount) {
+        Arrays.fill(constants, 0, constantCount, null);
+        if (operators.length <= MAX_RETAINED_LENGTH) {
+            this.operators = operators;
+        }
+        if (code.length <= MAX_RETAINED_LENGTH) {
+            this.code = code;
+        }
+        if (constants != this.constants) {
+            Arrays.fill(this.constants, 0, Math.min(constantCount, this.constants.length), null);
+            if (constants.length <= MAX_RETAINED_LENGTH) {
+                this.constants = constants;
+            }
+        }
+    }
+}
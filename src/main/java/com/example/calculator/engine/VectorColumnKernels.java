@@ -0,0 +1,120 @@
+package com.example.calculator.engine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API（{@code jdk.incubator.vector}）による列単位の演算
+ * CPU が対応する最大のベクトル長（AVX2 では4要素、AVX-512 では8要素）ずつ計算し、端数はスカラーで計算する。
+ * 演算子は定数としてループに渡し、JIT コンパイラが SIMD 命令に置き換えられるようにする。
+ * exp・ln・三角関数などの結果は {@link Math} の関数と最下位ビットが異なる場合がある。
+ * このクラスはモジュールが読み込まれている場合にのみ {@link ColumnKernels#preferred()} から読み込まれる
+ */
+final class VectorColumnKernels extends ColumnKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    String name() {
+        return "vector" + SPECIES.length();
+    }
+
+    @Override
+    void binary(int operator, double[] a, int aOffset, double[] b, int bOffset, double[] out, int length) {
+        switch (operator) {
+            case CompiledExpression.OP_ADD -> loop(VectorOperators.ADD, a, aOffset, b, bOffset, out, length);
+            case CompiledExpression.OP_SUBTRACT -> loop(VectorOperators.SUB, a, aOffset, b, bOffset, out, length);
+            case CompiledExpression.OP_MULTIPLY -> loop(VectorOperators.MUL, a, aOffset, b, bOffset, out, length);
+            case CompiledExpression.OP_DIVIDE -> loop(VectorOperators.DIV, a, aOffset, b, bOffset, out, length);
+            case CompiledExpression.OP_POWER -> loop(VectorOperators.POW, a, aOffset, b, bOffset, out, length);
+            default -> super.binary(operator, a, aOffset, b, bOffset, out, length);
+        }
+    }
+
+    @Override
+    void binary(int operator, double[] a, int aOffset, double b, double[] out, int length) {
+        switch (operator) {
+            case CompiledExpression.OP_ADD -> loop(VectorOperators.ADD, a, aOffset, b, out, length);
+            case CompiledExpression.OP_SUBTRACT -> loop(VectorOperators.SUB, a, aOffset, b, out, length);
+            case CompiledExpression.OP_MULTIPLY -> loop(VectorOperators.MUL, a, aOffset, b, out, length);
+            case CompiledExpression.OP_DIVIDE -> loop(VectorOperators.DIV, a, aOffset, b, out, length);
+            case CompiledExpression.OP_POWER -> loop(VectorOperators.POW, a, aOffset, b, out, length);
+            default -> super.binary(operator, a, aOffset, b, out, length);
+        }
+    }
+
+    @Override
+    void binary(int operator, double a, double[] b, int bOffset, double[] out, int length) {
+        switch (operator) {
+            case CompiledExpression.OP_ADD -> loop(VectorOperators.ADD, a, b, bOffset, out, length);
+            case CompiledExpression.OP_SUBTRACT -> loop(VectorOperators.SUB, a, b, bOffset, out, length);
+            case CompiledExpression.OP_MULTIPLY -> loop(VectorOperators.MUL, a, b, bOffset, out, length);
+            case CompiledExpression.OP_DIVIDE -> loop(VectorOperators.DIV, a, b, bOffset, out, length);
+            case CompiledExpression.OP_POWER -> loop(VectorOperators.POW, a, b, bOffset, out, length);
+            default -> super.binary(operator, a, b, bOffset, out, length);
+        }
+    }
+
+    @Override
+    void unary(int function, double[] a, int aOffset, double[] out, int length) {
+        switch (function) {
+            case CompiledExpression.OP_SQRT -> loop(VectorOperators.SQRT, a, aOffset, out, length);
+            case CompiledExpression.OP_EXP -> loop(VectorOperators.EXP, a, aOffset, out, length);
+            case CompiledExpression.OP_LN -> loop(VectorOperators.LOG, a, aOffset, out, length);
+            case CompiledExpression.OP_SIN -> loop(VectorOperators.SIN, a, aOffset, out, length);
+            case CompiledExpression.OP_COS -> loop(VectorOperators.COS, a, aOffset, out, length);
+            case CompiledExpression.OP_TAN -> loop(VectorOperators.TAN, a, aOffset, out, length);
+            default -> super.unary(function, a, aOffset, out, length);
+        }
+    }
+
+    private static void loop(VectorOperators.Binary op, double[] a, int aOffset, double[] b, int bOffset,
+                             double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i)
+                    .lanewise(op, DoubleVector.fromArray(SPECIES, b, bOffset + i))
+                    .intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = DoubleVector.broadcast(SPECIES, a[aOffset + i]).lanewise(op, b[bOffset + i]).lane(0);
+        }
+    }
+
+    private static void loop(VectorOperators.Binary op, double[] a, int aOffset, double b, double[] out, int length) {
+        DoubleVector y = DoubleVector.broadcast(SPECIES, b);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).lanewise(op, y).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = DoubleVector.broadcast(SPECIES, a[aOffset + i]).lanewise(op, b).lane(0);
+        }
+    }
+
+    private static void loop(VectorOperators.Binary op, double a, double[] b, int bOffset, double[] out, int length) {
+        DoubleVector x = DoubleVector.broadcast(SPECIES, a);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            x.lanewise(op, DoubleVector.fromArray(SPECIES, b, bOffset + i)).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = x.lanewise(op, b[bOffset + i]).lane(0);
+        }
+    }
+
+    private static void loop(VectorOperators.Unary op, double[] a, int aOffset, double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).lanewise(op).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = DoubleVector.broadcast(SPECIES, a[aOffset + i]).lanewise(op).lane(0);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.calculator.history;
+
+import com.example.calculator.model.CalculationResult;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 固定長のリングバッファによる1利用者分の履歴
+ * CalculationResult をそのまま保持せず、式・結果（またはエラーメッセージ）・成否を
+ * 別々の配列に格納する。追加は O(1) で、容量を超えた場合は最も古いものを上書きする
+ */
+final class HistoryRing {
+
+    private final String[] expressions;
+    private final String[] texts;
+    private final BitSet failures;
+    private int head;
+    private int count;
+
+    HistoryRing(int depth) {
+        this.expressions = new String[depth];
+        this.texts = new String[depth];
+        this.failures = new BitSet(depth);
+    }
+
+    synchronized void add(CalculationResult result) {
+        expressions[head] = result.getExpression();
+        texts[head] = result.isSuccess() ? result.getResult() : result.getErrorMessage();
+        failures.set(head, !result.isSuccess());
+        head = (head + 1) % expressions.length;
+        if (count < expressions.length) {
+            count++;
+        }
+    }
+
+    /**
+     * 新しい順に取得する
+     */
+    synchronized List<CalculationResult> toList() {
+        List<CalculationResult> results = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            int index = Math.floorMod(head - i, expressions.length);
+            results.add(failures.get(index)
+                    ? new CalculationResult(expressions[index], texts[index], false)
+                    : new CalculationResult(expressions[index], texts[index]));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.calculator.history;
+
+import com.example.calculator.model.CalculationResult;
+
+import java.util.List;
+
+/**
+ * 利用者ごとの計算履歴の保存先
+ * 利用者ごとに最大 {@link #getDepth()} 件を保持し、それを超えた場合は古いものから上書きする。
+ * 実装は複数スレッドから同時に呼び出せること
+ */
+public interface HistoryStore {
+
+    /**
+     * 保存先の種類
+     */
+    enum Type {
+        /** ヒープ上に保持する */
+        MEMORY,
+        /** メモリマップドファイルに保持する（再起動後も残る） */
+        MAPPED_FILE
+    }
+
+    /**
+     * 計算結果を履歴に追加する
+     * @param user 利用者を識別するキー（セッションIDなど）
+     * @param result 計算結果
+     */
+    void append(String user, CalculationResult result);
+
+    /**
+     * 履歴を新しい順に取得する
+     * @param user 利用者を識別するキー
+     * @return 履歴（存在しない場合は空のリスト）
+     */
+    List<CalculationResult> recent(String user);
+
+    /**
+     * 履歴を削除する
+     * @param user 利用者を識別するキー
+     */
+    void clear(String user);
+
+    /**
+     * 利用者ごとに保持する最大件数
+     */
+    int getDepth();
+}
@@ -0,0 +1,57 @@
+package com.example.calculator.history;
+
+import com.example.calculator.model.CalculationResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * ヒープ上に保持する計算履歴
+ * 利用者ごとの {@link HistoryRing} を保持し、利用者数が上限を超えた場合や
+ * 一定期間アクセスがない場合は履歴ごと破棄する
+ */
+public class InMemoryHistoryStore implements HistoryStore {
+
+    private final Cache<String, HistoryRing> rings;
+    private final int depth;
+
+    /**
+     * @param depth 利用者ごとに保持する最大件数
+     * @param maximumUsers 履歴を保持する最大利用者数
+     * @param expireAfterAccess 最後のアクセスから履歴を破棄するまでの時間。null またはゼロの場合は期限なし
+     */
+    public InMemoryHistoryStore(int depth, long maximumUsers, Duration expireAfterAccess) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("履歴の件数は1以上を指定してください: " + depth);
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumUsers);
+        if (expireAfterAccess != null && !expireAfterAccess.isZero()) {
+            builder.expireAfterAccess(expireAfterAccess);
+        }
+        this.rings = builder.build();
+        this.depth = depth;
+    }
+
+    @Override
+    public void append(String user, CalculationResult result) {
+        rings.get(user, key -> new HistoryRing(depth)).add(result);
+    }
+
+    @Override
+    public List<CalculationResult> recent(String user) {
+        HistoryRing ring = rings.getIfPresent(user);
+        return ring != null ? ring.toList() : List.of();
+    }
+
+    @Override
+    public void clear(String user) {
+        rings.invalidate(user);
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+}
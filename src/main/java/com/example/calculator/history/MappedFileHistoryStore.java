@@ -0,0 +1,294 @@
+package com.example.calculator.history;
+
+import com.example.calculator.model.CalculationResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * メモリマップドファイルに保持する計算履歴
+ * ファイルは利用者ごとの固定長のスロットに分割し、各スロットを固定長エントリのリングバッファとして使用する。
+ * 履歴はヒープ外に置かれ、再起動後も残る。スロットが不足した場合は最も長くアクセスのない利用者の履歴を破棄する。
+ * エントリに収まらない長さの式や結果は UTF-8 の文字境界で切り詰める
+ *
+ * <pre>
+ * ファイルヘッダー : magic(4) version(4) depth(4) entrySize(4) slots(4)
+ * スロットヘッダー : keyLength(2) key(MAX_KEY_BYTES) lastAccess(8) head(4) count(4)
+ * エントリ         : flags(1) expressionLength(2) textLength(2) expression text
+ * </pre>
+ */
+public class MappedFileHistoryStore implements HistoryStore, Closeable {
+
+    static final int MAGIC = 0x43485354; // "CHST"
+    static final int VERSION = 1;
+    static final int MAX_KEY_BYTES = 110;
+
+    private static final int FILE_HEADER_SIZE = 64;
+    private static final int SLOT_HEADER_SIZE = 128;
+    private static final int LAST_ACCESS_OFFSET = 2 + MAX_KEY_BYTES;
+    private static final int HEAD_OFFSET = LAST_ACCESS_OFFSET + 8;
+    private static final int COUNT_OFFSET = HEAD_OFFSET + 4;
+    private static final int ENTRY_HEADER_SIZE = 5;
+    private static final int MIN_ENTRY_SIZE = 32;
+    private static final byte FAILURE = 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int depth;
+    private final int entrySize;
+    private final int slotSize;
+    private final Map<String, Integer> slotsByUser = new HashMap<>();
+    private final long[] lastAccess;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /**
+     * ファイルを開く（存在しない場合は作成する）
+     * 既存のファイルのレイアウトが指定と異なる場合は作り直す
+     * @param file 保存先のファイル
+     * @param depth 利用者ごとに保持する最大件数
+     * @param entrySize 1件あたりのバイト数
+     * @param maximumUsers 履歴を保持する最大利用者数（スロット数）
+     */
+    public MappedFileHistoryStore(Path file, int depth, int entrySize, int maximumUsers) throws IOException {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("履歴の件数は1以上を指定してください: " + depth);
+        }
+        if (entrySize < MIN_ENTRY_SIZE || entrySize > ENTRY_HEADER_SIZE + 2 * Short.MAX_VALUE) {
+            throw new IllegalArgumentException("1件あたりのバイト数が範囲外です: " + entrySize);
+        }
+        if (maximumUsers <= 0) {
+            throw new IllegalArgumentException("最大利用者数は1以上を指定してください: " + maximumUsers);
+        }
+        long size = FILE_HEADER_SIZE + (long) maximumUsers * (SLOT_HEADER_SIZE + (long) depth * entrySize);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("履歴ファイルのサイズが2GBを超えます: " + size);
+        }
+
+        this.depth = depth;
+        this.entrySize = entrySize;
+        this.slotSize = SLOT_HEADER_SIZE + depth * entrySize;
+        this.lastAccess = new long[maximumUsers];
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        boolean compatible = channel.size() == size;
+        if (!compatible) {
+            channel.truncate(0);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (compatible && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+                && buffer.getInt(8) == depth && buffer.getInt(12) == entrySize
+                && buffer.getInt(16) == maximumUsers) {
+            load(maximumUsers);
+        } else {
+            initialize(maximumUsers);
+        }
+    }
+
+    private void initialize(int slots) {
+        for (int i = 0; i < slots; i++) {
+            buffer.putShort(slotOffset(i), (short) 0);
+            freeSlots.add(i);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, depth);
+        buffer.putInt(12, entrySize);
+        buffer.putInt(16, slots);
+    }
+
+    private void load(int slots) {
+        for (int i = 0; i < slots; i++) {
+            int offset = slotOffset(i);
+            int keyLength = buffer.getShort(offset);
+            int head = buffer.getInt(offset + HEAD_OFFSET);
+            int count = buffer.getInt(offset + COUNT_OFFSET);
+            if (keyLength <= 0 || keyLength > MAX_KEY_BYTES
+                    || head < 0 || head >= depth || count < 0 || count > depth) {
+                buffer.putShort(offset, (short) 0);
+                freeSlots.add(i);
+                continue;
+            }
+            byte[] key = new byte[keyLength];
+            buffer.get(offset + 2, key);
+            slotsByUser.put(new String(key, StandardCharsets.UTF_8), i);
+            lastAccess[i] = buffer.getLong(offset + LAST_ACCESS_OFFSET);
+        }
+    }
+
+    @Override
+    public synchronized void append(String user, CalculationResult result) {
+        int slot = slotFor(key(user));
+        int offset = slotOffset(slot);
+        int head = buffer.getInt(offset + HEAD_OFFSET);
+        int count = buffer.getInt(offset + COUNT_OFFSET);
+
+        writeEntry(offset + SLOT_HEADER_SIZE + head * entrySize, result);
+        buffer.putInt(offset + HEAD_OFFSET, (head + 1) % depth);
+        buffer.putInt(offset + COUNT_OFFSET, Math.min(count + 1, depth));
+        touch(slot);
+    }
+
+    @Override
+    public synchronized List<CalculationResult> recent(String user) {
+        Integer slot = slotsByUser.get(key(user));
+        if (slot == null) {
+            return List.of();
+        }
+        int offset = slotOffset(slot);
+        int head = buffer.getInt(offset + HEAD_OFFSET);
+        int count = buffer.getInt(offset + COUNT_OFFSET);
+        List<CalculationResult> results = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            results.add(readEntry(offset + SLOT_HEADER_SIZE + Math.floorMod(head - i, depth) * entrySize));
+        }
+        touch(slot);
+        return results;
+    }
+
+    @Override
+    public synchronized void clear(String user) {
+        Integer slot = slotsByUser.remove(key(user));
+        if (slot != null) {
+            buffer.putShort(slotOffset(slot), (short) 0);
+            freeSlots.add(slot);
+        }
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 変更をファイルに書き出して閉じる
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * 利用者のスロットを取得する（存在しない場合は割り当てる）
+     */
+    private int slotFor(String key) {
+        Integer slot = slotsByUser.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int allocated = freeSlots.isEmpty() ? evictLeastRecentlyUsed() : freeSlots.poll();
+        int offset = slotOffset(allocated);
+        buffer.putShort(offset, (short) keyBytes.length);
+        buffer.put(offset + 2, keyBytes);
+        buffer.putInt(offset + HEAD_OFFSET, 0);
+        buffer.putInt(offset + COUNT_OFFSET, 0);
+        slotsByUser.put(key, allocated);
+        return allocated;
+    }
+
+    /**
+     * スロットヘッダーに収まるように利用者のキーを切り詰める
+     */
+    private static String key(String user) {
+        byte[] bytes = user.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= MAX_KEY_BYTES
+                ? user
+                : new String(truncate(bytes, MAX_KEY_BYTES), StandardCharsets.UTF_8);
+    }
+
+    private int evictLeastRecentlyUsed() {
+        String victim = null;
+        int victimSlot = -1;
+        for (Map.Entry<String, Integer> entry : slotsByUser.entrySet()) {
+            if (victimSlot < 0 || lastAccess[entry.getValue()] < lastAccess[victimSlot]) {
+                victim = entry.getKey();
+                victimSlot = entry.getValue();
+            }
+        }
+        slotsByUser.remove(victim);
+        return victimSlot;
+    }
+
+    private void touch(int slot) {
+        long now = System.currentTimeMillis();
+        lastAccess[slot] = now;
+        buffer.putLong(slotOffset(slot) + LAST_ACCESS_OFFSET, now);
+    }
+
+    private void writeEntry(int offset, CalculationResult result) {
+        String text = result.isSuccess() ? result.getResult() : result.getErrorMessage();
+        byte[] expressionBytes = bytes(result.getExpression());
+        byte[] textBytes = bytes(text);
+
+        // 収まらない場合は結果に容量の半分までを割り当て、残りを式に割り当てる
+        // （長さは short で記録するため、どちらも Short.MAX_VALUE バイトまで）
+        int capacity = entrySize - ENTRY_HEADER_SIZE;
+        if (expressionBytes.length + textBytes.length > capacity) {
+            textBytes = truncate(textBytes, Math.max(capacity / 2, capacity - expressionBytes.length));
+            expressionBytes = truncate(expressionBytes, capacity - textBytes.length);
+        }
+        textBytes = truncate(textBytes, Short.MAX_VALUE);
+        expressionBytes = truncate(expressionBytes, Short.MAX_VALUE);
+
+        buffer.put(offset, result.isSuccess() ? (byte) 0 : FAILURE);
+        buffer.putShort(offset + 1, (short) expressionBytes.length);
+        buffer.putShort(offset + 3, (short) textBytes.length);
+        buffer.put(offset + ENTRY_HEADER_SIZE, expressionBytes);
+        buffer.put(offset + ENTRY_HEADER_SIZE + expressionBytes.length, textBytes);
+    }
+
+    private CalculationResult readEntry(int offset) {
+        boolean failure = buffer.get(offset) == FAILURE;
+        byte[] expression = new byte[buffer.getShort(offset + 1)];
+        byte[] text = new byte[buffer.getShort(offset + 3)];
+        buffer.get(offset + ENTRY_HEADER_SIZE, expression);
+        buffer.get(offset + ENTRY_HEADER_SIZE + expression.length, text);
+        String expressionString = new String(expression, StandardCharsets.UTF_8);
+        String textString = new String(text, StandardCharsets.UTF_8);
+        return failure
+                ? new CalculationResult(expressionString, textString, false)
+                : new CalculationResult(expressionString, textString);
+    }
+
+    private int slotOffset(int slot) {
+        return FILE_HEADER_SIZE + slot * slotSize;
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    /**
+     * UTF-8 の文字の途中で切れないように切り詰める
+     */
+    static byte[] truncate(byte[] bytes, int maxLength) {
+        if (bytes.length <= maxLength) {
+            return bytes;
+        }
+        int length = maxLength;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        byte[] truncated = new byte[length];
+        System.arraycopy(bytes, 0, truncated, 0, length);
+        return truncated;
+    }
+}
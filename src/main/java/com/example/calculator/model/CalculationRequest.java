@@ -1,17 +1,37 @@
 package com.example.calculator.model;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 
+import java.math.RoundingMode;
+
 /**
  * 計算リクエストのモデルクラス
  */
 public class CalculationRequest {
     
     @NotBlank(message = "式を入力してください")
-    @Pattern(regexp = "^[0-9+\\-*/.\\s()]+$", message = "有効な数式を入力してください")
+    @Pattern(regexp = "^[0-9a-z+\\-*/^.\\s()]+$", message = "有効な数式を入力してください")
     private String expression;
     
+    /** 除算結果の小数点以下の桁数（省略時は10） */
+    @Min(value = 0, message = "scale は0以上を指定してください")
+    @Max(value = 10000, message = "scale は10000以下を指定してください")
+    private Integer scale;
+    
+    /** 除算時の丸めモード（省略時は HALF_UP） */
+    private RoundingMode roundingMode;
+    
+    /** 除算結果の有効桁数（指定した場合は scale の代わりに MathContext で丸める） */
+    @Min(value = 1, message = "precision は1以上を指定してください")
+    @Max(value = 10000, message = "precision は10000以下を指定してください")
+    private Integer precision;
+    
+    /** 除算を分数のまま正確に計算し、結果を最後に1回だけ丸めるかどうか（省略時は false） */
+    private Boolean exact;
+    
     public CalculationRequest() {}
     
     public CalculationRequest(String expression) {
@@ -26,10 +46,46 @@ public class CalculationRequest {
         this.expression = expression;
     }
     
+    public Integer getScale() {
+        return scale;
+    }
+    
+    public void setScale(Integer scale) {
+        this.scale = scale;
+    }
+    
+    public RoundingMode getRoundingMode() {
+        return roundingMode;
+    }
+    
+    public void setRoundingMode(RoundingMode roundingMode) {
+        this.roundingMode = roundingMode;
+    }
+    
+    public Integer getPrecision() {
+        return precision;
+    }
+    
+    public void setPrecision(Integer precision) {
+        this.precision = precision;
+    }
+    
+    public Boolean getExact() {
+        return exact;
+    }
+    
+    public void setExact(Boolean exact) {
+        this.exact = exact;
+    }
+    
     @Override
     public String toString() {
         return "CalculationRequest{" +
                 "expression='" + expression + '\'' +
+                ", scale=" + scale +
+                ", roundingMode=" + roundingMode +
+                ", precision=" + precision +
+                ", exact=" + exact +
                 '}';
     }
 }
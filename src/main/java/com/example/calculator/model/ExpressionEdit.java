@@ -0,0 +1,53 @@
+package com.example.calculator.model;
+
+/**
+ * 入力中の式に対する編集のモデルクラス
+ * position から deleteCount 文字を削除し、text を挿入する
+ */
+public class ExpressionEdit {
+    
+    private int position;
+    private int deleteCount;
+    private String text = "";
+    
+    public ExpressionEdit() {}
+    
+    public ExpressionEdit(int position, int deleteCount, String text) {
+        this.position = position;
+        this.deleteCount = deleteCount;
+        this.text = text;
+    }
+    
+    public int getPosition() {
+        return position;
+    }
+    
+    public void setPosition(int position) {
+        this.position = position;
+    }
+    
+    public int getDeleteCount() {
+        return deleteCount;
+    }
+    
+    public void setDeleteCount(int deleteCount) {
+        this.deleteCount = deleteCount;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public void setText(String text) {
+        this.text = text;
+    }
+    
+    @Override
+    public String toString() {
+        return "ExpressionEdit{" +
+                "position=" + position +
+                ", deleteCount=" + deleteCount +
+                ", text='" + text + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.calculator.model;
+
+import java.util.List;
+
+/**
+ * 登録済みの変数付き数式のモデルクラス
+ */
+public class FormulaInfo {
+    
+    private String id;
+    private String expression;
+    private List<String> variables;
+    
+    public FormulaInfo() {}
+    
+    public FormulaInfo(String id, String expression, List<String> variables) {
+        this.id = id;
+        this.expression = expression;
+        this.variables = variables;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getExpression() {
+        return expression;
+    }
+    
+    public void setExpression(String expression) {
+        this.expression = expression;
+    }
+    
+    public List<String> getVariables() {
+        return variables;
+    }
+    
+    public void setVariables(List<String> variables) {
+        this.variables = variables;
+    }
+    
+    @Override
+    public String toString() {
+        return "FormulaInfo{" +
+                "id='" + id + '\'' +
+                ", expression='" + expression + '\'' +
+                ", variables=" + variables +
+                '}';
+    }
+}
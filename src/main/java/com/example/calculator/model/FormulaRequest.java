@@ -0,0 +1,35 @@
+package com.example.calculator.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * 変数付き数式の登録リクエストのモデルクラス
+ */
+public class FormulaRequest {
+    
+    @NotBlank(message = "式を入力してください")
+    @Pattern(regexp = "^[0-9A-Za-z_+\\-*/^.\\s()]+$", message = "有効な数式を入力してください")
+    private String expression;
+    
+    public FormulaRequest() {}
+    
+    public FormulaRequest(String expression) {
+        this.expression = expression;
+    }
+    
+    public String getExpression() {
+        return expression;
+    }
+    
+    public void setExpression(String expression) {
+        this.expression = expression;
+    }
+    
+    @Override
+    public String toString() {
+        return "FormulaRequest{" +
+                "expression='" + expression + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,487 @@
+package com.example.calculator.service;
+
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 計算リクエストの受付制御
+ * 計算する前に式のコストを見積もり、クライアントごとのトークンバケット（一定の速度で補充されるコストの予算）と
+ * 全体の同時計算数の上限によって、1つのクライアントや極端に重い式がワーカースレッドを占有しないようにする。
+ * 同時計算数が上限に達している場合は一定時間まで待機し（待機できる数にも上限がある）、
+ * 予算が足りない場合や待機できない場合は {@link AdmissionRejectedException} をスローする。
+ *
+ * コストは通常の短い式1件を1とする目安で、式の長さ・括弧の深さ・数値の最大桁数・除算の数と精度から見積もる。
+ * バケットの容量を超えるコストの式は容量分のコストとして扱う（予算が満たされていれば受け付ける）。
+ */
+public class AdmissionControl implements MeterBinder {
+
+    /**
+     * 受付を拒否した理由
+     */
+    public enum Reason {
+        /** クライアントの予算が足りない */
+        RATE_LIMIT,
+        /** 同時計算数の上限に達しており、待機できない */
+        CONCURRENCY;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * 受け付けた計算の枠（計算が終わったら close する）
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final int DEFAULT_DIGITS = 10;
+    /** 値を調べる数値のリテラルの最大の長さ（これより長いリテラルは値が分からないものとして見積もる） */
+    private static final int MAX_LITERAL_LENGTH = 64;
+    private static final double LOG10_E = 0.4342944819032518;
+    /** 超越関数と非整数乗のコスト1あたりの桁数の2乗 */
+    private static final long TRANSCENDENTAL_DIGITS_SQUARED_PER_COST = 50_000;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final Duration CONCURRENCY_RETRY_AFTER = Duration.ofSeconds(1);
+    private static final Permit NO_PERMIT = () -> {};
+    private static final AdmissionControl DISABLED = new AdmissionControl();
+
+    private final Cache<String, TokenBucket> buckets;
+    private final long capacity;
+    private final long rate;
+    private final Semaphore slots;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long queueTimeoutNanos;
+    private final LongSupplier nanoTime;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong concurrencyLimited = new AtomicLong();
+
+    private AdmissionControl() {
+        this.buckets = null;
+        this.capacity = 0;
+        this.rate = 0;
+        this.slots = null;
+        this.maxConcurrent = 0;
+        this.maxQueue = 0;
+        this.queueTimeoutNanos = 0;
+        this.nanoTime = System::nanoTime;
+    }
+
+    /**
+     * @param rate クライアントごとに1秒あたりに補充するコスト
+     * @param burst クライアントごとに蓄積できるコストの上限（バケットの容量）
+     * @param maxConcurrent 全体の同時計算数の上限
+     * @param maxQueue 同時計算数の上限に達している場合に待機できるリクエスト数
+     * @param queueTimeout 待機する時間の上限
+     * @param maximumClients 予算を保持するクライアント数の上限（超えた場合は使用頻度の低いものから破棄）
+     * @param expireAfterAccess 予算が使用されない場合に破棄されるまでの時間
+     */
+    public AdmissionControl(long rate, long burst, int maxConcurrent, int maxQueue, Duration queueTimeout,
+                            long maximumClients, Duration expireAfterAccess) {
+        this(rate, burst, maxConcurrent, maxQueue, queueTimeout, maximumClients, expireAfterAccess, System::nanoTime);
+    }
+
+    AdmissionControl(long rate, long burst, int maxConcurrent, int maxQueue, Duration queueTimeout,
+                     long maximumClients, Duration expireAfterAccess, LongSupplier nanoTime) {
+        if (rate < 1 || burst < 1 || maxConcurrent < 1 || maxQueue < 0) {
+            throw new IllegalArgumentException("受付制御の設定が不正です: rate=" + rate + ", burst=" + burst
+                    + ", maxConcurrent=" + maxConcurrent + ", maxQueue=" + maxQueue);
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumClients);
+        if (expireAfterAccess != null && !expireAfterAccess.isZero()) {
+            builder.expireAfterAccess(expireAfterAccess);
+        }
+        this.buckets = builder.build();
+        this.capacity = burst;
+        this.rate = rate;
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * 何も制限しない受付制御
+     */
+    public static AdmissionControl disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return buckets != null;
+    }
+
+    /**
+     * 計算を受け付ける（同時計算数の上限に達している場合は待機する）
+     * @param client クライアントの識別子
+     * @param cost 計算のコスト（{@link #estimate(CalculationRequest)}）
+     * @return 計算の枠（計算が終わったら close する）
+     * @throws AdmissionRejectedException 予算が足りない場合、または待機できない場合
+     */
+    public Permit admit(String client, long cost) {
+        if (!isEnabled()) {
+            return NO_PERMIT;
+        }
+        long charged = charge(cost);
+        TokenBucket bucket = bucket(client);
+        long wait = bucket.tryConsume(charged, nanoTime.getAsLong());
+        if (wait > 0) {
+            rateLimited.incrementAndGet();
+            throw new AdmissionRejectedException(Reason.RATE_LIMIT,
+                    "リクエストが多すぎます。しばらくしてから再度お試しください", Duration.ofNanos(wait));
+        }
+        try {
+            acquireSlot();
+        } catch (AdmissionRejectedException e) {
+            bucket.refund(charged);
+            throw e;
+        }
+        admitted.incrementAndGet();
+        return slots::release;
+    }
+
+    /**
+     * 予算が補充されるまで待ってからコストを消費する（同時計算数の枠は取得しない）
+     * ストリーミング計算のように、受け付けた後に1件ずつ計算する場合に計算の速度を抑えるために使用する
+     * @throws AdmissionRejectedException 待機中に割り込まれた場合
+     */
+    public void pace(String client, long cost) {
+        if (!isEnabled()) {
+            return;
+        }
+        long charged = charge(cost);
+        TokenBucket bucket = bucket(client);
+        long wait;
+        while ((wait = bucket.tryConsume(charged, nanoTime.getAsLong())) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new AdmissionRejectedException(Reason.RATE_LIMIT, "計算の待機中に中断されました",
+                        Duration.ofNanos(wait));
+            }
+        }
+    }
+
+    /**
+     * 同時計算数の上限により待機しているリクエスト数
+     */
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    /**
+     * 計算中のリクエスト数
+     */
+    public int getActive() {
+        return isEnabled() ? maxConcurrent - slots.availablePermits() : 0;
+    }
+
+    private long charge(long cost) {
+        return Math.max(1, Math.min(cost, capacity));
+    }
+
+    private TokenBucket bucket(String client) {
+        return buckets.get(client != null ? client : "", key -> new TokenBucket(capacity, nanoTime.getAsLong()));
+    }
+
+    private void acquireSlot() {
+        if (slots.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            throw rejectConcurrency();
+        }
+        try {
+            if (!slots.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw rejectConcurrency();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw rejectConcurrency();
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private AdmissionRejectedException rejectConcurrency() {
+        concurrencyLimited.incrementAndGet();
+        return new AdmissionRejectedException(Reason.CONCURRENCY,
+                "サーバーが混み合っています。しばらくしてから再度お試しください", CONCURRENCY_RETRY_AFTER);
+    }
+
+    /**
+     * 計算リクエストのコストを見積もる（精度の指定が不正な場合は既定の精度として見積もる）
+     */
+    public static long estimate(CalculationRequest request) {
+        Precision precision = null;
+        try {
+            precision = CalculatorService.precisionOf(request);
+        } catch (IllegalArgumentException e) {
+            // 精度の指定が不正な場合は計算せずにエラーを返すため、既定の精度で見積もる
+        }
+        return estimate(request.getExpression(), precision);
+    }
+
+    /**
+     * 指定の精度で計算する式のコストを見積もる（精度が null の場合は既定の精度として見積もる）
+     */
+    public static long estimate(String expression, Precision precision) {
+        if (precision == null) {
+            return estimate(expression, DEFAULT_DIGITS);
+        }
+        return estimate(expression,
+                precision.isFixedScale() ? precision.scale() : precision.mathContext().getPrecision());
+    }
+
+    /**
+     * 計算リクエストのコストの合計を見積もる
+     */
+    public static long estimate(List<CalculationRequest> requests) {
+        long total = 0;
+        for (CalculationRequest request : requests) {
+            total += request != null ? estimate(request) : 1;
+        }
+        return total;
+    }
+
+    /**
+     * 式のコストを見積もる
+     * 1 + 長さ/1024 + 括弧の深さ/64 + 除算の数×除算結果の桁数/1000 + 平方根と整数乗の数×除算結果の桁数/100
+     * + Σ(除算結果の桁数 + 結果の整数部の桁数)^2/5万 + 数値の最大桁数の2乗/100万
+     * （長さ・深さは解析、除算は桁数に比例する長除算、平方根はニュートン法・整数乗は正確な乗算、
+     * 大きい数値は乗算のコストの目安）
+     * Σ は超越関数（exp・ln・三角関数）と非整数乗ごとの和で、級数の項数と各項の乗除算の両方が桁数に比例して増えるため
+     * 桁数の2乗で見積もる（src/jmh/baseline/functions-result.json の1000桁で約20〜40msを20、1万桁で約1〜2秒を2000とする）。
+     * exp と非整数乗は結果の整数部の桁数も含めて近似値を計算するため、その桁数を加える。
+     * 引数が数値のリテラルの場合はその値から見積もり（{@link Precision#MAX_RESULT_EXPONENT} を超える場合は計算せずに
+     * エラーになるため加えない）、それ以外の場合は上限の {@link Precision#MAX_RESULT_EXPONENT} 桁とする
+     * @param digits 除算結果の桁数（小数点以下の桁数または有効桁数）
+     */
+    static long estimate(String expression, int digits) {
+        if (expression == null) {
+            return 1;
+        }
+        int length = expression.length();
+        int depth = 0;
+        int maxDepth = 0;
+        long divisions = 0;
+        long exactFunctions = 0;
+        long transcendentalCost = 0;
+        boolean letter = false;
+        int wordStart = 0;
+        int wordEnd = 0;
+        long run = 0;
+        long maxRun = 0;
+        for (int i = 0; i < length; i++) {
+            char c = expression.charAt(i);
+            if (c >= '0' && c <= '9') {
+                maxRun = Math.max(maxRun, ++run);
+                continue;
+            }
+            if (c != '.') {
+                run = 0;
+            }
+            if (c == '(') {
+                maxDepth = Math.max(maxDepth, ++depth);
+                if (letter) {
+                    if (isWord(expression, wordStart, wordEnd, "sqrt")) {
+                        exactFunctions++;
+                    } else if (isWord(expression, wordStart, wordEnd, "exp")) {
+                        double argument = literalAfter(expression, i + 1, true);
+                        transcendentalCost += square(digits + resultDigits(argument * LOG10_E));
+                    } else {
+                        transcendentalCost += square(digits);
+                    }
+                }
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '/') {
+                divisions++;
+            } else if (c == '^') {
+                double base = literalBefore(expression, i);
+                double exponent = literalAfter(expression, i + 1, false);
+                if (exponent == Math.rint(exponent)) {
+                    // 整数乗は正確に計算する（結果の桁数は MathFunctions で制限している）
+                    exactFunctions++;
+                } else {
+                    transcendentalCost += square(digits
+                            + resultDigits(base >= 0 ? exponent * Math.log10(base) : Double.NaN));
+                }
+            }
+            if (c > ' ') {
+                boolean wasLetter = letter;
+                letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+                if (letter) {
+                    wordStart = wasLetter ? wordStart : i;
+                    wordEnd = i + 1;
+                }
+            }
+        }
+        return 1 + length / 1024 + maxDepth / 64 + divisions * digits / 1000 + exactFunctions * digits / 100
+                + transcendentalCost / TRANSCENDENTAL_DIGITS_SQUARED_PER_COST + maxRun * maxRun / 1_000_000;
+    }
+
+    private static boolean isWord(String expression, int start, int end, String word) {
+        return end - start == word.length() && expression.startsWith(word, start);
+    }
+
+    private static long square(long digits) {
+        return digits * digits;
+    }
+
+    /**
+     * exp・非整数乗の結果の整数部の桁数の見積もり
+     * @param log10 結果の常用対数（オペランドが数値のリテラルでない場合は NaN）
+     */
+    private static long resultDigits(double log10) {
+        if (Double.isNaN(log10)) {
+            return Precision.MAX_RESULT_EXPONENT;
+        }
+        return log10 > Precision.MAX_RESULT_EXPONENT ? 0 : (long) Math.max(0, Math.ceil(log10));
+    }
+
+    /**
+     * from 以降の空白を除いた最初のトークンが数値のリテラル（符号を含む）の場合はその値
+     * @param argument 関数の引数（リテラルの後に閉じ括弧が続く場合に限る）の場合は true、
+     *                 累乗の指数（{@code 2 ^ 3 ^ 0.5} の 3 のように、後に累乗や括弧が続く場合を除く）の場合は false
+     * @return リテラルの値。リテラルでない場合は NaN
+     */
+    private static double literalAfter(String expression, int from, boolean argument) {
+        int length = expression.length();
+        int start = skipSpaces(expression, from);
+        int end = start < length && (expression.charAt(start) == '-' || expression.charAt(start) == '+')
+                ? start + 1 : start;
+        while (end < length && isNumberChar(expression.charAt(end))) {
+            end++;
+        }
+        int next = skipSpaces(expression, end);
+        char c = next < length ? expression.charAt(next) : ' ';
+        boolean ends = argument
+                ? c == ')'
+                : c != '^' && c != '(' && !isNumberChar(c) && !Character.isLetter(c);
+        return ends ? parse(expression, start, end) : Double.NaN;
+    }
+
+    /**
+     * to の直前の空白を除いた最後のトークンが数値のリテラルの場合はその値
+     * @return リテラルの値。リテラルでない場合は NaN
+     */
+    private static double literalBefore(String expression, int to) {
+        int end = to;
+        while (end > 0 && expression.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && isNumberChar(expression.charAt(start - 1))) {
+            start--;
+        }
+        if (start > 0 && Character.isLetter(expression.charAt(start - 1))) {
+            return Double.NaN;
+        }
+        return parse(expression, start, end);
+    }
+
+    private static double parse(String expression, int start, int end) {
+        if (end - start > MAX_LITERAL_LENGTH) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(expression.substring(start, end));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static int skipSpaces(String expression, int index) {
+        while (index < expression.length() && expression.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '.';
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!isEnabled()) {
+            return;
+        }
+        Gauge.builder("calculator.admission.queue", waiting, AtomicInteger::get)
+                .description("同時計算数の上限により待機しているリクエスト数")
+                .register(registry);
+        Gauge.builder("calculator.admission.active", this, AdmissionControl::getActive)
+                .description("計算中のリクエスト数")
+                .register(registry);
+        Gauge.builder("calculator.admission.clients", buckets, Cache::estimatedSize)
+                .description("予算を保持しているクライアント数")
+                .register(registry);
+        FunctionCounter.builder("calculator.admission.admitted", admitted, AtomicLong::get)
+                .description("受け付けたリクエスト数")
+                .register(registry);
+        FunctionCounter.builder("calculator.admission.rejected", rateLimited, AtomicLong::get)
+                .description("受付を拒否したリクエスト数")
+                .tag("reason", Reason.RATE_LIMIT.tag())
+                .register(registry);
+        FunctionCounter.builder("calculator.admission.rejected", concurrencyLimited, AtomicLong::get)
+                .description("受付を拒否したリクエスト数")
+                .tag("reason", Reason.CONCURRENCY.tag())
+                .register(registry);
+    }
+
+    /**
+     * クライアントごとの予算（経過時間に応じて容量まで補充する）
+     */
+    private final class TokenBucket {
+
+        private double tokens;
+        private long updated;
+
+        TokenBucket(long tokens, long now) {
+            this.tokens = tokens;
+            this.updated = now;
+        }
+
+        /**
+         * コストを消費する
+         * @return 消費した場合は0、予算が足りない場合は補充されるまでのナノ秒数
+         */
+        synchronized long tryConsume(long cost, long now) {
+            tokens = Math.min(capacity, tokens + (double) (now - updated) * rate / NANOS_PER_SECOND);
+            updated = now;
+            if (tokens >= cost) {
+                tokens -= cost;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((cost - tokens) * NANOS_PER_SECOND / rate));
+        }
+
+        synchronized void refund(long cost) {
+            tokens = Math.min(capacity, tokens + cost);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.calculator.service;
+
+import java.time.Duration;
+
+/**
+ * 計算リクエストを受け付けられない場合の例外（{@link AdmissionControl}）
+ * 過負荷時に頻繁に発生し得るため、スタックトレースは取得しない
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final AdmissionControl.Reason reason;
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(AdmissionControl.Reason reason, String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public AdmissionControl.Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * 再試行するまでに待つべき時間の目安
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.calculator.service;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 複数の数式をまとめて計算するサービスクラス
+ * 専用の ForkJoinPool で並列に計算し、結果は入力と同じ順序で返す
+ */
+@Service
+public class BatchCalculatorService {
+
+    /** 1タスクで処理する最小件数 */
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final CalculatorService calculatorService;
+    private final ForkJoinPool pool;
+    private final int maxSize;
+
+    @Autowired
+    public BatchCalculatorService(CalculatorService calculatorService, CalculatorProperties properties) {
+        this(calculatorService, properties.getBatch().getParallelism(), properties.getBatch().getMaxSize());
+    }
+
+    public BatchCalculatorService(CalculatorService calculatorService, int parallelism, int maxSize) {
+        this.calculatorService = calculatorService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 数式をまとめて計算する
+     * 個々の式の失敗は対応する結果のエラーとして返し、バッチ全体は失敗させない
+     * @param expressions 計算式のリスト
+     * @return 入力と同じ順序の計算結果
+     */
+    public List<CalculationResult> calculateAll(List<String> expressions) {
+        CalculationRequest[] input = new CalculationRequest[expressions.size()];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = new CalculationRequest(expressions.get(i));
+        }
+        return calculate(input);
+    }
+
+    /**
+     * 計算リクエストをまとめて計算する（リクエストごとに除算結果の精度を指定できる）
+     * @param requests 計算リクエストのリスト（null の要素は空の式として扱う）
+     * @return 入力と同じ順序の計算結果
+     */
+    public List<CalculationResult> calculateRequests(List<CalculationRequest> requests) {
+        CalculationRequest[] input = new CalculationRequest[requests.size()];
+        for (int i = 0; i < input.length; i++) {
+            CalculationRequest request = requests.get(i);
+            input[i] = request != null ? request : new CalculationRequest();
+        }
+        return calculate(input);
+    }
+
+    private List<CalculationResult> calculate(CalculationRequest[] input) {
+        if (input.length > maxSize) {
+            throw new IllegalArgumentException("一度に計算できる式は" + maxSize + "件までです");
+        }
+
+        CalculationResult[] results = new CalculationResult[input.length];
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, input.length / (pool.getParallelism() * 8));
+        pool.invoke(new BatchTask(input, results, 0, input.length, chunkSize));
+        return Arrays.asList(results);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private CalculationResult calculateOne(CalculationRequest request) {
+        try {
+            return calculatorService.calculate(request);
+        } catch (RuntimeException e) {
+            return new CalculationResult(request.getExpression(), CalculatorService.UNEXPECTED_ERROR_MESSAGE, false);
+        }
+    }
+
+    /**
+     * 範囲を分割しながら計算するタスク
+     */
+    private class BatchTask extends RecursiveAction {
+
+        private final CalculationRequest[] input;
+        private final CalculationResult[] results;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        BatchTask(CalculationRequest[] input, CalculationResult[] results, int from, int to, int chunkSize) {
+            this.input = input;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = calculateOne(input[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchTask(input, results, from, middle, chunkSize),
+                    new BatchTask(input, results, middle, to, chunkSize));
+        }
+    }
+}
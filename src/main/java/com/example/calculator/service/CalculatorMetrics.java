@@ -0,0 +1,181 @@
+package com.example.calculator.service;
+
+import com.example.calculator.model.CalculationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 計算処理のメトリクス
+ * 各段階（解析・評価・フォーマット）の処理時間、結果の種類ごとの件数、
+ * 式の長さと数値の最大桁数を記録する。
+ * 無効な場合は時刻の取得も含めて何も行わない。
+ * パーセンタイル用のヒストグラムは management.metrics.distribution.percentiles-histogram.calculator.stage で有効化できる。
+ */
+public class CalculatorMetrics {
+
+    private static final CalculatorMetrics DISABLED = new CalculatorMetrics();
+
+    private final boolean enabled;
+
+    private final Timer parseTimer;
+    private final Timer evaluateTimer;
+    private final Timer formatTimer;
+
+    private final Counter successCounter;
+    private final Counter emptyExpressionCounter;
+    private final Counter invalidExpressionCounter;
+    private final Counter divisionByZeroCounter;
+    private final Counter arithmeticErrorCounter;
+    private final Counter unexpectedErrorCounter;
+
+    private final DistributionSummary expressionLength;
+    private final DistributionSummary operandDigits;
+    private final Counter eliminatedNodes;
+
+    private CalculatorMetrics() {
+        this.enabled = false;
+        this.parseTimer = null;
+        this.evaluateTimer = null;
+        this.formatTimer = null;
+        this.successCounter = null;
+        this.emptyExpressionCounter = null;
+        this.invalidExpressionCounter = null;
+        this.divisionByZeroCounter = null;
+        this.arithmeticErrorCounter = null;
+        this.unexpectedErrorCounter = null;
+        this.expressionLength = null;
+        this.operandDigits = null;
+        this.eliminatedNodes = null;
+    }
+
+    public CalculatorMetrics(MeterRegistry registry) {
+        this.enabled = true;
+        this.parseTimer = stageTimer(registry, "parse");
+        this.evaluateTimer = stageTimer(registry, "evaluate");
+        this.formatTimer = stageTimer(registry, "format");
+        this.successCounter = outcomeCounter(registry, "success");
+        this.emptyExpressionCounter = outcomeCounter(registry, "empty_expression");
+        this.invalidExpressionCounter = outcomeCounter(registry, "invalid_expression");
+        this.divisionByZeroCounter = outcomeCounter(registry, "division_by_zero");
+        this.arithmeticErrorCounter = outcomeCounter(registry, "arithmetic_error");
+        this.unexpectedErrorCounter = outcomeCounter(registry, "unexpected_error");
+        this.expressionLength = DistributionSummary.builder("calculator.expression.length")
+                .description("計算した式の文字数")
+                .baseUnit("characters")
+                .register(registry);
+        this.operandDigits = DistributionSummary.builder("calculator.expression.operand.digits")
+                .description("計算した式に含まれる数値の最大桁数")
+                .baseUnit("digits")
+                .register(registry);
+        this.eliminatedNodes = Counter.builder("calculator.optimizer.eliminated")
+                .description("式の最適化（定数畳み込み・共通部分式の除去）で評価を省略したノードの数")
+                .baseUnit("nodes")
+                .register(registry);
+    }
+
+    /**
+     * 無効化されたメトリクスを返す
+     */
+    public static CalculatorMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 計測を開始する
+     * @return 開始時刻（無効な場合は0）
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 解析の処理時間を記録する
+     * @return 記録した時点の時刻（次の段階の開始時刻）
+     */
+    long recordParse(long start) {
+        return record(parseTimer, start);
+    }
+
+    long recordEvaluate(long start) {
+        return record(evaluateTimer, start);
+    }
+
+    long recordFormat(long start) {
+        return record(formatTimer, start);
+    }
+
+    /**
+     * 解析した式の大きさを記録する
+     */
+    void recordExpression(int length, int maxOperandDigits) {
+        if (enabled) {
+            expressionLength.record(length);
+            operandDigits.record(maxOperandDigits);
+        }
+    }
+
+    /**
+     * 式の最適化で省略したノードの数を記録する
+     */
+    void recordOptimization(int eliminated) {
+        if (enabled && eliminated > 0) {
+            eliminatedNodes.increment(eliminated);
+        }
+    }
+
+    /**
+     * 計算結果の種類を記録する
+     */
+    void recordOutcome(CalculationResult result) {
+        if (!enabled) {
+            return;
+        }
+        if (result.isSuccess()) {
+            successCounter.increment();
+            return;
+        }
+        String message = result.getErrorMessage();
+        if (CalculatorService.EMPTY_EXPRESSION_MESSAGE.equals(message)) {
+            emptyExpressionCounter.increment();
+        } else if (CalculatorService.INVALID_EXPRESSION_MESSAGE.equals(message)) {
+            invalidExpressionCounter.increment();
+        } else if (CalculatorService.DIVISION_BY_ZERO_MESSAGE.equals(message)) {
+            divisionByZeroCounter.increment();
+        } else if (CalculatorService.UNEXPECTED_ERROR_MESSAGE.equals(message)) {
+            unexpectedErrorCounter.increment();
+        } else {
+            arithmeticErrorCounter.increment();
+        }
+    }
+
+    private long record(Timer timer, long start) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        timer.record(now - start, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("calculator.stage")
+                .description("計算処理の各段階の処理時間")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("calculator.calculations")
+                .description("計算結果の種類ごとの件数")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -1,15 +1,23 @@
 package com.example.calculator.service;
 
+import com.example.calculator.audit.AuditLog;
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.engine.CompiledExpression;
+import com.example.calculator.engine.ExpressionEvaluator;
+import com.example.calculator.engine.ExpressionOptimizer;
+import com.example.calculator.engine.ExpressionParser;
+import com.example.calculator.engine.IncrementalExpression;
+import com.example.calculator.engine.InvalidExpressionException;
+import com.example.calculator.engine.LargeNumbers;
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationRequest;
 import com.example.calculator.model.CalculationResult;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 電卓サービスクラス
@@ -20,6 +28,45 @@ public class CalculatorService {
     
     private static final int SCALE = 10; // 小数点以下の桁数
     private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
+    private static final Precision DEFAULT_PRECISION = Precision.ofScale(SCALE, ROUNDING_MODE);
+    
+    static final String EMPTY_EXPRESSION_MESSAGE = "式が入力されていません";
+    static final String INVALID_EXPRESSION_MESSAGE = "無効な式です";
+    static final String ARITHMETIC_ERROR_PREFIX = "計算エラー: ";
+    static final String DIVISION_BY_ZERO_MESSAGE = ARITHMETIC_ERROR_PREFIX + "ゼロ除算はできません";
+    static final String UNEXPECTED_ERROR_MESSAGE = "予期しないエラーが発生しました";
+    
+    private final ExpressionCache expressionCache;
+    private final CalculatorMetrics metrics;
+    private final AuditLog auditLog;
+    private final ExpressionEvaluator evaluator;
+    private final boolean optimize;
+    
+    public CalculatorService() {
+        this(ExpressionCache.disabled());
+    }
+    
+    public CalculatorService(ExpressionCache expressionCache) {
+        this(expressionCache, new CalculatorProperties(), CalculatorMetrics.disabled());
+    }
+    
+    public CalculatorService(ExpressionCache expressionCache, CalculatorProperties properties,
+                             CalculatorMetrics metrics) {
+        this(expressionCache, properties, metrics, AuditLog.disabled());
+    }
+    
+    @Autowired
+    public CalculatorService(ExpressionCache expressionCache, CalculatorProperties properties,
+                             CalculatorMetrics metrics, AuditLog auditLog) {
+        this.expressionCache = expressionCache;
+        this.metrics = metrics;
+        this.auditLog = auditLog;
+        CalculatorProperties.Engine engine = properties.getEngine();
+        this.evaluator = new ExpressionEvaluator(engine.isFastPath(),
+                engine.isBytecodeEnabled() ? engine.getBytecodeThreshold() : 0,
+                engine.getParallelThreshold(), ForkJoinPool.commonPool());
+        this.optimize = engine.isOptimize();
+    }
     
     /**
      * 数式を計算する
@@ -27,277 +74,218 @@ public class CalculatorService {
      * @return 計算結果
      */
     public CalculationResult calculate(String expression) {
-        try {
-            if (expression == null || expression.trim().isEmpty()) {
-                return new CalculationResult(expression, "式が入力されていません", false);
-            }
-            
-            // 式を正規化
-            String normalizedExpression = normalizeExpression(expression.trim());
-            
-            // 式の妥当性をチェック
-            if (!isValidExpression(normalizedExpression)) {
-                return new CalculationResult(expression, "無効な式です", false);
-            }
-            
-            // 計算実行
-            BigDecimal result = evaluateExpression(normalizedExpression);
-            
-            // 結果を文字列に変換
-            String resultString = formatResult(result);
-            
-            return new CalculationResult(expression, resultString);
-            
-        } catch (ArithmeticException e) {
-            return new CalculationResult(expression, "計算エラー: " + e.getMessage(), false);
-        } catch (Exception e) {
-            return new CalculationResult(expression, "予期しないエラーが発生しました", false);
-        }
+        return calculate(expression, DEFAULT_PRECISION);
     }
     
     /**
-     * 式を正規化する
+     * 除算結果の精度を指定して数式を計算する
+     * @param expression 計算式
+     * @param precision 除算結果の精度
+     * @return 計算結果
      */
-    private String normalizeExpression(String expression) {
-        // 空白を削除
-        expression = expression.replaceAll("\\s+", "");
-        
-        // 連続する演算子を処理
-        expression = expression.replaceAll("\\+\\+", "+");
-        expression = expression.replaceAll("--", "+");
-        expression = expression.replaceAll("\\+-", "-");
-        expression = expression.replaceAll("-\\+", "-");
-        
-        return expression;
+    public CalculationResult calculate(String expression, Precision precision) {
+        CalculationResult result = calculateInternal(expression, precision);
+        metrics.recordOutcome(result);
+        auditLog.record(result, precision);
+        return result;
     }
     
     /**
-     * 式の妥当性をチェック
+     * 計算リクエストに従って数式を計算する
+     * 精度の指定が不正な場合はエラーの計算結果を返す
+     * @param request 計算リクエスト（scale・roundingMode・precision は省略可能）
+     * @return 計算結果
      */
-    private boolean isValidExpression(String expression) {
-        if (expression.isEmpty()) {
-            return false;
+    public CalculationResult calculate(CalculationRequest request) {
+        Precision precision;
+        try {
+            precision = precisionOf(request);
+        } catch (IllegalArgumentException e) {
+            CalculationResult result = new CalculationResult(request.getExpression(), e.getMessage(), false);
+            metrics.recordOutcome(result);
+            auditLog.record(result);
+            return result;
         }
-        
-        // 基本的な文字チェック
-        if (!expression.matches("^[0-9+\\-*/.\\s()]+$")) {
-            return false;
+        return calculate(request.getExpression(), precision);
+    }
+    
+    /**
+     * 計算リクエストの指定から除算結果の精度を決める
+     * precision を指定した場合は有効桁数、それ以外は小数点以下の桁数で丸める。
+     * exact を指定した場合は除算を丸めずに計算し、結果を最後に1回だけ丸める
+     * @throws IllegalArgumentException scale と precision を同時に指定した場合、または範囲外の場合
+     */
+    static Precision precisionOf(CalculationRequest request) {
+        Precision precision = roundingOf(request);
+        return Boolean.TRUE.equals(request.getExact()) ? precision.withDeferredRounding() : precision;
+    }
+    
+    private static Precision roundingOf(CalculationRequest request) {
+        Integer scale = request.getScale();
+        Integer digits = request.getPrecision();
+        RoundingMode roundingMode = request.getRoundingMode();
+        if (scale == null && digits == null && roundingMode == null) {
+            return DEFAULT_PRECISION;
         }
-        
-        // 括弧の対応をチェック
-        int parenthesesCount = 0;
-        for (char c : expression.toCharArray()) {
-            if (c == '(') {
-                parenthesesCount++;
-            } else if (c == ')') {
-                parenthesesCount--;
-                if (parenthesesCount < 0) {
-                    return false;
-                }
-            }
+        if (scale != null && digits != null) {
+            throw new IllegalArgumentException("scale と precision は同時に指定できません");
         }
-        
-        if (parenthesesCount != 0) {
-            return false;
+        RoundingMode mode = roundingMode != null ? roundingMode : ROUNDING_MODE;
+        return digits != null
+                ? Precision.ofDigits(digits, mode)
+                : Precision.ofScale(scale != null ? scale : SCALE, mode);
+    }
+    
+    private CalculationResult calculateInternal(String expression, Precision precision) {
+        if (expression == null || ExpressionParser.isBlank(expression)) {
+            return new CalculationResult(expression, EMPTY_EXPRESSION_MESSAGE, false);
         }
         
-        // 演算子の位置をチェック
-        if (expression.matches(".*[+\\-*/]$") || expression.matches("^[+*/].*")) {
-            return false;
+        if (!expressionCache.isEnabled()) {
+            return evaluate(expression, null, precision);
         }
         
-        // 連続する演算子をチェック（ただし、負の数は許可）
-        if (expression.matches(".*[+*/]{2,}.*") || expression.matches(".*[+\\-]{2,}.*")) {
-            return false;
+        // 正規化した式をキーにキャッシュを参照（解析済みの式は精度によらず共有する）
+        String key = ExpressionParser.normalize(expression);
+        if (expressionCache.getMode() == ExpressionCache.Mode.COMPILED) {
+            return evaluate(expression, key, precision);
         }
         
-        return true;
-    }
-    
-    /**
-     * 数式を評価する（逆ポーランド記法を使用）
-     */
-    private BigDecimal evaluateExpression(String expression) {
-        // 中置記法を後置記法に変換
-        String postfix = infixToPostfix(expression);
-        
-        // 後置記法を評価
-        return evaluatePostfix(postfix);
+        if (!precision.equals(DEFAULT_PRECISION)) {
+            key = key + '\u0000' + precision;
+        }
+        CalculationResult cached = expressionCache.getResult(key, expression);
+        if (cached != null) {
+            return cached;
+        }
+        CalculationResult result = evaluate(expression, null, precision);
+        if (result.isSuccess() || !UNEXPECTED_ERROR_MESSAGE.equals(result.getErrorMessage())) {
+            expressionCache.putResult(key, result);
+        }
+        return result;
     }
     
     /**
-     * 中置記法を後置記法に変換
+     * 変数を含む数式を解析し、繰り返し評価できる形式にする
+     * @param expression 計算式（例: "(a + b) * c / d"）
+     * @return 解析済みの数式
+     * @throws InvalidExpressionException 式が空または無効な場合
      */
-    private String infixToPostfix(String infix) {
-        StringBuilder result = new StringBuilder();
-        Stack<Character> stack = new Stack<>();
-        Map<Character, Integer> precedence = new HashMap<>();
-        precedence.put('+', 1);
-        precedence.put('-', 1);
-        precedence.put('*', 2);
-        precedence.put('/', 2);
-        
-        // 負の数を正しく処理するため、式を前処理
-        infix = preprocessNegativeNumbers(infix);
-        
-        for (int i = 0; i < infix.length(); i++) {
-            char c = infix.charAt(i);
-            
-            if (Character.isDigit(c) || c == '.') {
-                // 数値を処理
-                StringBuilder number = new StringBuilder();
-                while (i < infix.length() && (Character.isDigit(infix.charAt(i)) || infix.charAt(i) == '.')) {
-                    number.append(infix.charAt(i));
-                    i++;
-                }
-                i--; // ループでi++されるので1つ戻す
-                result.append(number).append(" ");
-            } else if (c == '(') {
-                stack.push(c);
-            } else if (c == ')') {
-                while (!stack.isEmpty() && stack.peek() != '(') {
-                    result.append(stack.pop()).append(" ");
-                }
-                stack.pop(); // '('を削除
-            } else if (precedence.containsKey(c)) {
-                while (!stack.isEmpty() && stack.peek() != '(' && 
-                       precedence.get(stack.peek()) >= precedence.get(c)) {
-                    result.append(stack.pop()).append(" ");
-                }
-                stack.push(c);
-            }
-        }
-        
-        while (!stack.isEmpty()) {
-            result.append(stack.pop()).append(" ");
+    public Formula compile(String expression) {
+        if (expression == null || ExpressionParser.isBlank(expression)) {
+            throw new InvalidExpressionException(EMPTY_EXPRESSION_MESSAGE);
         }
-        
-        return result.toString().trim();
+        return new Formula(expression, optimize(ExpressionParser.parseWithVariables(expression), true),
+                DEFAULT_PRECISION, evaluator);
     }
     
     /**
-     * 負の数を前処理する
-     * 例: "-9+3" -> "(0-9)+3"
+     * 編集に応じて再評価する数式を作成する（評価方法はこのサービスの設定に従う）
+     * @param precision 除算結果の精度
      */
-    private String preprocessNegativeNumbers(String expression) {
-        StringBuilder result = new StringBuilder();
-        
-        for (int i = 0; i < expression.length(); i++) {
-            char c = expression.charAt(i);
-            
-            if (c == '-') {
-                // 負の数の開始かどうかを判定
-                boolean isNegativeNumber = false;
-                
-                if (i == 0) {
-                    // 式の最初のマイナスは負の数
-                    isNegativeNumber = true;
-                } else {
-                    char prev = expression.charAt(i - 1);
-                    if (prev == '(' || prev == '+' || prev == '-' || prev == '*' || prev == '/') {
-                        // 演算子の後のマイナスは負の数
-                        isNegativeNumber = true;
-                    }
-                }
-                
-                if (isNegativeNumber) {
-                    // 負の数を "(0-数値)" の形式に変換
-                    result.append("(0-");
-                    i++; // 次の文字（数値）をスキップ
-                    while (i < expression.length() && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
-                        result.append(expression.charAt(i));
-                        i++;
-                    }
-                    result.append(")");
-                    i--; // ループでi++されるので1つ戻す
-                } else {
-                    // 通常の減算演算子
-                    result.append(c);
-                }
-            } else {
-                result.append(c);
-            }
-        }
-        
-        return result.toString();
+    public IncrementalExpression incremental(Precision precision) {
+        return new IncrementalExpression(evaluator, precision);
     }
     
     /**
-     * 後置記法を評価
+     * 編集中の数式を評価する
+     * 入力途中の式のプレビューのため、メトリクスと監査ログには記録しない
+     * @param expression 編集中の数式
+     * @param echo 計算結果に含める式（省略する場合は null）
+     * @return 計算結果（エラーメッセージは {@link #calculate(String)} と同じ）
      */
-    private BigDecimal evaluatePostfix(String postfix) {
-        Stack<BigDecimal> stack = new Stack<>();
-        String[] tokens = postfix.split("\\s+");
-        
-        for (String token : tokens) {
-            if (isNumber(token)) {
-                stack.push(new BigDecimal(token));
-            } else if (isOperator(token)) {
-                if (stack.size() < 2) {
-                    throw new ArithmeticException("演算子に対して十分な数値がありません");
-                }
-                
-                BigDecimal b = stack.pop();
-                BigDecimal a = stack.pop();
-                BigDecimal result = performOperation(a, b, token);
-                stack.push(result);
-            }
+    public CalculationResult evaluate(IncrementalExpression expression, String echo) {
+        if (expression.isBlank()) {
+            return new CalculationResult(echo, EMPTY_EXPRESSION_MESSAGE, false);
         }
-        
-        if (stack.size() != 1) {
-            throw new ArithmeticException("計算結果が不正です");
+        try {
+            return new CalculationResult(echo, formatResult(expression.evaluate()));
+        } catch (InvalidExpressionException e) {
+            return new CalculationResult(echo, INVALID_EXPRESSION_MESSAGE, false);
+        } catch (ArithmeticException e) {
+            return new CalculationResult(echo, ARITHMETIC_ERROR_PREFIX + e.getMessage(), false);
+        } catch (Exception e) {
+            return new CalculationResult(echo, UNEXPECTED_ERROR_MESSAGE, false);
         }
-        
-        return stack.pop();
     }
     
     /**
-     * 数値かどうかを判定
+     * 数式を解析・評価する
+     * @param expression 計算式
+     * @param compiledKey 解析済みの式をキャッシュする場合のキー（キャッシュしない場合は null）
+     * @param precision 除算結果の精度
      */
-    private boolean isNumber(String token) {
+    private CalculationResult evaluate(String expression, String compiledKey, Precision precision) {
         try {
-            new BigDecimal(token);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+            long start = metrics.start();
+            
+            // 式を解析（正規化・妥当性チェック・後置記法への変換を1パスで実行）
+            CompiledExpression compiled = compile(expression, compiledKey);
+            start = metrics.recordParse(start);
+            metrics.recordExpression(expression.length(), compiled.maxOperandDigits());
+            
+            // 計算実行（高速評価やバイトコードへのコンパイルは設定に従う）
+            BigDecimal result = evaluator.evaluate(compiled, precision);
+            start = metrics.recordEvaluate(start);
+            
+            // 結果を文字列に変換
+            String resultString = formatResult(result);
+            metrics.recordFormat(start);
+            
+            return new CalculationResult(expression, resultString);
+            
+        } catch (InvalidExpressionException e) {
+            return new CalculationResult(expression, INVALID_EXPRESSION_MESSAGE, false);
+        } catch (ArithmeticException e) {
+            return new CalculationResult(expression, ARITHMETIC_ERROR_PREFIX + e.getMessage(), false);
+        } catch (Exception e) {
+            return new CalculationResult(expression, UNEXPECTED_ERROR_MESSAGE, false);
         }
     }
     
     /**
-     * 演算子かどうかを判定
+     * 式を解析する（キーが指定された場合は解析済みの式をキャッシュする）
      */
-    private boolean isOperator(String token) {
-        return token.equals("+") || token.equals("-") || token.equals("*") || token.equals("/");
+    private CompiledExpression compile(String expression, String key) {
+        if (key == null) {
+            return optimize(ExpressionParser.parse(expression), false);
+        }
+        CompiledExpression compiled = expressionCache.getCompiled(key);
+        if (compiled == null) {
+            compiled = optimize(ExpressionParser.parse(expression), true);
+            expressionCache.putCompiled(key, compiled);
+        }
+        return compiled;
     }
     
     /**
-     * 演算を実行
+     * 設定に従って解析済みの式を最適化する
+     * 最適化のコストは高速評価での1回の評価より大きいため、1回だけ評価する式は
+     * 1回の演算のコストが大きい（桁数の大きい数値を含む）場合に限って最適化する
+     * @param reused 解析済みの式を繰り返し評価する場合（キャッシュ・登録した数式）は true
      */
-    private BigDecimal performOperation(BigDecimal a, BigDecimal b, String operator) {
-        return switch (operator) {
-            case "+" -> a.add(b);
-            case "-" -> a.subtract(b);
-            case "*" -> a.multiply(b);
-            case "/" -> {
-                if (b.compareTo(BigDecimal.ZERO) == 0) {
-                    throw new ArithmeticException("ゼロ除算はできません");
-                }
-                yield a.divide(b, SCALE, ROUNDING_MODE);
-            }
-            default -> throw new ArithmeticException("未対応の演算子: " + operator);
-        };
+    private CompiledExpression optimize(CompiledExpression compiled, boolean reused) {
+        if (!optimize || !(reused || compiled.largeOperands())) {
+            return compiled;
+        }
+        CompiledExpression optimized = ExpressionOptimizer.optimize(compiled);
+        metrics.recordOptimization(optimized.eliminatedNodes());
+        return optimized;
     }
     
     /**
      * 結果をフォーマット
      */
-    private String formatResult(BigDecimal result) {
-        // 小数点以下が0の場合は整数として表示
-        if (result.scale() <= 0 || result.stripTrailingZeros().scale() <= 0) {
+    static String formatResult(BigDecimal result) {
+        if (result.scale() <= 0) {
             return result.setScale(0, ROUNDING_MODE).toString();
         }
         
-        // 小数点以下を適切な桁数に調整
-        return result.stripTrailingZeros().toPlainString();
+        // 小数点以下が0の場合は整数として表示し、それ以外は末尾の0を取り除いて表示
+        BigDecimal stripped = LargeNumbers.stripTrailingZeros(result);
+        if (stripped.scale() <= 0) {
+            return stripped.setScale(0).toString();
+        }
+        return stripped.toPlainString();
     }
 }
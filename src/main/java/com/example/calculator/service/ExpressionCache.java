@@ -0,0 +1,122 @@
+package com.example.calculator.service;
+
+import com.example.calculator.engine.CompiledExpression;
+import com.example.calculator.model.CalculationResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+
+/**
+ * 正規化した式をキーとする計算キャッシュ
+ * 上限サイズ（または重み）を超えた場合は W-TinyLFU により追い出される。
+ * ヒット・ミス・追い出しの統計は Micrometer の cache.* メトリクスとして公開する。
+ */
+public class ExpressionCache implements MeterBinder {
+
+    /**
+     * キャッシュする値の種類
+     */
+    public enum Mode {
+        /** 計算結果（結果文字列またはエラーメッセージ）をキャッシュする */
+        RESULT,
+        /** 解析済みの式をキャッシュし、評価は毎回行う */
+        COMPILED
+    }
+
+    static final String METRIC_NAME = "calculator.expressions";
+
+    private final Cache<String, Object> cache;
+    private final Mode mode;
+
+    private ExpressionCache(Cache<String, Object> cache, Mode mode) {
+        this.cache = cache;
+        this.mode = mode;
+    }
+
+    /**
+     * 無効化されたキャッシュを作成する
+     */
+    public static ExpressionCache disabled() {
+        return new ExpressionCache(null, Mode.RESULT);
+    }
+
+    /**
+     * キャッシュを作成する
+     * @param maximumSize 最大エントリ数
+     * @param maximumWeight 最大重み（式の文字数の合計）。0以下の場合はエントリ数で制限する
+     * @param expireAfterWrite 登録後の有効期間。null またはゼロの場合は期限なし
+     * @param mode キャッシュする値の種類
+     */
+    public static ExpressionCache create(long maximumSize, long maximumWeight,
+                                         Duration expireAfterWrite, Mode mode) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (maximumWeight > 0) {
+            builder.maximumWeight(maximumWeight)
+                    .weigher((String key, Object value) -> Math.max(1, key.length()));
+        } else {
+            builder.maximumSize(maximumSize);
+        }
+        if (expireAfterWrite != null && !expireAfterWrite.isZero()) {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+        return new ExpressionCache(builder.build(), mode);
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * キャッシュ済みの計算結果を取得する
+     * @param key 正規化した式
+     * @param expression 結果に設定する元の式
+     * @return 計算結果。キャッシュされていない場合は null
+     */
+    public CalculationResult getResult(String key, String expression) {
+        if (cache.getIfPresent(key) instanceof CachedResult cached) {
+            return cached.success()
+                    ? new CalculationResult(expression, cached.value())
+                    : new CalculationResult(expression, cached.value(), false);
+        }
+        return null;
+    }
+
+    public void putResult(String key, CalculationResult result) {
+        cache.put(key, result.isSuccess()
+                ? new CachedResult(result.getResult(), true)
+                : new CachedResult(result.getErrorMessage(), false));
+    }
+
+    /**
+     * キャッシュ済みの解析済みの式を取得する
+     * @param key 正規化した式
+     * @return 解析済みの式。キャッシュされていない場合は null
+     */
+    public CompiledExpression getCompiled(String key) {
+        return cache.getIfPresent(key) instanceof CompiledExpression compiled ? compiled : null;
+    }
+
+    public void putCompiled(String key, CompiledExpression compiled) {
+        cache.put(key, compiled);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, METRIC_NAME);
+        }
+    }
+
+    /**
+     * 元の式に依存しない計算結果（結果文字列またはエラーメッセージ）
+     */
+    private record CachedResult(String value, boolean success) {}
+}
@@ -0,0 +1,141 @@
+package com.example.calculator.service;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.engine.IncrementalExpression;
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.model.ExpressionEdit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 入力中の式をセッションごとに保持し、編集に応じて再評価するサービスクラス
+ * キー入力のたびに式全体を送って解析・評価し直す代わりに、挿入・削除の編集だけを受け取り、
+ * 影響を受ける項だけを解析・評価し直す（{@link IncrementalExpression}）。
+ * 一定期間使用されない場合や上限を超えた場合は破棄する
+ */
+@Service
+public class ExpressionEditorService {
+
+    private final CalculatorService calculatorService;
+    private final Cache<String, IncrementalExpression> editors;
+    private final int maxEdits;
+
+    @Autowired
+    public ExpressionEditorService(CalculatorService calculatorService, CalculatorProperties properties) {
+        this(calculatorService, properties.getEditor().getMaximumSize(),
+                properties.getEditor().getExpireAfterAccess(), properties.getBatch().getMaxSize());
+    }
+
+    public ExpressionEditorService(CalculatorService calculatorService, long maximumSize,
+                                   Duration expireAfterAccess, int maxEdits) {
+        this.calculatorService = calculatorService;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumSize);
+        if (expireAfterAccess != null && !expireAfterAccess.isZero()) {
+            builder.expireAfterAccess(expireAfterAccess);
+        }
+        this.editors = builder.build();
+        this.maxEdits = maxEdits;
+    }
+
+    /**
+     * 編集する式を設定する（既存の式は破棄する）
+     * @param sessionId セッションID
+     * @param request 式と除算結果の精度（scale・roundingMode・precision は省略可能）
+     * @return 式全体の計算結果
+     * @throws IllegalArgumentException 精度の指定が不正な場合
+     */
+    public CalculationResult open(String sessionId, CalculationRequest request) {
+        IncrementalExpression expression = calculatorService.incremental(CalculatorService.precisionOf(request));
+        String text = request.getExpression() != null ? request.getExpression() : "";
+        expression.setText(text);
+        editors.put(sessionId, expression);
+        return calculatorService.evaluate(expression, text);
+    }
+
+    /**
+     * 編集中の式を評価する
+     * @return 式を含む計算結果。編集中の式がない場合は null
+     */
+    public CalculationResult get(String sessionId) {
+        IncrementalExpression expression = editors.getIfPresent(sessionId);
+        if (expression == null) {
+            return null;
+        }
+        synchronized (expression) {
+            return calculatorService.evaluate(expression, expression.text());
+        }
+    }
+
+    /**
+     * 編集を順に適用して再評価する
+     * 式はクライアントが保持しているため、計算結果には含めない
+     * @param sessionId セッションID
+     * @param edits 適用する編集（各編集の位置は直前の編集を適用した後の式に対する位置）
+     * @return 計算結果。編集中の式がない場合は null
+     * @throws IllegalArgumentException 編集の数が上限を超える場合、または編集位置が式の範囲外の場合
+     *                                  （範囲外の編集より前の編集は適用済みになる）
+     */
+    public CalculationResult edit(String sessionId, List<ExpressionEdit> edits) {
+        if (edits.size() > maxEdits) {
+            throw new IllegalArgumentException("一度に適用できる編集は" + maxEdits + "件までです");
+        }
+        IncrementalExpression expression = editors.getIfPresent(sessionId);
+        if (expression == null) {
+            return null;
+        }
+        synchronized (expression) {
+            for (ExpressionEdit edit : edits) {
+                expression.edit(edit.getPosition(), edit.getDeleteCount(),
+                        edit.getText() != null ? edit.getText() : "");
+            }
+            return calculatorService.evaluate(expression, null);
+        }
+    }
+
+    /**
+     * 編集を適用した後の式を評価するコストを見積もる（編集は適用しない）
+     * 範囲外の編集は {@link #edit} でエラーになるため、その直前までの編集を適用した式で見積もる
+     * @param sessionId セッションID
+     * @param edits 適用する編集
+     * @return コスト（{@link AdmissionControl#estimate(String, Precision)}）。
+     *         編集中の式がない場合は 0
+     */
+    public long estimate(String sessionId, List<ExpressionEdit> edits) {
+        IncrementalExpression expression = editors.getIfPresent(sessionId);
+        if (expression == null) {
+            return 0;
+        }
+        StringBuilder text;
+        synchronized (expression) {
+            text = new StringBuilder(expression.text());
+        }
+        for (ExpressionEdit edit : edits) {
+            int position = edit.getPosition();
+            int deleteCount = edit.getDeleteCount();
+            if (position < 0 || deleteCount < 0 || position > text.length()
+                    || deleteCount > text.length() - position) {
+                break;
+            }
+            text.replace(position, position + deleteCount, edit.getText() != null ? edit.getText() : "");
+        }
+        return AdmissionControl.estimate(text.toString(), expression.precision());
+    }
+
+    public int getMaxEdits() {
+        return maxEdits;
+    }
+
+    /**
+     * 編集中の式を破棄する
+     */
+    public void close(String sessionId) {
+        editors.invalidate(sessionId);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.calculator.service;
+
+import com.example.calculator.engine.ColumnarEvaluator;
+import com.example.calculator.engine.CompiledExpression;
+import com.example.calculator.engine.ExpressionEvaluator;
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationResult;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 解析済みの変数付き数式
+ * 一度解析した式を、変数の値だけを変えて繰り返し評価する。評価時に構文解析は行わない。
+ * 不変オブジェクトのため、複数スレッドから同時に評価できる
+ */
+public final class Formula {
+
+    private final String expression;
+    private final CompiledExpression compiled;
+    private final Precision precision;
+    private final ExpressionEvaluator evaluator;
+    private volatile ColumnarEvaluator columnar; // 列単位の評価を初めて行う時点で作成する
+
+    Formula(String expression, CompiledExpression compiled, Precision precision, ExpressionEvaluator evaluator) {
+        this.expression = expression;
+        this.compiled = compiled;
+        this.precision = precision;
+        this.evaluator = evaluator;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * 除算結果の精度
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * 式に含まれる変数名（出現順）
+     */
+    public List<String> getVariables() {
+        return compiled.variables();
+    }
+
+    /**
+     * 変数名と値の対応を指定して評価する
+     * @param bindings 変数名と値の対応
+     * @return 計算結果
+     */
+    public CalculationResult evaluate(Map<String, ? extends Number> bindings) {
+        List<String> variables = compiled.variables();
+        BigDecimal[] values = new BigDecimal[variables.size()];
+        for (int i = 0; i < values.length; i++) {
+            Number value = bindings.get(variables.get(i));
+            if (value == null) {
+                return new CalculationResult(expression, "変数の値が指定されていません: " + variables.get(i), false);
+            }
+            try {
+                values[i] = toBigDecimal(value);
+            } catch (NumberFormatException e) {
+                return new CalculationResult(expression, "変数の値が不正です: " + variables.get(i), false);
+            }
+        }
+        return evaluate(values);
+    }
+
+    /**
+     * 変数の値を {@link #getVariables()} と同じ順序で指定して評価する
+     * @param values 変数の値
+     * @return 計算結果
+     */
+    public CalculationResult evaluate(double[] values) {
+        BigDecimal[] bindings = new BigDecimal[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (!Double.isFinite(values[i])) {
+                return new CalculationResult(expression, "変数の値が不正です: " + values[i], false);
+            }
+            bindings[i] = BigDecimal.valueOf(values[i]);
+        }
+        return evaluate(bindings);
+    }
+
+    /**
+     * 変数の値を {@link #getVariables()} と同じ順序で指定して評価する
+     * @param values 変数の値
+     * @return 計算結果
+     */
+    public CalculationResult evaluate(BigDecimal... values) {
+        try {
+            BigDecimal result = evaluator.evaluate(compiled, values, precision);
+            return new CalculationResult(expression, CalculatorService.formatResult(result));
+        } catch (IllegalArgumentException e) {
+            return new CalculationResult(expression, e.getMessage(), false);
+        } catch (ArithmeticException e) {
+            return new CalculationResult(expression, CalculatorService.ARITHMETIC_ERROR_PREFIX + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * 変数ごとの列を {@link #getVariables()} と同じ順序で指定し、行ごとの結果を double で計算する
+     * 多数の行に同じ式を適用する集計処理向けで、計算の方法は {@link ColumnarEvaluator} を参照
+     * @param columns 変数の列（長さは output と同じであること）
+     * @param output 結果を書き込む配列
+     * @throws IllegalArgumentException 列の数または長さが一致しない場合
+     */
+    public void evaluateColumns(double[][] columns, double[] output) {
+        columnar().evaluate(columns, output);
+    }
+
+    /**
+     * 列単位の評価
+     */
+    public ColumnarEvaluator columnar() {
+        ColumnarEvaluator evaluator = columnar;
+        if (evaluator == null) {
+            evaluator = new ColumnarEvaluator(compiled);
+            columnar = evaluator;
+        }
+        return evaluator;
+    }
+
+    private static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (value instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(value.longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(value.doubleValue());
+        }
+        return new BigDecimal(value.toString());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.calculator.service;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.model.FormulaInfo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 変数付き数式の登録と評価を行うサービスクラス
+ * 登録した式は解析済みの状態で保持し、一定期間使用されない場合や上限を超えた場合は破棄する
+ */
+@Service
+public class FormulaRegistry {
+
+    private final CalculatorService calculatorService;
+    private final Cache<String, Formula> formulas;
+    private final int maxBindings;
+
+    @Autowired
+    public FormulaRegistry(CalculatorService calculatorService, CalculatorProperties properties) {
+        this(calculatorService, properties.getFormula().getMaximumSize(),
+                properties.getFormula().getExpireAfterAccess(), properties.getBatch().getMaxSize());
+    }
+
+    public FormulaRegistry(CalculatorService calculatorService, long maximumSize,
+                           Duration expireAfterAccess, int maxBindings) {
+        this.calculatorService = calculatorService;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumSize);
+        if (expireAfterAccess != null && !expireAfterAccess.isZero()) {
+            builder.expireAfterAccess(expireAfterAccess);
+        }
+        this.formulas = builder.build();
+        this.maxBindings = maxBindings;
+    }
+
+    /**
+     * 数式を登録する
+     * @param expression 変数を含む計算式
+     * @return 登録した数式の情報
+     * @throws com.example.calculator.engine.InvalidExpressionException 式が空または無効な場合
+     */
+    public FormulaInfo register(String expression) {
+        Formula formula = calculatorService.compile(expression);
+        String id = UUID.randomUUID().toString();
+        formulas.put(id, formula);
+        return new FormulaInfo(id, formula.getExpression(), formula.getVariables());
+    }
+
+    /**
+     * 登録済みの数式を取得する
+     * @return 数式。登録されていない場合は null
+     */
+    public Formula get(String id) {
+        return formulas.getIfPresent(id);
+    }
+
+    public int getMaxBindings() {
+        return maxBindings;
+    }
+
+    /**
+     * 登録済みの数式を変数の値の組ごとに評価する
+     * @param formula 数式
+     * @param bindings 変数名と値の対応のリスト
+     * @return 入力と同じ順序の計算結果
+     */
+    public List<CalculationResult> evaluate(Formula formula, List<Map<String, BigDecimal>> bindings) {
+        if (bindings.size() > maxBindings) {
+            throw new IllegalArgumentException("一度に評価できる値の組は" + maxBindings + "件までです");
+        }
+        List<CalculationResult> results = new ArrayList<>(bindings.size());
+        for (Map<String, BigDecimal> binding : bindings) {
+            results.add(binding != null
+                    ? formula.evaluate(binding)
+                    : new CalculationResult(formula.getExpression(), "変数の値が指定されていません", false));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,469 @@
+package com.example.calculator.wire;
+
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.RoundingMode;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 計算APIのバイナリ形式（長さ付きフレーム）のエンコード・デコード
+ * JSON に比べてフィールド名やクォートを送らず、数値は可変長整数で表すため、
+ * サービス間の大量の計算リクエストをエンコード・デコードする CPU 時間とデータ量を抑えられる。
+ * 計算結果には式を含めない（単一・一括ともにリクエストと同じ順序で返すため、呼び出し側で対応付ける）。
+ *
+ * <pre>
+ * フレーム       : length(4) type(1) 本体 （length は type 以降のバイト数、ビッグエンディアン）
+ * 計算リクエスト : flags(1) [scale(zigzag)] [precision(zigzag)] [roundingMode(1)] expression(文字列)
+ * 一括リクエスト : count(varint) 計算リクエスト...
+ * 計算結果       : status(1) 文字列（成功時は結果、失敗時はエラーメッセージ）
+ * 一括結果       : count(varint) 計算結果...
+ * エラー         : message(文字列)
+ * 文字列         : byteLength(varint) UTF-8
+ * </pre>
+ * flags はビット0が scale、ビット1が precision、ビット2が roundingMode（{@link RoundingMode} の序数）の有無を表し、
+ * ビット3は exact（除算を最後に1回だけ丸める）の指定を表す（値は持たない）。
+ * varint は下位7ビットずつ先に書き、最上位ビットで後続の有無を表す符号なし整数。
+ * zigzag は符号付き整数を絶対値の小さい順に符号なし整数に対応させて varint で書いたもの
+ * （範囲外の値もそのまま送り、JSON の場合と同じく計算結果のエラーとして返す）。
+ */
+public final class CalculationFrameCodec {
+
+    /** HTTP でバイナリ形式を指定するメディアタイプ */
+    public static final String MEDIA_TYPE_VALUE = "application/x-calculator-frame";
+
+    /** フレームの長さの部分のバイト数 */
+    public static final int LENGTH_SIZE = 4;
+
+    static final int HAS_SCALE = 1;
+    static final int HAS_PRECISION = 1 << 1;
+    static final int HAS_ROUNDING_MODE = 1 << 2;
+    static final int EXACT = 1 << 3;
+    static final byte SUCCESS = 0;
+    static final byte FAILURE = 1;
+
+    private static final RoundingMode[] ROUNDING_MODES = RoundingMode.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * フレームの種類
+     */
+    public enum Type {
+        /** 計算リクエスト（1件） */
+        CALCULATE(0x01),
+        /** 一括計算リクエスト */
+        BATCH(0x02),
+        /** 計算結果（1件） */
+        RESULT(0x41),
+        /** 一括計算結果 */
+        BATCH_RESULT(0x42),
+        /** フレームを処理できなかった場合の応答 */
+        ERROR(0x7F);
+
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte code() {
+            return code;
+        }
+
+        static Type of(byte code) throws MalformedFrameException {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new MalformedFrameException("不明なフレームの種類です: " + (code & 0xFF));
+        }
+    }
+
+    private CalculationFrameCodec() {}
+
+    /**
+     * フレームの種類を返す（位置は変更しない）
+     * @param frame 長さの部分を除いたフレーム
+     */
+    public static Type type(ByteBuffer frame) throws MalformedFrameException {
+        if (!frame.hasRemaining()) {
+            throw new MalformedFrameException("フレームが空です");
+        }
+        return Type.of(frame.get(frame.position()));
+    }
+
+    /**
+     * 入力から1フレームを読み込む
+     * @param maxLength 受け付けるフレームの最大バイト数（長さの部分を除く）
+     * @return 長さの部分を除いたフレーム（フレームの先頭で入力が終わっている場合は null）
+     * @throws MalformedFrameException 長さが不正な場合、または途中で入力が終わった場合
+     */
+    public static ByteBuffer readFrame(InputStream input, int maxLength) throws IOException {
+        byte[] header = input.readNBytes(LENGTH_SIZE);
+        if (header.length == 0) {
+            return null;
+        }
+        if (header.length < LENGTH_SIZE) {
+            throw new MalformedFrameException("フレームの途中で入力が終わりました");
+        }
+        int length = ByteBuffer.wrap(header).getInt();
+        checkLength(length, maxLength);
+        byte[] body = input.readNBytes(length);
+        if (body.length < length) {
+            throw new MalformedFrameException("フレームの途中で入力が終わりました");
+        }
+        return ByteBuffer.wrap(body);
+    }
+
+    /**
+     * フレームの長さを検証する
+     * @throws MalformedFrameException 長さが1未満、または最大バイト数を超える場合
+     */
+    static void checkLength(int length, int maxLength) throws MalformedFrameException {
+        if (length < 1) {
+            throw new MalformedFrameException("フレームの長さが不正です: " + length);
+        }
+        if (length > maxLength) {
+            throw new MalformedFrameException("フレームが大きすぎます（" + maxLength + "バイトまで）: " + length);
+        }
+    }
+
+    /**
+     * 計算リクエスト（1件）のフレームを作成する
+     * @return 長さの部分を含むフレーム（読み取り可能な状態）
+     */
+    public static ByteBuffer encodeRequest(CalculationRequest request) {
+        Encoder encoder = new Encoder(Type.CALCULATE);
+        encoder.writeRequest(request);
+        return encoder.finish();
+    }
+
+    /**
+     * 一括計算リクエストのフレームを作成する
+     * @return 長さの部分を含むフレーム（読み取り可能な状態）
+     */
+    public static ByteBuffer encodeBatchRequest(List<CalculationRequest> requests) {
+        Encoder encoder = new Encoder(Type.BATCH);
+        encoder.writeVarint(requests.size());
+        for (CalculationRequest request : requests) {
+            encoder.writeRequest(request != null ? request : new CalculationRequest());
+        }
+        return encoder.finish();
+    }
+
+    /**
+     * 計算リクエストまたは一括計算リクエストのフレームを読み込む
+     * @param frame 長さの部分を除いたフレーム
+     * @return 計算リクエスト（1件のフレームの場合は要素が1つのリスト）
+     * @throws MalformedFrameException リクエストのフレームでない場合、または形式が不正な場合
+     */
+    public static List<CalculationRequest> decodeRequests(ByteBuffer frame) throws MalformedFrameException {
+        Type type = type(frame);
+        if (type != Type.CALCULATE && type != Type.BATCH) {
+            throw new MalformedFrameException("計算リクエストのフレームではありません: " + type);
+        }
+        try {
+            frame.get();
+            if (type == Type.CALCULATE) {
+                List<CalculationRequest> requests = List.of(readRequest(frame));
+                checkConsumed(frame);
+                return requests;
+            }
+            // 1件あたり最低2バイト（flags と文字列の長さ）のため、残りのバイト数を超える件数は不正
+            int count = readCount(frame, 2);
+            List<CalculationRequest> requests = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                requests.add(readRequest(frame));
+            }
+            checkConsumed(frame);
+            return requests;
+        } catch (BufferUnderflowException e) {
+            throw new MalformedFrameException("フレームの途中でデータが終わりました");
+        }
+    }
+
+    /**
+     * 計算結果（1件）のフレームを作成する
+     * @return 長さの部分を含むフレーム（読み取り可能な状態）
+     */
+    public static ByteBuffer encodeResult(CalculationResult result) {
+        Encoder encoder = new Encoder(Type.RESULT);
+        encoder.writeResult(result);
+        return encoder.finish();
+    }
+
+    /**
+     * 一括計算結果のフレームを作成する
+     * @return 長さの部分を含むフレーム（読み取り可能な状態）
+     */
+    public static ByteBuffer encodeBatchResult(List<CalculationResult> results) {
+        Encoder encoder = new Encoder(Type.BATCH_RESULT);
+        encoder.writeVarint(results.size());
+        for (CalculationResult result : results) {
+            encoder.writeResult(result);
+        }
+        return encoder.finish();
+    }
+
+    /**
+     * 計算結果または一括計算結果のフレームを読み込む（計算結果の式は null になる）
+     * @param frame 長さの部分を除いたフレーム
+     * @return 計算結果（1件のフレームの場合は要素が1つのリスト）
+     * @throws MalformedFrameException 結果のフレームでない場合、または形式が不正な場合
+     *         （エラーのフレームの場合はそのメッセージを持つ）
+     */
+    public static List<CalculationResult> decodeResults(ByteBuffer frame) throws MalformedFrameException {
+        Type type = type(frame);
+        if (type == Type.ERROR) {
+            throw new MalformedFrameException(decodeError(frame));
+        }
+        if (type != Type.RESULT && type != Type.BATCH_RESULT) {
+            throw new MalformedFrameException("計算結果のフレームではありません: " + type);
+        }
+        try {
+            frame.get();
+            int count = type == Type.RESULT ? 1 : readCount(frame, 2);
+            List<CalculationResult> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(readResult(frame));
+            }
+            checkConsumed(frame);
+            return results;
+        } catch (BufferUnderflowException e) {
+            throw new MalformedFrameException("フレームの途中でデータが終わりました");
+        }
+    }
+
+    /**
+     * エラーのフレームを作成する
+     * @return 長さの部分を含むフレーム（読み取り可能な状態）
+     */
+    public static ByteBuffer encodeError(String message) {
+        Encoder encoder = new Encoder(Type.ERROR);
+        encoder.writeString(message);
+        return encoder.finish();
+    }
+
+    /**
+     * エラーのフレームからメッセージを読み込む
+     * @param frame 長さの部分を除いたフレーム
+     */
+    public static String decodeError(ByteBuffer frame) throws MalformedFrameException {
+        if (type(frame) != Type.ERROR) {
+            throw new MalformedFrameException("エラーのフレームではありません: " + type(frame));
+        }
+        try {
+            frame.get();
+            String message = readString(frame);
+            checkConsumed(frame);
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new MalformedFrameException("フレームの途中でデータが終わりました");
+        }
+    }
+
+    private static CalculationRequest readRequest(ByteBuffer buffer) throws MalformedFrameException {
+        int flags = buffer.get();
+        if ((flags & ~(HAS_SCALE | HAS_PRECISION | HAS_ROUNDING_MODE | EXACT)) != 0) {
+            throw new MalformedFrameException("不明なフラグが指定されています: " + (flags & 0xFF));
+        }
+        CalculationRequest request = new CalculationRequest();
+        if ((flags & HAS_SCALE) != 0) {
+            request.setScale(readSigned(buffer));
+        }
+        if ((flags & HAS_PRECISION) != 0) {
+            request.setPrecision(readSigned(buffer));
+        }
+        if ((flags & HAS_ROUNDING_MODE) != 0) {
+            int ordinal = buffer.get() & 0xFF;
+            if (ordinal >= ROUNDING_MODES.length) {
+                throw new MalformedFrameException("丸めモードが不正です: " + ordinal);
+            }
+            request.setRoundingMode(ROUNDING_MODES[ordinal]);
+        }
+        if ((flags & EXACT) != 0) {
+            request.setExact(true);
+        }
+        request.setExpression(readString(buffer));
+        return request;
+    }
+
+    private static CalculationResult readResult(ByteBuffer buffer) throws MalformedFrameException {
+        byte status = buffer.get();
+        if (status != SUCCESS && status != FAILURE) {
+            throw new MalformedFrameException("計算結果の状態が不正です: " + status);
+        }
+        String text = readString(buffer);
+        return status == SUCCESS ? new CalculationResult(null, text) : new CalculationResult(null, text, false);
+    }
+
+    /**
+     * 件数を読み込む
+     * @param minSize 1件あたりの最小バイト数
+     */
+    private static int readCount(ByteBuffer buffer, int minSize) throws MalformedFrameException {
+        int count = readVarint(buffer);
+        if (count < 0 || count > buffer.remaining() / minSize) {
+            throw new MalformedFrameException("件数がフレームの長さと一致しません: " + count);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) throws MalformedFrameException {
+        int length = readVarint(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new MalformedFrameException("文字列の長さがフレームの長さを超えています: " + length);
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /**
+     * 32ビットの符号なし整数を読み込む（2^31 以上の値は負の値として返す）
+     */
+    static int readVarint(ByteBuffer buffer) throws MalformedFrameException {
+        int value = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        byte last = buffer.get();
+        if ((last & 0xF0) != 0) {
+            throw new MalformedFrameException("整数の値が大きすぎます");
+        }
+        return value | last << 28;
+    }
+
+    private static int readSigned(ByteBuffer buffer) throws MalformedFrameException {
+        int value = readVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void checkConsumed(ByteBuffer buffer) throws MalformedFrameException {
+        if (buffer.hasRemaining()) {
+            throw new MalformedFrameException("フレームの末尾に余分なデータがあります: " + buffer.remaining() + "バイト");
+        }
+    }
+
+    /**
+     * フレームを組み立てるバッファ（必要に応じて拡張する）
+     */
+    private static final class Encoder {
+
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+        private int size;
+
+        Encoder(Type type) {
+            size = LENGTH_SIZE;
+            bytes[size++] = type.code();
+        }
+
+        void writeRequest(CalculationRequest request) {
+            int flags = 0;
+            if (request.getScale() != null) {
+                flags |= HAS_SCALE;
+            }
+            if (request.getPrecision() != null) {
+                flags |= HAS_PRECISION;
+            }
+            if (request.getRoundingMode() != null) {
+                flags |= HAS_ROUNDING_MODE;
+            }
+            if (Boolean.TRUE.equals(request.getExact())) {
+                flags |= EXACT;
+            }
+            ensure(1);
+            bytes[size++] = (byte) flags;
+            if (request.getScale() != null) {
+                writeSigned(request.getScale());
+            }
+            if (request.getPrecision() != null) {
+                writeSigned(request.getPrecision());
+            }
+            if (request.getRoundingMode() != null) {
+                ensure(1);
+                bytes[size++] = (byte) request.getRoundingMode().ordinal();
+            }
+            writeString(request.getExpression());
+        }
+
+        void writeResult(CalculationResult result) {
+            ensure(1);
+            bytes[size++] = result.isSuccess() ? SUCCESS : FAILURE;
+            writeString(result.isSuccess() ? result.getResult() : result.getErrorMessage());
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeSigned(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        /**
+         * 文字列を書き込む（null は空文字列として書き込む）
+         * 計算式や結果はほとんどが ASCII のため、その場合は文字列を変換せずに直接書き込む
+         */
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            int length = value.length();
+            int i = 0;
+            while (i < length && value.charAt(i) < 0x80) {
+                i++;
+            }
+            if (i < length) {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                writeVarint(encoded.length);
+                ensure(encoded.length);
+                System.arraycopy(encoded, 0, bytes, size, encoded.length);
+                size += encoded.length;
+                return;
+            }
+            writeVarint(length);
+            ensure(length);
+            for (i = 0; i < length; i++) {
+                bytes[size++] = (byte) value.charAt(i);
+            }
+        }
+
+        ByteBuffer finish() {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+            buffer.putInt(0, size - LENGTH_SIZE);
+            return buffer;
+        }
+
+        private void ensure(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+    }
+}
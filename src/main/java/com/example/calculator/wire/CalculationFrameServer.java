@@ -0,0 +1,233 @@
+package com.example.calculator.wire;
+
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.AdmissionRejectedException;
+import com.example.calculator.service.BatchCalculatorService;
+import com.example.calculator.service.CalculatorService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP を介さずにバイナリ形式のフレーム（{@link CalculationFrameCodec}）で計算リクエストを受け付ける TCP サーバー
+ * 接続ごとに仮想スレッドを割り当て、フレームを1つ読み込むたびに計算して結果のフレームを書き込む。
+ * クライアントは応答を待たずに続けてフレームを送信してよく（パイプライン）、結果は送信した順に返される。
+ * 形式が不正なフレームを受け取った場合はエラーのフレームを返して接続を閉じる。
+ * 受付制御（{@link AdmissionControl}）は接続元のアドレスをクライアントとして行い、受け付けられない場合はエラーのフレームを返す。
+ * 接続の受け付けに失敗した場合（ファイルディスクリプタの不足など）は、失敗の数を記録して少し待ってから再試行する。
+ */
+public class CalculationFrameServer implements Closeable, MeterBinder {
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final long MIN_ACCEPT_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_ACCEPT_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final CalculatorService calculatorService;
+    private final BatchCalculatorService batchCalculatorService;
+    private final AdmissionControl admissionControl;
+    private final int maxFrameLength;
+    private final ServerSocketChannel serverChannel;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final ThreadFactory connectionThreads = Thread.ofVirtual().name("calculator-wire-", 0).factory();
+    private final Thread acceptor;
+    private final AtomicLong acceptErrors = new AtomicLong();
+
+    /**
+     * 指定したアドレスで接続の受け付けを開始する
+     * @param address 待ち受けるアドレス（ポート0の場合は空いているポート）
+     * @param maxFrameLength 受け付けるフレームの最大バイト数
+     */
+    public CalculationFrameServer(CalculatorService calculatorService, BatchCalculatorService batchCalculatorService,
+                                  AdmissionControl admissionControl, InetSocketAddress address,
+                                  int maxFrameLength) throws IOException {
+        this.calculatorService = calculatorService;
+        this.batchCalculatorService = batchCalculatorService;
+        this.admissionControl = admissionControl;
+        this.maxFrameLength = maxFrameLength;
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+        this.acceptor = new Thread(this::accept, "calculator-wire-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * 待ち受けているポート
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 接続の受け付けを終了し、処理中の接続を閉じる
+     */
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        for (SocketChannel channel : connections) {
+            closeQuietly(channel);
+        }
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 接続の受け付けに失敗した数
+     */
+    public long getAcceptErrors() {
+        return acceptErrors.get();
+    }
+
+    private void accept() {
+        long backoff = MIN_ACCEPT_BACKOFF_NANOS;
+        while (serverChannel.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                // close() によってチャネルが閉じられた場合は終了する。それ以外の失敗は続けて失敗する
+                // 可能性が高いため（ファイルディスクリプタの不足など）、待つ時間を倍々に延ばしながら再試行する
+                if (!serverChannel.isOpen()) {
+                    return;
+                }
+                acceptErrors.incrementAndGet();
+                LockSupport.parkNanos(backoff);
+                backoff = Math.min(backoff * 2, MAX_ACCEPT_BACKOFF_NANOS);
+                continue;
+            }
+            backoff = MIN_ACCEPT_BACKOFF_NANOS;
+            connections.add(channel);
+            if (!serverChannel.isOpen()) {
+                closeQuietly(channel);
+                continue;
+            }
+            connectionThreads.newThread(() -> serve(channel)).start();
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            String client = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().getHostAddress();
+            ByteBuffer header = ByteBuffer.allocate(CalculationFrameCodec.LENGTH_SIZE);
+            ByteBuffer frame = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+            while (readFully(channel, header.clear())) {
+                int length = header.flip().getInt();
+                try {
+                    CalculationFrameCodec.checkLength(length, maxFrameLength);
+                } catch (MalformedFrameException e) {
+                    writeFully(channel, CalculationFrameCodec.encodeError(e.getMessage()));
+                    return;
+                }
+                if (length > frame.capacity()) {
+                    frame = ByteBuffer.allocate(Math.max(length, Math.min(frame.capacity() * 2, maxFrameLength)));
+                }
+                if (!readFully(channel, frame.clear().limit(length))) {
+                    return;
+                }
+                ByteBuffer response;
+                try {
+                    response = handle(frame.flip(), client);
+                } catch (MalformedFrameException e) {
+                    writeFully(channel, CalculationFrameCodec.encodeError(e.getMessage()));
+                    return;
+                }
+                writeFully(channel, response);
+            }
+        } catch (IOException e) {
+            // クライアントが切断した場合、またはサーバーの終了によって閉じられた場合
+        } finally {
+            connections.remove(channel);
+        }
+    }
+
+    /**
+     * 計算リクエストのフレームを計算し、結果のフレームを返す
+     * （件数の超過や受付制御による拒否はフレームの形式は正しいため、接続は閉じずにエラーのフレームを返す）
+     */
+    ByteBuffer handle(ByteBuffer frame, String client) throws MalformedFrameException {
+        CalculationFrameCodec.Type type = CalculationFrameCodec.type(frame);
+        List<CalculationRequest> requests = CalculationFrameCodec.decodeRequests(frame);
+        if (type == CalculationFrameCodec.Type.BATCH && requests.size() > batchCalculatorService.getMaxSize()) {
+            return CalculationFrameCodec.encodeError(
+                    "一度に計算できる式は" + batchCalculatorService.getMaxSize() + "件までです");
+        }
+        long cost = admissionControl.isEnabled() ? AdmissionControl.estimate(requests) : 0;
+        try (AdmissionControl.Permit permit = admissionControl.admit(client, cost)) {
+            if (type == CalculationFrameCodec.Type.CALCULATE) {
+                return CalculationFrameCodec.encodeResult(calculatorService.calculate(requests.get(0)));
+            }
+            List<CalculationResult> results = batchCalculatorService.calculateRequests(requests);
+            return CalculationFrameCodec.encodeBatchResult(results);
+        } catch (AdmissionRejectedException e) {
+            return CalculationFrameCodec.encodeError(e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("calculator.wire.accept.errors", acceptErrors, AtomicLong::get)
+                .description("接続の受け付けに失敗した数")
+                .register(registry);
+    }
+
+    /**
+     * バッファがいっぱいになるまで読み込む
+     * @return 何も読み込まずに入力が終わった場合は false
+     * @throws MalformedFrameException 途中で入力が終わった場合
+     */
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new MalformedFrameException("フレームの途中で入力が終わりました");
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 終了時のため無視する
+        }
+    }
+}
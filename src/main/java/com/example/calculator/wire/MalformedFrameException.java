@@ -0,0 +1,13 @@
+package com.example.calculator.wire;
+
+import java.io.IOException;
+
+/**
+ * バイナリ形式のフレームが不正な場合の例外
+ */
+public class MalformedFrameException extends IOException {
+
+    public MalformedFrameException(String message) {
+        super(message);
+    }
+}
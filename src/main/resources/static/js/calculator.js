@@ -2,6 +2,10 @@
 
 let currentExpression = '';
 
+// サーバー側で編集中の式（逐次評価用。未設定の場合は null）
+let editorExpression = null;
+let editorRequest = Promise.resolve();
+
 // ページ読み込み時の初期化
 document.addEventListener('DOMContentLoaded', function() {
     const expressionInput = document.getElementById('expressionInput');
@@ -59,11 +63,73 @@ function updateDisplay() {
     if (expressionInput) {
         expressionInput.value = currentExpression;
     }
+    
+    updatePreview();
+}
+
+// 入力中の式の計算結果をプレビュー（式全体ではなく変更部分だけを送って再評価する）
+function updatePreview() {
+    const previous = editorExpression;
+    const current = currentExpression;
+    if (previous === current) {
+        return;
+    }
+    editorExpression = current;
+    editorRequest = editorRequest
+        .then(() => previous === null
+            ? sendEditor('PUT', '/calculator/api/editor', { expression: current })
+            : sendEditor('POST', '/calculator/api/editor/edits', [diffEdit(previous, current)]))
+        .then(showPreview)
+        .catch(() => {
+            // セッションの期限切れなどの場合は次の入力で式全体を設定し直す
+            editorExpression = null;
+            showPreview(null);
+        });
+}
+
+// 編集中の式のAPIを呼び出す
+function sendEditor(method, url, body) {
+    return fetch(url, {
+        method: method,
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify(body)
+    }).then(response => {
+        if (!response.ok) {
+            throw new Error(response.status);
+        }
+        return response.json();
+    });
+}
+
+// 変更前と変更後の式の差分を1つの編集（挿入・削除）にする
+function diffEdit(before, after) {
+    let prefix = 0;
+    while (prefix < before.length && prefix < after.length && before[prefix] === after[prefix]) {
+        prefix++;
+    }
+    let suffix = 0;
+    while (suffix < before.length - prefix && suffix < after.length - prefix
+            && before[before.length - 1 - suffix] === after[after.length - 1 - suffix]) {
+        suffix++;
+    }
+    return {
+        position: prefix,
+        deleteCount: before.length - prefix - suffix,
+        text: after.substring(prefix, after.length - suffix)
+    };
+}
+
+// プレビューを表示（入力途中で計算できない場合は何も表示しない）
+function showPreview(result) {
+    const previewElement = document.querySelector('.preview');
+    if (previewElement) {
+        previewElement.textContent = result && result.success ? '= ' + result.result : '';
+    }
 }
 
 // 演算子かどうかを判定
 function isOperator(char) {
-    return ['+', '-', '*', '/', '(', ')'].includes(char);
+    return ['+', '-', '*', '/', '^', '(', ')'].includes(char);
 }
 
 // 文字列の最後の文字を取得
@@ -73,7 +139,7 @@ function getLastChar(str) {
 
 // 連続する小数点があるかチェック
 function hasConsecutiveDecimal(expression) {
-    const parts = expression.split(/[+\-*/()]/);
+    const parts = expression.split(/[+\-*/^()]/);
     const lastPart = parts[parts.length - 1];
     return lastPart.includes('.');
 }
@@ -88,7 +154,12 @@ document.addEventListener('keydown', function(event) {
         event.preventDefault();
     }
     // 演算子キー
-    else if (['+', '-', '*', '/'].includes(key)) {
+    else if (['+', '-', '*', '/', '^'].includes(key)) {
+        appendToExpression(key);
+        event.preventDefault();
+    }
+    // 関数名（sqrt, exp, ln, sin, cos, tan）の英字キー
+    else if (key.length === 1 && key >= 'a' && key <= 'z' && !event.ctrlKey && !event.metaKey && !event.altKey) {
         appendToExpression(key);
         event.preventDefault();
     }
@@ -0,0 +1,48 @@
+package com.example.calculator;
+
+import com.example.calculator.controller.HomeController;
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * API のみの構成（api プロファイル）の統合テスト
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "api"})
+class ApiProfileApplicationTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void calculateApiIsAvailable() {
+        ResponseEntity<CalculationResult> response = restTemplate.postForEntity(
+                "/calculator/api/calculate", new CalculationRequest("2 + 3 * 4"), CalculationResult.class);
+
+        assertTrue(response.getStatusCode().is2xxSuccessful());
+        assertEquals("14", response.getBody().getResult());
+    }
+
+    @Test
+    void pagesAreNotRegistered() {
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity("/calculator", String.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity("/", String.class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity("/css/calculator.css", String.class).getStatusCode());
+        assertTrue(context.getBeansOfType(HomeController.class).isEmpty());
+        assertTrue(context.getBeansOfType(SpringTemplateEngine.class).isEmpty());
+    }
+}
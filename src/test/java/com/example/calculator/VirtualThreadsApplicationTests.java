@@ -0,0 +1,33 @@
+package com.example.calculator;
+
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 仮想スレッドでリクエストを処理する構成の統合テスト
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+@ActiveProfiles("test")
+class VirtualThreadsApplicationTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void calculateApiOnVirtualThreads() {
+        ResponseEntity<CalculationResult> response = restTemplate.postForEntity(
+                "/calculator/api/calculate", new CalculationRequest("2 + 3 * 4"), CalculationResult.class);
+
+        assertTrue(response.getStatusCode().is2xxSuccessful());
+        assertEquals("14", response.getBody().getResult());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.calculator.audit;
+
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AuditLogのテストクラス
+ */
+class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("記録した結果を順番どおりに読み込める")
+    void testRecordAndScan() throws IOException {
+        try (AuditLog auditLog = new AuditLog(directory, 1 << 20, 1024)) {
+            assertTrue(auditLog.record(new CalculationResult("2 + 3", "5")));
+            assertTrue(auditLog.record(new CalculationResult("1 / 0", "計算エラー: ゼロ除算はできません", false)));
+        }
+
+        List<AuditRecord> records = new ArrayList<>();
+        AuditLogReader.Summary summary = AuditLogReader.scan(directory, records::add);
+
+        assertEquals(new AuditLogReader.Summary(1, 2, 0), summary);
+        assertEquals("2 + 3", records.get(0).expression());
+        assertEquals("5", records.get(0).text());
+        assertTrue(records.get(0).success());
+        assertFalse(records.get(1).success());
+        assertEquals("計算エラー: ゼロ除算はできません", records.get(1).toResult().getErrorMessage());
+        assertTrue(records.get(0).timestamp() <= records.get(1).timestamp());
+    }
+
+    @Test
+    @DisplayName("セグメントが一杯になると次のセグメントに切り替える")
+    void testSegmentRolling() throws IOException {
+        try (AuditLog auditLog = new AuditLog(directory, 4096, 100_000)) {
+            for (int i = 0; i < 1000; i++) {
+                auditLog.record(new CalculationResult(i + " * 2", String.valueOf(i * 2)));
+            }
+        }
+        // 再度開いた場合は新しいセグメントから書き込む
+        try (AuditLog auditLog = new AuditLog(directory, 4096, 100)) {
+            auditLog.record(new CalculationResult("last", "0"));
+        }
+
+        List<AuditRecord> records = new ArrayList<>();
+        AuditLogReader.Summary summary = AuditLogReader.scan(directory, records::add);
+
+        assertTrue(summary.segments() > 2);
+        assertEquals(1001, summary.records());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(String.valueOf(i * 2), records.get(i).text());
+        }
+        assertEquals("last", records.get(1000).expression());
+        assertEquals(summary.segments(), records.get(1000).segment());
+    }
+
+    @Test
+    @DisplayName("CRCが一致しないレコードは破損として読み飛ばす")
+    void testCorruptedRecord() throws IOException {
+        try (AuditLog auditLog = new AuditLog(directory, 4096, 1024)) {
+            auditLog.record(new CalculationResult("1 + 1", "2"));
+            auditLog.record(new CalculationResult("2 + 2", "4"));
+        }
+
+        Path segment = AuditLogReader.segments(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // 1件目の式の先頭を書き換える
+            int position = AuditLog.SEGMENT_HEADER_SIZE + AuditLog.RECORD_HEADER_SIZE + 18;
+            channel.write(ByteBuffer.wrap(new byte[] {'9'}), position);
+        }
+
+        List<AuditRecord> records = new ArrayList<>();
+        AuditLogReader.Summary summary = AuditLogReader.scan(directory, records::add);
+
+        assertEquals(1, summary.corrupted());
+        assertEquals(1, records.size());
+        assertEquals("2 + 2", records.get(0).expression());
+    }
+
+    @Test
+    @DisplayName("計算に使用した精度を記録する（バージョン1のセグメントは精度の記録なしとして読み込む）")
+    void testPrecision() throws IOException {
+        Precision digits = Precision.ofDigits(25, RoundingMode.CEILING);
+        try (AuditLog auditLog = new AuditLog(directory, 4096, 1024)) {
+            auditLog.record(new CalculationResult("1 / 7", "0.1428571428571428571428572"), digits);
+        }
+        ByteBuffer legacy = ByteBuffer.allocate(64);
+        byte[] expression = "1 + 1".getBytes(StandardCharsets.UTF_8);
+        legacy.putInt(AuditLog.MAGIC).putInt(AuditLog.LEGACY_VERSION);
+        int payloadLength = AuditLog.LEGACY_MIN_PAYLOAD_SIZE + expression.length + 1;
+        legacy.putInt(payloadLength).putInt(0);
+        int payload = legacy.position();
+        legacy.putLong(1L).put((byte) 0).putInt(expression.length).put(expression).putInt(1).put((byte) '2');
+        CRC32C crc = new CRC32C();
+        crc.update(legacy.slice(payload, payloadLength));
+        legacy.putInt(payload - 4, (int) crc.getValue());
+        Files.write(directory.resolve(AuditLogReader.segmentFileName(100)), legacy.array());
+
+        List<AuditRecord> records = new ArrayList<>();
+        AuditLogReader.Summary summary = AuditLogReader.scan(directory, records::add);
+
+        assertEquals(new AuditLogReader.Summary(2, 2, 0), summary);
+        assertEquals(digits, records.get(0).precision());
+        assertEquals("1 + 1", records.get(1).expression());
+        assertEquals("2", records.get(1).text());
+        assertNull(records.get(1).precision());
+    }
+
+    @Test
+    @DisplayName("無効な監査ログは何も記録しない")
+    void testDisabled() {
+        AuditLog auditLog = AuditLog.disabled();
+        assertFalse(auditLog.isEnabled());
+        assertFalse(auditLog.record(new CalculationResult("1", "1")));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.calculator.audit;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.CalculatorMetrics;
+import com.example.calculator.service.CalculatorService;
+import com.example.calculator.service.ExpressionCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AuditReplayToolのテストクラス
+ */
+class AuditReplayToolTest {
+
+    private static final Precision DEFAULT = Precision.ofScale(10, RoundingMode.HALF_UP);
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) throws IOException {
+        return new AuditReplayTool(new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8)).run(args);
+    }
+
+    @Test
+    @DisplayName("再計算した結果と一致する場合は検証に成功する")
+    void testVerify() throws IOException {
+        try (AuditLog auditLog = new AuditLog(directory, 1 << 16, 1024)) {
+            auditLog.record(new CalculationResult("2 + 3 * 4", "14"), DEFAULT);
+            auditLog.record(new CalculationResult("1 / 0", "計算エラー: ゼロ除算はできません", false), DEFAULT);
+        }
+
+        assertEquals(0, run("verify", directory.toString()));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("不一致: 0"));
+    }
+
+    @Test
+    @DisplayName("リクエストで指定した精度の計算は、記録された精度で再計算して検証する")
+    void testVerifyRequestPrecision() throws IOException {
+        try (AuditLog auditLog = new AuditLog(directory, 1 << 16, 1024)) {
+            CalculatorService calculatorService = new CalculatorService(ExpressionCache.disabled(),
+                    new CalculatorProperties(), CalculatorMetrics.disabled(), auditLog);
+            CalculationRequest scale = new CalculationRequest("2 / 3");
+            scale.setScale(30);
+            scale.setRoundingMode(RoundingMode.DOWN);
+            assertEquals("0.666666666666666666666666666666", calculatorService.calculate(scale).getResult());
+            CalculationRequest digits = new CalculationRequest("sqrt(2)");
+            digits.setPrecision(5);
+            assertEquals("1.4142", calculatorService.calculate(digits).getResult());
+            // 精度の指定が不正なリクエストは精度を記録せず、検証の対象外とする
+            CalculationRequest invalid = new CalculationRequest("1 / 3");
+            invalid.setScale(2);
+            invalid.setPrecision(5);
+            assertFalse(calculatorService.calculate(invalid).isSuccess());
+        }
+
+        assertEquals(0, run("verify", directory.toString()));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("不一致: 0 / 精度の記録なし: 1"),
+                out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        assertEquals(0, run("export", directory.toString()));
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertTrue(lines[0].contains("\"scale\":30,\"roundingMode\":\"DOWN\""), lines[0]);
+        assertTrue(lines[1].contains("\"precision\":5,\"roundingMode\":\"HALF_UP\""), lines[1]);
+        assertFalse(lines[2].contains("roundingMode"), lines[2]);
+    }
+
+    @Test
+    @DisplayName("exact を指定した計算は、除算を最後に1回だけ丸めて再計算して検証する")
+    void testVerifyExact() throws IOException {
+        try (AuditLog auditLog = new AuditLog(directory, 1 << 16, 1024)) {
+            CalculatorService calculatorService = new CalculatorService(ExpressionCache.disabled(),
+                    new CalculatorProperties(), CalculatorMetrics.disabled(), auditLog);
+            // 除算ごとに丸めると 0.3333333333 * 3 = 0.9999999999 になる
+            CalculationRequest exact = new CalculationRequest("1 / 3 * 3");
+            exact.setExact(true);
+            assertEquals("1", calculatorService.calculate(exact).getResult());
+        }
+
+        assertEquals(0, run("verify", directory.toString()));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("不一致: 0 / 精度の記録なし: 0"),
+                out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        assertEquals(0, run("export", directory.toString()));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\"exact\":true"));
+    }
+
+    @Test
+    @DisplayName("記録と再計算の結果が異なる場合は検証に失敗する")
+    void testVerifyMismatch() throws IOException {
+        try (AuditLog auditLog = new AuditLog(directory, 1 << 16, 1024)) {
+            auditLog.record(new CalculationResult("2 + 2", "5"), DEFAULT);
+        }
+
+        assertEquals(1, run("verify", directory.toString()));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("式: 2 + 2"));
+    }
+
+    @Test
+    @DisplayName("失敗したレコードのみをNDJSON形式で出力する")
+    void testExportFailures() throws IOException {
+        try (AuditLog auditLog = new AuditLog(directory, 1 << 16, 1024)) {
+            auditLog.record(new CalculationResult("1 + 1", "2"));
+            auditLog.record(new CalculationResult("1 / 0", "計算エラー: ゼロ除算はできません", false));
+        }
+
+        assertEquals(0, run("export", directory.toString(), "--failures"));
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].contains("\"expression\":\"1 / 0\""));
+        assertTrue(lines[0].contains("\"success\":false"));
+    }
+
+    @Test
+    @DisplayName("不明なコマンドは使用方法のエラー")
+    void testUnknownCommand() throws IOException {
+        assertEquals(2, run("replay", directory.toString()));
+        assertEquals(2, run("stats"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.calculator.bulk;
+
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.CalculatorService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BulkEvaluationToolのテストクラス
+ */
+class BulkEvaluationToolTest {
+
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) throws IOException {
+        return new BulkEvaluationTool(new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8)).run(args);
+    }
+
+    private List<String> evaluate(String content, String... options) throws IOException {
+        Path input = directory.resolve("input.txt");
+        Path output = directory.resolve("output.txt");
+        Files.writeString(input, content, StandardCharsets.UTF_8);
+        List<String> args = new ArrayList<>(List.of(input.toString(), output.toString()));
+        args.addAll(List.of(options));
+        assertEquals(0, run(args.toArray(String[]::new)));
+        return Files.readAllLines(output, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("小さいチャンクに分割して並列に計算しても入力と同じ順序で出力する")
+    void testPreservesOrder() throws IOException {
+        CalculatorService calculatorService = new CalculatorService();
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String expression = i % 97 == 0 ? i + " / 0" : "(" + i + " + 0.5) * " + (i % 13) + " / 7";
+            content.append(expression).append('\n');
+            CalculationResult result = calculatorService.calculate(expression);
+            expected.add(result.isSuccess() ? "OK\t" + result.getResult() : "ERROR\t" + result.getErrorMessage());
+        }
+
+        assertEquals(expected, evaluate(content.toString(), "--parallelism", "4", "--chunk-size", "100"));
+        String report = out.toString(StandardCharsets.UTF_8);
+        assertTrue(report.contains("行: 2000 / 失敗: 21"), report);
+        assertTrue(report.contains("行/秒"), report);
+    }
+
+    @Test
+    @DisplayName("CRLF・末尾の改行なし・空行・BOM・1行より小さいチャンク")
+    void testLineEndings() throws IOException {
+        String content = "\uFEFF1 + 1\r\n\r\n2 * 3\n4 - 10";
+        for (String chunkSize : new String[] {"1", "3", "1024"}) {
+            assertEquals(List.of("OK\t2", "ERROR\t式が入力されていません", "OK\t6", "OK\t-6"),
+                    evaluate(content, "--chunk-size", chunkSize), "chunkSize=" + chunkSize);
+        }
+    }
+
+    @Test
+    @DisplayName("空のファイルは空の結果を出力する")
+    void testEmptyFile() throws IOException {
+        assertEquals(List.of(), evaluate(""));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("行: 0"));
+    }
+
+    @Test
+    @DisplayName("引数の誤りは使用方法のエラー")
+    void testUsage() throws IOException {
+        assertEquals(2, run("input.txt"));
+        assertEquals(2, run(directory.resolve("missing.txt").toString(), directory.resolve("out.txt").toString()));
+        Path input = Files.writeString(directory.resolve("input.txt"), "1\n");
+        assertEquals(2, run(input.toString(), directory.resolve("out.txt").toString(), "--verbose"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("使用方法: bulk"));
+        assertEquals(2, run(input.toString(), directory.resolve("out.txt").toString(), "--parallelism", "0"));
+    }
+
+    @Test
+    @DisplayName("オプションの値がない場合や整数でない場合は使用方法のエラー")
+    void testInvalidOptionValue() throws IOException {
+        Path input = Files.writeString(directory.resolve("input.txt"), "1\n");
+        String output = directory.resolve("out.txt").toString();
+
+        assertEquals(2, run(input.toString(), output, "--parallelism"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("オプションの値がありません: --parallelism"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("使用方法: bulk"));
+
+        err.reset();
+        assertEquals(2, run(input.toString(), output, "--chunk-size", "4M"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("オプションの値が整数ではありません: --chunk-size 4M"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("使用方法: bulk"));
+        assertFalse(Files.exists(directory.resolve("out.txt")));
+    }
+
+    @Test
+    @DisplayName("出力ファイルが入力ファイルと同じ場合は入力ファイルを変更せずにエラー")
+    void testSameInputAndOutput() throws IOException {
+        Path input = Files.writeString(directory.resolve("input.txt"), "1 + 2\n");
+
+        assertEquals(2, run(input.toString(), input.toString()));
+        assertEquals(2, run(input.toString(), directory.resolve(".").resolve("input.txt").toString()));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("出力ファイルに入力ファイルと同じファイルは指定できません"));
+        assertEquals("1 + 2\n", Files.readString(input));
+    }
+}
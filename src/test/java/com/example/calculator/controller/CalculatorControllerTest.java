@@ -1,19 +1,42 @@
 package com.example.calculator.controller;
 
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.history.HistoryStore;
 import com.example.calculator.model.CalculationRequest;
 import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.AdmissionRejectedException;
+import com.example.calculator.service.BatchCalculatorService;
 import com.example.calculator.service.CalculatorService;
+import com.example.calculator.wire.CalculationFrameCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -23,6 +46,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * CalculatorControllerのテストクラス
  */
 @WebMvcTest(controllers = CalculatorController.class)
+@EnableConfigurationProperties(CalculatorProperties.class)
 class CalculatorControllerTest {
     
     @Autowired
@@ -31,6 +55,15 @@ class CalculatorControllerTest {
     @MockBean
     private CalculatorService calculatorService;
     
+    @MockBean
+    private BatchCalculatorService batchCalculatorService;
+    
+    @MockBean
+    private HistoryStore historyStore;
+    
+    @MockBean
+    private AdmissionControl admissionControl;
+    
     @Autowired
     private ObjectMapper objectMapper;
     
@@ -38,6 +71,14 @@ class CalculatorControllerTest {
     void setUp() {
         // デフォルトのモック設定
         when(calculatorService.calculate(anyString())).thenReturn(new CalculationResult("2 + 3", "5"));
+        when(calculatorService.calculate(any(CalculationRequest.class))).thenReturn(new CalculationResult("2 + 3", "5"));
+    }
+    
+    /**
+     * 式が一致する計算リクエスト
+     */
+    private static CalculationRequest requestFor(String expression) {
+        return argThat(request -> request != null && expression.equals(request.getExpression()));
     }
     
     @Test
@@ -55,14 +96,19 @@ class CalculatorControllerTest {
     void testValidCalculation() throws Exception {
         CalculationResult expectedResult = new CalculationResult("2 + 3", "5");
         when(calculatorService.calculate("2 + 3")).thenReturn(expectedResult);
+        MockHttpSession session = new MockHttpSession();
+        when(historyStore.recent(session.getId())).thenReturn(List.of(expectedResult));
         
         mockMvc.perform(post("/calculator/calculate")
+                .session(session)
                 .param("expression", "2 + 3"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("calculator"))
                 .andExpect(model().attributeExists("calculationRequest"))
                 .andExpect(model().attributeExists("calculationResult"))
-                .andExpect(model().attributeExists("history"));
+                .andExpect(model().attribute("history", List.of(expectedResult)));
+        
+        verify(historyStore).append(session.getId(), expectedResult);
     }
     
     @Test
@@ -84,18 +130,22 @@ class CalculatorControllerTest {
     @Test
     @DisplayName("履歴クリアのテスト")
     void testClearHistory() throws Exception {
-        mockMvc.perform(post("/calculator/clear-history"))
+        MockHttpSession session = new MockHttpSession();
+        
+        mockMvc.perform(post("/calculator/clear-history").session(session))
                 .andExpect(status().isOk())
                 .andExpect(view().name("calculator"))
                 .andExpect(model().attributeExists("calculationRequest"))
                 .andExpect(model().attributeExists("history"));
+        
+        verify(historyStore).clear(session.getId());
     }
     
     @Test
     @DisplayName("API計算エンドポイントのテスト")
     void testCalculateApi() throws Exception {
         CalculationResult expectedResult = new CalculationResult("2 + 3", "5");
-        when(calculatorService.calculate("2 + 3")).thenReturn(expectedResult);
+        when(calculatorService.calculate(requestFor("2 + 3"))).thenReturn(expectedResult);
         
         CalculationRequest request = new CalculationRequest("2 + 3");
         
@@ -113,7 +163,7 @@ class CalculatorControllerTest {
     void testCalculateApiError() throws Exception {
         // バリデーションを通過するが、計算でエラーになる式を使用
         CalculationResult errorResult = new CalculationResult("2 + + 3", "無効な式です", false);
-        when(calculatorService.calculate("2 + + 3")).thenReturn(errorResult);
+        when(calculatorService.calculate(requestFor("2 + + 3"))).thenReturn(errorResult);
         
         CalculationRequest request = new CalculationRequest("2 + + 3");
         
@@ -126,6 +176,29 @@ class CalculatorControllerTest {
                 .andExpect(jsonPath("$.errorMessage").value("無効な式です"));
     }
     
+    @Test
+    @DisplayName("API計算エンドポイント - 精度の指定")
+    void testCalculateApiWithPrecision() throws Exception {
+        when(calculatorService.calculate(argThat((CalculationRequest request) -> request != null && request.getPrecision() != null
+                && request.getPrecision() == 30 && request.getRoundingMode() == RoundingMode.HALF_EVEN)))
+                .thenReturn(new CalculationResult("1 / 3", "0.333333333333333333333333333333"));
+        
+        mockMvc.perform(post("/calculator/api/calculate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\": \"1 / 3\", \"precision\": 30, \"roundingMode\": \"HALF_EVEN\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value("0.333333333333333333333333333333"));
+    }
+    
+    @Test
+    @DisplayName("API計算エンドポイント - 範囲外の精度")
+    void testCalculateApiInvalidPrecision() throws Exception {
+        mockMvc.perform(post("/calculator/api/calculate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\": \"1 / 3\", \"scale\": 10001}"))
+                .andExpect(status().isBadRequest());
+    }
+    
     @Test
     @DisplayName("バリデーションエラーのテスト")
     void testValidationError() throws Exception {
@@ -144,4 +217,194 @@ class CalculatorControllerTest {
                 .content("invalid json"))
                 .andExpect(status().isBadRequest());
     }
+    
+    @Test
+    @DisplayName("一括計算APIエンドポイントのテスト")
+    void testCalculateBatchApi() throws Exception {
+        when(batchCalculatorService.getMaxSize()).thenReturn(100);
+        when(batchCalculatorService.calculateRequests(anyList())).thenReturn(List.of(
+                new CalculationResult("2 + 3", "5"),
+                new CalculationResult("1 / 0", "計算エラー: ゼロ除算はできません", false)));
+        
+        List<CalculationRequest> requests = List.of(new CalculationRequest("2 + 3"), new CalculationRequest("1 / 0"));
+        
+        mockMvc.perform(post("/calculator/api/calculate/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].result").value("5"))
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[1].success").value(false))
+                .andExpect(jsonPath("$[1].errorMessage").value("計算エラー: ゼロ除算はできません"));
+    }
+    
+    @Test
+    @DisplayName("一括計算API - 件数超過")
+    void testCalculateBatchApiTooLarge() throws Exception {
+        when(batchCalculatorService.getMaxSize()).thenReturn(1);
+        when(batchCalculatorService.calculateRequests(anyList())).thenReturn(List.of());
+        
+        List<CalculationRequest> requests = List.of(new CalculationRequest("1"), new CalculationRequest("2"));
+        
+        mockMvc.perform(post("/calculator/api/calculate/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isPayloadTooLarge());
+    }
+    
+    @Test
+    @DisplayName("ストリーミング計算APIエンドポイントのテスト")
+    void testCalculateStreamApi() throws Exception {
+        when(calculatorService.calculate(requestFor("1 + 1"))).thenReturn(new CalculationResult("1 + 1", "2"));
+        when(calculatorService.calculate(requestFor("2 * 3"))).thenReturn(new CalculationResult("2 * 3", "6"));
+        
+        String body = "1 + 1\r\n\n{\"expression\": \"2 * 3\"}\n{broken\n";
+        
+        mockMvc.perform(post("/calculator/api/calculate/stream")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"expression\":\"1 + 1\",\"result\":\"2\",\"success\":true,\"errorMessage\":null}\n"
+                        + "{\"expression\":\"2 * 3\",\"result\":\"6\",\"success\":true,\"errorMessage\":null}\n"
+                        + "{\"expression\":\"{broken\",\"result\":null,\"success\":false,\"errorMessage\":\"無効なリクエストです\"}\n"));
+    }
+    
+    /**
+     * フレームの内容（長さの部分を含む）
+     */
+    private static byte[] bytesOf(ByteBuffer frame) {
+        return Arrays.copyOfRange(frame.array(), frame.position(), frame.limit());
+    }
+    
+    /**
+     * 応答のフレーム（長さの部分を除く）
+     */
+    private static ByteBuffer frameOf(byte[] response) {
+        return ByteBuffer.wrap(response, CalculationFrameCodec.LENGTH_SIZE,
+                response.length - CalculationFrameCodec.LENGTH_SIZE).slice();
+    }
+    
+    @Test
+    @DisplayName("API計算エンドポイント - バイナリ形式")
+    void testCalculateFrameApi() throws Exception {
+        when(calculatorService.calculate(argThat((CalculationRequest request) -> request != null
+                && "1 / 3".equals(request.getExpression()) && request.getScale() != null && request.getScale() == 3)))
+                .thenReturn(new CalculationResult("1 / 3", "0.333"));
+        CalculationRequest request = new CalculationRequest("1 / 3");
+        request.setScale(3);
+        
+        byte[] response = mockMvc.perform(post("/calculator/api/calculate")
+                .contentType(CalculationFrameCodec.MEDIA_TYPE_VALUE)
+                .content(bytesOf(CalculationFrameCodec.encodeRequest(request))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CalculationFrameCodec.MEDIA_TYPE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+        
+        List<CalculationResult> results = CalculationFrameCodec.decodeResults(frameOf(response));
+        assertEquals("0.333", results.get(0).getResult());
+    }
+    
+    @Test
+    @DisplayName("一括計算APIエンドポイント - バイナリ形式")
+    void testCalculateBatchFrameApi() throws Exception {
+        when(batchCalculatorService.getMaxSize()).thenReturn(100);
+        when(batchCalculatorService.calculateRequests(anyList())).thenReturn(List.of(
+                new CalculationResult("2 + 3", "5"),
+                new CalculationResult("1 / 0", "計算エラー: ゼロ除算はできません", false)));
+        
+        byte[] response = mockMvc.perform(post("/calculator/api/calculate/batch")
+                .contentType(CalculationFrameCodec.MEDIA_TYPE_VALUE)
+                .content(bytesOf(CalculationFrameCodec.encodeBatchRequest(
+                        List.of(new CalculationRequest("2 + 3"), new CalculationRequest("1 / 0"))))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        
+        List<CalculationResult> results = CalculationFrameCodec.decodeResults(frameOf(response));
+        assertEquals(2, results.size());
+        assertEquals("5", results.get(0).getResult());
+        assertEquals("計算エラー: ゼロ除算はできません", results.get(1).getErrorMessage());
+        verify(batchCalculatorService).calculateRequests(argThat(requests -> requests.size() == 2
+                && "1 / 0".equals(requests.get(1).getExpression())));
+    }
+    
+    @Test
+    @DisplayName("バイナリ形式 - 不正なフレームと件数超過")
+    void testCalculateFrameApiErrors() throws Exception {
+        mockMvc.perform(post("/calculator/api/calculate")
+                .contentType(CalculationFrameCodec.MEDIA_TYPE_VALUE)
+                .content(new byte[] {0, 0, 0, 2, 0x10, 0}))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/calculator/api/calculate")
+                .contentType(CalculationFrameCodec.MEDIA_TYPE_VALUE)
+                .content(new byte[0]))
+                .andExpect(status().isBadRequest());
+        
+        when(batchCalculatorService.getMaxSize()).thenReturn(1);
+        mockMvc.perform(post("/calculator/api/calculate/batch")
+                .contentType(CalculationFrameCodec.MEDIA_TYPE_VALUE)
+                .content(bytesOf(CalculationFrameCodec.encodeBatchRequest(
+                        List.of(new CalculationRequest("1"), new CalculationRequest("2"))))))
+                .andExpect(status().isPayloadTooLarge());
+    }
+    
+    @Test
+    @DisplayName("受付制御で拒否された場合は429とRetry-Afterを返す")
+    void testCalculateApiRejected() throws Exception {
+        when(admissionControl.isEnabled()).thenReturn(true);
+        when(batchCalculatorService.getMaxSize()).thenReturn(100);
+        when(admissionControl.admit(anyString(), anyLong())).thenThrow(new AdmissionRejectedException(
+                AdmissionControl.Reason.RATE_LIMIT, "リクエストが多すぎます", Duration.ofMillis(1500)));
+        
+        mockMvc.perform(post("/calculator/api/calculate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CalculationRequest("2 + 3"))))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+        mockMvc.perform(post("/calculator/api/calculate/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"expression\": \"1\"}]"))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(post("/calculator/api/calculate")
+                .contentType(CalculationFrameCodec.MEDIA_TYPE_VALUE)
+                .content(bytesOf(CalculationFrameCodec.encodeRequest(new CalculationRequest("1")))))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+    }
+    
+    @Test
+    @DisplayName("受付制御 - 式のコストとクライアントを渡す")
+    void testCalculateApiAdmission() throws Exception {
+        when(admissionControl.isEnabled()).thenReturn(true);
+        when(batchCalculatorService.getMaxSize()).thenReturn(100);
+        when(batchCalculatorService.calculateRequests(anyList())).thenReturn(List.of());
+        
+        mockMvc.perform(post("/calculator/api/calculate/batch")
+                .with(request -> {
+                    request.setRemoteAddr("192.0.2.1");
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"expression\": \"1 + 1\"}, {\"expression\": \"2 * 2\"}]"))
+                .andExpect(status().isOk());
+        
+        verify(admissionControl).admit(eq("192.0.2.1"), eq(2L));
+    }
+    
+    @Test
+    @DisplayName("受付制御で拒否された場合、画面では計算結果のエラーとして表示する")
+    void testCalculateRejected() throws Exception {
+        when(admissionControl.isEnabled()).thenReturn(true);
+        when(admissionControl.admit(anyString(), anyLong())).thenThrow(new AdmissionRejectedException(
+                AdmissionControl.Reason.CONCURRENCY, "サーバーが混み合っています", Duration.ofSeconds(1)));
+        
+        mockMvc.perform(post("/calculator/calculate")
+                .param("expression", "2 + 3"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("calculator"))
+                .andExpect(model().attribute("calculationResult",
+                        hasProperty("errorMessage", is("サーバーが混み合っています"))));
+    }
 }
@@ -0,0 +1,172 @@
+package com.example.calculator.controller;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.AdmissionRejectedException;
+import com.example.calculator.service.CalculatorService;
+import com.example.calculator.service.ExpressionEditorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.RoundingMode;
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * ExpressionEditorControllerのテストクラス
+ */
+@WebMvcTest(controllers = ExpressionEditorController.class)
+@EnableConfigurationProperties(CalculatorProperties.class)
+class ExpressionEditorControllerTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @MockBean
+    private ExpressionEditorService editorService;
+    
+    @MockBean
+    private AdmissionControl admissionControl;
+    
+    private final ExpressionEditorService service =
+            new ExpressionEditorService(new CalculatorService(), 100, Duration.ZERO, 3);
+    
+    private final MockHttpSession session = new MockHttpSession();
+    
+    @BeforeEach
+    void setUp() {
+        when(editorService.open(anyString(), any(CalculationRequest.class)))
+                .thenAnswer(invocation -> service.open(invocation.getArgument(0), invocation.getArgument(1)));
+        when(editorService.get(anyString()))
+                .thenAnswer(invocation -> service.get(invocation.getArgument(0)));
+        when(editorService.edit(anyString(), anyList()))
+                .thenAnswer(invocation -> service.edit(invocation.getArgument(0), invocation.getArgument(1)));
+        when(editorService.estimate(anyString(), anyList()))
+                .thenAnswer(invocation -> service.estimate(invocation.getArgument(0), invocation.getArgument(1)));
+        when(editorService.getMaxEdits()).thenReturn(3);
+    }
+    
+    @Test
+    @DisplayName("式を設定して編集ごとに再評価するテスト")
+    void testOpenAndEdit() throws Exception {
+        mockMvc.perform(put("/calculator/api/editor").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\":\"\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.errorMessage").value("式が入力されていません"));
+        
+        mockMvc.perform(post("/calculator/api/editor/edits").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"position\":0,\"text\":\"12 + 3\"},{\"position\":1,\"deleteCount\":1,\"text\":\"0\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value("13"))
+                .andExpect(jsonPath("$.expression").doesNotExist());
+        
+        mockMvc.perform(post("/calculator/api/editor/edits").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"position\":6,\"text\":\" /\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.errorMessage").value("無効な式です"));
+        
+        mockMvc.perform(get("/calculator/api/editor").session(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expression").value("10 + 3 /"));
+    }
+    
+    @Test
+    @DisplayName("除算結果の精度を指定するテスト")
+    void testPrecision() throws Exception {
+        mockMvc.perform(put("/calculator/api/editor").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\":\"1 / 3\",\"scale\":2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value("0.33"));
+        
+        mockMvc.perform(put("/calculator/api/editor").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\":\"1 / 3\",\"scale\":-1}"))
+                .andExpect(status().isBadRequest());
+    }
+    
+    @Test
+    @DisplayName("編集中の式がない場合と範囲外・上限を超える編集のテスト")
+    void testErrors() throws Exception {
+        mockMvc.perform(post("/calculator/api/editor/edits").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"position\":0,\"text\":\"1\"}]"))
+                .andExpect(status().isNotFound());
+        
+        service.open(session.getId(), new CalculationRequest("1 + 2"));
+        mockMvc.perform(post("/calculator/api/editor/edits").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"position\":9,\"text\":\"1\"}]"))
+                .andExpect(status().isBadRequest());
+        
+        mockMvc.perform(post("/calculator/api/editor/edits").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"position\":0},{\"position\":0},{\"position\":0},{\"position\":0}]"))
+                .andExpect(status().isPayloadTooLarge());
+    }
+    
+    @Test
+    @DisplayName("受付制御 - 設定・編集した後の式のコストで受け付け、拒否した場合は429とRetry-Afterを返す")
+    void testAdmission() throws Exception {
+        when(admissionControl.isEnabled()).thenReturn(true);
+        mockMvc.perform(put("/calculator/api/editor").session(session)
+                .with(request -> {
+                    request.setRemoteAddr("192.0.2.1");
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\":\"1 / 3\",\"scale\":1000}"))
+                .andExpect(status().isOk());
+        Precision precision = Precision.ofScale(1000, RoundingMode.HALF_UP);
+        verify(admissionControl).admit(eq("192.0.2.1"), eq(AdmissionControl.estimate("1 / 3", precision)));
+        
+        when(admissionControl.admit(anyString(), anyLong())).thenThrow(new AdmissionRejectedException(
+                AdmissionControl.Reason.RATE_LIMIT, "リクエストが多すぎます", Duration.ofMillis(1500)));
+        mockMvc.perform(post("/calculator/api/editor/edits").session(session)
+                .with(request -> {
+                    request.setRemoteAddr("192.0.2.1");
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"position\":5,\"text\":\" / 7\"}]"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+        verify(admissionControl).admit(eq("192.0.2.1"), eq(AdmissionControl.estimate("1 / 3 / 7", precision)));
+        // 拒否した編集は適用しない
+        mockMvc.perform(get("/calculator/api/editor").session(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expression").value("1 / 3"));
+        
+        mockMvc.perform(put("/calculator/api/editor").session(session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\":\"2\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.calculator.controller;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.engine.InvalidExpressionException;
+import com.example.calculator.model.FormulaInfo;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.AdmissionRejectedException;
+import com.example.calculator.service.CalculatorService;
+import com.example.calculator.service.Formula;
+import com.example.calculator.service.FormulaRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * FormulaControllerのテストクラス
+ */
+@WebMvcTest(controllers = FormulaController.class)
+@EnableConfigurationProperties(CalculatorProperties.class)
+class FormulaControllerTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @MockBean
+    private FormulaRegistry formulaRegistry;
+    
+    @MockBean
+    private AdmissionControl admissionControl;
+    
+    private final FormulaRegistry registry =
+            new FormulaRegistry(new CalculatorService(), 100, Duration.ZERO, 2);
+    
+    @Test
+    @DisplayName("数式の登録テスト")
+    void testRegister() throws Exception {
+        when(formulaRegistry.register("x * y"))
+                .thenReturn(new FormulaInfo("f1", "x * y", List.of("x", "y")));
+        
+        mockMvc.perform(post("/calculator/api/formulas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\":\"x * y\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value("f1"))
+                .andExpect(jsonPath("$.variables[1]").value("y"));
+    }
+    
+    @Test
+    @DisplayName("無効な数式の登録テスト")
+    void testRegisterInvalid() throws Exception {
+        when(formulaRegistry.register(anyString())).thenThrow(new InvalidExpressionException("無効な式です"));
+        
+        mockMvc.perform(post("/calculator/api/formulas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"expression\":\"x +\"}"))
+                .andExpect(status().isBadRequest());
+    }
+    
+    @Test
+    @DisplayName("登録済みの数式の評価テスト")
+    void testEvaluate() throws Exception {
+        Formula formula = registry.get(registry.register("x * y").getId());
+        when(formulaRegistry.get("f1")).thenReturn(formula);
+        when(formulaRegistry.getMaxBindings()).thenReturn(2);
+        when(formulaRegistry.evaluate(eq(formula), anyList()))
+                .thenAnswer(invocation -> registry.evaluate(formula, invocation.getArgument(1)));
+        
+        mockMvc.perform(post("/calculator/api/formulas/f1/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"x\":2,\"y\":3},{\"x\":1.5,\"y\":4}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].result").value("6"))
+                .andExpect(jsonPath("$[1].result").value("6"));
+        
+        mockMvc.perform(post("/calculator/api/formulas/f1/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"x\":1,\"y\":1},{\"x\":1,\"y\":1},{\"x\":1,\"y\":1}]"))
+                .andExpect(status().isPayloadTooLarge());
+    }
+    
+    @Test
+    @DisplayName("未登録の数式のテスト")
+    void testUnknownFormula() throws Exception {
+        mockMvc.perform(get("/calculator/api/formulas/unknown"))
+                .andExpect(status().isNotFound());
+        
+        mockMvc.perform(post("/calculator/api/formulas/unknown/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isNotFound());
+    }
+    
+    @Test
+    @DisplayName("受付制御 - 値の組ごとのコストで受け付け、拒否した場合は429とRetry-Afterを返す")
+    void testEvaluateRejected() throws Exception {
+        Formula formula = registry.get(registry.register("sqrt(x) / y").getId());
+        when(formulaRegistry.get("f1")).thenReturn(formula);
+        when(formulaRegistry.getMaxBindings()).thenReturn(2);
+        when(admissionControl.isEnabled()).thenReturn(true);
+        when(admissionControl.admit(anyString(), anyLong())).thenThrow(new AdmissionRejectedException(
+                AdmissionControl.Reason.RATE_LIMIT, "リクエストが多すぎます", Duration.ofMillis(1500)));
+        
+        mockMvc.perform(post("/calculator/api/formulas/f1/evaluate")
+                .with(request -> {
+                    request.setRemoteAddr("192.0.2.1");
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"x\":2,\"y\":3},{\"x\":1.5,\"y\":4}]"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+        
+        verify(admissionControl).admit(eq("192.0.2.1"),
+                eq(2 * AdmissionControl.estimate("sqrt(x) / y", formula.getPrecision())));
+        verify(formulaRegistry, never()).evaluate(eq(formula), anyList());
+    }
+}
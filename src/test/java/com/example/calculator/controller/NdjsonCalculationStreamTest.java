@@ -0,0 +1,63 @@
+package com.example.calculator.controller;
+
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.CalculatorService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NdjsonCalculationStreamのテストクラス
+ */
+class NdjsonCalculationStreamTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CalculatorService calculatorService = new CalculatorService();
+
+    private List<CalculationResult> process(String input, int maxLineLength) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new NdjsonCalculationStream(new StringReader(input), objectMapper, maxLineLength)
+                .process(output, calculatorService::calculate);
+        return objectMapper.readerFor(CalculationResult.class)
+                .<CalculationResult>readValues(output.toString(StandardCharsets.UTF_8))
+                .readAll();
+    }
+
+    @Test
+    @DisplayName("バッファ境界をまたぐ大量の行を処理できる")
+    void testManyLines() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            input.append(i).append(" + 1\n");
+        }
+        input.append("2 * 3"); // 最終行は改行なし
+
+        List<CalculationResult> results = process(input.toString(), 1024);
+
+        assertEquals(10_001, results.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(String.valueOf(i + 1), results.get(i).getResult());
+        }
+        assertEquals("6", results.get(10_000).getResult());
+    }
+
+    @Test
+    @DisplayName("上限を超える行はエラーとして報告し、後続の行は処理を続ける")
+    void testLineTooLong() throws Exception {
+        String input = "1 + 1\n" + "1+".repeat(100) + "1\n3 - 1\n";
+
+        List<CalculationResult> results = process(input, 50);
+
+        assertEquals(3, results.size());
+        assertEquals("2", results.get(0).getResult());
+        assertEquals("式が長すぎます", results.get(1).getErrorMessage());
+        assertEquals("2", results.get(2).getResult());
+    }
+}
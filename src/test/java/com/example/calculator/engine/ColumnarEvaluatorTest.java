@@ -0,0 +1,215 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ColumnarEvaluatorのテストクラス
+ */
+class ColumnarEvaluatorTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static double[][] randomColumns(int count, int rows, long seed) {
+        Random random = new Random(seed);
+        double[][] columns = new double[count][rows];
+        for (double[] column : columns) {
+            for (int i = 0; i < rows; i++) {
+                column[i] = random.nextDouble() * 200 - 100;
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 行ごとに命令列を double で解釈した結果（比較の基準）
+     */
+    private static double evaluateRow(CompiledExpression expression, double[][] columns, int row) {
+        double[] stack = new double[expression.maxStackDepth()];
+        double[] slots = new double[expression.variables().size() + expression.temporaries()];
+        for (int i = 0; i < columns.length; i++) {
+            slots[i] = columns[i][row];
+        }
+        int size = 0;
+        int stored = expression.variables().size();
+        for (int instruction : expression.code()) {
+            if (instruction >= 0) {
+                stack[size++] = expression.constants()[instruction].doubleValue();
+            } else if (instruction <= CompiledExpression.VARIABLE_BASE) {
+                stack[size++] = slots[CompiledExpression.VARIABLE_BASE - instruction];
+            } else if (instruction == CompiledExpression.OP_STORE) {
+                slots[stored++] = stack[size - 1];
+            } else if (CompiledExpression.isFunction(instruction)) {
+                stack[size - 1] = ColumnKernels.apply(instruction, stack[size - 1]);
+            } else {
+                double b = stack[--size];
+                stack[size - 1] = ColumnKernels.apply(instruction, stack[size - 1], b);
+            }
+        }
+        return stack[0];
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "price * (1 + rate) - discount / 2",
+        "(a - b) * (a + b) / (c * c + 1)",
+        "x",
+        "2 * 3 + x - 4 / 8",
+        "1 / x",
+        "-x * y + -(z)",
+        "a * b + a * b + (a * b) * c"
+    })
+    @DisplayName("四則演算は行ごとに double で計算した結果と一致する（スカラー・Vector API とも）")
+    void testArithmeticMatchesRowByRow(String text) {
+        CompiledExpression expression = ExpressionParser.parseWithVariables(text);
+        int rows = 3 * ColumnarEvaluator.CHUNK_ROWS + 17;
+        double[][] columns = randomColumns(expression.variables().size(), rows, text.hashCode());
+
+        for (ColumnKernels kernels : new ColumnKernels[] {ColumnKernels.scalar(), ColumnKernels.preferred()}) {
+            double[] output = new double[rows];
+            new ColumnarEvaluator(expression, kernels, POOL, ColumnarEvaluator.DEFAULT_GRAIN)
+                    .evaluate(columns, output);
+            for (int row = 0; row < rows; row++) {
+                assertEquals(evaluateRow(expression, columns, row), output[row],
+                        kernels.name() + " " + text + " row=" + row);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("関数と累乗は Math の関数との差が丸め誤差の範囲に収まる")
+    void testFunctions() {
+        CompiledExpression expression = ExpressionParser.parseWithVariables(
+                "sqrt(x * x + y * y) + exp(x / 50) - ln(abs_x + 1) * sin(y) / (2 + cos(x)) + tan(y / 100) ^ 2 + (abs_x + 1) ^ 0.5");
+        int rows = 2 * ColumnarEvaluator.CHUNK_ROWS + 5;
+        double[][] columns = randomColumns(3, rows, 7);
+        for (int i = 0; i < rows; i++) {
+            columns[2][i] = Math.abs(columns[2][i]);
+        }
+        double[] output = new ColumnarEvaluator(expression).evaluate(columns);
+        for (int row = 0; row < rows; row++) {
+            double expected = evaluateRow(expression, columns, row);
+            assertEquals(expected, output[row], Math.abs(expected) * 1e-13, "row=" + row);
+        }
+    }
+
+    @Test
+    @DisplayName("double の計算結果は BigDecimal による評価とほぼ一致する")
+    void testMatchesBigDecimal() {
+        CompiledExpression expression = ExpressionParser.parseWithVariables("(a + b) * 3 / (b - 0.5) + a ^ 2");
+        double[][] columns = {{1.5, -2, 10, 0.25}, {2, 4, -3, 100}};
+        double[] output = new ColumnarEvaluator(expression).evaluate(columns);
+        for (int row = 0; row < output.length; row++) {
+            BigDecimal exact = expression.evaluate(new BigDecimal[] {
+                BigDecimal.valueOf(columns[0][row]), BigDecimal.valueOf(columns[1][row])
+            }, Precision.ofScale(30, RoundingMode.HALF_EVEN));
+            assertEquals(exact.doubleValue(), output[row], Math.abs(exact.doubleValue()) * 1e-15);
+        }
+    }
+
+    @Test
+    @DisplayName("行の範囲を分割して並列に評価しても結果は同じ")
+    void testParallel() {
+        CompiledExpression expression = ExpressionParser.parseWithVariables("a * b - c / (a + 2)");
+        int rows = 20 * ColumnarEvaluator.CHUNK_ROWS + 333;
+        double[][] columns = randomColumns(3, rows, 11);
+
+        double[] sequential = new double[rows];
+        new ColumnarEvaluator(expression, ColumnKernels.preferred(), POOL, Integer.MAX_VALUE / 2)
+                .evaluate(columns, sequential);
+        double[] parallel = new double[rows];
+        new ColumnarEvaluator(expression, ColumnKernels.preferred(), POOL, ColumnarEvaluator.CHUNK_ROWS)
+                .evaluate(columns, parallel);
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    @DisplayName("ダイレクトバッファの列は位置から上限までを評価し、位置を変更しない")
+    void testDirectBuffers() {
+        CompiledExpression expression = ExpressionParser.parseWithVariables("x * 2 + y");
+        int rows = ColumnarEvaluator.CHUNK_ROWS + 100;
+        double[][] columns = randomColumns(2, rows, 3);
+
+        DoubleBuffer x = ByteBuffer.allocateDirect((rows + 5) * Double.BYTES).order(ByteOrder.nativeOrder())
+                .asDoubleBuffer();
+        x.position(5);
+        x.slice().put(columns[0]);
+        DoubleBuffer y = DoubleBuffer.wrap(columns[1]);
+        DoubleBuffer output = ByteBuffer.allocateDirect(rows * Double.BYTES).order(ByteOrder.nativeOrder())
+                .asDoubleBuffer();
+
+        new ColumnarEvaluator(expression, ColumnKernels.preferred(), POOL, ColumnarEvaluator.CHUNK_ROWS)
+                .evaluate(new DoubleBuffer[] {x, y}, output);
+
+        assertEquals(5, x.position());
+        assertEquals(0, output.position());
+        for (int row = 0; row < rows; row++) {
+            assertEquals(columns[0][row] * 2 + columns[1][row], output.get(row), "row=" + row);
+        }
+    }
+
+    @Test
+    @DisplayName("最適化した式（一時変数を使う式）も評価できる")
+    void testOptimizedExpression() {
+        CompiledExpression expression = ExpressionParser.parseWithVariables(
+                "(a * b + 1) * (a * b + 1) - (a * b + 1) / (c - a * b) + 2 * 3");
+        CompiledExpression optimized = ExpressionOptimizer.optimize(expression);
+        assertTrue(optimized.temporaries() > 0);
+        int rows = ColumnarEvaluator.CHUNK_ROWS * 2 + 1;
+        double[][] columns = randomColumns(3, rows, 5);
+
+        double[] output = new ColumnarEvaluator(optimized).evaluate(columns);
+        for (int row = 0; row < rows; row++) {
+            double expected = evaluateRow(expression, columns, row);
+            assertEquals(expected, output[row], Math.abs(expected) * 1e-12, "row=" + row);
+        }
+    }
+
+    @Test
+    @DisplayName("変数を含まない式・ゼロ除算・定義域外の引数")
+    void testConstantsAndSpecialValues() {
+        double[] output = new double[10];
+        new ColumnarEvaluator(ExpressionParser.parse("1 + 2 * 3")).evaluate(new double[0][], output);
+        for (double value : output) {
+            assertEquals(7, value);
+        }
+
+        CompiledExpression expression = ExpressionParser.parseWithVariables("1 / x + sqrt(x)");
+        double[] result = new ColumnarEvaluator(expression).evaluate(new double[] {0, -1, 4});
+        assertEquals(Double.POSITIVE_INFINITY, result[0]);
+        assertTrue(Double.isNaN(result[1]));
+        assertEquals(2.25, result[2]);
+    }
+
+    @Test
+    @DisplayName("列の数・長さが一致しない場合はエラー")
+    void testInvalidColumns() {
+        ColumnarEvaluator evaluator = new ColumnarEvaluator(ExpressionParser.parseWithVariables("a + b"));
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluate(new double[] {1, 2}));
+        assertThrows(IllegalArgumentException.class,
+                () -> evaluator.evaluate(new double[][] {{1, 2}, {3}}, new double[2]));
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluate(
+                new DoubleBuffer[] {DoubleBuffer.allocate(3), DoubleBuffer.allocate(3)}, DoubleBuffer.allocate(2)));
+        assertThrows(InvalidExpressionException.class,
+                () -> new ColumnarEvaluator(ExpressionParser.parseWithVariables("a b")));
+    }
+
+    @Test
+    @DisplayName("テストでは Vector API のモジュールを読み込んで実行する")
+    void testVectorized() {
+        assertTrue(new ColumnarEvaluator(ExpressionParser.parseWithVariables("x")).isVectorized());
+        assertFalse(new ColumnarEvaluator(ExpressionParser.parseWithVariables("x"), false, POOL).isVectorized());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExpressionEvaluatorのテストクラス
+ */
+class ExpressionEvaluatorTest {
+
+    private static final int SCALE = 10;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "1 + 2 * 3",
+        "(1 + 2) * 3 - 4 / 7",
+        "-5 * (2 - -3) / 3",
+        "123456789012345678901234567890 * 98765432109876543210",
+        "0.1 + 0.2 - 0.3",
+        "((((1 / 3) * 3) + 2.5) * -2)",
+        "1 2 + 3",
+        "2 ^ 10 - sqrt(2) * -3 ^ 0.5",
+        "exp(1) + ln(2) / sin(1) - cos(2) * tan(0.5)"
+    })
+    @DisplayName("コンパイル後もインタープリタと同じ結果になる")
+    void testBytecodeMatchesInterpreter(String expression) {
+        CompiledExpression compiled = ExpressionParser.parse(expression);
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(false, 1);
+
+        BigDecimal result = evaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP);
+
+        assertNotNull(compiled.generated(1));
+        assertEquals(compiled.evaluateBigDecimal(SCALE, RoundingMode.HALF_UP), result);
+    }
+
+    @Test
+    @DisplayName("しきい値に達するまではコンパイルしない")
+    void testThreshold() {
+        CompiledExpression compiled = ExpressionParser.parse("1 + 2");
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 3);
+
+        evaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP);
+        evaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP);
+        assertNull(compiled.generated(Integer.MAX_VALUE));
+
+        evaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP);
+        assertNotNull(compiled.generated(Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("しきい値が0の場合はコンパイルしない")
+    void testDisabled() {
+        CompiledExpression compiled = ExpressionParser.parse("1 + 2");
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, new BigDecimal(3).compareTo(evaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP)));
+        }
+        assertNull(compiled.generated(Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("変数を含む式のコンパイル")
+    void testVariables() {
+        CompiledExpression compiled = ExpressionParser.parseWithVariables("x * x - y / 4");
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 1);
+
+        BigDecimal result = evaluator.evaluate(compiled, new BigDecimal[] {new BigDecimal("3"), BigDecimal.TEN},
+                Precision.ofScale(SCALE, RoundingMode.HALF_UP));
+
+        assertNotNull(compiled.generated(1));
+        assertEquals(0, new BigDecimal("6.5").compareTo(result));
+        assertThrows(IllegalArgumentException.class,
+                () -> evaluator.evaluate(compiled, new BigDecimal[] {BigDecimal.ONE},
+                        Precision.ofScale(SCALE, RoundingMode.HALF_UP)));
+    }
+
+    @Test
+    @DisplayName("コンパイル後も有効桁数の指定に従って除算する")
+    void testMathContextPrecision() {
+        CompiledExpression compiled = ExpressionParser.parse("(1 + 1) / 3 * 3");
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 1);
+        Precision precision = Precision.ofDigits(50, RoundingMode.DOWN);
+
+        BigDecimal result = evaluator.evaluate(compiled, precision);
+
+        assertNotNull(compiled.generated(1));
+        assertEquals(compiled.evaluateBigDecimal(precision), result);
+        assertEquals(new BigDecimal("1.99999999999999999999999999999999999999999999999998"), result);
+    }
+
+    @Test
+    @DisplayName("コンパイル後もゼロ除算はエラー")
+    void testDivisionByZero() {
+        CompiledExpression compiled = ExpressionParser.parse("1 / (2 - 2)");
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 1);
+
+        ArithmeticException e = assertThrows(ArithmeticException.class,
+                () -> evaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP));
+        assertEquals("ゼロ除算はできません", e.getMessage());
+        assertNotNull(compiled.generated(1));
+    }
+
+    @Test
+    @DisplayName("命令列が整合しない式はコンパイルせずにインタープリタで評価する")
+    void testMalformedExpressionIsInterpreted() {
+        CompiledExpression compiled = ExpressionParser.parse("1 + 2.3.4");
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 1);
+
+        ArithmeticException e = assertThrows(ArithmeticException.class,
+                () -> evaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP));
+        assertEquals("演算子に対して十分な数値がありません", e.getMessage());
+        assertNull(compiled.generated(1));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExpressionOptimizerのテストクラス
+ */
+class ExpressionOptimizerTest {
+
+    private static final Precision PRECISION = Precision.ofScale(10, RoundingMode.HALF_UP);
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "(1 + 2) * (3 + 4) + x|6",
+        "(x + 1) * (x + 1) + (x + 1)|4",
+        "(x / 3 + y) * (x / 3 + y) - (x / 3 + y) / 2|8",
+        "x * 2 * 3 + 1 + 2 * 3|2",
+        "-5 * (x - -3) / 3 + x|2",
+        "(x + y) * (x + y) * (x + y) * (x + y)|6",
+        "sqrt(x) * sqrt(x) + 2 ^ 3 ^ 2|5",
+        "(x ^ 0.5 + 1) / (x ^ 0.5 + 1) + exp(2 ^ 2)|6"
+    })
+    @DisplayName("省略したノードの数")
+    void testEliminatedNodes(String expression, int eliminated) {
+        CompiledExpression compiled = ExpressionParser.parseWithVariables(expression);
+        CompiledExpression optimized = ExpressionOptimizer.optimize(compiled);
+        assertEquals(eliminated, optimized.eliminatedNodes());
+        assertSameResults(compiled, optimized, new BigDecimal[] {new BigDecimal("7.5"), new BigDecimal("-2")});
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "1 + 2 * 3",
+        "x + y * 3 - 4 / 2 + 1",
+        "x + y - x * y + 1 + 2",
+        "1 + 2.3.4 + (1 + 2) * (1 + 2)"
+    })
+    @DisplayName("短い式・省略できない式・命令列が整合しない式はそのまま返す")
+    void testUnchanged(String expression) {
+        CompiledExpression compiled = ExpressionParser.parseWithVariables(expression);
+        assertSame(compiled, ExpressionOptimizer.optimize(compiled));
+    }
+
+    @Test
+    @DisplayName("最初に発生するエラーは最適化前と同じ")
+    void testFirstErrorIsPreserved() {
+        CompiledExpression compiled = ExpressionParser.parse("(1 / (2 - 2) + 3 * 4) * (1 / (2 - 2) + 3 * 4) + 5 * 6");
+        CompiledExpression optimized = ExpressionOptimizer.optimize(compiled);
+        assertTrue(optimized.eliminatedNodes() > 0);
+        ArithmeticException e = assertThrows(ArithmeticException.class, () -> optimized.evaluate(PRECISION));
+        assertEquals("ゼロ除算はできません", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("ランダムな式で最適化前と同じ結果になる（高速評価・BigDecimal・バイトコード）")
+    void testRandomExpressions() {
+        Random random = new Random(15);
+        String[] operands = {"x", "y", "2", "0.5", "3", "10", "(x + 1)", "(2 * 3)", "(x / y)", "(y - 0.25)",
+            "sqrt(x * x)", "(2 ^ 3)", "(y ^ 2)", "exp(0.5)"};
+        for (int i = 0; i < 500; i++) {
+            StringBuilder expression = new StringBuilder(operands[random.nextInt(operands.length)]);
+            int terms = 4 + random.nextInt(20);
+            for (int j = 0; j < terms; j++) {
+                expression.append(' ').append("+-*/".charAt(random.nextInt(4))).append(' ');
+                String operand = operands[random.nextInt(operands.length)];
+                expression.append(random.nextInt(4) == 0 ? "(" + operand + " * " + operand + ")" : operand);
+            }
+            CompiledExpression compiled = ExpressionParser.parseWithVariables(expression.toString());
+            CompiledExpression optimized = ExpressionOptimizer.optimize(compiled);
+            BigDecimal[] bindings = {
+                BigDecimal.valueOf(random.nextInt(200) - 100, random.nextInt(3)),
+                BigDecimal.valueOf(random.nextInt(200) - 100, random.nextInt(3))
+            };
+            assertSameResults(compiled, optimized, bindings);
+        }
+    }
+
+    private static void assertSameResults(CompiledExpression compiled, CompiledExpression optimized,
+                                          BigDecimal[] bindings) {
+        BigDecimal[] values = Arrays.copyOf(bindings, compiled.variables().size());
+        Object expected = outcome(() -> compiled.evaluateBigDecimal(values, PRECISION));
+        assertEquals(expected, outcome(() -> optimized.evaluateBigDecimal(values, PRECISION)));
+        assertEquals(outcome(() -> compiled.evaluate(values, PRECISION)),
+                outcome(() -> optimized.evaluate(values, PRECISION)));
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(false, 1);
+        assertEquals(expected, outcome(() -> evaluator.evaluate(optimized, values, PRECISION)));
+        assertEquals(expected, outcome(() -> evaluator.evaluate(optimized, values, PRECISION)));
+    }
+
+    /**
+     * 評価結果またはエラーメッセージ
+     */
+    private static Object outcome(Supplier<BigDecimal> evaluation) {
+        try {
+            return evaluation.get();
+        } catch (ArithmeticException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExpressionParserのテストクラス
+ */
+class ExpressionParserTest {
+
+    private static BigDecimal evaluate(String expression) {
+        return ExpressionParser.parse(expression).evaluate(10, RoundingMode.HALF_UP);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "1 + 2 * 3|7",
+        "(1 + 2) * 3|9",
+        "1 2 + 3|15",
+        "2 * - 3|-6",
+        "1 --- 2|-1",
+        "1 ++- 2|-1",
+        "1 ++ 2|3",
+        "-.5 + 5.|4.5",
+        "10 / 4|2.5000000000"
+    })
+    @DisplayName("正規化を含む解析と評価")
+    void testParseAndEvaluate(String expression, String expected) {
+        assertEquals(new BigDecimal(expected), evaluate(expression));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "abc",
+        "2 +",
+        "* 2",
+        "2 */ 3",
+        "2 + * 3",
+        "(2 + 3",
+        "2 + 3)",
+        ")(",
+        "+++1",
+        "1 +-+- 2",
+        "1 +-+-+-+-+-+-+-+-+- 2"
+    })
+    @DisplayName("無効な式の検出")
+    void testInvalidExpressions(String expression) {
+        assertThrows(InvalidExpressionException.class, () -> ExpressionParser.parse(expression));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "2 ^ 10|1024",
+        "2 ^ 3 ^ 2|512",
+        "-2 ^ 2|-4",
+        "(0 - 2) ^ 2|4",
+        "2 * 3 ^ 2|18",
+        "2 ^ -1|0.5000000000",
+        "-2 ^ -2|-0.2500000000",
+        "2 ^ (1 + 2) * 2|16",
+        "4 ^ 0.5|2.0000000000",
+        "sqrt(16) + 1|5.0000000000",
+        "-sqrt(4)|-2.0000000000",
+        "sqrt (2 * 8) ^ 2|16.00000000000000000000",
+        "2 * -sqrt(9)|-6.0000000000",
+        "exp(0)|1.0000000000",
+        "ln(1) + cos(0)|1.0000000000",
+        "sin(0) - tan(0)|0E-10"
+    })
+    @DisplayName("累乗と関数の解析と評価")
+    void testPowerAndFunctions(String expression, String expected) {
+        assertEquals(new BigDecimal(expected), evaluate(expression));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "^ 2",
+        "2 ^",
+        "2 ^ * 3",
+        "2 * ^ 3",
+        "(^ 2)",
+        "2 -^ 3",
+        "2 ^+ 3",
+        "sqrt 4",
+        "sqrt",
+        "sqrt(4",
+        "2 sqrt(4)",
+        "sq rt(4)",
+        "log(10)"
+    })
+    @DisplayName("累乗と関数を含む無効な式の検出")
+    void testInvalidPowerAndFunctions(String expression) {
+        assertThrows(InvalidExpressionException.class, () -> ExpressionParser.parse(expression));
+    }
+
+    @Test
+    @DisplayName("関数の定義域外の引数はエラー")
+    void testFunctionDomainErrors() {
+        ArithmeticException e = assertThrows(ArithmeticException.class, () -> evaluate("sqrt(0 - 1)"));
+        assertEquals("負の数の平方根は計算できません", e.getMessage());
+        e = assertThrows(ArithmeticException.class, () -> evaluate("ln(0)"));
+        assertEquals("0以下の数の対数は計算できません", e.getMessage());
+        e = assertThrows(ArithmeticException.class, () -> evaluate("0 ^ -1"));
+        assertEquals("ゼロ除算はできません", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("数値として解釈できないトークンは無視される")
+    void testMalformedNumberIsIgnored() {
+        ArithmeticException e = assertThrows(ArithmeticException.class, () -> evaluate("1 + 2.3.4"));
+        assertEquals("演算子に対して十分な数値がありません", e.getMessage());
+
+        e = assertThrows(ArithmeticException.class, () -> evaluate("2..3"));
+        assertEquals("計算結果が不正です", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("評価順序に従って最初のエラーが報告される")
+    void testFirstErrorWins() {
+        ArithmeticException e = assertThrows(ArithmeticException.class, () -> evaluate("1 / 0 + 2.3.4"));
+        assertEquals("ゼロ除算はできません", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("解析済みの式は再利用できる")
+    void testCompiledExpressionIsReusable() {
+        CompiledExpression compiled = ExpressionParser.parse("(1 + 2) / 3");
+        assertEquals(0, BigDecimal.ONE.compareTo(compiled.evaluate(10, RoundingMode.HALF_UP)));
+        assertEquals(0, BigDecimal.ONE.compareTo(compiled.evaluate(10, RoundingMode.HALF_UP)));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "2 + 3|2+3",
+        "  1 -- 2 |1+2",
+        "1 ++- 2|1-2",
+        "1 +-+- 2|1+-+-2",
+        "2*-3|2*-3",
+        "sqrt ( 4 ) ^ 2|sqrt(4)^2",
+        "sq rt(4)|sq rt(4)",
+        "x1 2|x1 2",
+        "2 x|2 x",
+        "1 2 + x|12+x"
+    })
+    @DisplayName("式の正規化")
+    void testNormalize(String expression, String expected) {
+        assertEquals(expected, ExpressionParser.normalize(expression));
+    }
+
+    @Test
+    @DisplayName("変更がない場合は同じインスタンスを返す")
+    void testNormalizeReturnsSameInstance() {
+        String expression = "(1+2)*3";
+        assertSame(expression, ExpressionParser.normalize(expression));
+    }
+
+    @Test
+    @DisplayName("空白判定はtrimと同じ基準")
+    void testIsBlank() {
+        assertTrue(ExpressionParser.isBlank(""));
+        assertTrue(ExpressionParser.isBlank(" \t\u0001"));
+        assertFalse(ExpressionParser.isBlank(" 1 "));
+    }
+
+    @Test
+    @DisplayName("変数を含む式の解析と評価")
+    void testParseWithVariables() {
+        CompiledExpression compiled = ExpressionParser.parseWithVariables("rate * (price - x) + x");
+        assertEquals(List.of("rate", "price", "x"), compiled.variables());
+
+        BigDecimal result = compiled.evaluate(Map.of("rate", new BigDecimal("0.5"), "price", new BigDecimal("10"),
+                "x", new BigDecimal("2")), 10, RoundingMode.HALF_UP);
+        assertEquals(0, new BigDecimal("6").compareTo(result));
+
+        result = compiled.evaluate(new BigDecimal[] {BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ZERO},
+                10, RoundingMode.HALF_UP);
+        assertEquals(0, BigDecimal.TEN.compareTo(result));
+    }
+
+    @Test
+    @DisplayName("変数の値が不足している場合はエラー")
+    void testMissingBinding() {
+        CompiledExpression compiled = ExpressionParser.parseWithVariables("a + b");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> compiled.evaluate(Map.of("a", BigDecimal.ONE), 10, RoundingMode.HALF_UP));
+        assertEquals("変数の値が指定されていません: b", e.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> compiled.evaluate(new BigDecimal[] {BigDecimal.ONE}, 10, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    @DisplayName("変数を許可しない解析では識別子は無効")
+    void testVariablesRejectedByDefault() {
+        assertThrows(InvalidExpressionException.class, () -> ExpressionParser.parse("a + 1"));
+        assertThrows(InvalidExpressionException.class, () -> ExpressionParser.parseWithVariables("a b"));
+        assertThrows(InvalidExpressionException.class, () -> ExpressionParser.parseWithVariables("2a"));
+        assertThrows(InvalidExpressionException.class, () -> ExpressionParser.parseWithVariables("a 2"));
+    }
+
+    @Test
+    @DisplayName("関数名の後ろに括弧が続かない場合は変数として扱う")
+    void testFunctionNamesAsVariables() {
+        CompiledExpression compiled = ExpressionParser.parseWithVariables("sqrt(x) + sin * 2 ^ x");
+        assertEquals(List.of("x", "sin"), compiled.variables());
+        BigDecimal result = compiled.evaluate(Map.of("x", new BigDecimal("4"), "sin", new BigDecimal("0.5")),
+                10, RoundingMode.HALF_UP);
+        assertEquals(0, new BigDecimal("10").compareTo(result));
+    }
+}
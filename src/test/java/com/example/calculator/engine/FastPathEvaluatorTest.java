@@ -0,0 +1,150 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FastPathEvaluatorのテストクラス
+ */
+class FastPathEvaluatorTest {
+
+    private static final int SCALE = 10;
+    private static final Precision PRECISION = Precision.ofScale(SCALE, RoundingMode.HALF_UP);
+    private static final BigDecimal[] NO_BINDINGS = new BigDecimal[0];
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "1 + 2 * 3",
+        "0.1 + 0.2",
+        "10 / 4",
+        "-7 / 2",
+        "2 / 3",
+        "-2 / 3",
+        "1.005 * 3",
+        "999999999 * 999999999",
+        "2 ^ 62",
+        "-1.5 ^ 3",
+        "2 ^ -3",
+        "2 ^ 0.5 + sqrt(3) - exp(1)"
+    })
+    @DisplayName("高速評価で計算できる式")
+    void testFastPath(String expression) {
+        CompiledExpression compiled = ExpressionParser.parse(expression);
+        BigDecimal fast = FastPathEvaluator.evaluate(compiled, NO_BINDINGS, PRECISION);
+        assertNotNull(fast, expression);
+        assertEquals(0, compiled.evaluateBigDecimal(SCALE, RoundingMode.HALF_UP).compareTo(fast), expression);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "9223372036854775807 + 1",
+        "99999999999 * 99999999999",
+        "12345678901234567890",
+        "0.0000000001 * 0.0000000001",
+        "2 ^ 63",
+        "0.1 ^ 19",
+        "exp(100)"
+    })
+    @DisplayName("正確に計算できない場合はフォールバックする")
+    void testFallback(String expression) {
+        CompiledExpression compiled = ExpressionParser.parse(expression);
+        assertNull(FastPathEvaluator.evaluate(compiled, NO_BINDINGS, PRECISION), expression);
+        assertNotNull(compiled.evaluate(SCALE, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    @DisplayName("ゼロ除算は同じエラーになる")
+    void testDivisionByZero() {
+        CompiledExpression compiled = ExpressionParser.parse("1 / (2 - 2)");
+        ArithmeticException e = assertThrows(ArithmeticException.class,
+                () -> FastPathEvaluator.evaluate(compiled, NO_BINDINGS, PRECISION));
+        assertEquals("ゼロ除算はできません", e.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1 ^ 12345678901234567", "-1 ^ 2147483648", "0 ^ 4294967296"})
+    @DisplayName("int の範囲外の整数乗はすべての評価方法で同じエラーになる")
+    void testExponentOutOfRange(String expression) {
+        CompiledExpression compiled = ExpressionParser.parse(expression);
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(false, 1);
+        for (Executable evaluation : new Executable[] {
+            () -> FastPathEvaluator.evaluate(compiled, NO_BINDINGS, PRECISION),
+            () -> compiled.evaluateBigDecimal(PRECISION),
+            () -> compiled.evaluate(PRECISION.withDeferredRounding()),
+            () -> evaluator.evaluate(compiled, SCALE, RoundingMode.HALF_UP)
+        }) {
+            assertEquals("指数が大きすぎます",
+                    assertThrows(ArithmeticException.class, evaluation, expression).getMessage(), expression);
+        }
+    }
+
+    @Test
+    @DisplayName("有効桁数の指定や UNNECESSARY は対象外")
+    void testUnsupportedPrecision() {
+        CompiledExpression compiled = ExpressionParser.parse("1 / 4");
+        assertNull(FastPathEvaluator.evaluate(compiled, NO_BINDINGS, Precision.ofDigits(10, RoundingMode.HALF_UP)));
+        assertNull(FastPathEvaluator.evaluate(compiled, NO_BINDINGS,
+                Precision.ofScale(SCALE, RoundingMode.UNNECESSARY)));
+        assertNull(FastPathEvaluator.evaluate(compiled, NO_BINDINGS, Precision.ofScale(19, RoundingMode.HALF_UP)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"UP", "DOWN", "CEILING", "FLOOR", "HALF_UP", "HALF_DOWN", "HALF_EVEN"})
+    @DisplayName("すべての丸めモードでBigDecimalによる除算と一致する")
+    void testRoundingModes(RoundingMode roundingMode) {
+        Random random = new Random(7);
+        for (int n = 0; n < 5_000; n++) {
+            int scale = random.nextInt(4);
+            Precision precision = Precision.ofScale(scale, roundingMode);
+            // 丸めの境界（x.5）になる値を多く含める
+            String expression = (random.nextInt(2001) - 1000) + (random.nextBoolean() ? ".5" : "")
+                    + " / " + (1 + random.nextInt(random.nextBoolean() ? 4 : 100));
+            CompiledExpression compiled = ExpressionParser.parse(expression);
+            BigDecimal fast = FastPathEvaluator.evaluate(compiled, NO_BINDINGS, precision);
+            assertNotNull(fast, expression);
+            assertEquals(compiled.evaluateBigDecimal(precision), fast, expression + " " + roundingMode);
+        }
+    }
+
+    @Test
+    @DisplayName("ランダムな式でBigDecimalによる評価と一致する")
+    void testMatchesBigDecimalEvaluation() {
+        Random random = new Random(42);
+        String[] operators = {"+", "-", "*", "/"};
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder expression = new StringBuilder();
+            int terms = 2 + random.nextInt(6);
+            for (int t = 0; t < terms; t++) {
+                if (t > 0) {
+                    expression.append(operators[random.nextInt(operators.length)]);
+                }
+                if (random.nextInt(4) == 0) {
+                    expression.append('-');
+                }
+                expression.append(random.nextInt(random.nextBoolean() ? 10 : 1_000_000));
+                if (random.nextBoolean()) {
+                    expression.append('.').append(random.nextInt(1000));
+                }
+            }
+
+            CompiledExpression compiled = ExpressionParser.parse(expression.toString());
+            BigDecimal expected;
+            try {
+                expected = compiled.evaluateBigDecimal(SCALE, RoundingMode.HALF_UP);
+            } catch (ArithmeticException e) {
+                assertThrows(ArithmeticException.class, () -> compiled.evaluate(SCALE, RoundingMode.HALF_UP));
+                continue;
+            }
+            assertEquals(0, expected.compareTo(compiled.evaluate(SCALE, RoundingMode.HALF_UP)), expression.toString());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IncrementalExpressionのテストクラス
+ */
+class IncrementalExpressionTest {
+
+    private static final Precision PRECISION = Precision.ofScale(10, RoundingMode.HALF_UP);
+    private static final ExpressionEvaluator EVALUATOR = new ExpressionEvaluator(false, 0);
+    private static final ExpressionEvaluator FAST_PATH = new ExpressionEvaluator(true, 0);
+
+    /** ランダムな編集で挿入する断片（区切りや括弧の対応を変える編集、無効な式になる編集を含む） */
+    private static final String[] FRAGMENTS = {
+        "1", "2", "0", "7", ".", "5.5", " ", "+", "-", "*", "/", "(", ")", "--", "+-", " - ", " + ",
+        "3 * (2 - 1)", "1 / 0", "/ 3", "1.2.3", "x", "\u0001", "(1 + 2", "+ 4) * 2", "- -"
+    };
+
+    private static IncrementalExpression expression(String text) {
+        return expression(EVALUATOR, text);
+    }
+
+    private static IncrementalExpression expression(ExpressionEvaluator evaluator, String text) {
+        IncrementalExpression expression = new IncrementalExpression(evaluator, PRECISION);
+        expression.setText(text);
+        return expression;
+    }
+
+    /**
+     * 式全体を解析・評価した結果（値またはエラーの種類とメッセージ）
+     */
+    private static Object expected(String text) {
+        try {
+            return EVALUATOR.evaluate(ExpressionParser.parse(text), PRECISION);
+        } catch (InvalidExpressionException e) {
+            return "invalid";
+        } catch (ArithmeticException e) {
+            return e.getMessage();
+        } catch (RuntimeException e) {
+            return "unexpected";
+        }
+    }
+
+    private static Object actual(IncrementalExpression expression) {
+        try {
+            return expression.evaluate();
+        } catch (InvalidExpressionException e) {
+            return "invalid";
+        } catch (ArithmeticException e) {
+            return e.getMessage();
+        } catch (RuntimeException e) {
+            return "unexpected";
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "1 + 2 * 3 - 4 / 8",
+        "-3 + 4 - -5 +- 6 -+ 7 ++ 8",
+        "2 * -3 + (1 - 2) * (3 + 4) - 0.5",
+        "1 + 1 / 0 + 2 / 0",
+        "1 + 2.3.4 * 5",
+        "1 + * 2",
+        "5 - * 3",
+        "(1 + 2",
+        "1 + 2)",
+        "1 +",
+        "1 + \u00012",
+        "\u00011 + 2",
+        "1 2 + 3 4",
+        "1 + ----------------- 2",
+        "-2 ^ 2 + 1",
+        "1 - 2 ^ -1 - sqrt(4) + 2 ^ 3 ^ 2",
+        "sqrt(0 - 1) + 1 / 0"
+    })
+    @DisplayName("式全体を解析・評価した場合と同じ結果になる")
+    void testSameAsFullEvaluation(String text) {
+        assertEquals(expected(text), actual(expression(text)), text);
+    }
+
+    @Test
+    @DisplayName("ランダムな編集の後も式の文字列と結果が式全体の評価と一致する")
+    void testRandomEdits() {
+        Random random = new Random(17);
+        for (int round = 0; round < 50; round++) {
+            StringBuilder text = new StringBuilder(randomExpression(random, 2 + random.nextInt(10)));
+            IncrementalExpression expression = expression(text.toString());
+            IncrementalExpression fastPath = expression(FAST_PATH, text.toString());
+            for (int i = 0; i < 200; i++) {
+                int position = random.nextInt(text.length() + 1);
+                int deleteCount = random.nextInt(4) == 0 ? random.nextInt(text.length() - position + 1) / 4 : 0;
+                String insertion = random.nextInt(3) == 0 ? "" : FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+                text.replace(position, position + deleteCount, insertion);
+                expression.edit(position, deleteCount, insertion);
+                fastPath.edit(position, deleteCount, insertion);
+
+                assertEquals(text.toString(), expression.text());
+                Object expected = expected(text.toString());
+                assertEquals(expected, actual(expression), text.toString());
+                // 高速評価では末尾の0の桁数が異なる場合があるため値だけを比較する
+                assertEquals(stripped(expected), stripped(actual(fastPath)), text.toString());
+            }
+        }
+    }
+
+    private static Object stripped(Object outcome) {
+        return outcome instanceof BigDecimal value ? value.stripTrailingZeros() : outcome;
+    }
+
+    private static String randomExpression(Random random, int terms) {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                expression.append(' ').append("+-*/".charAt(random.nextInt(4))).append(' ');
+            }
+            if (random.nextInt(4) == 0) {
+                expression.append('(').append(randomExpression(random, 2)).append(')');
+            } else {
+                expression.append(random.nextInt(100)).append(random.nextBoolean() ? "" : ".25");
+            }
+        }
+        return expression.toString();
+    }
+
+    @Test
+    @DisplayName("局所的な編集では編集位置の周辺だけを分割し直す")
+    void testLocalEditReparsesNeighbourhoodOnly() {
+        String text = "12.5 * 3 + 7 / 4 - 2 * (3 - 1) + ".repeat(10_000) + "1";
+        IncrementalExpression expression = expression(text);
+        assertTrue(expression.termCount() > 30_000);
+
+        // 項の途中の数値を書き換える
+        int position = text.length() / 2;
+        position = text.indexOf("12.5", position);
+        expression.edit(position, 4, "13");
+        String edited = text.substring(0, position) + "13" + text.substring(position + 4);
+        assertTrue(expression.lastReparsedLength() < 100);
+        assertEquals(expected(edited), expression.evaluate());
+
+        // 区切りの符号を書き換えて2つの項をつなげる
+        int separator = edited.indexOf(" + ", position);
+        expression.edit(separator + 1, 1, "*");
+        edited = edited.substring(0, separator + 1) + "*" + edited.substring(separator + 2);
+        assertTrue(expression.lastReparsedLength() < 100);
+        assertEquals(expected(edited), expression.evaluate());
+
+        // 入力途中の式（末尾の演算子）は式全体の評価と同じく無効になる
+        expression.edit(edited.length(), 0, " +");
+        assertThrows(InvalidExpressionException.class, expression::evaluate);
+        expression.edit(edited.length(), 2, "");
+        assertEquals(expected(edited), expression.evaluate());
+    }
+
+    @Test
+    @DisplayName("括弧を開く編集は対応が取れるまで分割し直す")
+    void testUnbalancedParentheses() {
+        IncrementalExpression expression = expression("1 + 2 * 3 + 4 - 5");
+        expression.edit(4, 0, "(");
+        assertEquals("1 + (2 * 3 + 4 - 5", expression.text());
+        assertThrows(InvalidExpressionException.class, expression::evaluate);
+
+        expression.edit(expression.length() - 4, 0, ")");
+        assertEquals("1 + (2 * 3 + 4) - 5", expression.text());
+        assertEquals(new BigDecimal("6"), expression.evaluate());
+    }
+
+    @Test
+    @DisplayName("最も左の項の計算エラーを報告する")
+    void testFirstError() {
+        IncrementalExpression expression = expression("1 + 2 / 3 + 1 / (1 - 1)");
+        ArithmeticException e = assertThrows(ArithmeticException.class, expression::evaluate);
+        assertEquals("ゼロ除算はできません", e.getMessage());
+
+        expression.edit(0, 0, "1 / 0 + ");
+        assertEquals(expected(expression.text()), actual(expression));
+    }
+
+    @Test
+    @DisplayName("範囲外の編集は拒否する")
+    void testOutOfRange() {
+        IncrementalExpression expression = expression("1 + 2");
+        assertThrows(IllegalArgumentException.class, () -> expression.edit(6, 0, "1"));
+        assertThrows(IllegalArgumentException.class, () -> expression.edit(4, 2, ""));
+        assertThrows(IllegalArgumentException.class, () -> expression.edit(-1, 0, "1"));
+        assertEquals("1 + 2", expression.text());
+    }
+
+    @Test
+    @DisplayName("空の式から入力して全て削除する")
+    void testEmpty() {
+        IncrementalExpression expression = expression("");
+        assertTrue(expression.isBlank());
+        expression.edit(0, 0, "4");
+        expression.edit(1, 0, "2");
+        assertEquals(new BigDecimal("42"), expression.evaluate());
+        expression.edit(0, 2, "  ");
+        assertTrue(expression.isBlank());
+        expression.edit(0, 2, "");
+        assertEquals(0, expression.termCount());
+    }
+}
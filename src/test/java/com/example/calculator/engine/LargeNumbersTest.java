@@ -0,0 +1,105 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LargeNumbersのテストクラス
+ */
+class LargeNumbersTest {
+
+    private static String digits(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('0' + random.nextInt(10)));
+        }
+        return builder.toString();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 999, 1000, 1001, 4097, 65_536, 100_003})
+    @DisplayName("文字列からの変換は new BigDecimal と同じ結果になる")
+    void testParseMatchesBigDecimal(int length) {
+        Random random = new Random(length);
+        for (String text : new String[] {
+                digits(random, length),
+                "0".repeat(length / 2) + digits(random, length - length / 2),
+                digits(random, length / 3) + "." + digits(random, length - length / 3),
+                digits(random, length) + ".",
+                "." + digits(random, length)}) {
+            char[] chars = ("x" + text + "x").toCharArray();
+            BigDecimal expected = new BigDecimal(text);
+            BigDecimal actual = LargeNumbers.parse(chars, 1, text.length());
+            assertEquals(expected, actual);
+            assertEquals(expected.scale(), actual.scale());
+        }
+    }
+
+    @Test
+    @DisplayName("数値として解釈できない文字列はエラー")
+    void testParseInvalid() {
+        String text = "1".repeat(2000) + ".." + "1";
+        assertThrows(NumberFormatException.class, () -> LargeNumbers.parse(text.toCharArray(), 0, text.length()));
+        String letters = "1".repeat(2000) + "a";
+        assertThrows(NumberFormatException.class,
+                () -> LargeNumbers.parse(letters.toCharArray(), 0, letters.length()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 63, 64, 65, 1000, 12_345})
+    @DisplayName("末尾の0の除去は stripTrailingZeros と同じ結果になる")
+    void testStripTrailingZerosMatchesBigDecimal(int zeros) {
+        Random random = new Random(zeros);
+        BigInteger unscaled = new BigInteger(digits(random, 500) + "7" + "0".repeat(zeros));
+        for (int scale : new int[] {0, zeros / 2, zeros, zeros + 10, -5}) {
+            for (BigInteger value : new BigInteger[] {unscaled, unscaled.negate()}) {
+                BigDecimal decimal = new BigDecimal(value, scale);
+                BigDecimal expected = decimal.stripTrailingZeros();
+                BigDecimal actual = LargeNumbers.stripTrailingZeros(decimal);
+                assertEquals(expected, actual);
+                assertEquals(expected.scale(), actual.scale());
+            }
+        }
+        assertSame(BigDecimal.ZERO, LargeNumbers.stripTrailingZeros(new BigDecimal("0.000")));
+    }
+
+    @Test
+    @DisplayName("しきい値を超える乗算は multiply と同じ結果になる")
+    void testParallelMultiplyMatchesBigDecimal() {
+        Random random = new Random(42);
+        BigDecimal a = new BigDecimal(new BigInteger(LargeNumbers.PARALLEL_MULTIPLY_THRESHOLD_BITS + 10, random), 7);
+        BigDecimal b = new BigDecimal(new BigInteger(LargeNumbers.PARALLEL_MULTIPLY_THRESHOLD_BITS + 99, random), -3);
+        BigDecimal expected = a.multiply(b);
+        BigDecimal actual = LargeNumbers.multiply(a, b);
+        assertEquals(expected, actual);
+        assertEquals(expected, LargeNumbers.multiply(a.negate(), b.negate()));
+        assertEquals(new BigDecimal("6.0"), LargeNumbers.multiply(new BigDecimal("2.0"), new BigDecimal(3)));
+    }
+
+    @Test
+    @DisplayName("大きい数値を含む式の評価（インタープリタとバイトコード）")
+    void testLargeExpression() {
+        String a = "9".repeat(3000);
+        String b = "1" + "0".repeat(2999) + ".5";
+        CompiledExpression compiled = ExpressionParser.parse(a + " * " + b + " - " + a + " / 2");
+        assertTrue(compiled.largeOperands());
+
+        BigDecimal x = new BigDecimal(a);
+        BigDecimal expected = x.multiply(new BigDecimal(b))
+                .subtract(x.divide(new BigDecimal(2), 10, RoundingMode.HALF_UP));
+        assertEquals(expected, compiled.evaluate(10, RoundingMode.HALF_UP));
+
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(true, 1);
+        assertEquals(expected, evaluator.evaluate(compiled, 10, RoundingMode.HALF_UP));
+        assertNotNull(compiled.generated(1));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MathFunctionsのテストクラス
+ */
+class MathFunctionsTest {
+
+    private static BigDecimal apply(String function, BigDecimal x, Precision precision) {
+        int index = Arrays.asList(CompiledExpression.FUNCTIONS).indexOf(function);
+        return CompiledExpression.performFunction(x, CompiledExpression.OP_SQRT - index, precision);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "sqrt|2|1.41421356237309504880168872420969807856967187537694807317668",
+        "exp|1|2.71828182845904523536028747135266249775724709369995957496697",
+        "exp|-3.7|0.0247235264703393912027573829834026293445050703378706359632774",
+        "ln|2|0.693147180559945309417232121458176568075500134360255254120680",
+        "ln|10|2.30258509299404568401799145468436420760110148862877297603333",
+        "ln|0.001|-6.90775527898213705205397436405309262280330446588631892809998",
+        "sin|1|0.841470984807896506652502321630298999622563060798371065672752",
+        "cos|1|0.540302305868139717400936607442976603732310420617922227670097",
+        "tan|1|1.55740772465490223050697480745836017308725077238152003838395"
+    })
+    @DisplayName("関数の値は小数点以下の桁数・有効桁数のいずれの指定でも正しく丸められる")
+    void testKnownValues(String function, String argument, String expected) {
+        BigDecimal x = new BigDecimal(argument);
+        BigDecimal exact = new BigDecimal(expected);
+        for (int digits : new int[] {1, 10, 15, 16, 40}) {
+            for (RoundingMode mode : new RoundingMode[] {RoundingMode.HALF_UP, RoundingMode.DOWN, RoundingMode.CEILING}) {
+                assertEquals(exact.setScale(digits, mode), apply(function, x, Precision.ofScale(digits, mode)),
+                        function + "(" + argument + ") scale=" + digits + " " + mode);
+                Precision significant = Precision.ofDigits(digits, mode);
+                assertEquals(exact.round(significant.mathContext()), apply(function, x, significant),
+                        function + "(" + argument + ") digits=" + digits + " " + mode);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("double で計算した結果は BigDecimal で計算した結果と一致する")
+    void testDoublePathMatchesBigDecimal() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            BigDecimal x = BigDecimal.valueOf(random.nextLong() % 1_000_000_000L, random.nextInt(8));
+            BigDecimal positive = x.abs().add(new BigDecimal("0.001"));
+            // 切り捨ては2段階で丸めても1回で丸めた結果と同じになる
+            Precision fast = Precision.ofScale(12, RoundingMode.DOWN);
+            Precision exact = Precision.ofScale(40, RoundingMode.DOWN);
+            for (String function : CompiledExpression.FUNCTIONS) {
+                BigDecimal argument = function.equals("sqrt") || function.equals("ln") ? positive
+                        : function.equals("exp") ? x.movePointLeft(7) : x;
+                assertEquals(fast.round(apply(function, argument, exact)), apply(function, argument, fast),
+                        function + "(" + argument + ")");
+            }
+            BigDecimal exponent = BigDecimal.valueOf(random.nextInt(4000) - 2000, 3);
+            assertEquals(fast.round(MathFunctions.power(positive, exponent, exact)),
+                    MathFunctions.power(positive, exponent, fast), positive + "^" + exponent);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "2|10|1024",
+        "1.5|3|3.375",
+        "-2|3|-8",
+        "0.1|5|0.00001",
+        "7|0|1",
+        "0|0|1"
+    })
+    @DisplayName("0以上の整数乗は正確に計算する")
+    void testIntegerPower(String base, String exponent, String expected) {
+        BigDecimal result = MathFunctions.power(new BigDecimal(base), new BigDecimal(exponent),
+                Precision.ofScale(0, RoundingMode.UNNECESSARY));
+        assertEquals(new BigDecimal(expected), result);
+        assertEquals(new BigDecimal(base).pow(Integer.parseInt(exponent)), MathFunctions.pow(new BigDecimal(base),
+                Integer.parseInt(exponent)));
+    }
+
+    @Test
+    @DisplayName("負の整数乗と非整数乗は指定の精度に丸める")
+    void testFractionalPower() {
+        Precision precision = Precision.ofScale(20, RoundingMode.HALF_UP);
+        assertEquals(new BigDecimal("0.12500000000000000000"),
+                MathFunctions.power(new BigDecimal("2"), new BigDecimal("-3"), precision));
+        assertEquals(new BigDecimal("2.75567596063107536047"),
+                MathFunctions.power(new BigDecimal("1.5"), new BigDecimal("2.5"), precision));
+        assertEquals(new BigDecimal("1.41421356237309504880"),
+                MathFunctions.power(new BigDecimal("2"), new BigDecimal("0.50"), precision));
+        // 正確な値が丸めの境界上にある場合も丸められる
+        assertEquals(new BigDecimal("2"),
+                MathFunctions.power(new BigDecimal("4"), new BigDecimal("0.5"), Precision.ofScale(0, RoundingMode.DOWN)));
+        assertEquals(new BigDecimal("0.00000000000000000000"),
+                MathFunctions.power(new BigDecimal("10"), new BigDecimal("-1000000.5"), precision));
+    }
+
+    @Test
+    @DisplayName("正確な値になる平方根は UNNECESSARY でも計算できる")
+    void testExactSquareRoot() {
+        Precision unnecessary = Precision.ofScale(3, RoundingMode.UNNECESSARY);
+        assertEquals(new BigDecimal("1.500"), MathFunctions.sqrt(new BigDecimal("2.25"), unnecessary));
+        assertEquals(new BigDecimal("0.100"), MathFunctions.sqrt(new BigDecimal("0.01"), unnecessary));
+        assertEquals(new BigDecimal("0.000"), MathFunctions.sqrt(BigDecimal.ZERO, unnecessary));
+        assertThrows(ArithmeticException.class, () -> MathFunctions.sqrt(new BigDecimal("2"), unnecessary));
+        assertThrows(ArithmeticException.class, () -> MathFunctions.exp(BigDecimal.ONE, unnecessary));
+    }
+
+    @Test
+    @DisplayName("大きい引数・小さい引数")
+    void testLargeArguments() {
+        Precision precision = Precision.ofScale(15, RoundingMode.HALF_UP);
+        assertEquals(new BigDecimal("-0.506365641109759"), MathFunctions.sin(new BigDecimal("100"), precision));
+        // π に近い引数は縮小で桁落ちするため、桁数を増やして縮小し直す
+        assertEquals(new BigDecimal("-0.999999999999999"), MathFunctions.cos(
+                new BigDecimal("3.14159265358979323846264338327950288"), Precision.ofScale(15, RoundingMode.DOWN)));
+        assertEquals(new BigDecimal("230.258509299404568"),
+                MathFunctions.ln(new BigDecimal("1e100"), Precision.ofDigits(18, RoundingMode.HALF_UP)));
+        assertEquals(new BigDecimal("0.000000000000000"), MathFunctions.exp(new BigDecimal("-1000"), precision));
+        assertEquals(0, new BigDecimal("1e-15").compareTo(
+                MathFunctions.exp(new BigDecimal("-1000"), Precision.ofScale(15, RoundingMode.UP))));
+        assertEquals(new BigDecimal("1.97007111401704699E+434"),
+                MathFunctions.exp(new BigDecimal("1000"), Precision.ofDigits(18, RoundingMode.HALF_UP)));
+    }
+
+    @Test
+    @DisplayName("定義域外の引数と範囲外の結果はエラー")
+    void testErrors() {
+        Precision precision = Precision.ofScale(10, RoundingMode.HALF_UP);
+        assertEquals("負の数の平方根は計算できません", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.sqrt(new BigDecimal("-1"), precision)).getMessage());
+        assertEquals("0以下の数の対数は計算できません", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.ln(BigDecimal.ZERO, precision)).getMessage());
+        assertEquals("負の数の非整数乗は計算できません", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.power(new BigDecimal("-8"), new BigDecimal("0.5"), precision)).getMessage());
+        assertEquals("ゼロ除算はできません", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.power(BigDecimal.ZERO, new BigDecimal("-0.5"), precision)).getMessage());
+        assertEquals("計算結果が大きすぎます", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.exp(new BigDecimal("1e6"), precision)).getMessage());
+        assertEquals("計算結果が大きすぎます", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.exp(new BigDecimal("5000"), precision)).getMessage());
+        assertEquals("計算結果が大きすぎます", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.power(new BigDecimal("7"), new BigDecimal("2400.5"), precision)).getMessage());
+        assertEquals("計算結果が小さすぎます", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.exp(new BigDecimal("-1e6"), Precision.ofDigits(5, RoundingMode.HALF_UP)))
+                .getMessage());
+        assertEquals("計算結果の桁数が大きすぎます", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.pow(new BigDecimal("2"), 1_000_000)).getMessage());
+        assertEquals("三角関数の引数が大きすぎます", assertThrows(ArithmeticException.class,
+                () -> MathFunctions.sin(new BigDecimal("1e100"), precision)).getMessage());
+    }
+}
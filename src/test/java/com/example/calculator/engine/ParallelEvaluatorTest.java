@@ -0,0 +1,178 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ParallelEvaluatorのテストクラス
+ */
+class ParallelEvaluatorTest {
+
+    private static final Precision PRECISION = Precision.ofScale(10, RoundingMode.HALF_UP);
+    private static final BigDecimal[] NO_BINDINGS = new BigDecimal[0];
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUpPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutDownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * 積の和（スプレッドシートから出力される式を想定）
+     */
+    private static String sumOfProducts(Random random, int terms) {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                expression.append(random.nextInt(3) == 0 ? " - " : " + ");
+            }
+            expression.append(random.nextInt(1000)).append('.').append(random.nextInt(100))
+                    .append(" * ").append(random.nextInt(50) + 1);
+        }
+        return expression.toString();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 8, 64})
+    @DisplayName("ランダムな式で逐次評価と同じ結果（値とスケール）になる")
+    void testRandomExpressionsMatchSequential(int grain) {
+        Random random = new Random(grain);
+        String[] operands = {"x", "y", "2", "0.5", "3", "10", "0.125", "7", "1.08"};
+        for (int i = 0; i < 300; i++) {
+            String expression = randomExpression(random, operands, 3);
+            CompiledExpression compiled = ExpressionParser.parseWithVariables(expression);
+            BigDecimal[] bindings = new BigDecimal[compiled.variables().size()];
+            for (int j = 0; j < bindings.length; j++) {
+                bindings[j] = BigDecimal.valueOf(random.nextInt(2000) - 1000, random.nextInt(4));
+            }
+            ParallelEvaluator parallel = new ParallelEvaluator(compiled, grain);
+            Object expected = outcome(() -> compiled.evaluateBigDecimal(bindings, PRECISION));
+            assertEquals(expected, outcome(() -> parallel.evaluate(bindings, PRECISION, pool)), expression);
+        }
+    }
+
+    private static String randomExpression(Random random, String[] operands, int depth) {
+        int terms = 2 + random.nextInt(8);
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                expression.append(' ').append("+-*/".charAt(random.nextInt(4))).append(' ');
+            }
+            if (depth > 0 && random.nextInt(3) == 0) {
+                expression.append('(').append(randomExpression(random, operands, depth - 1)).append(')');
+            } else {
+                expression.append(operands[random.nextInt(operands.length)]);
+            }
+        }
+        return expression.toString();
+    }
+
+    @Test
+    @DisplayName("大きい積の和の並列評価")
+    void testLargeSumOfProducts() {
+        CompiledExpression compiled = ExpressionParser.parse(sumOfProducts(new Random(16), 20_000));
+        BigDecimal expected = compiled.evaluateBigDecimal(PRECISION);
+
+        ParallelEvaluator parallel = new ParallelEvaluator(compiled, ParallelEvaluator.DEFAULT_GRAIN);
+        assertTrue(parallel.parallelizable());
+        assertEquals(expected, parallel.evaluate(NO_BINDINGS, PRECISION, pool));
+        ExpressionEvaluator evaluator = new ExpressionEvaluator(false, 0, 1000, pool);
+        assertEquals(expected, evaluator.evaluate(compiled, PRECISION));
+    }
+
+    @Test
+    @DisplayName("除算を含む大きい式でも除算の精度の指定に従う")
+    void testDivisionPrecision() {
+        String sum = sumOfProducts(new Random(7), 2_000);
+        CompiledExpression compiled = ExpressionParser.parse(
+                "(" + sum + ") / 7 * (" + sum + ") / 3 - " + sum + " / 11");
+        ParallelEvaluator parallel = new ParallelEvaluator(compiled, 256);
+        assertTrue(parallel.parallelizable());
+        for (Precision precision : new Precision[] {
+                PRECISION, Precision.ofScale(0, RoundingMode.DOWN), Precision.ofDigits(40, RoundingMode.HALF_EVEN)}) {
+            assertEquals(compiled.evaluateBigDecimal(precision), parallel.evaluate(NO_BINDINGS, precision, pool));
+        }
+    }
+
+    @Test
+    @DisplayName("累乗と関数を含む大きい式の並列評価")
+    void testPowerAndFunctions() {
+        String sum = sumOfProducts(new Random(11), 1_000);
+        CompiledExpression compiled = ExpressionParser.parse(
+                "sqrt((" + sum + ") ^ 2) + ((" + sum + ") ^ 2) ^ 0.25 * 2 ^ (" + sum + " - (" + sum + ") + 3)");
+        ParallelEvaluator parallel = new ParallelEvaluator(compiled, 64);
+        assertTrue(parallel.parallelizable());
+        for (Precision precision : new Precision[] {PRECISION, Precision.ofDigits(40, RoundingMode.HALF_EVEN)}) {
+            assertEquals(compiled.evaluateBigDecimal(precision), parallel.evaluate(NO_BINDINGS, precision, pool));
+        }
+    }
+
+    @Test
+    @DisplayName("計算エラーは逐次評価と同じ（最初に発生するエラー）")
+    void testFirstErrorIsPreserved() {
+        String sum = sumOfProducts(new Random(3), 1_000);
+        CompiledExpression compiled = ExpressionParser.parse(
+                sum + " + 1 / (2 - 2) + " + sum + " + 1 / 3");
+        ParallelEvaluator parallel = new ParallelEvaluator(compiled, 16);
+
+        ArithmeticException e = assertThrows(ArithmeticException.class,
+                () -> parallel.evaluate(NO_BINDINGS, PRECISION, pool));
+        assertEquals("ゼロ除算はできません", e.getMessage());
+        Precision unnecessary = Precision.ofScale(10, RoundingMode.UNNECESSARY);
+        assertEquals(outcome(() -> compiled.evaluateBigDecimal(unnecessary)),
+                outcome(() -> parallel.evaluate(NO_BINDINGS, unnecessary, pool)));
+    }
+
+    @Test
+    @DisplayName("深く入れ子になった式でもスタックオーバーフローしない")
+    void testDeeplyNestedExpression() {
+        int depth = 5_000;
+        String nested = "1 - (2 * (".repeat(depth) + "3" + "))".repeat(depth);
+        CompiledExpression compiled = ExpressionParser.parse(nested + " / 7 + " + "8 / ".repeat(depth) + "1");
+        ParallelEvaluator parallel = new ParallelEvaluator(compiled, 4);
+        assertTrue(parallel.parallelizable());
+        assertEquals(compiled.evaluateBigDecimal(PRECISION), parallel.evaluate(NO_BINDINGS, PRECISION, pool));
+    }
+
+    @Test
+    @DisplayName("一時変数を使う式（最適化した式）は逐次評価する")
+    void testOptimizedExpressionIsEvaluatedSequentially() {
+        String sum = sumOfProducts(new Random(5), 500);
+        CompiledExpression compiled = ExpressionOptimizer.optimize(
+                ExpressionParser.parseWithVariables("(x / 3 + " + sum + ") * (x / 3 + " + sum + ")"));
+        assertTrue(compiled.temporaries() > 0);
+        ParallelEvaluator parallel = new ParallelEvaluator(compiled, 4);
+        assertFalse(parallel.parallelizable());
+        BigDecimal[] bindings = {new BigDecimal("2.5")};
+        assertEquals(compiled.evaluateBigDecimal(bindings, PRECISION), parallel.evaluate(bindings, PRECISION, pool));
+    }
+
+    /**
+     * 評価結果またはエラーメッセージ
+     */
+    private static Object outcome(Supplier<BigDecimal> evaluation) {
+        try {
+            return evaluation.get();
+        } catch (ArithmeticException e) {
+            return e.getMessage();
+        }
+    }
+}
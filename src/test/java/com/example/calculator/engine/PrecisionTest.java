@@ -0,0 +1,101 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Precisionのテストクラス
+ */
+class PrecisionTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "12.5|4",
+        "1|3",
+        "100|4",
+        "-7|0.008",
+        "0|-3.5",
+        "1.0001|1",
+        "123456789|0.0000390625",
+        "22|7"
+    })
+    @DisplayName("有限小数の商の省略は BigDecimal の除算と同じ結果になる")
+    void testExactQuotientMatchesDivide(String dividend, String divisor) {
+        BigDecimal a = new BigDecimal(dividend);
+        BigDecimal b = new BigDecimal(divisor);
+        for (int digits : new int[] {1, 3, Precision.EXACT_QUOTIENT_MIN_DIGITS, 100, 1000}) {
+            assertEquals(a.divide(b, digits, RoundingMode.HALF_UP),
+                    Precision.ofScale(digits, RoundingMode.HALF_UP).divide(a, b));
+            assertEquals(a.divide(b, new MathContext(digits, RoundingMode.HALF_UP)),
+                    Precision.ofDigits(digits, RoundingMode.HALF_UP).divide(a, b));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RoundingMode.class, names = "UNNECESSARY", mode = EnumSource.Mode.EXCLUDE)
+    @DisplayName("ランダムな除算で BigDecimal の除算と同じ結果になる")
+    void testRandomDivisions(RoundingMode mode) {
+        Random random = new Random(mode.ordinal());
+        for (int i = 0; i < 500; i++) {
+            BigDecimal a = BigDecimal.valueOf(random.nextLong() >> random.nextInt(60), random.nextInt(8));
+            // 除数は 2^i * 5^j * k の形にして、有限小数の商も十分に含める
+            long divisor = (1L << random.nextInt(20)) * (long) Math.pow(5, random.nextInt(10)) * (1 + random.nextInt(3));
+            BigDecimal b = BigDecimal.valueOf(random.nextBoolean() ? divisor : -divisor, random.nextInt(8));
+            int digits = 1 + random.nextInt(80);
+
+            assertEquals(a.divide(b, digits, mode), Precision.ofScale(digits, mode).divide(a, b),
+                    a + " / " + b + " scale=" + digits);
+            assertEquals(a.divide(b, new MathContext(digits, mode)), Precision.ofDigits(digits, mode).divide(a, b),
+                    a + " / " + b + " precision=" + digits);
+        }
+    }
+
+    @Test
+    @DisplayName("丸めが必要な場合の UNNECESSARY はエラー")
+    void testUnnecessaryRounding() {
+        Precision precision = Precision.ofDigits(40, RoundingMode.UNNECESSARY);
+        assertEquals(new BigDecimal("0.25"), precision.divide(BigDecimal.ONE, new BigDecimal(4)));
+        assertThrows(ArithmeticException.class, () -> precision.divide(BigDecimal.ONE, new BigDecimal(3)));
+        assertThrows(ArithmeticException.class,
+                () -> Precision.ofScale(40, RoundingMode.UNNECESSARY).divide(BigDecimal.ONE, new BigDecimal("1e45")));
+    }
+
+    @Test
+    @DisplayName("ゼロ除算と範囲外の桁数はエラー")
+    void testInvalidArguments() {
+        ArithmeticException e = assertThrows(ArithmeticException.class,
+                () -> Precision.ofDigits(50, RoundingMode.HALF_UP).divide(BigDecimal.ONE, BigDecimal.ZERO));
+        assertEquals("ゼロ除算はできません", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Precision.ofScale(-1, RoundingMode.HALF_UP));
+        assertThrows(IllegalArgumentException.class, () -> Precision.ofDigits(0, RoundingMode.HALF_UP));
+        assertThrows(IllegalArgumentException.class,
+                () -> Precision.ofDigits(Precision.MAX_DIGITS + 1, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    @DisplayName("除算の丸めを最後にまとめる精度は元の精度と区別され、式全体を分数で評価する")
+    void testDeferredRounding() {
+        Precision precision = Precision.ofScale(10, RoundingMode.HALF_UP);
+        Precision deferred = precision.withDeferredRounding();
+        assertTrue(deferred.isDeferredRounding());
+        assertFalse(precision.isDeferredRounding());
+        assertNotEquals(precision, deferred);
+        assertEquals(deferred, Precision.ofScale(10, RoundingMode.HALF_UP).withDeferredRounding());
+        assertNotEquals(precision.toString(), deferred.toString());
+
+        CompiledExpression expression = ExpressionParser.parse("1 / 3 * 3 + 2 / 7 * 7");
+        assertEquals(new BigDecimal("2.9999999998"), new ExpressionEvaluator(true, 0).evaluate(expression, precision));
+        assertEquals(new BigDecimal("3.0000000000"), new ExpressionEvaluator(true, 0).evaluate(expression, deferred));
+        assertEquals(new BigDecimal("3.0000000000"), expression.evaluate(deferred));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rationalのテストクラス
+ */
+class RationalTest {
+
+    private static final Precision PRECISION = Precision.ofScale(60, RoundingMode.DOWN);
+
+    private static BigDecimal randomDecimal(Random random) {
+        // long の範囲に収まる値とあふれる値の両方を含める
+        BigInteger unscaled = new BigInteger(1 + random.nextInt(random.nextBoolean() ? 40 : 100), random);
+        return new BigDecimal(random.nextBoolean() ? unscaled : unscaled.negate(), random.nextInt(25) - 3);
+    }
+
+    @Test
+    @DisplayName("ランダムな四則演算の連鎖は、毎回約分した分数で計算した結果と一致する")
+    void testRandomOperations() {
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            BigDecimal first = randomDecimal(random);
+            Rational value = Rational.of(first);
+            // 参照値（分子・分母を毎回約分する）
+            BigInteger numerator = first.unscaledValue();
+            BigInteger denominator = BigInteger.ONE;
+            if (first.scale() > 0) {
+                denominator = BigInteger.TEN.pow(first.scale());
+            } else {
+                numerator = numerator.multiply(BigInteger.TEN.pow(-first.scale()));
+            }
+            StringBuilder expression = new StringBuilder(first.toString());
+            for (int j = 0; j < 12; j++) {
+                BigDecimal operand = randomDecimal(random);
+                if (operand.signum() == 0) {
+                    continue;
+                }
+                BigInteger n = operand.scale() > 0 ? operand.unscaledValue()
+                        : operand.unscaledValue().multiply(BigInteger.TEN.pow(-operand.scale()));
+                BigInteger d = operand.scale() > 0 ? BigInteger.TEN.pow(operand.scale()) : BigInteger.ONE;
+                Rational other = Rational.of(operand);
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        value = value.add(other);
+                        numerator = numerator.multiply(d).add(n.multiply(denominator));
+                        denominator = denominator.multiply(d);
+                        expression.append(" + ");
+                    }
+                    case 1 -> {
+                        value = value.subtract(other);
+                        numerator = numerator.multiply(d).subtract(n.multiply(denominator));
+                        denominator = denominator.multiply(d);
+                        expression.append(" - ");
+                    }
+                    case 2 -> {
+                        value = value.multiply(other);
+                        numerator = numerator.multiply(n);
+                        denominator = denominator.multiply(d);
+                        expression.append(" * ");
+                    }
+                    default -> {
+                        value = value.divide(other);
+                        numerator = numerator.multiply(d);
+                        denominator = denominator.multiply(n);
+                        expression.append(" / ");
+                    }
+                }
+                expression.append(operand);
+                if (denominator.signum() < 0) {
+                    numerator = numerator.negate();
+                    denominator = denominator.negate();
+                }
+                BigInteger gcd = numerator.gcd(denominator);
+                numerator = numerator.divide(gcd);
+                denominator = denominator.divide(gcd);
+
+                assertEquals(PRECISION.divide(new BigDecimal(numerator), new BigDecimal(denominator)),
+                        value.toBigDecimal(PRECISION), expression.toString());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("long の範囲で計算できる値")
+    void testSmallValues() {
+        Rational third = Rational.of(BigDecimal.ONE).divide(Rational.of(new BigDecimal("3")));
+        assertEquals(new BigDecimal("1"), third.multiply(Rational.of(new BigDecimal("3"))).toBigDecimalExact());
+        assertNull(third.toBigDecimalExact());
+        assertEquals(new BigDecimal("0.3"), Rational.of(new BigDecimal("0.1")).add(Rational.of(new BigDecimal("0.2")))
+                .toBigDecimalExact());
+        assertEquals(new BigDecimal("-0.125"), Rational.of(new BigDecimal("-2")).pow(-3).toBigDecimalExact());
+        assertEquals(new BigDecimal("1200"), Rational.of(new BigDecimal("1.2E+3")).toBigDecimalExact());
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE / 2 + 1), Rational.of(BigDecimal.valueOf(Long.MIN_VALUE))
+                .divide(Rational.of(new BigDecimal("-2"))).toBigDecimalExact());
+    }
+
+    @Test
+    @DisplayName("整数の判定")
+    void testIntValue() {
+        assertEquals(3, Rational.of(new BigDecimal("6")).divide(Rational.of(new BigDecimal("2"))).intValue());
+        assertEquals(-4, Rational.of(new BigDecimal("-4.00")).intValue());
+        assertNull(Rational.of(new BigDecimal("2.5")).intValue());
+        assertNull(Rational.of(new BigDecimal("1E+10")).intValue());
+        assertEquals(100000, Rational.of(new BigDecimal("1E+30")).divide(Rational.of(new BigDecimal("1E+25")))
+                .intValue());
+    }
+
+    @Test
+    @DisplayName("0による除算・0の負数乗はエラー")
+    void testDivisionByZero() {
+        Rational one = Rational.ONE;
+        assertEquals("ゼロ除算はできません",
+                assertThrows(ArithmeticException.class, () -> one.divide(Rational.ZERO)).getMessage());
+        assertThrows(ArithmeticException.class, () -> Rational.ZERO.pow(-1));
+        assertThrows(ArithmeticException.class, () -> Rational.of(new BigDecimal("2")).pow(1_000_000));
+    }
+}
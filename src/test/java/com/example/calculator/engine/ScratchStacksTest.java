@@ -0,0 +1,132 @@
+package com.example.calculator.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ScratchStacksのテストクラス
+ */
+class ScratchStacksTest {
+
+    @Test
+    @DisplayName("同じスレッドでは返却したスタックを再利用する")
+    void testReusedAfterRelease() {
+        ScratchStacks first = ScratchStacks.acquire();
+        long[] values = first.values(8);
+        first.release();
+
+        ScratchStacks second = ScratchStacks.acquire();
+        try {
+            assertSame(first, second);
+            assertSame(values, second.values(8));
+        } finally {
+            second.release();
+        }
+    }
+
+    @Test
+    @DisplayName("使用中に再度取得した場合は別のスタックを返す")
+    void testNestedAcquire() {
+        ScratchStacks outer = ScratchStacks.acquire();
+        try {
+            ScratchStacks inner = ScratchStacks.acquire();
+            assertNotSame(outer, inner);
+            inner.release();
+            assertNotSame(outer, ScratchStacks.acquire());
+        } finally {
+            outer.release();
+        }
+    }
+
+    @Test
+    @DisplayName("返却時に数値への参照を消去する")
+    void testReleaseClearsReferences() {
+        ScratchStacks stacks = ScratchStacks.acquire();
+        BigDecimal[] operands = stacks.operands(4);
+        operands[3] = BigDecimal.TEN;
+        BigDecimal[] slots = stacks.slots(new BigDecimal[] {BigDecimal.ONE}, 2);
+        slots[2] = BigDecimal.TEN;
+        stacks.release();
+
+        assertArrayEquals(new BigDecimal[4], Arrays.copyOf(operands, 4));
+        assertArrayEquals(new BigDecimal[3], Arrays.copyOf(slots, 3));
+    }
+
+    @Test
+    @DisplayName("最大長を超える配列はスレッドに保持しない")
+    void testLargeArraysAreNotRetained() {
+        int length = ScratchStacks.MAX_RETAINED_LENGTH + 1;
+        ScratchStacks stacks = ScratchStacks.acquire();
+        try {
+            assertNotSame(stacks.values(length), stacks.values(length));
+            assertNotSame(stacks.operands(length), stacks.operands(length));
+        } finally {
+            stacks.release();
+        }
+    }
+
+    @Test
+    @DisplayName("最大長を超える式を解析した後も定数への参照を保持しない")
+    void testOversizedParseClearsConstants() throws InterruptedException {
+        AtomicReference<BigDecimal[]> retained = new AtomicReference<>();
+        // スレッドに保持している配列の状態によらないよう、新しいスレッドで解析する
+        Thread thread = Thread.ofPlatform().start(() -> {
+            // 最大長の定数プールを保持させてから、それを超える数の定数を含む式を解析する
+            int limit = ScratchStacks.MAX_RETAINED_LENGTH;
+            for (int terms : new int[] {limit - 100, limit * 2}) {
+                StringBuilder expression = new StringBuilder("1");
+                for (int i = 2; i <= terms; i++) {
+                    expression.append('+').append(i);
+                }
+                ExpressionParser.parse(expression.toString());
+            }
+            ScratchStacks stacks = ScratchStacks.acquire();
+            retained.set(stacks.constants);
+            stacks.release();
+        });
+        thread.join();
+
+        assertEquals(ScratchStacks.MAX_RETAINED_LENGTH, retained.get().length);
+        assertArrayEquals(new BigDecimal[ScratchStacks.MAX_RETAINED_LENGTH], retained.get());
+    }
+
+    @Test
+    @DisplayName("仮想スレッドでは保持せずに毎回確保する")
+    void testVirtualThread() throws InterruptedException {
+        AtomicReference<Boolean> same = new AtomicReference<>();
+        Thread thread = Thread.ofVirtual().start(() -> {
+            ScratchStacks first = ScratchStacks.acquire();
+            first.release();
+            ScratchStacks second = ScratchStacks.acquire();
+            second.release();
+            same.set(first == second);
+        });
+        thread.join();
+        assertFalse(same.get());
+    }
+
+    @Test
+    @DisplayName("評価中に同じスレッドで別の式を解析・評価しても結果が変わらない")
+    void testNestedEvaluation() {
+        Precision precision = Precision.ofScale(10, RoundingMode.HALF_UP);
+        CompiledExpression outer = ExpressionParser.parse("(1 + 2) * (3 - 4 / 7) + 5.5");
+        BigDecimal expected = outer.evaluateBigDecimal(precision);
+
+        ScratchStacks held = ScratchStacks.acquire();
+        try {
+            CompiledExpression inner = ExpressionParser.parse("(1 + 2) * (3 - 4 / 7) + 5.5");
+            assertEquals(expected, inner.evaluateBigDecimal(precision));
+            assertEquals(expected, inner.evaluate(precision));
+        } finally {
+            held.release();
+        }
+        assertEquals(expected, outer.evaluate(precision));
+    }
+}
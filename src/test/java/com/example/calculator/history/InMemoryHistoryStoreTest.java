@@ -0,0 +1,57 @@
+package com.example.calculator.history;
+
+import com.example.calculator.model.CalculationResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InMemoryHistoryStoreのテストクラス
+ */
+class InMemoryHistoryStoreTest {
+
+    @Test
+    @DisplayName("新しい順に取得し、上限を超えた分は古いものから上書きする")
+    void testRingBuffer() {
+        HistoryStore store = new InMemoryHistoryStore(3, 100, Duration.ZERO);
+        for (int i = 1; i <= 5; i++) {
+            store.append("user", new CalculationResult(i + " + 0", String.valueOf(i)));
+        }
+
+        List<CalculationResult> history = store.recent("user");
+        assertEquals(3, history.size());
+        assertEquals("5", history.get(0).getResult());
+        assertEquals("4", history.get(1).getResult());
+        assertEquals("3 + 0", history.get(2).getExpression());
+    }
+
+    @Test
+    @DisplayName("エラーの結果も保持する")
+    void testFailure() {
+        HistoryStore store = new InMemoryHistoryStore(10, 100, Duration.ZERO);
+        store.append("user", new CalculationResult("1 / 0", "計算エラー: ゼロ除算はできません", false));
+
+        CalculationResult result = store.recent("user").get(0);
+        assertFalse(result.isSuccess());
+        assertEquals("計算エラー: ゼロ除算はできません", result.getErrorMessage());
+        assertNull(result.getResult());
+    }
+
+    @Test
+    @DisplayName("利用者ごとに独立し、削除できる")
+    void testUsersAndClear() {
+        HistoryStore store = new InMemoryHistoryStore(10, 100, Duration.ZERO);
+        store.append("a", new CalculationResult("1 + 1", "2"));
+        store.append("b", new CalculationResult("2 + 2", "4"));
+
+        store.clear("a");
+
+        assertTrue(store.recent("a").isEmpty());
+        assertEquals("4", store.recent("b").get(0).getResult());
+        assertTrue(store.recent("unknown").isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.calculator.history;
+
+import com.example.calculator.model.CalculationResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MappedFileHistoryStoreのテストクラス
+ */
+class MappedFileHistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("新しい順に取得し、上限を超えた分は古いものから上書きする")
+    void testRingBuffer() throws Exception {
+        try (MappedFileHistoryStore store = new MappedFileHistoryStore(directory.resolve("history.dat"), 3, 64, 4)) {
+            for (int i = 1; i <= 5; i++) {
+                store.append("user", new CalculationResult(i + " + 0", String.valueOf(i)));
+            }
+            store.append("other", new CalculationResult("1 / 0", "計算エラー: ゼロ除算はできません", false));
+
+            List<CalculationResult> history = store.recent("user");
+            assertEquals(3, history.size());
+            assertEquals("5", history.get(0).getResult());
+            assertEquals("3 + 0", history.get(2).getExpression());
+
+            CalculationResult failure = store.recent("other").get(0);
+            assertFalse(failure.isSuccess());
+            assertEquals("計算エラー: ゼロ除算はできません", failure.getErrorMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("再度開いた場合も履歴が残る")
+    void testReopen() throws Exception {
+        Path file = directory.resolve("history.dat");
+        try (MappedFileHistoryStore store = new MappedFileHistoryStore(file, 10, 64, 4)) {
+            store.append("user", new CalculationResult("2 * 3", "6"));
+            store.append("cleared", new CalculationResult("1 + 1", "2"));
+            store.clear("cleared");
+        }
+        try (MappedFileHistoryStore store = new MappedFileHistoryStore(file, 10, 64, 4)) {
+            assertEquals("6", store.recent("user").get(0).getResult());
+            assertTrue(store.recent("cleared").isEmpty());
+        }
+        // レイアウトが異なる場合は作り直す
+        try (MappedFileHistoryStore store = new MappedFileHistoryStore(file, 20, 64, 4)) {
+            assertTrue(store.recent("user").isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("スロットが不足した場合は最も長くアクセスのない利用者を破棄する")
+    void testEviction() throws Exception {
+        try (MappedFileHistoryStore store = new MappedFileHistoryStore(directory.resolve("history.dat"), 2, 64, 2)) {
+            store.append("a", new CalculationResult("1", "1"));
+            Thread.sleep(2);
+            store.append("b", new CalculationResult("2", "2"));
+            Thread.sleep(2);
+            store.recent("a");
+            Thread.sleep(2);
+            store.append("c", new CalculationResult("3", "3"));
+
+            assertEquals(1, store.recent("a").size());
+            assertTrue(store.recent("b").isEmpty());
+            assertEquals(1, store.recent("c").size());
+        }
+    }
+
+    @Test
+    @DisplayName("エントリに収まらない式は文字の途中で切れないように切り詰める")
+    void testTruncation() throws Exception {
+        try (MappedFileHistoryStore store = new MappedFileHistoryStore(directory.resolve("history.dat"), 2, 32, 1)) {
+            String expression = "1 + 2 + 3 + 4 + 5 + 6 + 7 + 8 + 9 + 10";
+            store.append("user", new CalculationResult(expression, "55"));
+
+            CalculationResult result = store.recent("user").get(0);
+            assertEquals("55", result.getResult());
+            assertTrue(expression.startsWith(result.getExpression()));
+            assertEquals(32 - 5 - 2, result.getExpression().length());
+        }
+
+        // 1項目の長さは Short.MAX_VALUE バイトまで
+        int maxEntrySize = 5 + 2 * Short.MAX_VALUE;
+        try (MappedFileHistoryStore store = new MappedFileHistoryStore(directory.resolve("max.dat"), 2, maxEntrySize, 1)) {
+            String longResult = "1".repeat(57000);
+            store.append("user", new CalculationResult("2 ^ 189340", longResult));
+            store.append("user", new CalculationResult("9".repeat(40000), longResult, false));
+
+            List<CalculationResult> results = store.recent("user");
+            assertEquals("9".repeat(Short.MAX_VALUE), results.get(0).getExpression());
+            assertEquals(longResult.substring(0, Short.MAX_VALUE), results.get(0).getErrorMessage());
+            assertEquals("2 ^ 189340", results.get(1).getExpression());
+            assertEquals(longResult.substring(0, Short.MAX_VALUE), results.get(1).getResult());
+        }
+
+        byte[] bytes = "あいう".getBytes(StandardCharsets.UTF_8);
+        assertEquals("あ", new String(MappedFileHistoryStore.truncate(bytes, 5), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.calculator.service;
+
+import com.example.calculator.config.CalculatorProperties;
+import com.example.calculator.engine.Precision;
+import com.example.calculator.model.CalculationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdmissionControlのテストクラス
+ */
+class AdmissionControlTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private AdmissionControl create(long rate, long burst, int maxConcurrent, int maxQueue, Duration queueTimeout) {
+        return new AdmissionControl(rate, burst, maxConcurrent, maxQueue, queueTimeout, 1000, Duration.ZERO, now::get);
+    }
+
+    @Test
+    @DisplayName("通常の短い式のコストは1")
+    void testEstimateSimpleExpression() {
+        assertEquals(1, AdmissionControl.estimate(new CalculationRequest("2 + 3 * (4 - 1)")));
+        assertEquals(1, AdmissionControl.estimate(new CalculationRequest("1 / 3")));
+        assertEquals(1, AdmissionControl.estimate(new CalculationRequest()));
+    }
+
+    @Test
+    @DisplayName("長さ・括弧の深さ・数値の桁数・除算や関数の数と精度に応じてコストが増える")
+    void testEstimateExpensiveExpressions() {
+        // 長さ
+        assertEquals(1 + 4, AdmissionControl.estimate("1+".repeat(2048) + "1", 10));
+        // 括弧の深さ（長さ 2 * 6400 + 1 文字）
+        assertEquals(1 + 12 + 100, AdmissionControl.estimate("(".repeat(6400) + "1" + ")".repeat(6400), 10));
+        // 1万桁の数値
+        char[] digits = new char[10_000];
+        Arrays.fill(digits, '9');
+        assertEquals(1 + 9 + 100, AdmissionControl.estimate(new String(digits) + "*2", 10));
+        // 除算の数 × 精度
+        CalculationRequest division = new CalculationRequest("1/3/7/9");
+        division.setScale(10_000);
+        assertEquals(1 + 30, AdmissionControl.estimate(division));
+        division.setScale(null);
+        division.setPrecision(5000);
+        assertEquals(1 + 15, AdmissionControl.estimate(division));
+        // 精度の指定が不正な場合は既定の精度として見積もる
+        division.setScale(10);
+        assertEquals(1, AdmissionControl.estimate(division));
+        // 平方根は精度に比例し、超越関数と非整数乗は精度の2乗に比例する
+        // （exp (1) ^ 0.5 の底はリテラルではないため、結果の整数部を上限の桁数とする）
+        CalculationRequest functions = new CalculationRequest("sqrt(2) + exp (1) ^ 0.5 * (3)");
+        functions.setScale(10_000);
+        long bound = Precision.MAX_RESULT_EXPONENT;
+        assertEquals(1 + 100 + (10_001L * 10_001 + (10_000 + bound) * (10_000 + bound)) / 50_000,
+                AdmissionControl.estimate(functions));
+    }
+
+    @Test
+    @DisplayName("高精度の三角関数1つで予算の上限（burst）程度のコストになる")
+    void testEstimateHighPrecisionFunction() {
+        long burst = new CalculatorProperties().getAdmission().getBurst();
+        CalculationRequest sine = new CalculationRequest("sin(1)");
+        sine.setPrecision(Precision.MAX_DIGITS);
+        long cost = AdmissionControl.estimate(sine);
+        assertTrue(cost >= burst * 9 / 10 && cost <= burst * 11 / 10, "cost=" + cost);
+        // 1000桁（約20〜40ms）は 10000桁の約100分の1
+        sine.setPrecision(1000);
+        assertEquals(1 + 20, AdmissionControl.estimate(sine));
+        // 既定の精度では通常の式と同じ
+        assertEquals(1, AdmissionControl.estimate(new CalculationRequest("sin(1) + ln(3) + 2 ^ 0.5")));
+    }
+
+    @Test
+    @DisplayName("exp と非整数乗は結果の整数部の桁数を加えて見積もる")
+    void testEstimateResultMagnitude() {
+        // 引数がリテラルの場合は結果の桁数（e^1000 ≒ 10^434.3、10^1500.5）
+        assertEquals(1 + 445 * 445 / 50_000, AdmissionControl.estimate("exp(1000)", 10));
+        assertEquals(1 + 1511 * 1511 / 50_000, AdmissionControl.estimate("10 ^ 1500.5", 10));
+        // 整数乗は正確に計算する
+        assertEquals(1, AdmissionControl.estimate("2 ^ 100", 10));
+        // 上限を超える結果は近似値を計算せずにエラーになる
+        assertEquals(1, AdmissionControl.estimate("exp(20000)", 10));
+        assertEquals(1, AdmissionControl.estimate("99999999999 ^ 3019.9", 10));
+        // 引数がリテラルでない場合は上限の桁数
+        long unknown = (10L + Precision.MAX_RESULT_EXPONENT) * (10 + Precision.MAX_RESULT_EXPONENT);
+        assertEquals(1 + unknown / 50_000, AdmissionControl.estimate("exp(x)", 10));
+        assertEquals(1 + (unknown + 16 * 16) / 50_000, AdmissionControl.estimate("exp(exp(12))", 10));
+        assertEquals(1 + (unknown + 15 * 15) / 50_000, AdmissionControl.estimate("7 ^ exp(10)", 10));
+        assertEquals(1 + (unknown + 11 * 11) / 50_000, AdmissionControl.estimate("2 ^ 3 ^ 0.5", 10));
+    }
+
+    @Test
+    @DisplayName("一括計算のコストは各式の合計")
+    void testEstimateBatch() {
+        List<CalculationRequest> requests = new ArrayList<>();
+        requests.add(new CalculationRequest("1 + 1"));
+        requests.add(null);
+        requests.add(new CalculationRequest("(".repeat(64) + "1" + ")".repeat(64)));
+        assertEquals(1 + 1 + 2, AdmissionControl.estimate(requests));
+    }
+
+    @Test
+    @DisplayName("予算を超えると拒否し、補充されるまでの時間を返す")
+    void testRateLimit() {
+        AdmissionControl admission = create(10, 20, 4, 0, Duration.ZERO);
+
+        admission.admit("a", 15).close();
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, () -> admission.admit("a", 10));
+        assertEquals(AdmissionControl.Reason.RATE_LIMIT, e.getReason());
+        // 残り5、10に達するまで 0.5 秒
+        assertEquals(500, e.getRetryAfter().toMillis());
+
+        // 他のクライアントの予算は独立している
+        admission.admit("b", 20).close();
+
+        now.addAndGet(Duration.ofMillis(500).toNanos());
+        admission.admit("a", 10).close();
+    }
+
+    @Test
+    @DisplayName("予算は容量を超えて蓄積されず、容量を超えるコストは容量分として扱う")
+    void testBurst() {
+        AdmissionControl admission = create(10, 20, 4, 0, Duration.ZERO);
+
+        now.addAndGet(Duration.ofHours(1).toNanos());
+        admission.admit("a", 1_000_000).close();
+        assertThrows(AdmissionRejectedException.class, () -> admission.admit("a", 1));
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        admission.admit("a", 20).close();
+        assertThrows(AdmissionRejectedException.class, () -> admission.admit("a", 1));
+    }
+
+    @Test
+    @DisplayName("同時計算数の上限に達して待機できない場合は拒否し、予算を返す")
+    void testConcurrencyLimit() {
+        AdmissionControl admission = create(10, 20, 2, 0, Duration.ZERO);
+
+        AdmissionControl.Permit first = admission.admit("a", 5);
+        AdmissionControl.Permit second = admission.admit("b", 5);
+        assertEquals(2, admission.getActive());
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, () -> admission.admit("a", 15));
+        assertEquals(AdmissionControl.Reason.CONCURRENCY, e.getReason());
+        assertEquals(Duration.ofSeconds(1), e.getRetryAfter());
+
+        first.close();
+        assertEquals(1, admission.getActive());
+        // 拒否された分の予算は消費されていない
+        admission.admit("a", 15).close();
+        second.close();
+        assertEquals(0, admission.getActive());
+    }
+
+    @Test
+    @DisplayName("同時計算数の上限に達している場合は枠が空くまで待機する")
+    void testQueue() throws Exception {
+        AdmissionControl admission = create(1000, 1000, 1, 1, Duration.ofSeconds(30));
+        AdmissionControl.Permit permit = admission.admit("a", 1);
+
+        CountDownLatch admitted = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try (AdmissionControl.Permit p = admission.admit("b", 1)) {
+                admitted.countDown();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        waiter.start();
+        while (admission.getQueueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // 待機できる数の上限を超える場合は待たずに拒否する
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, () -> admission.admit("c", 1));
+        assertEquals(AdmissionControl.Reason.CONCURRENCY, e.getReason());
+
+        permit.close();
+        waiter.join(10_000);
+        assertNull(failure.get());
+        assertEquals(0, admitted.getCount());
+        assertEquals(0, admission.getQueueDepth());
+        assertEquals(0, admission.getActive());
+    }
+
+    @Test
+    @DisplayName("待機時間の上限を超えると拒否する")
+    void testQueueTimeout() {
+        AdmissionControl admission = create(1000, 1000, 1, 10, Duration.ofMillis(50));
+        try (AdmissionControl.Permit permit = admission.admit("a", 1)) {
+            AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                    () -> admission.admit("b", 1));
+            assertEquals(AdmissionControl.Reason.CONCURRENCY, e.getReason());
+        }
+        assertEquals(0, admission.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("pace は予算が補充されるまで待ってから消費する")
+    void testPace() {
+        AdmissionControl admission = new AdmissionControl(1000, 10, 1, 0, Duration.ZERO, 1000, Duration.ZERO);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 60; i++) {
+            admission.pace("a", 1);
+        }
+        // 10件は蓄積分、残り50件は1秒あたり1000件で補充される
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(40).toNanos());
+        assertEquals(0, admission.getActive());
+    }
+
+    @Test
+    @DisplayName("待機数・計算中の数・拒否数のメトリクス")
+    void testMetrics() {
+        AdmissionControl admission = create(10, 10, 1, 0, Duration.ZERO);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        admission.bindTo(registry);
+
+        AdmissionControl.Permit permit = admission.admit("a", 1);
+        assertThrows(AdmissionRejectedException.class, () -> admission.admit("b", 1));
+        assertThrows(AdmissionRejectedException.class, () -> admission.admit("a", 10));
+
+        assertEquals(1, registry.get("calculator.admission.active").gauge().value());
+        assertEquals(0, registry.get("calculator.admission.queue").gauge().value());
+        assertEquals(2, registry.get("calculator.admission.clients").gauge().value());
+        assertEquals(1, registry.get("calculator.admission.admitted").functionCounter().count());
+        assertEquals(1, registry.get("calculator.admission.rejected").tag("reason", "rate_limit")
+                .functionCounter().count());
+        assertEquals(1, registry.get("calculator.admission.rejected").tag("reason", "concurrency")
+                .functionCounter().count());
+        permit.close();
+    }
+
+    @Test
+    @DisplayName("無効な場合は何も制限しない")
+    void testDisabled() {
+        AdmissionControl admission = AdmissionControl.disabled();
+        assertFalse(admission.isEnabled());
+        for (int i = 0; i < 1000; i++) {
+            admission.admit("a", Long.MAX_VALUE).close();
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        admission.bindTo(registry);
+        assertTrue(registry.getMeters().isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.calculator.service;
+
+import com.example.calculator.model.CalculationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BatchCalculatorServiceのテストクラス
+ */
+class BatchCalculatorServiceTest {
+
+    private BatchCalculatorService batchCalculatorService;
+
+    @BeforeEach
+    void setUp() {
+        batchCalculatorService = new BatchCalculatorService(new CalculatorService(), 4, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchCalculatorService.shutdown();
+    }
+
+    @Test
+    @DisplayName("入力と同じ順序で結果を返す")
+    void testPreservesOrder() {
+        List<String> expressions = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            expressions.add(i + " * 2");
+        }
+
+        List<CalculationResult> results = batchCalculatorService.calculateAll(expressions);
+
+        assertEquals(expressions.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(expressions.get(i), results.get(i).getExpression());
+            assertEquals(String.valueOf(i * 2), results.get(i).getResult());
+        }
+    }
+
+    @Test
+    @DisplayName("個々の式の失敗はバッチ全体を失敗させない")
+    void testPerItemFailures() {
+        List<CalculationResult> results = batchCalculatorService.calculateAll(
+                Arrays.asList("1 + 1", "5 / 0", "abc", null, "(2 + 3) * 4"));
+
+        assertEquals("2", results.get(0).getResult());
+        assertTrue(results.get(1).getErrorMessage().contains("ゼロ除算"));
+        assertEquals("無効な式です", results.get(2).getErrorMessage());
+        assertEquals("式が入力されていません", results.get(3).getErrorMessage());
+        assertEquals("20", results.get(4).getResult());
+    }
+
+    @Test
+    @DisplayName("上限件数を超えるバッチは拒否する")
+    void testMaxSize() {
+        BatchCalculatorService small = new BatchCalculatorService(new CalculatorService(), 1, 2);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> small.calculateAll(List.of("1", "2", "3")));
+        } finally {
+            small.shutdown();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.calculator.service;
+
+import com.example.calculator.config.CalculatorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CalculatorMetricsのテストクラス
+ */
+class CalculatorMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private CalculatorService calculatorService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        calculatorService = new CalculatorService(ExpressionCache.disabled(), new CalculatorProperties(),
+                new CalculatorMetrics(registry));
+    }
+
+    private double outcome(String outcome) {
+        return registry.get("calculator.calculations").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    @DisplayName("結果の種類ごとに件数を記録する")
+    void testOutcomeCounters() {
+        calculatorService.calculate("1 + 2");
+        calculatorService.calculate("3 * 4");
+        calculatorService.calculate("");
+        calculatorService.calculate("2 + abc");
+        calculatorService.calculate("1 / 0");
+        calculatorService.calculate("2..3");
+
+        assertEquals(2, outcome("success"));
+        assertEquals(1, outcome("empty_expression"));
+        assertEquals(1, outcome("invalid_expression"));
+        assertEquals(1, outcome("division_by_zero"));
+        assertEquals(1, outcome("arithmetic_error"));
+        assertEquals(0, outcome("unexpected_error"));
+    }
+
+    @Test
+    @DisplayName("各段階の処理時間と式の大きさを記録する")
+    void testStageTimersAndSummaries() {
+        calculatorService.calculate("12345 + 1.5");
+        calculatorService.calculate("1 / 0");
+
+        assertEquals(2, registry.get("calculator.stage").tag("stage", "parse").timer().count());
+        assertEquals(1, registry.get("calculator.stage").tag("stage", "evaluate").timer().count());
+        assertEquals(1, registry.get("calculator.stage").tag("stage", "format").timer().count());
+        assertEquals(5, registry.get("calculator.expression.operand.digits").summary().max());
+        assertEquals(11, registry.get("calculator.expression.length").summary().max());
+    }
+
+    @Test
+    @DisplayName("繰り返し評価する式の最適化で省略したノードの数を記録する")
+    void testOptimizedNodes() {
+        calculatorService.calculate("(1 + 2) * (3 + 4) + (1 + 2) * (3 + 4) / 5");
+        assertEquals(0, registry.get("calculator.optimizer.eliminated").counter().count());
+
+        calculatorService.compile("(x + 1) * (x + 1) + (x + 1)");
+        assertEquals(4, registry.get("calculator.optimizer.eliminated").counter().count());
+    }
+
+    @Test
+    @DisplayName("無効な場合は何も記録しない")
+    void testDisabled() {
+        CalculatorMetrics metrics = CalculatorMetrics.disabled();
+        assertFalse(metrics.isEnabled());
+        assertEquals(0, metrics.start());
+        assertEquals(0, metrics.recordParse(0));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.calculator.service;
 
+import com.example.calculator.model.CalculationRequest;
 import com.example.calculator.model.CalculationResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,9 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.math.RoundingMode;
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -97,7 +101,7 @@ class CalculatorServiceTest {
     @Test
     @DisplayName("null式エラーテスト")
     void testNullExpression() {
-        CalculationResult result = calculatorService.calculate(null);
+        CalculationResult result = calculatorService.calculate((String) null);
         assertFalse(result.isSuccess());
         assertTrue(result.getErrorMessage().contains("式が入力されていません"));
     }
@@ -204,4 +208,120 @@ class CalculatorServiceTest {
         // 小数点以下10桁まで表示されることを確認
         assertTrue(result.getResult().length() > 3);
     }
+    
+    private static CalculationRequest request(String expression, Integer scale, RoundingMode roundingMode,
+                                              Integer precision) {
+        CalculationRequest request = new CalculationRequest(expression);
+        request.setScale(scale);
+        request.setRoundingMode(roundingMode);
+        request.setPrecision(precision);
+        return request;
+    }
+    
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', nullValues = "null", value = {
+        "1 / 3|null|null|null|0.3333333333",
+        "2 / 3|2|null|null|0.67",
+        "2 / 3|2|DOWN|null|0.66",
+        "1 / 8|2|HALF_EVEN|null|0.12",
+        "-1 / 8|2|FLOOR|null|-0.13",
+        "10 / 4|0|null|null|3",
+        "1 / 3|null|null|30|0.333333333333333333333333333333",
+        "200 / 3|null|DOWN|3|66.6",
+        "1 / 7 * 7|null|null|5|1.00002"
+    })
+    @DisplayName("リクエストごとの除算精度の指定")
+    void testRequestPrecision(String expression, Integer scale, RoundingMode roundingMode, Integer precision,
+                              String expected) {
+        CalculationResult result = calculatorService.calculate(request(expression, scale, roundingMode, precision));
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(expected, result.getResult());
+    }
+    
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', nullValues = "null", value = {
+        "1 / 3 * 3|null|null|1",
+        "1 / 7 * 7|null|5|1",
+        "1 / 3 + 1 / 6|2|null|0.5",
+        "2 / 3|2|null|0.67",
+        "(1 / 3) ^ 2 * 9|null|null|1",
+        "2 ^ -2 * 4|null|null|1",
+        "12345 * 1|null|3|12345",
+        "1.50 * 2|null|null|3",
+        "sqrt(9 / 4) * 2|null|null|3"
+    })
+    @DisplayName("exact を指定すると除算を丸めずに計算し、結果を最後に1回だけ丸める")
+    void testExactRequest(String expression, Integer scale, Integer precision, String expected) {
+        CalculationRequest request = request(expression, scale, null, precision);
+        request.setExact(true);
+        CalculationResult result = calculatorService.calculate(request);
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(expected, result.getResult());
+    }
+    
+    @Test
+    @DisplayName("exact を指定した場合もゼロ除算はエラー")
+    void testExactRequestDivisionByZero() {
+        CalculationRequest request = new CalculationRequest("1 / (2 - 2)");
+        request.setExact(true);
+        CalculationResult result = calculatorService.calculate(request);
+        assertFalse(result.isSuccess());
+        assertEquals("計算エラー: ゼロ除算はできません", result.getErrorMessage());
+    }
+    
+    @Test
+    @DisplayName("有効桁数 10000 桁の除算")
+    void testMaximumPrecision() {
+        CalculationResult result = calculatorService.calculate(request("1 / 3", null, null, 10000));
+        assertTrue(result.isSuccess());
+        assertEquals(10002, result.getResult().length());
+    }
+    
+    @Test
+    @DisplayName("精度の指定が不正な場合はエラー")
+    void testInvalidRequestPrecision() {
+        CalculationResult result = calculatorService.calculate(request("1 / 3", 2, null, 5));
+        assertFalse(result.isSuccess());
+        assertEquals("scale と precision は同時に指定できません", result.getErrorMessage());
+        
+        result = calculatorService.calculate(request("1 / 3", 20000, null, null));
+        assertFalse(result.isSuccess());
+        
+        result = calculatorService.calculate(request("1 / 3", 0, RoundingMode.UNNECESSARY, null));
+        assertFalse(result.isSuccess());
+        assertEquals("計算エラー: Rounding necessary", result.getErrorMessage());
+        
+        result = calculatorService.calculate(request("1 / 4", 2, RoundingMode.UNNECESSARY, null));
+        assertEquals("0.25", result.getResult());
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "exp(20000)",
+        "exp(50000)",
+        "exp(exp(12))",
+        "7^exp(10)",
+        "99999999999^3.14159^7"
+    })
+    @DisplayName("結果が大きすぎる exp・非整数乗は近似値を計算せずにエラーになる")
+    void testHugeFunctionResults(String expression) {
+        CalculationResult result = assertTimeoutPreemptively(Duration.ofSeconds(1),
+                () -> calculatorService.calculate(expression));
+        assertFalse(result.isSuccess());
+        assertEquals("計算エラー: 計算結果が大きすぎます", result.getErrorMessage());
+    }
+    
+    @Test
+    @DisplayName("結果キャッシュは精度ごとに区別される")
+    void testResultCacheKeyIncludesPrecision() {
+        CalculatorService cached = new CalculatorService(
+                ExpressionCache.create(100, 0, null, ExpressionCache.Mode.RESULT));
+        assertEquals("0.3333333333", cached.calculate("1 / 3").getResult());
+        assertEquals("0.33", cached.calculate(request("1 / 3", 2, null, null)).getResult());
+        assertEquals("0.3333333333", cached.calculate("1/3").getResult());
+        CalculationRequest exact = new CalculationRequest("1 / 3 * 3");
+        exact.setExact(true);
+        assertEquals("1", cached.calculate(exact).getResult());
+        assertEquals("0.9999999999", cached.calculate("1 / 3 * 3").getResult());
+    }
 }
@@ -0,0 +1,64 @@
+package com.example.calculator.service;
+
+import com.example.calculator.model.CalculationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExpressionCacheのテストクラス
+ */
+class ExpressionCacheTest {
+
+    @ParameterizedTest
+    @EnumSource(ExpressionCache.Mode.class)
+    @DisplayName("キャッシュ有効時も結果は同じ")
+    void testCachedResultsAreIdentical(ExpressionCache.Mode mode) {
+        CalculatorService uncached = new CalculatorService();
+        CalculatorService cached = new CalculatorService(
+                ExpressionCache.create(100, 0, Duration.ofMinutes(1), mode));
+
+        for (String expression : new String[] {"2 + 3", "2+3", "(1 + 2) / 3", "1 / 0", "2 + abc", "1 / 3"}) {
+            for (int i = 0; i < 2; i++) {
+                CalculationResult expected = uncached.calculate(expression);
+                CalculationResult actual = cached.calculate(expression);
+                assertEquals(expected.toString(), actual.toString(), expression);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("正規化した式が同じならキャッシュにヒットする")
+    void testHitOnNormalizedExpression() {
+        ExpressionCache cache = ExpressionCache.create(100, 0, null, ExpressionCache.Mode.RESULT);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        CalculatorService service = new CalculatorService(cache);
+
+        CalculationResult first = service.calculate("2 + 3");
+        CalculationResult second = service.calculate(" 2+3 ");
+
+        assertEquals("5", second.getResult());
+        assertEquals(" 2+3 ", second.getExpression());
+        assertNotSame(first, second);
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("無効化されたキャッシュ")
+    void testDisabledCache() {
+        ExpressionCache cache = ExpressionCache.disabled();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        assertFalse(cache.isEnabled());
+        assertTrue(registry.getMeters().isEmpty());
+    }
+}
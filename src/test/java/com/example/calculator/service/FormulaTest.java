@@ -0,0 +1,77 @@
+package com.example.calculator.service;
+
+import com.example.calculator.engine.InvalidExpressionException;
+import com.example.calculator.model.CalculationResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Formulaのテストクラス
+ */
+class FormulaTest {
+
+    private final CalculatorService calculatorService = new CalculatorService();
+
+    @Test
+    @DisplayName("変数の値を変えて繰り返し評価できる")
+    void testEvaluateRepeatedly() {
+        Formula formula = calculatorService.compile("price * (1 + rate)");
+        assertEquals(List.of("price", "rate"), formula.getVariables());
+
+        assertEquals("110", formula.evaluate(Map.of("price", 100, "rate", 0.1)).getResult());
+        assertEquals("216", formula.evaluate(new double[] {200, 0.08}).getResult());
+        assertEquals("0.5", formula.evaluate(new BigDecimal("0.5"), BigDecimal.ZERO).getResult());
+    }
+
+    @Test
+    @DisplayName("計算結果の書式は通常の計算と同じ")
+    void testResultMatchesCalculate() {
+        Formula formula = calculatorService.compile("a / b");
+        CalculationResult expected = calculatorService.calculate("10 / 3");
+        assertEquals(expected.getResult(), formula.evaluate(new double[] {10, 3}).getResult());
+    }
+
+    @Test
+    @DisplayName("列単位の評価は行ごとの評価と同じ値を double で返す")
+    void testEvaluateColumns() {
+        Formula formula = calculatorService.compile("price * (1 + rate)");
+        double[] output = new double[3];
+        formula.evaluateColumns(new double[][] {{100, 200, 50}, {0.1, 0.08, 0}}, output);
+        assertEquals(110, output[0], 1e-9);
+        assertEquals(216, output[1], 1e-9);
+        assertEquals(50, output[2]);
+        assertSame(formula.columnar(), formula.columnar());
+    }
+
+    @Test
+    @DisplayName("評価時のエラーは結果として返す")
+    void testEvaluationErrors() {
+        Formula formula = calculatorService.compile("x / y");
+
+        CalculationResult result = formula.evaluate(Map.of("x", 1));
+        assertFalse(result.isSuccess());
+        assertEquals("変数の値が指定されていません: y", result.getErrorMessage());
+
+        result = formula.evaluate(new double[] {1, 0});
+        assertFalse(result.isSuccess());
+        assertEquals("計算エラー: ゼロ除算はできません", result.getErrorMessage());
+
+        result = formula.evaluate(new double[] {Double.NaN, 1});
+        assertFalse(result.isSuccess());
+    }
+
+    @Test
+    @DisplayName("無効な式は登録時にエラー")
+    void testInvalidFormula() {
+        InvalidExpressionException e = assertThrows(InvalidExpressionException.class,
+                () -> calculatorService.compile("  "));
+        assertEquals("式が入力されていません", e.getMessage());
+        assertThrows(InvalidExpressionException.class, () -> calculatorService.compile("x +"));
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.calculator.wire;
+
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CalculationFrameCodecのテストクラス
+ */
+class CalculationFrameCodecTest {
+
+    /**
+     * 長さの部分を読み飛ばしたフレーム
+     */
+    private static ByteBuffer body(ByteBuffer frame) {
+        assertEquals(frame.remaining() - CalculationFrameCodec.LENGTH_SIZE, frame.getInt(frame.position()));
+        return frame.position(frame.position() + CalculationFrameCodec.LENGTH_SIZE).slice();
+    }
+
+    private static ByteBuffer frameOf(int... bytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        for (int b : bytes) {
+            buffer.put((byte) b);
+        }
+        return buffer.flip();
+    }
+
+    @Test
+    @DisplayName("計算リクエストのエンコードとデコード")
+    void testRequestRoundTrip() throws Exception {
+        CalculationRequest request = new CalculationRequest("1 / 3");
+        request.setPrecision(30);
+        request.setRoundingMode(RoundingMode.HALF_EVEN);
+        request.setExact(true);
+
+        ByteBuffer frame = body(CalculationFrameCodec.encodeRequest(request));
+        assertEquals(CalculationFrameCodec.Type.CALCULATE, CalculationFrameCodec.type(frame));
+        List<CalculationRequest> decoded = CalculationFrameCodec.decodeRequests(frame);
+
+        assertEquals(1, decoded.size());
+        assertEquals("1 / 3", decoded.get(0).getExpression());
+        assertNull(decoded.get(0).getScale());
+        assertEquals(30, decoded.get(0).getPrecision());
+        assertEquals(RoundingMode.HALF_EVEN, decoded.get(0).getRoundingMode());
+        assertEquals(Boolean.TRUE, decoded.get(0).getExact());
+    }
+
+    @Test
+    @DisplayName("省略したフィールドは1バイトのフラグのみで表す")
+    void testCompactRequest() throws Exception {
+        ByteBuffer frame = CalculationFrameCodec.encodeRequest(new CalculationRequest("2+3"));
+
+        // length(4) type(1) flags(1) 文字列の長さ(1) "2+3"(3)
+        assertEquals(10, frame.remaining());
+        CalculationRequest decoded = CalculationFrameCodec.decodeRequests(body(frame)).get(0);
+        assertEquals("2+3", decoded.getExpression());
+        assertNull(decoded.getScale());
+        assertNull(decoded.getPrecision());
+        assertNull(decoded.getRoundingMode());
+        assertNull(decoded.getExact());
+    }
+
+    @Test
+    @DisplayName("範囲外や負の scale もそのままデコードする")
+    void testSignedScale() throws Exception {
+        for (int scale : new int[] {0, 1, -1, 63, -64, 10_001, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            CalculationRequest request = new CalculationRequest("1/3");
+            request.setScale(scale);
+            CalculationRequest decoded = CalculationFrameCodec.decodeRequests(
+                    body(CalculationFrameCodec.encodeRequest(request))).get(0);
+            assertEquals(scale, decoded.getScale());
+        }
+    }
+
+    @Test
+    @DisplayName("一括計算リクエストのエンコードとデコード（null の要素は空の式）")
+    void testBatchRequestRoundTrip() throws Exception {
+        List<CalculationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            CalculationRequest request = new CalculationRequest(i + " * 2");
+            if (i % 3 == 0) {
+                request.setScale(i);
+            }
+            requests.add(request);
+        }
+        requests.add(null);
+        requests.add(new CalculationRequest("１＋２"));
+
+        ByteBuffer frame = body(CalculationFrameCodec.encodeBatchRequest(requests));
+        assertEquals(CalculationFrameCodec.Type.BATCH, CalculationFrameCodec.type(frame));
+        List<CalculationRequest> decoded = CalculationFrameCodec.decodeRequests(frame);
+
+        assertEquals(requests.size(), decoded.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + " * 2", decoded.get(i).getExpression());
+            assertEquals(i % 3 == 0 ? Integer.valueOf(i) : null, decoded.get(i).getScale());
+        }
+        assertEquals("", decoded.get(1000).getExpression());
+        assertEquals("１＋２", decoded.get(1001).getExpression());
+    }
+
+    @Test
+    @DisplayName("計算結果のエンコードとデコード（式は含めない）")
+    void testResultRoundTrip() throws Exception {
+        List<CalculationResult> results = List.of(
+                new CalculationResult("2 + 3", "5"),
+                new CalculationResult("1 / 0", "計算エラー: ゼロ除算はできません", false));
+
+        List<CalculationResult> decoded = CalculationFrameCodec.decodeResults(
+                body(CalculationFrameCodec.encodeBatchResult(results)));
+
+        assertEquals(2, decoded.size());
+        assertTrue(decoded.get(0).isSuccess());
+        assertEquals("5", decoded.get(0).getResult());
+        assertNull(decoded.get(0).getExpression());
+        assertFalse(decoded.get(1).isSuccess());
+        assertEquals("計算エラー: ゼロ除算はできません", decoded.get(1).getErrorMessage());
+
+        CalculationResult single = CalculationFrameCodec.decodeResults(
+                body(CalculationFrameCodec.encodeResult(results.get(0)))).get(0);
+        assertEquals("5", single.getResult());
+    }
+
+    @Test
+    @DisplayName("エラーのフレームを結果として読み込むとそのメッセージの例外になる")
+    void testErrorFrame() throws Exception {
+        ByteBuffer frame = body(CalculationFrameCodec.encodeError("一度に計算できる式は10件までです"));
+        assertEquals("一度に計算できる式は10件までです", CalculationFrameCodec.decodeError(frame.duplicate()));
+
+        MalformedFrameException e = assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.decodeResults(frame));
+        assertEquals("一度に計算できる式は10件までです", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("入力からフレームを順に読み込む")
+    void testReadFrame() throws Exception {
+        ByteBuffer first = CalculationFrameCodec.encodeRequest(new CalculationRequest("1+1"));
+        ByteBuffer second = CalculationFrameCodec.encodeBatchRequest(List.of(new CalculationRequest("2+2")));
+        byte[] bytes = new byte[first.remaining() + second.remaining()];
+        first.get(bytes, 0, first.remaining());
+        second.get(bytes, bytes.length - second.remaining(), second.remaining());
+        ByteArrayInputStream input = new ByteArrayInputStream(bytes);
+
+        assertEquals("1+1", CalculationFrameCodec.decodeRequests(CalculationFrameCodec.readFrame(input, 1024))
+                .get(0).getExpression());
+        assertEquals("2+2", CalculationFrameCodec.decodeRequests(CalculationFrameCodec.readFrame(input, 1024))
+                .get(0).getExpression());
+        assertNull(CalculationFrameCodec.readFrame(input, 1024));
+    }
+
+    @Test
+    @DisplayName("長さが不正なフレームや途中で終わる入力は例外")
+    void testReadFrameErrors() {
+        ByteBuffer frame = CalculationFrameCodec.encodeRequest(new CalculationRequest("1+1"));
+        byte[] bytes = Arrays.copyOf(frame.array(), frame.remaining());
+
+        assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.readFrame(new ByteArrayInputStream(bytes), 3));
+        assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.readFrame(new ByteArrayInputStream(Arrays.copyOf(bytes, 7)), 1024));
+        assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.readFrame(new ByteArrayInputStream(new byte[] {0, 0}), 1024));
+        assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.readFrame(new ByteArrayInputStream(new byte[] {0, 0, 0, 0}), 1024));
+    }
+
+    @Test
+    @DisplayName("形式が不正なフレームは例外")
+    void testMalformedFrames() {
+        // 空・不明な種類・結果のフレーム
+        assertThrows(MalformedFrameException.class, () -> CalculationFrameCodec.decodeRequests(frameOf()));
+        assertThrows(MalformedFrameException.class, () -> CalculationFrameCodec.decodeRequests(frameOf(0x10, 0, 0)));
+        assertThrows(MalformedFrameException.class, () -> CalculationFrameCodec.decodeRequests(frameOf(0x41, 0, 0)));
+        // 不明なフラグ・不正な丸めモード
+        assertThrows(MalformedFrameException.class, () -> CalculationFrameCodec.decodeRequests(frameOf(0x01, 0x10, 0)));
+        assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.decodeRequests(frameOf(0x01, 0x04, 99, 0)));
+        // 文字列の長さがフレームを超える・途中で終わる・余分なデータ
+        assertThrows(MalformedFrameException.class, () -> CalculationFrameCodec.decodeRequests(frameOf(0x01, 0, 5, '1')));
+        assertThrows(MalformedFrameException.class, () -> CalculationFrameCodec.decodeRequests(frameOf(0x01, 0x01)));
+        assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.decodeRequests(frameOf(0x01, 0, 1, '1', 0)));
+        // 件数がフレームの長さに対して大きすぎる・整数が32ビットを超える
+        assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.decodeRequests(frameOf(0x02, 0xFF, 0xFF, 0xFF, 0xFF, 0x07, 0, 0)));
+        assertThrows(MalformedFrameException.class,
+                () -> CalculationFrameCodec.decodeRequests(frameOf(0x01, 0x01, 0xFF, 0xFF, 0xFF, 0xFF, 0x1F, 0)));
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.calculator.wire;
+
+import com.example.calculator.model.CalculationRequest;
+import com.example.calculator.model.CalculationResult;
+import com.example.calculator.service.AdmissionControl;
+import com.example.calculator.service.BatchCalculatorService;
+import com.example.calculator.service.CalculatorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CalculationFrameServerのテストクラス
+ */
+class CalculationFrameServerTest {
+
+    private static final int MAX_FRAME_LENGTH = 1024;
+
+    private CalculatorService calculatorService;
+    private BatchCalculatorService batchCalculatorService;
+    private CalculationFrameServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        calculatorService = new CalculatorService();
+        batchCalculatorService = new BatchCalculatorService(calculatorService, 2, 10);
+        server = new CalculationFrameServer(calculatorService, batchCalculatorService, AdmissionControl.disabled(),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), MAX_FRAME_LENGTH);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        batchCalculatorService.shutdown();
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    private static void write(OutputStream output, ByteBuffer frame) throws IOException {
+        output.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+    }
+
+    private static ByteBuffer read(InputStream input) throws IOException {
+        ByteBuffer frame = CalculationFrameCodec.readFrame(input, Integer.MAX_VALUE);
+        assertNotNull(frame);
+        return frame;
+    }
+
+    @Test
+    @DisplayName("計算リクエストと一括計算リクエストのフレームに結果を返す")
+    void testCalculate() throws Exception {
+        try (Socket socket = connect()) {
+            CalculationRequest request = new CalculationRequest("1 / 3");
+            request.setScale(3);
+            write(socket.getOutputStream(), CalculationFrameCodec.encodeRequest(request));
+            List<CalculationResult> results = CalculationFrameCodec.decodeResults(read(socket.getInputStream()));
+            assertEquals("0.333", results.get(0).getResult());
+
+            write(socket.getOutputStream(), CalculationFrameCodec.encodeBatchRequest(List.of(
+                    new CalculationRequest("2 + 3"), new CalculationRequest("1 / 0"), new CalculationRequest(""))));
+            ByteBuffer frame = read(socket.getInputStream());
+            assertEquals(CalculationFrameCodec.Type.BATCH_RESULT, CalculationFrameCodec.type(frame));
+            results = CalculationFrameCodec.decodeResults(frame);
+            assertEquals(3, results.size());
+            assertEquals("5", results.get(0).getResult());
+            assertFalse(results.get(1).isSuccess());
+            assertFalse(results.get(2).isSuccess());
+        }
+    }
+
+    @Test
+    @DisplayName("応答を待たずに送信したフレームには送信した順に結果を返す")
+    void testPipelining() throws Exception {
+        try (Socket socket = connect()) {
+            OutputStream output = socket.getOutputStream();
+            for (int i = 0; i < 100; i++) {
+                write(output, CalculationFrameCodec.encodeRequest(new CalculationRequest(i + " * 2")));
+            }
+            DataInputStream input = new DataInputStream(socket.getInputStream());
+            List<String> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(CalculationFrameCodec.decodeResults(read(input)).get(0).getResult());
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals(String.valueOf(i * 2), results.get(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("件数が上限を超える一括計算はエラーを返し、接続は維持する")
+    void testBatchTooLarge() throws Exception {
+        List<CalculationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            requests.add(new CalculationRequest("1"));
+        }
+        try (Socket socket = connect()) {
+            write(socket.getOutputStream(), CalculationFrameCodec.encodeBatchRequest(requests));
+            ByteBuffer frame = read(socket.getInputStream());
+            assertEquals("一度に計算できる式は10件までです", CalculationFrameCodec.decodeError(frame));
+
+            write(socket.getOutputStream(), CalculationFrameCodec.encodeRequest(new CalculationRequest("1 + 1")));
+            assertEquals("2", CalculationFrameCodec.decodeResults(read(socket.getInputStream())).get(0).getResult());
+        }
+    }
+
+    @Test
+    @DisplayName("受付制御で拒否された場合はエラーを返し、接続は維持する")
+    void testAdmissionRejected() throws Exception {
+        server.close();
+        AdmissionControl admissionControl = new AdmissionControl(1, 1, 1, 0, Duration.ZERO, 100, Duration.ZERO);
+        server = new CalculationFrameServer(calculatorService, batchCalculatorService, admissionControl,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), MAX_FRAME_LENGTH);
+
+        try (Socket socket = connect()) {
+            write(socket.getOutputStream(), CalculationFrameCodec.encodeRequest(new CalculationRequest("1 + 1")));
+            assertEquals("2", CalculationFrameCodec.decodeResults(read(socket.getInputStream())).get(0).getResult());
+
+            write(socket.getOutputStream(), CalculationFrameCodec.encodeRequest(new CalculationRequest("2 + 2")));
+            assertTrue(CalculationFrameCodec.decodeError(read(socket.getInputStream())).startsWith("リクエストが多すぎます"));
+            assertEquals(0, admissionControl.getActive());
+        }
+    }
+
+    @Test
+    @DisplayName("形式が不正なフレームや大きすぎるフレームはエラーを返して接続を閉じる")
+    void testMalformedFrame() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(new byte[] {0, 0, 0, 2, 0x10, 0});
+            ByteBuffer frame = read(socket.getInputStream());
+            assertEquals(CalculationFrameCodec.Type.ERROR, CalculationFrameCodec.type(frame));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(ByteBuffer.allocate(4).putInt(MAX_FRAME_LENGTH + 1).array());
+            ByteBuffer frame = read(socket.getInputStream());
+            assertTrue(CalculationFrameCodec.decodeError(frame).startsWith("フレームが大きすぎます"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    @DisplayName("終了すると接続中のクライアントも切断される")
+    void testClose() throws Exception {
+        try (Socket socket = connect()) {
+            write(socket.getOutputStream(), CalculationFrameCodec.encodeRequest(new CalculationRequest("1 + 1")));
+            read(socket.getInputStream());
+
+            server.close();
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        // 終了によって受け付けが終わった場合は失敗として数えない
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        server.bindTo(registry);
+        assertEquals(0, registry.get("calculator.wire.accept.errors").functionCounter().count());
+        assertEquals(0, server.getAcceptErrors());
+    }
+}